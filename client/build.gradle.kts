@@ -19,18 +19,19 @@ repositories {
 
 dependencies {
 	implementation("org.springframework.boot:spring-boot-starter-websocket")
+	implementation("com.fasterxml.jackson.dataformat:jackson-dataformat-cbor")
 	testRuntimeOnly("org.junit.platform:junit-platform-launcher")
 
     implementation("org.projectlombok:lombok:1.18.24")
     annotationProcessor("org.projectlombok:lombok:1.18.24")
 
-	// testImplementation("org.springframework.boot:spring-boot-starter-test")
+	testImplementation("org.springframework.boot:spring-boot-starter-test")
 
 }
 
-// tasks.withType<Test> {
-// 	useJUnitPlatform()
-// }
+tasks.withType<Test> {
+	useJUnitPlatform()
+}
 
 springBoot {
     mainClass.set("io.github.cue.clipboardbridge.client.presentation.ClientApplication")
@@ -4,6 +4,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 /**
  * Доменная модель сообщения-команды.
@@ -17,5 +18,12 @@ public class CommandMessage {
     private String command;
     private String option;
     private String content;
+    /**
+     * Сжатое содержимое в кодировке UTF-8, передаётся вместо {@code content}.
+     * Алгоритм сжатия указывается в заголовке STOMP {@code content-encoding}.
+     * Не выводится в {@code toString}, так как команды пишутся в журнал.
+     */
+    @ToString.Exclude
+    private byte[] compressedContent;
     private Long targetUserId;
 } 
\ No newline at end of file
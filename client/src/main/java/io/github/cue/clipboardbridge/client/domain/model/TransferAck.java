@@ -0,0 +1,35 @@
+package io.github.cue.clipboardbridge.client.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Подтверждение сервера для передачи по частям. Сервер подтверждает каждый
+ * кадр передачи номером следующей ожидаемой части, клиент не отправляет
+ * больше нескольких неподтверждённых частей и при пропуске повторяет
+ * передачу с указанного номера.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TransferAck {
+
+    public enum Status {
+        /** Кадр принят, передача продолжается. */
+        ACCEPTED,
+        /** Содержимое проверено, команда принята к обработке. */
+        COMPLETED,
+        /** Передача отменена сервером и не может быть продолжена. */
+        FAILED
+    }
+
+    private String transferId;
+    /** Номер следующей ожидаемой части. */
+    private long nextSequence;
+    private Status status;
+    /** Причина отмены передачи. */
+    private String error;
+}
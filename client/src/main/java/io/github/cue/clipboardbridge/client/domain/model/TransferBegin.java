@@ -0,0 +1,31 @@
+package io.github.cue.clipboardbridge.client.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Начало передачи содержимого команды по частям, отправляется на сервер.
+ * Содержимое, которое не помещается в один кадр STOMP, передаётся частями
+ * фиксированного размера, после чего передача подтверждается {@link TransferCommit}.
+ * Повторное начало передачи с тем же ID продолжает её с последней принятой части.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TransferBegin {
+    /** ID передачи, выбранный клиентом. */
+    private String transferId;
+    /** Команда без содержимого. */
+    private CommandMessage command;
+    /** Алгоритм сжатия содержимого или null. */
+    private String contentEncoding;
+    /** Размер передаваемых байтов содержимого. */
+    private long totalSize;
+    /** Размер каждой части, кроме последней. */
+    private int chunkSize;
+    /** CRC32C всего содержимого. */
+    private long checksum;
+}
@@ -0,0 +1,97 @@
+package io.github.cue.clipboardbridge.client.infrastructure.config;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+/**
+ * Постоянная идентичность клиента: ID и токен возобновления сессии.
+ * Выдаются сервером после первого подключения и сохраняются в файле конфигурации,
+ * чтобы после переподключения сервер узнавал клиента и доставлял ему
+ * ожидающие ответы. Если сервер не принял сохранённую пару, он выдаёт новую.
+ */
+@Component
+@Slf4j
+@Getter
+public class ClientIdentity {
+
+    public static final String CLIENT_ID_HEADER = "X-Client-Id";
+    public static final String RESUME_TOKEN_HEADER = "X-Resume-Token";
+
+    private static final String CLIENT_ID_PROPERTY = "client.id";
+    private static final String RESUME_TOKEN_PROPERTY = "client.resume.token";
+
+    private final Path configFilePath = Paths.get(System.getProperty("user.home"), ".clipboard-bridge",
+            "client-config.properties");
+
+    private volatile String clientId;
+    private volatile String resumeToken;
+
+    public ClientIdentity() {
+        Properties props = loadProperties();
+        String savedClientId = props.getProperty(CLIENT_ID_PROPERTY);
+        String savedResumeToken = props.getProperty(RESUME_TOKEN_PROPERTY);
+        if (savedClientId != null && !savedClientId.isEmpty() && savedResumeToken != null && !savedResumeToken.isEmpty()) {
+            this.clientId = savedClientId;
+            this.resumeToken = savedResumeToken;
+            log.info("Загружен постоянный ID клиента: {}", clientId);
+        } else {
+            log.info("Постоянный ID клиента ещё не выдан сервером");
+        }
+    }
+
+    /**
+     * @return true если у клиента есть ID и токен для возобновления сессии
+     */
+    public boolean isPresent() {
+        return clientId != null && resumeToken != null;
+    }
+
+    /**
+     * Сохраняет идентичность, выданную сервером.
+     *
+     * @param clientId ID клиента
+     * @param resumeToken токен возобновления
+     */
+    public synchronized void update(String clientId, String resumeToken) {
+        if (clientId == null || resumeToken == null
+                || (clientId.equals(this.clientId) && resumeToken.equals(this.resumeToken))) {
+            return;
+        }
+        this.clientId = clientId;
+        this.resumeToken = resumeToken;
+
+        Properties props = loadProperties();
+        props.setProperty(CLIENT_ID_PROPERTY, clientId);
+        props.setProperty(RESUME_TOKEN_PROPERTY, resumeToken);
+        try {
+            Files.createDirectories(configFilePath.getParent());
+            try (OutputStream out = Files.newOutputStream(configFilePath)) {
+                props.store(out, "Clipboard Bridge Client Configuration");
+            }
+            log.info("Сохранён постоянный ID клиента: {}", clientId);
+        } catch (IOException e) {
+            log.error("Не удалось сохранить ID клиента в файл {}: {}", configFilePath, e.getMessage(), e);
+        }
+    }
+
+    private Properties loadProperties() {
+        Properties props = new Properties();
+        if (Files.exists(configFilePath)) {
+            try (InputStream in = Files.newInputStream(configFilePath)) {
+                props.load(in);
+            } catch (IOException e) {
+                log.warn("Ошибка при чтении файла конфигурации {}: {}", configFilePath, e.getMessage());
+            }
+        }
+        return props;
+    }
+}
@@ -0,0 +1,70 @@
+package io.github.cue.clipboardbridge.client.infrastructure.config;
+
+import java.util.Locale;
+
+import org.springframework.http.MediaType;
+import org.springframework.util.MimeType;
+
+/**
+ * Формат полезной нагрузки STOMP сообщений.
+ * CBOR передаётся бинарными кадрами, которые SockJS не поддерживает,
+ * поэтому в этом формате клиент подключается к серверу по обычному WebSocket.
+ */
+public enum MessagingCodec {
+
+    JSON(MediaType.APPLICATION_JSON, false),
+    CBOR(MediaType.APPLICATION_CBOR, true);
+
+    private static final String RAW_WEBSOCKET_PATH = "/websocket";
+
+    private final MimeType contentType;
+    private final boolean binary;
+
+    MessagingCodec(MimeType contentType, boolean binary) {
+        this.contentType = contentType;
+        this.binary = binary;
+    }
+
+    /**
+     * @return тип содержимого сообщений
+     */
+    public MimeType getContentType() {
+        return contentType;
+    }
+
+    /**
+     * @return true если сообщения передаются бинарными кадрами без SockJS
+     */
+    public boolean isBinary() {
+        return binary;
+    }
+
+    /**
+     * Преобразует адрес SockJS конечной точки в адрес, к которому подключается клиент.
+     * Для бинарного формата используется адрес обычного WebSocket соединения
+     * той же конечной точки: {@code http://host/ws} -> {@code ws://host/ws/websocket}.
+     *
+     * @param sockJsUrl адрес SockJS конечной точки
+     * @return адрес для подключения
+     */
+    public String resolveServerUrl(String sockJsUrl) {
+        if (!binary) {
+            return sockJsUrl;
+        }
+        String url = sockJsUrl.endsWith("/") ? sockJsUrl.substring(0, sockJsUrl.length() - 1) : sockJsUrl;
+        if (url.startsWith("https://")) {
+            url = "wss://" + url.substring("https://".length());
+        } else if (url.startsWith("http://")) {
+            url = "ws://" + url.substring("http://".length());
+        }
+        return url.endsWith(RAW_WEBSOCKET_PATH) ? url : url + RAW_WEBSOCKET_PATH;
+    }
+
+    /**
+     * @param value название формата без учёта регистра
+     * @return формат
+     */
+    public static MessagingCodec fromProperty(String value) {
+        return valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+}
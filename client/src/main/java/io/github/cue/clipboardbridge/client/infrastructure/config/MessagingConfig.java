@@ -3,9 +3,14 @@ package io.github.cue.clipboardbridge.client.infrastructure.config;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.messaging.converter.CompositeMessageConverter;
 import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.web.socket.client.WebSocketClient;
 import org.springframework.web.socket.client.standard.StandardWebSocketClient;
 import org.springframework.web.socket.messaging.WebSocketStompClient;
@@ -14,6 +19,9 @@ import org.springframework.web.socket.sockjs.client.Transport;
 import org.springframework.web.socket.sockjs.client.WebSocketTransport;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+
+import io.github.cue.clipboardbridge.client.infrastructure.messaging.BinaryFrameWebSocketClient;
 
 /**
  * Конфигурация для работы с WebSocket и STOMP.
@@ -23,39 +31,79 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 public class MessagingConfig {
     
     /**
-     * Создает SockJS клиент для WebSocket соединений.
+     * Формат полезной нагрузки сообщений.
+     * 
+     * @param codec название формата: cbor или json
+     * @return формат сообщений
+     */
+    @Bean
+    public MessagingCodec messagingCodec(@Value("${messaging.codec:cbor}") String codec) {
+        return MessagingCodec.fromProperty(codec);
+    }
+    
+    /**
+     * Создает клиент для WebSocket соединений. Для бинарного формата сообщений
+     * используется обычный WebSocket, иначе SockJS.
      * 
-     * @return сконфигурированный SockJS клиент
+     * @param messagingCodec формат сообщений
+     * @return сконфигурированный клиент
      */
     @Bean
-    public WebSocketClient webSocketClient() {
+    public WebSocketClient webSocketClient(MessagingCodec messagingCodec) {
+        if (messagingCodec.isBinary()) {
+            return new BinaryFrameWebSocketClient(new StandardWebSocketClient());
+        }
         List<Transport> transports = new ArrayList<>();
         transports.add(new WebSocketTransport(new StandardWebSocketClient()));
         return new SockJsClient(transports);
     }
     
+    /**
+     * Создает планировщик для отправки heartbeat STOMP.
+     * 
+     * @return планировщик задач
+     */
+    @Bean
+    public ThreadPoolTaskScheduler stompHeartbeatScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(1);
+        scheduler.setThreadNamePrefix("stomp-heartbeat-");
+        scheduler.setDaemon(true);
+        scheduler.initialize();
+        return scheduler;
+    }
+    
     /**
      * Создает STOMP клиент для работы по WebSocket.
+     * Клиент отправляет heartbeat, по которым сервер отличает живое соединение от зависшего.
      * 
-     * @param sockJsClient сконфигурированный SockJS клиент
+     * @param webSocketClient сконфигурированный WebSocket клиент
      * @return сконфигурированный STOMP клиент
      */
     @Bean
-    public WebSocketStompClient stompClient(WebSocketClient webSocketClient) {
+    public WebSocketStompClient stompClient(WebSocketClient webSocketClient,
+                                            @Value("${messaging.heartbeat.ms:10000}") long heartbeatMs) {
         WebSocketStompClient stompClient = new WebSocketStompClient(webSocketClient);
         stompClient.setMessageConverter(messageConverter());
+        stompClient.setTaskScheduler(stompHeartbeatScheduler());
+        stompClient.setDefaultHeartbeat(new long[] {heartbeatMs, heartbeatMs});
         return stompClient;
     }
     
     /**
-     * Создает конвертер сообщений для сериализации/десериализации JSON.
+     * Создает конвертер сообщений для сериализации/десериализации CBOR и JSON.
+     * Формат входящего сообщения выбирается по заголовку content-type,
+     * сообщения без заголовка разбираются как JSON.
      * 
      * @return сконфигурированный конвертер
      */
     @Bean
-    public MappingJackson2MessageConverter messageConverter() {
-        MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter();
-        converter.setObjectMapper(new ObjectMapper());
-        return converter;
+    public MessageConverter messageConverter() {
+        MappingJackson2MessageConverter cborConverter =
+                new MappingJackson2MessageConverter(new CBORMapper(), MediaType.APPLICATION_CBOR);
+        cborConverter.setStrictContentTypeMatch(true);
+        MappingJackson2MessageConverter jsonConverter = new MappingJackson2MessageConverter();
+        jsonConverter.setObjectMapper(new ObjectMapper());
+        return new CompositeMessageConverter(List.of(cborConverter, jsonConverter));
     }
 } 
\ No newline at end of file
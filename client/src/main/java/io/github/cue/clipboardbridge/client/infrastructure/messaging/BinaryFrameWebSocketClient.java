@@ -0,0 +1,107 @@
+package io.github.cue.clipboardbridge.client.infrastructure.messaging;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.client.WebSocketClient;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+/**
+ * WebSocket клиент, отправляющий кадры STOMP с CBOR телом бинарными сообщениями.
+ * STOMP клиент кодирует кадры в текстовые сообщения, которые при передаче
+ * перекодировали бы тело как UTF-8 и повредили бы его.
+ */
+public class BinaryFrameWebSocketClient implements WebSocketClient {
+
+    private static final byte[] CBOR_CONTENT_TYPE_HEADER =
+            ("\ncontent-type:" + MediaType.APPLICATION_CBOR_VALUE).getBytes(StandardCharsets.US_ASCII);
+
+    private final WebSocketClient delegate;
+
+    public BinaryFrameWebSocketClient(WebSocketClient delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public CompletableFuture<WebSocketSession> execute(WebSocketHandler webSocketHandler,
+                                                       String uriTemplate, Object... uriVariables) {
+        return delegate.execute(decorate(webSocketHandler), uriTemplate, uriVariables);
+    }
+
+    @Override
+    public CompletableFuture<WebSocketSession> execute(WebSocketHandler webSocketHandler,
+                                                       WebSocketHttpHeaders headers, URI uri) {
+        return delegate.execute(decorate(webSocketHandler), headers, uri);
+    }
+
+    private static WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                super.afterConnectionEstablished(new BinaryFrameSession(session));
+            }
+        };
+    }
+
+    /**
+     * Проверяет, что кадр STOMP содержит тело в формате CBOR.
+     * Просматриваются только заголовки кадра до пустой строки; тип должен совпадать
+     * целиком, допускаются только параметры после {@code ;}.
+     * Правило совпадает с правилом сервера ({@code SessionCodecRegistry}) и описано в server/README.md.
+     */
+    static boolean isCborFrame(byte[] frame) {
+        int limit = frame.length - CBOR_CONTENT_TYPE_HEADER.length;
+        for (int i = 0; i <= limit; i++) {
+            if (frame[i] != '\n') {
+                continue;
+            }
+            if (frame[i + 1] == '\n') {
+                return false;
+            }
+            int j = 1;
+            while (j < CBOR_CONTENT_TYPE_HEADER.length && frame[i + j] == CBOR_CONTENT_TYPE_HEADER[j]) {
+                j++;
+            }
+            if (j == CBOR_CONTENT_TYPE_HEADER.length && isHeaderValueEnd(frame, i + j)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true, если значение заголовка кончается на позиции {@code index}
+     */
+    private static boolean isHeaderValueEnd(byte[] frame, int index) {
+        return index == frame.length || frame[index] == '\n' || frame[index] == '\r' || frame[index] == ';';
+    }
+
+    private static final class BinaryFrameSession extends WebSocketSessionDecorator {
+
+        BinaryFrameSession(WebSocketSession delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) throws IOException {
+            if (message instanceof TextMessage) {
+                byte[] frame = ((TextMessage) message).asBytes();
+                if (isCborFrame(frame)) {
+                    super.sendMessage(new BinaryMessage(frame));
+                    return;
+                }
+            }
+            super.sendMessage(message);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package io.github.cue.clipboardbridge.client.infrastructure.messaging;
+
+import java.lang.reflect.Type;
+import java.util.Objects;
+
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+
+import io.github.cue.clipboardbridge.client.domain.model.SessionIdentity;
+import io.github.cue.clipboardbridge.client.infrastructure.config.ClientIdentity;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Принимает ID клиента и токен возобновления, выданные сервером при подключении,
+ * и сохраняет их для следующих подключений.
+ */
+@Slf4j
+public class SessionIdentityHandler implements StompFrameHandler {
+
+    /**
+     * Очередь идентичности на сервере.
+     */
+    public static final String DESTINATION = "/user/queue/identity";
+
+    private final ClientIdentity clientIdentity;
+
+    public SessionIdentityHandler(ClientIdentity clientIdentity) {
+        this.clientIdentity = clientIdentity;
+    }
+
+    @Override
+    public Type getPayloadType(StompHeaders headers) {
+        return SessionIdentity.class;
+    }
+
+    @Override
+    public void handleFrame(StompHeaders headers, Object payload) {
+        SessionIdentity identity = (SessionIdentity) payload;
+        if (!Objects.equals(identity.getClientId(), clientIdentity.getClientId())) {
+            log.info("Сервер выдал клиенту ID {}", identity.getClientId());
+        }
+        clientIdentity.update(identity.getClientId(), identity.getResumeToken());
+    }
+}
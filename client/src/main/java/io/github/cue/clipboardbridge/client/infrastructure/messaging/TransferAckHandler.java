@@ -0,0 +1,92 @@
+package io.github.cue.clipboardbridge.client.infrastructure.messaging;
+
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+
+import io.github.cue.clipboardbridge.client.domain.model.TransferAck;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Принимает подтверждения сервера для передач по частям и передаёт
+ * их потокам, ожидающим подтверждения своей передачи.
+ */
+@Slf4j
+public class TransferAckHandler implements StompFrameHandler {
+
+    /**
+     * Очередь подтверждений на сервере.
+     */
+    public static final String DESTINATION = "/user/queue/transfer";
+
+    private final Map<String, BlockingQueue<TransferAck>> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Начинает приём подтверждений передачи.
+     *
+     * @param transferId ID передачи
+     */
+    public void register(String transferId) {
+        pending.put(transferId, new LinkedBlockingQueue<>());
+    }
+
+    /**
+     * Прекращает приём подтверждений передачи.
+     *
+     * @param transferId ID передачи
+     */
+    public void unregister(String transferId) {
+        pending.remove(transferId);
+    }
+
+    /**
+     * Отбрасывает полученные, но не прочитанные подтверждения передачи.
+     *
+     * @param transferId ID передачи
+     */
+    public void clear(String transferId) {
+        BlockingQueue<TransferAck> queue = pending.get(transferId);
+        if (queue != null) {
+            queue.clear();
+        }
+    }
+
+    /**
+     * Ожидает следующее подтверждение передачи.
+     *
+     * @param transferId ID передачи
+     * @param timeout время ожидания
+     * @param unit единица времени ожидания
+     * @return подтверждение или null, если время ожидания истекло
+     * @throws InterruptedException если ожидание прервано
+     */
+    public TransferAck await(String transferId, long timeout, TimeUnit unit) throws InterruptedException {
+        BlockingQueue<TransferAck> queue = pending.get(transferId);
+        if (queue == null) {
+            throw new IllegalStateException("Передача не зарегистрирована: " + transferId);
+        }
+        return queue.poll(timeout, unit);
+    }
+
+    @Override
+    public Type getPayloadType(StompHeaders headers) {
+        return TransferAck.class;
+    }
+
+    @Override
+    public void handleFrame(StompHeaders headers, Object payload) {
+        TransferAck ack = (TransferAck) payload;
+        BlockingQueue<TransferAck> queue = pending.get(ack.getTransferId());
+        if (queue == null) {
+            log.debug("Подтверждение для неизвестной передачи: {}", ack);
+            return;
+        }
+        queue.offer(ack);
+    }
+}
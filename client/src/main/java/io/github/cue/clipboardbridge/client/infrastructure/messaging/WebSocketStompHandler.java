@@ -18,14 +18,21 @@ import java.lang.reflect.Type;
 public class WebSocketStompHandler extends StompSessionHandlerAdapter {
 
     private final ServerReplyListener listener;
+    private final TransferAckHandler transferAckHandler;
+    private final SessionIdentityHandler identityHandler;
     
     /**
      * Создает новый обработчик сессий с указанным future для получения ответа.
      * 
      * @param listener Слушатель для обработки входящих ответов и ошибок.
+     * @param transferAckHandler Обработчик подтверждений передач по частям.
+     * @param identityHandler Обработчик идентичности, выданной сервером.
      */
-    public WebSocketStompHandler(ServerReplyListener listener) {
+    public WebSocketStompHandler(ServerReplyListener listener, TransferAckHandler transferAckHandler,
+                                 SessionIdentityHandler identityHandler) {
         this.listener = listener;
+        this.transferAckHandler = transferAckHandler;
+        this.identityHandler = identityHandler;
     }
 
     @Override
@@ -34,6 +41,10 @@ public class WebSocketStompHandler extends StompSessionHandlerAdapter {
         
         session.subscribe("/user/queue/reply", this);
         log.info("Подписан на /user/queue/reply");
+        
+        session.subscribe(TransferAckHandler.DESTINATION, transferAckHandler);
+        
+        session.subscribe(SessionIdentityHandler.DESTINATION, identityHandler);
     }
 
     @Override
@@ -0,0 +1,170 @@
+package io.github.cue.clipboardbridge.client.infrastructure.service;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Сжимает большое содержимое буфера обмена перед отправкой на сервер.
+ * Содержимое короче порога отправляется как есть. Перед сжатием оценивается
+ * энтропия выборки байтов: уже сжатые или случайные данные не сжимаются,
+ * чтобы не тратить на них процессорное время. Если сжатие не уменьшило
+ * размер, отправляется исходное содержимое.
+ */
+@Service
+@Slf4j
+public class ContentCompressor {
+
+    /**
+     * Алгоритм сжатия, название передаётся в заголовке STOMP {@code content-encoding}.
+     */
+    public static final String DEFLATE = "deflate";
+
+    private static final String NONE = "none";
+    private static final int ENTROPY_SAMPLE_SIZE = 4096;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final boolean enabled;
+    private final int minSize;
+    private final int level;
+    private final double maxEntropy;
+
+    private final LongAdder compressedCount = new LongAdder();
+    private final LongAdder skippedCount = new LongAdder();
+    private final LongAdder bytesSaved = new LongAdder();
+    private final LongAdder cpuTimeNanos = new LongAdder();
+
+    /**
+     * @param algorithm алгоритм сжатия: deflate или none
+     * @param minSize минимальная длина содержимого в символах для сжатия
+     * @param level уровень сжатия deflate от 1 (быстрее) до 9 (плотнее)
+     * @param maxEntropy энтропия выборки в битах на байт, выше которой данные считаются несжимаемыми
+     */
+    public ContentCompressor(
+            @Value("${messaging.compression.algorithm:deflate}") String algorithm,
+            @Value("${messaging.compression.min-size:8192}") int minSize,
+            @Value("${messaging.compression.level:1}") int level,
+            @Value("${messaging.compression.max-entropy:7.5}") double maxEntropy) {
+        String normalized = algorithm.trim().toLowerCase(Locale.ROOT);
+        if (!DEFLATE.equals(normalized) && !NONE.equals(normalized)) {
+            throw new IllegalArgumentException("Неизвестный алгоритм сжатия: " + algorithm);
+        }
+        this.enabled = DEFLATE.equals(normalized);
+        this.minSize = minSize;
+        this.level = Math.max(Deflater.BEST_SPEED, Math.min(Deflater.BEST_COMPRESSION, level));
+        this.maxEntropy = maxEntropy;
+    }
+
+    /**
+     * Сжимает содержимое, если это выгодно.
+     *
+     * @param content содержимое
+     * @return сжатое содержимое в кодировке UTF-8 или null, если его следует отправить как есть
+     */
+    public byte[] compress(String content) {
+        if (!enabled || content == null || content.length() < minSize) {
+            return null;
+        }
+        long cpuStart = THREADS.getCurrentThreadCpuTime();
+        long wallStart = System.nanoTime();
+        byte[] source = content.getBytes(StandardCharsets.UTF_8);
+        double entropy = sampleEntropy(source);
+        byte[] compressed = entropy < maxEntropy ? deflate(source) : null;
+        long cpuEnd = THREADS.getCurrentThreadCpuTime();
+        long elapsed = cpuStart >= 0 && cpuEnd >= 0 ? cpuEnd - cpuStart : System.nanoTime() - wallStart;
+        cpuTimeNanos.add(elapsed);
+
+        if (compressed == null || compressed.length >= source.length) {
+            skippedCount.increment();
+            log.debug("Содержимое {} байт отправляется без сжатия (энтропия {} бит/байт)",
+                    source.length, String.format(Locale.ROOT, "%.2f", entropy));
+            return null;
+        }
+        compressedCount.increment();
+        bytesSaved.add(source.length - compressed.length);
+        log.debug("Содержимое сжато: {} -> {} байт за {} мкс",
+                source.length, compressed.length, TimeUnit.NANOSECONDS.toMicros(elapsed));
+        return compressed;
+    }
+
+    /**
+     * @return количество сжатых сообщений
+     */
+    public long getCompressedCount() {
+        return compressedCount.sum();
+    }
+
+    /**
+     * @return количество сообщений выше порога, отправленных без сжатия
+     */
+    public long getSkippedCount() {
+        return skippedCount.sum();
+    }
+
+    /**
+     * @return сэкономлено байт при передаче
+     */
+    public long getBytesSaved() {
+        return bytesSaved.sum();
+    }
+
+    /**
+     * @return процессорное время, затраченное на оценку и сжатие, в наносекундах
+     */
+    public long getCpuTimeNanos() {
+        return cpuTimeNanos.sum();
+    }
+
+    private byte[] deflate(byte[] source) {
+        Deflater deflater = new Deflater(level);
+        try {
+            deflater.setInput(source);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(source.length / 4);
+            byte[] buffer = new byte[Math.max(64, Math.min(BUFFER_SIZE, source.length))];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+                if (out.size() >= source.length) {
+                    return null;
+                }
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Оценивает энтропию Шеннона по равномерной выборке байтов.
+     *
+     * @return энтропия в битах на байт, от 0 до 8
+     */
+    private static double sampleEntropy(byte[] data) {
+        int step = Math.max(1, data.length / ENTROPY_SAMPLE_SIZE);
+        int[] histogram = new int[256];
+        int samples = 0;
+        for (int i = 0; i < data.length; i += step) {
+            histogram[data[i] & 0xFF]++;
+            samples++;
+        }
+        double entropy = 0;
+        for (int count : histogram) {
+            if (count > 0) {
+                double p = (double) count / samples;
+                entropy -= p * Math.log(p);
+            }
+        }
+        return entropy / Math.log(2);
+    }
+}
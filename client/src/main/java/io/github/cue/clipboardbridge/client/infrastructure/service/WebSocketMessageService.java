@@ -1,22 +1,37 @@
 package io.github.cue.clipboardbridge.client.infrastructure.service;
 
 import io.github.cue.clipboardbridge.client.domain.model.CommandMessage;
+import io.github.cue.clipboardbridge.client.domain.model.TransferAck;
+import io.github.cue.clipboardbridge.client.domain.model.TransferBegin;
+import io.github.cue.clipboardbridge.client.domain.model.TransferChunk;
+import io.github.cue.clipboardbridge.client.domain.model.TransferCommit;
 import io.github.cue.clipboardbridge.client.domain.service.MessageService;
 import io.github.cue.clipboardbridge.client.domain.service.ServerReplyListener;
+import io.github.cue.clipboardbridge.client.infrastructure.config.ClientIdentity;
+import io.github.cue.clipboardbridge.client.infrastructure.config.MessagingCodec;
 import io.github.cue.clipboardbridge.client.infrastructure.config.ServerConfig;
+import io.github.cue.clipboardbridge.client.infrastructure.messaging.SessionIdentityHandler;
+import io.github.cue.clipboardbridge.client.infrastructure.messaging.TransferAckHandler;
 import io.github.cue.clipboardbridge.client.infrastructure.messaging.WebSocketStompHandler;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.stomp.StompHeaders;
 import org.springframework.messaging.simp.stomp.StompSession;
 import org.springframework.stereotype.Service;
+import org.springframework.web.socket.WebSocketHttpHeaders;
 import org.springframework.web.socket.messaging.WebSocketStompClient;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.zip.CRC32C;
 
 /**
  * Реализация сервиса для работы с сообщениями через WebSocket и STOMP протокол.
@@ -26,31 +41,61 @@ import java.util.concurrent.TimeoutException;
 @Slf4j
 public class WebSocketMessageService implements MessageService {
 
+    private static final String CORRELATION_ID_HEADER = "correlation-id";
+    private static final String SENT_AT_HEADER = "sent-at";
+    private static final String ACCEPT_CONTENT_TYPE_HEADER = "accept-content-type";
+    private static final String CONTENT_ENCODING_HEADER = "content-encoding";
+
     private final WebSocketStompClient stompClient;
     private final ServerConfig serverConfig;
+    private final MessagingCodec messagingCodec;
+    private final ContentCompressor contentCompressor;
+    private final ClientIdentity clientIdentity;
     private final ServerReplyListener serverReplyListener;
     private final int timeoutSeconds;
+    private final int chunkSize;
+    private final int transferWindow;
+    private final int transferAttempts;
+    private final TransferAckHandler transferAcks = new TransferAckHandler();
     
-    private StompSession session;
+    private volatile StompSession session;
     
     /**
      * Создает сервис сообщений с указанными параметрами.
      * 
      * @param stompClient STOMP клиент
      * @param serverConfig конфигурация сервера
+     * @param messagingCodec формат сообщений
+     * @param contentCompressor сжатие большого содержимого
+     * @param clientIdentity постоянная идентичность клиента
      * @param serverReplyListener слушатель ответов сервера
      * @param timeoutSeconds таймаут операций в секундах
+     * @param chunkSize размер части при передаче большого содержимого по частям
+     * @param transferWindow количество частей, отправляемых без подтверждения сервера
+     * @param transferAttempts количество попыток передачи по частям с переподключением
      */
     @Autowired
     public WebSocketMessageService(
             WebSocketStompClient stompClient,
             ServerConfig serverConfig,
+            MessagingCodec messagingCodec,
+            ContentCompressor contentCompressor,
+            ClientIdentity clientIdentity,
             @Lazy ServerReplyListener serverReplyListener,
-            @Value("${messaging.timeout.seconds:30}") int timeoutSeconds) {
+            @Value("${messaging.timeout.seconds:30}") int timeoutSeconds,
+            @Value("${messaging.transfer.chunk-size:32768}") int chunkSize,
+            @Value("${messaging.transfer.window:4}") int transferWindow,
+            @Value("${messaging.transfer.attempts:3}") int transferAttempts) {
         this.stompClient = stompClient;
         this.serverConfig = serverConfig;
+        this.messagingCodec = messagingCodec;
+        this.contentCompressor = contentCompressor;
+        this.clientIdentity = clientIdentity;
         this.serverReplyListener = serverReplyListener;
         this.timeoutSeconds = timeoutSeconds;
+        this.chunkSize = chunkSize;
+        this.transferWindow = Math.max(1, transferWindow);
+        this.transferAttempts = Math.max(1, transferAttempts);
     }
     
     /**
@@ -64,11 +109,20 @@ public class WebSocketMessageService implements MessageService {
         }
 
         try {
-            WebSocketStompHandler sessionHandler = new WebSocketStompHandler(serverReplyListener);
+            WebSocketStompHandler sessionHandler = new WebSocketStompHandler(serverReplyListener, transferAcks,
+                    new SessionIdentityHandler(clientIdentity));
             
-            String serverUrl = serverConfig.getServerUrl();
-            log.info("Подключение к серверу сообщений: {}", serverUrl);
-            session = stompClient.connectAsync(serverUrl, sessionHandler).get(timeoutSeconds, TimeUnit.SECONDS);
+            String serverUrl = messagingCodec.resolveServerUrl(serverConfig.getServerUrl());
+            log.info("Подключение к серверу сообщений: {} (формат {})", serverUrl, messagingCodec);
+            WebSocketHttpHeaders handshakeHeaders = new WebSocketHttpHeaders();
+            if (clientIdentity.isPresent()) {
+                handshakeHeaders.add(ClientIdentity.CLIENT_ID_HEADER, clientIdentity.getClientId());
+                handshakeHeaders.add(ClientIdentity.RESUME_TOKEN_HEADER, clientIdentity.getResumeToken());
+            }
+            StompHeaders connectHeaders = new StompHeaders();
+            connectHeaders.set(ACCEPT_CONTENT_TYPE_HEADER, messagingCodec.getContentType().toString());
+            session = stompClient.connectAsync(serverUrl, handshakeHeaders, connectHeaders, sessionHandler)
+                    .get(timeoutSeconds, TimeUnit.SECONDS);
             return session.isConnected();
         } catch (InterruptedException | ExecutionException | TimeoutException e) {
             log.error("Ошибка при подключении к серверу сообщений: {}", e.getMessage(), e);
@@ -92,8 +146,24 @@ public class WebSocketMessageService implements MessageService {
         }
         
         try {
-            log.info("Отправка сообщения: {}", command);
-            session.send("/app/sendMessage", command);
+            StompHeaders headers = new StompHeaders();
+            headers.setDestination("/app/sendMessage");
+            headers.setContentType(messagingCodec.getContentType());
+            headers.set(CORRELATION_ID_HEADER, UUID.randomUUID().toString());
+            headers.set(SENT_AT_HEADER, Long.toString(System.currentTimeMillis()));
+            log.info("Отправка сообщения {}: {}", headers.getFirst(CORRELATION_ID_HEADER), command);
+            
+            byte[] compressed = contentCompressor.compress(command.getContent());
+            String contentEncoding = compressed != null ? ContentCompressor.DEFLATE : null;
+            byte[] payload = compressed != null ? compressed : encodeIfLarge(command.getContent());
+            if (payload != null && payload.length > chunkSize) {
+                return sendChunked(command, payload, contentEncoding, headers);
+            }
+            
+            if (compressed != null) {
+                headers.set(CONTENT_ENCODING_HEADER, contentEncoding);
+            }
+            session.send(headers, compressed != null ? withoutContent(command, compressed) : command);
             return true;
         } catch (Exception e) {
             log.error("Ошибка при отправке сообщения: {}", e.getMessage());
@@ -104,6 +174,177 @@ public class WebSocketMessageService implements MessageService {
         }
     }
     
+    /**
+     * Кодирует содержимое в UTF-8, только если оно может не поместиться в одну часть:
+     * в UTF-8 символ UTF-16 занимает не больше трёх байтов.
+     * 
+     * @param content содержимое
+     * @return байты содержимого или null для короткого содержимого
+     */
+    private byte[] encodeIfLarge(String content) {
+        if (content == null || (long) content.length() * 3 <= chunkSize) {
+            return null;
+        }
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Копия команды без содержимого, исходная команда не меняется.
+     * 
+     * @param command команда
+     * @param compressed сжатое содержимое или null
+     * @return команда для отправки
+     */
+    private static CommandMessage withoutContent(CommandMessage command, byte[] compressed) {
+        return CommandMessage.builder()
+                .command(command.getCommand())
+                .option(command.getOption())
+                .targetUserId(command.getTargetUserId())
+                .compressedContent(compressed)
+                .build();
+    }
+    
+    /**
+     * Передаёт содержимое, не помещающееся в один кадр, по частям. Клиент держит
+     * не больше {@code transferWindow} неподтверждённых частей. Если подтверждение
+     * не пришло вовремя или соединение разорвано, клиент переподключается и
+     * продолжает передачу с части, которую сервер ожидает следующей.
+     * 
+     * @param command команда
+     * @param payload байты содержимого, сжатые или в UTF-8
+     * @param contentEncoding алгоритм сжатия или null
+     * @param headers заголовки команды с correlation ID и временем отправки
+     * @return true если сервер принял команду
+     */
+    private boolean sendChunked(CommandMessage command, byte[] payload, String contentEncoding, StompHeaders headers) {
+        CRC32C checksum = new CRC32C();
+        checksum.update(payload);
+        TransferBegin begin = TransferBegin.builder()
+                .transferId(UUID.randomUUID().toString())
+                .command(withoutContent(command, null))
+                .contentEncoding(contentEncoding)
+                .totalSize(payload.length)
+                .chunkSize(chunkSize)
+                .checksum(checksum.getValue())
+                .build();
+        String transferId = begin.getTransferId();
+        log.info("Передача {} по частям: {} байт, {} частей", transferId, payload.length,
+                (payload.length + chunkSize - 1) / chunkSize);
+        
+        transferAcks.register(transferId);
+        try {
+            for (int attempt = 1; attempt <= transferAttempts; attempt++) {
+                if (attempt > 1 && !connect()) {
+                    continue;
+                }
+                try {
+                    return transferChunks(begin, payload, headers);
+                } catch (TimeoutException | MessageDeliveryException | IllegalStateException e) {
+                    log.warn("Передача {} прервана (попытка {} из {}): {}",
+                            transferId, attempt, transferAttempts, e.getMessage());
+                    if (session != null && session.isConnected()) {
+                        session.disconnect();
+                    }
+                }
+            }
+            log.error("Не удалось передать содержимое {} за {} попыток", transferId, transferAttempts);
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            transferAcks.unregister(transferId);
+        }
+    }
+    
+    /**
+     * Одна попытка передачи по частям в текущей сессии.
+     * 
+     * @return true если сервер принял команду, false если сервер отменил передачу
+     */
+    private boolean transferChunks(TransferBegin begin, byte[] payload, StompHeaders commandHeaders)
+            throws InterruptedException, TimeoutException {
+        String transferId = begin.getTransferId();
+        transferAcks.clear(transferId);
+        
+        TransferAck ack = sendAndAwait("/app/transfer/begin", begin, transferId, null);
+        if (ack.getStatus() == TransferAck.Status.FAILED) {
+            log.error("Сервер отклонил передачу {}: {}", transferId, ack.getError());
+            return false;
+        }
+        
+        long chunkCount = (payload.length + chunkSize - 1) / chunkSize;
+        long acked = ack.getNextSequence();
+        long sent = acked;
+        long rewoundAt = -1;
+        StompHeaders chunkHeaders = transferHeaders("/app/transfer/chunk", null);
+        while (acked < chunkCount) {
+            while (sent < chunkCount && sent - acked < transferWindow) {
+                session.send(chunkHeaders, chunk(transferId, payload, sent));
+                sent++;
+            }
+            ack = awaitAck(transferId);
+            if (ack.getStatus() == TransferAck.Status.FAILED) {
+                log.error("Сервер отменил передачу {}: {}", transferId, ack.getError());
+                return false;
+            }
+            if (ack.getNextSequence() > acked) {
+                acked = ack.getNextSequence();
+            } else if (ack.getNextSequence() == acked && acked < sent && rewoundAt != acked) {
+                // Сервер пропустил часть: части после неё отправляются заново
+                rewoundAt = acked;
+                sent = acked;
+            }
+        }
+        
+        ack = sendAndAwait("/app/transfer/commit", TransferCommit.builder().transferId(transferId).build(),
+                transferId, commandHeaders);
+        if (ack.getStatus() != TransferAck.Status.COMPLETED) {
+            log.error("Сервер не принял передачу {}: {}", transferId, ack.getError());
+            return false;
+        }
+        log.info("Передача {} завершена", transferId);
+        return true;
+    }
+    
+    private TransferChunk chunk(String transferId, byte[] payload, long sequence) {
+        int from = (int) (sequence * chunkSize);
+        byte[] data = Arrays.copyOfRange(payload, from, Math.min(payload.length, from + chunkSize));
+        CRC32C checksum = new CRC32C();
+        checksum.update(data);
+        return TransferChunk.builder()
+                .transferId(transferId)
+                .sequence(sequence)
+                .data(data)
+                .checksum(checksum.getValue())
+                .build();
+    }
+    
+    private TransferAck sendAndAwait(String destination, Object payload, String transferId,
+                                     StompHeaders commandHeaders) throws InterruptedException, TimeoutException {
+        session.send(transferHeaders(destination, commandHeaders), payload);
+        return awaitAck(transferId);
+    }
+    
+    private TransferAck awaitAck(String transferId) throws InterruptedException, TimeoutException {
+        TransferAck ack = transferAcks.await(transferId, timeoutSeconds, TimeUnit.SECONDS);
+        if (ack == null) {
+            throw new TimeoutException("нет подтверждения сервера за " + timeoutSeconds + " с");
+        }
+        return ack;
+    }
+    
+    private StompHeaders transferHeaders(String destination, StompHeaders commandHeaders) {
+        StompHeaders headers = new StompHeaders();
+        if (commandHeaders != null) {
+            headers.set(CORRELATION_ID_HEADER, commandHeaders.getFirst(CORRELATION_ID_HEADER));
+            headers.set(SENT_AT_HEADER, commandHeaders.getFirst(SENT_AT_HEADER));
+        }
+        headers.setDestination(destination);
+        headers.setContentType(messagingCodec.getContentType());
+        return headers;
+    }
+    
     /**
      * {@inheritDoc}
      */
@@ -113,5 +354,11 @@ public class WebSocketMessageService implements MessageService {
             session.disconnect();
             log.info("Соединение с сервером сообщений разорвано");
         }
+        if (contentCompressor.getCompressedCount() > 0) {
+            log.info("Сжато сообщений: {}, без сжатия: {}, сэкономлено {} байт, затрачено {} мс процессорного времени",
+                    contentCompressor.getCompressedCount(), contentCompressor.getSkippedCount(),
+                    contentCompressor.getBytesSaved(),
+                    TimeUnit.NANOSECONDS.toMillis(contentCompressor.getCpuTimeNanos()));
+        }
     }
 } 
\ No newline at end of file
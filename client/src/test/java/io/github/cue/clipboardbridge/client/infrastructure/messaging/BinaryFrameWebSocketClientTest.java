@@ -0,0 +1,69 @@
+package io.github.cue.clipboardbridge.client.infrastructure.messaging;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.client.WebSocketClient;
+
+/**
+ * Выбор типа WebSocket сообщения для исходящих кадров STOMP: правило совпадает с серверным.
+ */
+class BinaryFrameWebSocketClientTest {
+
+    @Test
+    void recognisesCborContentTypeOnlyAmongHeaders() {
+        assertThat(BinaryFrameWebSocketClient.isCborFrame(frame("SEND\ncontent-type:application/cbor\n\nbody\0")))
+                .isTrue();
+        assertThat(BinaryFrameWebSocketClient.isCborFrame(frame("SEND\ncontent-type:application/cbor;v=1\n\n\0")))
+                .isTrue();
+
+        assertThat(BinaryFrameWebSocketClient.isCborFrame(frame("SEND\ncontent-type:application/cbor-seq\n\n\0")))
+                .isFalse();
+        assertThat(BinaryFrameWebSocketClient.isCborFrame(frame("SEND\ncontent-type:application/json\n\n\0")))
+                .isFalse();
+        assertThat(BinaryFrameWebSocketClient.isCborFrame(frame("SEND\n\ncontent-type:application/cbor\n\0")))
+                .isFalse();
+    }
+
+    @Test
+    void sendsCborFramesAsBinaryMessages() throws Exception {
+        WebSocketClient delegate = mock(WebSocketClient.class);
+        WebSocketHandler handler = mock(WebSocketHandler.class);
+        URI uri = URI.create("ws://localhost/ws/websocket");
+        new BinaryFrameWebSocketClient(delegate).execute(handler, new WebSocketHttpHeaders(), uri);
+
+        ArgumentCaptor<WebSocketHandler> decorated = ArgumentCaptor.forClass(WebSocketHandler.class);
+        verify(delegate).execute(decorated.capture(), any(WebSocketHttpHeaders.class), eq(uri));
+        WebSocketSession connection = mock(WebSocketSession.class);
+        decorated.getValue().afterConnectionEstablished(connection);
+
+        ArgumentCaptor<WebSocketSession> session = ArgumentCaptor.forClass(WebSocketSession.class);
+        verify(handler).afterConnectionEstablished(session.capture());
+        session.getValue().sendMessage(new TextMessage("SEND\ncontent-type:application/cbor\n\n\0"));
+        session.getValue().sendMessage(new TextMessage("SEND\ncontent-type:application/cbor-seq\n\n\0"));
+
+        ArgumentCaptor<WebSocketMessage<?>> sent = ArgumentCaptor.forClass(WebSocketMessage.class);
+        verify(connection, times(2)).sendMessage(sent.capture());
+        assertThat(sent.getAllValues().get(0)).isInstanceOf(BinaryMessage.class);
+        assertThat(sent.getAllValues().get(1)).isInstanceOf(TextMessage.class);
+    }
+
+    private static byte[] frame(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
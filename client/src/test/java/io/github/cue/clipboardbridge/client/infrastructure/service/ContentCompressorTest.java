@@ -0,0 +1,81 @@
+package io.github.cue.clipboardbridge.client.infrastructure.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Random;
+import java.util.zip.Inflater;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Сжатие содержимого перед отправкой: порог размера и пропуск данных,
+ * энтропия выборки которых выше заданной.
+ */
+class ContentCompressorTest {
+
+    private static final String SAMPLE = "Буфер обмена: \"clipboard\" line\n\tif (a < b) { return 'x'; }\n";
+
+    @Test
+    void compressesRepetitiveText() throws Exception {
+        ContentCompressor compressor = new ContentCompressor("deflate", 1024, 1, 7.5);
+        String text = SAMPLE.repeat(200);
+
+        byte[] compressed = compressor.compress(text);
+
+        assertThat(compressed).isNotNull();
+        assertThat(compressed.length).isLessThan(text.getBytes(StandardCharsets.UTF_8).length / 4);
+        assertThat(inflate(compressed)).isEqualTo(text);
+        assertThat(compressor.getCompressedCount()).isEqualTo(1);
+        assertThat(compressor.getBytesSaved()).isPositive();
+    }
+
+    @Test
+    void skipsContentAboveEntropyLimit() {
+        // Base64 случайных байтов: около 6 бит на байт, deflate ещё мог бы его сжать
+        byte[] random = new byte[48 * 1024];
+        new Random(1).nextBytes(random);
+        String noise = Base64.getEncoder().encodeToString(random);
+
+        assertThat(new ContentCompressor("deflate", 1024, 1, 7.5).compress(noise)).isNotNull();
+
+        ContentCompressor strict = new ContentCompressor("deflate", 1024, 1, 5.5);
+        assertThat(strict.compress(noise)).isNull();
+        assertThat(strict.getSkippedCount()).isEqualTo(1);
+        assertThat(strict.getCompressedCount()).isZero();
+    }
+
+    @Test
+    void sendsShortContentAsIs() {
+        ContentCompressor compressor = new ContentCompressor("deflate", 1024, 1, 7.5);
+
+        assertThat(compressor.compress("x".repeat(1023))).isNull();
+        assertThat(compressor.compress(null)).isNull();
+        assertThat(compressor.getSkippedCount()).isZero();
+        assertThat(new ContentCompressor("none", 1024, 1, 7.5).compress(SAMPLE.repeat(200))).isNull();
+    }
+
+    @Test
+    void rejectsUnknownAlgorithm() {
+        assertThatThrownBy(() -> new ContentCompressor("brotli", 1024, 1, 7.5))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static String inflate(byte[] compressed) throws Exception {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                out.write(buffer, 0, inflater.inflate(buffer));
+            }
+            return out.toString(StandardCharsets.UTF_8);
+        } finally {
+            inflater.end();
+        }
+    }
+}
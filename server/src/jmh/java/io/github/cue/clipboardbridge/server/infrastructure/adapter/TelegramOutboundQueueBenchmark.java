@@ -0,0 +1,99 @@
+package io.github.cue.clipboardbridge.server.infrastructure.adapter;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.objects.Message;
+
+import io.github.cue.clipboardbridge.server.infrastructure.config.ThreadFactories;
+
+/**
+ * Пропускная способность отправки сообщений в Telegram прежним и новым адаптером.
+ * <p>
+ * {@link TelegramBotAdapter} отправляет через блокирующий {@code execute} в пуле
+ * из {@code telegram.send.workers} потоков, {@link HttpTelegramBotAdapter} - через
+ * неблокирующий HTTP клиент. Здесь обе схемы собраны на {@link TelegramOutboundQueue}
+ * с имитацией ответа Bot API через {@link #latencyMs}: блокирующий отправитель спит,
+ * асинхронный завершает future по таймеру. Лимиты скорости подняты, чтобы
+ * результат определялся только числом запросов в полёте. Операция - пачка
+ * сообщений в разные чаты с ожиданием доставки всех сообщений пачки.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TelegramOutboundQueueBenchmark {
+
+    private static final int BATCH = 200;
+    private static final int SEND_WORKERS = 4;
+
+    /**
+     * Имитируемое время ответа Bot API.
+     */
+    @Param({"5", "50"})
+    public int latencyMs;
+
+    private ScheduledExecutorService telegram;
+    private TelegramOutboundQueue blockingQueue;
+    private TelegramOutboundQueue asyncQueue;
+    private long nextChat;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        telegram = Executors.newSingleThreadScheduledExecutor();
+        blockingQueue = new TelegramOutboundQueue(message -> {
+            try {
+                Thread.sleep(latencyMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new Message();
+        }, BATCH * 2, 1_000_000, 1_000, 1_000, 1, 60_000, SEND_WORKERS, ThreadFactories.named("benchmark-outbound-", false));
+        asyncQueue = new TelegramOutboundQueue(message -> {
+            CompletableFuture<Message> response = new CompletableFuture<>();
+            telegram.schedule(() -> response.complete(new Message()), latencyMs, TimeUnit.MILLISECONDS);
+            return response;
+        }, BATCH * 2, 1_000_000, 1_000, 1_000, 1, 60_000);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        blockingQueue.shutdown();
+        asyncQueue.shutdown();
+        telegram.shutdownNow();
+    }
+
+    @Benchmark
+    public int blockingSenderWithWorkers() {
+        return sendBatch(blockingQueue);
+    }
+
+    @Benchmark
+    public int asyncHttpSender() {
+        return sendBatch(asyncQueue);
+    }
+
+    private int sendBatch(TelegramOutboundQueue queue) {
+        CompletableFuture<?>[] sent = new CompletableFuture<?>[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            sent[i] = queue.submit(SendMessage.builder()
+                    .chatId(Long.toString(nextChat++ % 10_000))
+                    .text("clipboard content")
+                    .build());
+        }
+        CompletableFuture.allOf(sent).join();
+        return sent.length;
+    }
+}
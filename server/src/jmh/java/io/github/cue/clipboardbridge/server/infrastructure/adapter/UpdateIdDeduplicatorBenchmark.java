@@ -0,0 +1,76 @@
+package io.github.cue.clipboardbridge.server.infrastructure.adapter;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Сравнение {@link UpdateIdDeduplicator} с прежней дедупликацией на
+ * {@code CopyOnWriteArraySet} строк "msg_&lt;id&gt;". Каждая операция - проверка
+ * нового обновления и повтор одного из недавних, как при повторной доставке Telegram.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class UpdateIdDeduplicatorBenchmark {
+
+    @Param({"1024"})
+    public int window;
+
+    private UpdateIdDeduplicator deduplicator;
+    private Set<String> legacy;
+    private long nextId;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        deduplicator = new UpdateIdDeduplicator(window);
+        legacy = new CopyOnWriteArraySet<>();
+        nextId = 1;
+    }
+
+    @Benchmark
+    public boolean bitmapWindow() {
+        long id = nextId++;
+        boolean fresh = deduplicator.markProcessed(id);
+        return deduplicator.markProcessed(id - (id & 7)) & fresh;
+    }
+
+    @Benchmark
+    public boolean copyOnWriteSet() {
+        long id = nextId++;
+        boolean fresh = legacyMarkProcessed("msg_" + id);
+        return legacyMarkProcessed("msg_" + (id - (id & 7))) & fresh;
+    }
+
+    /**
+     * Прежняя логика TelegramNotificationService.onUpdateReceived.
+     */
+    private boolean legacyMarkProcessed(String messageId) {
+        if (legacy.contains(messageId)) {
+            return false;
+        }
+        legacy.add(messageId);
+        if (legacy.size() > 1000) {
+            List<String> tempList = new ArrayList<>(legacy);
+            tempList.sort(Comparator.naturalOrder());
+            int removeCount = tempList.size() - 500;
+            if (removeCount > 0) {
+                legacy.removeAll(tempList.subList(0, removeCount));
+            }
+        }
+        return true;
+    }
+}
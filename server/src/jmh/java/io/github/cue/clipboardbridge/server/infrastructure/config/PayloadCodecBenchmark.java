@@ -0,0 +1,76 @@
+package io.github.cue.clipboardbridge.server.infrastructure.config;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+
+import io.github.cue.clipboardbridge.server.domain.model.ReplyMessage;
+
+/**
+ * Кодирование и разбор ответа клиенту в JSON и CBOR для содержимого буфера
+ * обмена разного размера. Текст смешивает латиницу, кириллицу, кавычки и
+ * переводы строк: JSON экранирует последние, CBOR передаёт строку как есть.
+ * Соотношение размеров закодированных сообщений проверяет {@code PayloadCodecSizeTest}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PayloadCodecBenchmark {
+
+    private static final String SAMPLE = "Буфер обмена: \"clipboard\" line\n\tif (a < b) { return 'x'; }\n";
+
+    /**
+     * Размер текста ответа в символах: 1 КБ, 100 КБ, 10 МБ.
+     */
+    @Param({"1024", "102400", "10485760"})
+    public int size;
+
+    private final ObjectMapper json = new ObjectMapper();
+    private final CBORMapper cbor = new CBORMapper();
+    private ReplyMessage reply;
+    private byte[] jsonBytes;
+    private byte[] cborBytes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        StringBuilder text = new StringBuilder(size);
+        while (text.length() < size) {
+            text.append(SAMPLE, 0, Math.min(SAMPLE.length(), size - text.length()));
+        }
+        reply = ReplyMessage.builder().response(text.toString()).build();
+        jsonBytes = json.writeValueAsBytes(reply);
+        cborBytes = cbor.writeValueAsBytes(reply);
+    }
+
+    @Benchmark
+    public byte[] encodeJson() throws IOException {
+        return json.writeValueAsBytes(reply);
+    }
+
+    @Benchmark
+    public byte[] encodeCbor() throws IOException {
+        return cbor.writeValueAsBytes(reply);
+    }
+
+    @Benchmark
+    public ReplyMessage decodeJson() throws IOException {
+        return json.readValue(jsonBytes, ReplyMessage.class);
+    }
+
+    @Benchmark
+    public ReplyMessage decodeCbor() throws IOException {
+        return cbor.readValue(cborBytes, ReplyMessage.class);
+    }
+}
@@ -0,0 +1,111 @@
+package io.github.cue.clipboardbridge.server.infrastructure.config;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompEncoder;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Нагрузка на исходящий канал STOMP от многих одновременных отправителей
+ * в потоках платформы и в виртуальных потоках.
+ * <p>
+ * Обработчик канала кодирует кадр STOMP и имитирует запись в сокет задержкой
+ * {@link #writeLatencyMicros}. Операция - отправка пачки сообщений разным
+ * сессиям и ожидание их обработки, поэтому результат учитывает доставку, а не
+ * только постановку в очередь. С нулевой задержкой сравнивается накладная
+ * стоимость исполнителей, с задержкой - их поведение на блокирующей записи.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class StompChannelThreadsBenchmark {
+
+    private static final int BATCH = 100;
+    private static final String BATCH_HEADER = "benchmarkBatch";
+
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+
+    /**
+     * Имитируемая длительность записи кадра в сокет.
+     */
+    @Param({"0", "1000"})
+    public int writeLatencyMicros;
+
+    private ChannelExecutorFactory executors;
+    private ExecutorSubscribableChannel channel;
+    private final StompEncoder encoder = new StompEncoder();
+    private final AtomicInteger senderIndex = new AtomicInteger();
+    private final byte[] payload = "{\"response\":\"clipboard content\"}".getBytes(StandardCharsets.UTF_8);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        executors = new ChannelExecutorFactory(new SimpleMeterRegistry(), virtualThreads);
+        channel = new ExecutorSubscribableChannel(executors.create("ws-outbound", 0, 10_000));
+        long writeNanos = TimeUnit.MICROSECONDS.toNanos(writeLatencyMicros);
+        channel.subscribe(message -> {
+            byte[] frame = encoder.encode(message.getHeaders(), (byte[]) message.getPayload());
+            if (writeNanos > 0 && frame.length > 0) {
+                LockSupport.parkNanos(writeNanos);
+            }
+            ((CountDownLatch) message.getHeaders().get(BATCH_HEADER)).countDown();
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executors.shutdown();
+    }
+
+    @State(Scope.Thread)
+    public static class Sender {
+        int sender;
+        int sequence;
+
+        @Setup(Level.Trial)
+        public void setUp(StompChannelThreadsBenchmark benchmark) {
+            sender = benchmark.senderIndex.getAndIncrement();
+        }
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void sendBatchAndAwaitDelivery(Sender sender) throws InterruptedException {
+        CountDownLatch delivered = new CountDownLatch(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            channel.send(message(sender.sender + "-" + i, sender.sequence++, delivered));
+        }
+        delivered.await();
+    }
+
+    private Message<byte[]> message(String sessionId, int sequence, CountDownLatch delivered) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.MESSAGE);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId("sub-0");
+        accessor.setDestination("/user/queue/reply");
+        accessor.setMessageId(Integer.toString(sequence));
+        accessor.setHeader(BATCH_HEADER, delivered);
+        return MessageBuilder.createMessage(payload, accessor.getMessageHeaders());
+    }
+}
@@ -0,0 +1,96 @@
+package io.github.cue.clipboardbridge.server.infrastructure.service;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import io.github.cue.clipboardbridge.server.domain.model.ReplyMessage;
+import io.github.cue.clipboardbridge.server.infrastructure.service.ClientMailboxService.StoredReply;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Почтовые ящики 10 000 отключённых клиентов: сохранение ответа при заполненных
+ * ящиках (с вытеснением по ёмкости и общему объёму) и воспроизведение ящика
+ * при переподключении клиента.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ClientMailboxBenchmark {
+
+    @Param({"10000"})
+    public int clients;
+
+    @Param({"10"})
+    public int repliesPerClient;
+
+    /**
+     * Общий лимит памяти; меньший лимит заставляет вытеснять ответы других клиентов.
+     */
+    @Param({"67108864", "1048576"})
+    public long maxTotalBytes;
+
+    private SessionExpiryService expiryService;
+    private ClientMailboxService mailbox;
+    private String[] clientIds;
+    private ReplyMessage reply;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        expiryService = new SessionExpiryService(1000, meterRegistry);
+        mailbox = new ClientMailboxService(repliesPerClient, 3_600_000, maxTotalBytes, "", expiryService,
+                meterRegistry);
+        clientIds = new String[clients];
+        reply = ReplyMessage.builder().response("x".repeat(256)).build();
+        for (int c = 0; c < clients; c++) {
+            clientIds[c] = "client-" + c;
+            for (int r = 0; r < repliesPerClient; r++) {
+                mailbox.store(clientIds[c], "/queue/reply", reply);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        expiryService.shutdown();
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean store(Cursor cursor) {
+        String clientId = clientIds[Math.floorMod(cursor.next++, clients)];
+        return mailbox.store(clientId, "/queue/reply", reply);
+    }
+
+    /**
+     * Переподключение: ящик воспроизводится и тут же пополняется, чтобы
+     * количество заполненных ящиков не менялось между итерациями.
+     */
+    @Benchmark
+    @Threads(4)
+    public int drainAndRefill(Cursor cursor) {
+        String clientId = clientIds[Math.floorMod(cursor.next++, clients)];
+        List<StoredReply> drained = mailbox.drain(clientId);
+        for (int r = 0; r < repliesPerClient; r++) {
+            mailbox.store(clientId, "/queue/reply", reply);
+        }
+        return drained.size();
+    }
+}
@@ -0,0 +1,86 @@
+package io.github.cue.clipboardbridge.server.infrastructure.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Многопоточные подключения и отключения клиентов в {@link ClientSessionService}.
+ * Сравнение результатов с одним потоком и со всеми ядрами показывает масштабирование
+ * реестра сессий без общих блокировок.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ClientSessionServiceBenchmark {
+
+    /**
+     * Количество клиентов, между которыми распределяются подключения.
+     */
+    @Param({"1000", "100000"})
+    public int clients;
+
+    private SessionExpiryService expiryService;
+    private ClientSessionService sessionService;
+    private String[] clientIds;
+    private final AtomicInteger threadIndex = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        expiryService = new SessionExpiryService(1000, new SimpleMeterRegistry());
+        sessionService = new ClientSessionService(expiryService, 60_000);
+        clientIds = new String[clients];
+        for (int c = 0; c < clients; c++) {
+            clientIds[c] = "client-" + c;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        expiryService.shutdown();
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+        int session;
+
+        @Setup(Level.Trial)
+        public void setUp(ClientSessionServiceBenchmark benchmark) {
+            next = benchmark.threadIndex.getAndIncrement() * 7919;
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean connectDisconnectSingleThread(Cursor cursor) {
+        return connectDisconnect(cursor);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public boolean connectDisconnectAllCores(Cursor cursor) {
+        return connectDisconnect(cursor);
+    }
+
+    private boolean connectDisconnect(Cursor cursor) {
+        String clientId = clientIds[Math.floorMod(cursor.next++, clients)];
+        String sessionId = Integer.toString(cursor.session++);
+        sessionService.registerSession(clientId, sessionId);
+        sessionService.recordActivity(clientId, sessionId);
+        return sessionService.disconnectSession(clientId, sessionId);
+    }
+}
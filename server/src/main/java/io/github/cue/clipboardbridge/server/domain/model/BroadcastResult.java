@@ -0,0 +1,22 @@
+package io.github.cue.clipboardbridge.server.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Доменная модель результата широковещательной рассылки.
+ * Отправки, не завершившиеся к концу ожидания ({@code pendingCount}), остаются в очереди
+ * и будут доставлены позже.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BroadcastResult {
+    private int totalCount;
+    private int successCount;
+    private int failedCount;
+    private int pendingCount;
+}
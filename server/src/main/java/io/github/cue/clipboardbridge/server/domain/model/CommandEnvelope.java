@@ -0,0 +1,49 @@
+package io.github.cue.clipboardbridge.server.domain.model;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Конверт команды клиента с метаданными маршрутизации.
+ * Метаданные передаются отдельными полями (ID клиента берётся из сессии,
+ * correlation ID и время отправки - из заголовков STOMP), а не дописываются
+ * в строку {@link CommandMessage#getOption()}.
+ */
+@Value
+@Builder
+public class CommandEnvelope {
+    /** Тип команды или null, если команда неизвестна. */
+    CommandType type;
+    /** ID WebSocket клиента. */
+    String clientId;
+    /** ID, которым клиент помечает команду, или null. */
+    String correlationId;
+    /** Время отправки по часам клиента в миллисекундах или 0, если не указано. */
+    long sentAt;
+    /** Время получения сервером в миллисекундах. */
+    long receivedAt;
+    /** Содержимое команды. */
+    CommandMessage message;
+
+    /**
+     * Собирает конверт команды, только что полученной сервером: тип команды
+     * определяется по её имени, временем получения становится текущее время.
+     *
+     * @param message команда клиента или null
+     * @param clientId ID WebSocket клиента
+     * @param correlationId ID, которым клиент пометил команду, или null
+     * @param sentAt время отправки по часам клиента в миллисекундах или null
+     * @return конверт команды
+     */
+    public static CommandEnvelope received(CommandMessage message, String clientId, String correlationId,
+                                           Long sentAt) {
+        return CommandEnvelope.builder()
+                .type(message != null ? CommandType.fromWireName(message.getCommand()) : null)
+                .clientId(clientId)
+                .correlationId(correlationId)
+                .sentAt(sentAt != null ? sentAt : 0L)
+                .receivedAt(System.currentTimeMillis())
+                .message(message)
+                .build();
+    }
+}
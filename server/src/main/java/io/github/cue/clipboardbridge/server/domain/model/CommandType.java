@@ -0,0 +1,42 @@
+package io.github.cue.clipboardbridge.server.domain.model;
+
+/**
+ * Тип команды клиента.
+ */
+public enum CommandType {
+    /** Сообщение указанному пользователю Telegram. */
+    DM("dm"),
+    /** Рассылка всем пользователям бота. */
+    BROADCAST("broadcast");
+
+    private final String wireName;
+
+    CommandType(String wireName) {
+        this.wireName = wireName;
+    }
+
+    /**
+     * @return имя команды в сообщении клиента
+     */
+    public String getWireName() {
+        return wireName;
+    }
+
+    /**
+     * Определяет тип команды по имени из сообщения клиента.
+     *
+     * @param name имя команды
+     * @return тип команды или null, если команда неизвестна
+     */
+    public static CommandType fromWireName(String name) {
+        if (name == null) {
+            return null;
+        }
+        for (CommandType type : values()) {
+            if (type.wireName.equals(name)) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
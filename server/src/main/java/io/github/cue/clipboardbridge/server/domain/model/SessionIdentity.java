@@ -0,0 +1,19 @@
+package io.github.cue.clipboardbridge.server.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Постоянная идентичность клиента, выданная сервером.
+ * Клиент предъявляет её при следующих подключениях, чтобы возобновить сессию.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SessionIdentity {
+    private String clientId;
+    private String resumeToken;
+}
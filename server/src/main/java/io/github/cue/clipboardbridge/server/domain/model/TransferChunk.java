@@ -0,0 +1,22 @@
+package io.github.cue.clipboardbridge.server.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Часть содержимого, передаваемого по частям.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TransferChunk {
+    private String transferId;
+    /** Порядковый номер части, начиная с 0. */
+    private long sequence;
+    private byte[] data;
+    /** CRC32C данных части. */
+    private long checksum;
+}
@@ -0,0 +1,18 @@
+package io.github.cue.clipboardbridge.server.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Завершение передачи по частям: сервер проверяет содержимое целиком
+ * и обрабатывает команду.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TransferCommit {
+    private String transferId;
+}
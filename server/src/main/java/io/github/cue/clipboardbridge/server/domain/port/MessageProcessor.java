@@ -1,9 +1,12 @@
 package io.github.cue.clipboardbridge.server.domain.port;
 
+import io.github.cue.clipboardbridge.server.domain.model.BroadcastResult;
+import io.github.cue.clipboardbridge.server.domain.model.CommandEnvelope;
 import io.github.cue.clipboardbridge.server.domain.model.CommandMessage;
 import io.github.cue.clipboardbridge.server.domain.model.ReplyMessage;
 
 import java.security.Principal;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Порт для обработки сообщений.
@@ -28,6 +31,23 @@ public interface MessageProcessor {
      */
     ReplyMessage processCommand(CommandMessage command, Principal principal);
     
+    /**
+     * Обрабатывает команду в конверте с метаданными маршрутизации и формирует ответ.
+     * 
+     * @param envelope команда с ID клиента, correlation ID и отметками времени
+     * @return сформированный ответ
+     */
+    ReplyMessage process(CommandEnvelope envelope);
+    
+    /**
+     * Обрабатывает команду в конверте, не блокируя вызывающий поток на время
+     * рассылки: ответ на широковещательную команду завершается вместе с ней.
+     * 
+     * @param envelope команда с ID клиента, correlation ID и отметками времени
+     * @return future со сформированным ответом
+     */
+    CompletableFuture<ReplyMessage> processAsync(CommandEnvelope envelope);
+    
     /**
      * Отправляет сообщение всем подключенным клиентам.
      * 
@@ -35,4 +55,12 @@ public interface MessageProcessor {
      * @return количество клиентов, которым успешно отправлено сообщение
      */
     int broadcastMessage(String message);
+    
+    /**
+     * Отправляет сообщение всем пользователям и возвращает итог рассылки.
+     * 
+     * @param message текст сообщения для отправки
+     * @return итог рассылки
+     */
+    BroadcastResult broadcast(String message);
 } 
\ No newline at end of file
@@ -1,5 +1,9 @@
 package io.github.cue.clipboardbridge.server.domain.port;
 
+import java.util.concurrent.CompletableFuture;
+
+import io.github.cue.clipboardbridge.server.domain.model.BroadcastResult;
+
 /**
  * Порт для отправки уведомлений.
  * Определяет интерфейс для работы с внешними системами уведомлений.
@@ -22,4 +26,20 @@ public interface NotificationService {
      * @return количество пользователей, которым успешно отправлено уведомление
      */
     int broadcastNotification(String message);
+    
+    /**
+     * Отправляет уведомление всем пользователям параллельно и собирает итог рассылки.
+     * 
+     * @param message текст уведомления
+     * @return количество успешных, неудачных и ещё не завершившихся отправок
+     */
+    BroadcastResult broadcast(String message);
+    
+    /**
+     * Запускает рассылку уведомления всем пользователям, не дожидаясь её завершения.
+     * 
+     * @param message текст уведомления
+     * @return future с итогом рассылки
+     */
+    CompletableFuture<BroadcastResult> broadcastAsync(String message);
 } 
\ No newline at end of file
@@ -1,15 +1,21 @@
 package io.github.cue.clipboardbridge.server.domain.service;
 
 import java.security.Principal;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import io.github.cue.clipboardbridge.server.domain.model.BroadcastResult;
+import io.github.cue.clipboardbridge.server.domain.model.CommandEnvelope;
 import io.github.cue.clipboardbridge.server.domain.model.CommandMessage;
 import io.github.cue.clipboardbridge.server.domain.model.ReplyMessage;
 import io.github.cue.clipboardbridge.server.domain.port.MessageProcessor;
 import io.github.cue.clipboardbridge.server.domain.port.NotificationService;
 import io.github.cue.clipboardbridge.server.infrastructure.adapter.TelegramNotificationService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -21,15 +27,20 @@ import lombok.extern.slf4j.Slf4j;
 public class CommandProcessorService implements MessageProcessor {
     
     private final NotificationService notificationService;
+    private final Timer clientLatencyTimer;
     
     /**
      * Конструктор с внедрением зависимостей.
      * 
      * @param notificationService сервис уведомлений
+     * @param meterRegistry реестр метрик
      */
     @Autowired
-    public CommandProcessorService(NotificationService notificationService) {
+    public CommandProcessorService(NotificationService notificationService, MeterRegistry meterRegistry) {
         this.notificationService = notificationService;
+        this.clientLatencyTimer = Timer.builder("command.client.latency")
+                .description("Время от отправки команды клиентом до получения сервером")
+                .register(meterRegistry);
     }
 
     /**
@@ -37,54 +48,70 @@ public class CommandProcessorService implements MessageProcessor {
      */
     @Override
     public ReplyMessage processCommand(CommandMessage command, Principal principal) {
+        return process(CommandEnvelope.received(command, principal != null ? principal.getName() : "unknown",
+                null, null));
+    }
+
+    /**
+     * {@inheritDoc}
+     * Ожидает завершения рассылки для широковещательной команды.
+     */
+    @Override
+    public ReplyMessage process(CommandEnvelope envelope) {
+        return processAsync(envelope).join();
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<ReplyMessage> processAsync(CommandEnvelope envelope) {
+        recordClientLatency(envelope);
+        CommandMessage command = envelope.getMessage();
         if (command == null) {
             log.warn("Получена пустая команда");
-            return ReplyMessage.builder()
-                    .response("Ошибка: пустая команда")
-                    .build();
+            return reply("Ошибка: пустая команда");
         }
         
-        String clientId = "unknown";
-        
-        if (principal != null) {
-            clientId = principal.getName();
-        } else {
-            String option = command.getOption();
-            if (option != null && option.contains("client=")) {
-                String[] parts = option.split("\\|");
-                for (String part : parts) {
-                    if (part.startsWith("client=")) {
-                        clientId = part.substring(7);
-                        break;
-                    }
-                }
-            }
-        }
+        String clientId = envelope.getClientId();
         
-        log.info("Обработка команды от {}: {}", clientId, command);
+        log.info("Обработка команды от {} (correlationId: {}): {}", clientId, envelope.getCorrelationId(), command);
         
         Long targetUserId = command.getTargetUserId();
 
         if (targetUserId == null) {
             log.warn("Не указан ID целевого пользователя Telegram (targetUserId) в сообщении от {}", clientId);
-            return ReplyMessage.builder()
-                    .response("Ошибка: Не указан ID целевого пользователя Telegram в команде.")
-                    .build();
+            return reply("Ошибка: Не указан ID целевого пользователя Telegram в команде.");
         }
         
-        switch (command.getCommand()) {
-            case "dm":
-                return processDmCommand(command, clientId);
-            case "broadcast":
-                return processBroadcastCommand(command);
-            default:
-                log.warn("Неизвестная команда от {}: {}", clientId, command.getCommand());
-                return ReplyMessage.builder()
-                        .response("Ошибка: неизвестная команда " + command.getCommand())
-                        .build();
+        if (envelope.getType() == null) {
+            log.warn("Неизвестная команда от {}: {}", clientId, command.getCommand());
+            return reply("Ошибка: неизвестная команда " + command.getCommand());
+        }
+        
+        return switch (envelope.getType()) {
+            case DM -> CompletableFuture.completedFuture(processDmCommand(command, clientId));
+            case BROADCAST -> processBroadcastCommand(command);
+        };
+    }
+    
+    /**
+     * Учитывает время доставки команды от клиента. Команды без времени отправки
+     * и с отрицательной задержкой (часы клиента спешат) не учитываются.
+     */
+    private void recordClientLatency(CommandEnvelope envelope) {
+        long latency = envelope.getReceivedAt() - envelope.getSentAt();
+        if (envelope.getSentAt() > 0 && latency >= 0) {
+            clientLatencyTimer.record(latency, TimeUnit.MILLISECONDS);
         }
     }
     
+    private static CompletableFuture<ReplyMessage> reply(String response) {
+        return CompletableFuture.completedFuture(ReplyMessage.builder()
+                .response(response)
+                .build());
+    }
+    
     /**
      * Обрабатывает команду прямого сообщения.
      * 
@@ -115,7 +142,7 @@ public class CommandProcessorService implements MessageProcessor {
             telegramService.notifyAboutClientMessage(targetUserId, clientId, content);
 
             return ReplyMessage.builder()
-                    .response("Сообщение отправлено указанному пользователю Telegram")
+                    .response("Сообщение поставлено в очередь на отправку пользователю Telegram")
                     .build();
         } else {
             int successCount = notificationService.broadcastNotification(content);
@@ -133,24 +160,21 @@ public class CommandProcessorService implements MessageProcessor {
     }
     
     /**
-     * Обрабатывает команду бродкаст сообщения.
+     * Обрабатывает команду бродкаст сообщения. Рассылка запускается в фоне,
+     * ответ завершается вместе с ней.
      * 
      * @param command команда для обработки
-     * @return ответ на команду
+     * @return future с ответом на команду
      */
-    private ReplyMessage processBroadcastCommand(CommandMessage command) {
+    private CompletableFuture<ReplyMessage> processBroadcastCommand(CommandMessage command) {
         String content = command.getContent();
         if (content == null || content.trim().isEmpty()) {
-            return ReplyMessage.builder()
-                    .response("Ошибка: пустое содержимое бродкаст сообщения")
-                    .build();
+            return reply("Ошибка: пустое содержимое бродкаст сообщения");
         }
         
-        int successCount = broadcastMessage(content);
-        
-        return ReplyMessage.builder()
-                .response("Бродкаст сообщение отправлено " + successCount + " получателям")
-                .build();
+        return notificationService.broadcastAsync(content).thenApply(result -> ReplyMessage.builder()
+                .response("Бродкаст сообщение отправлено " + result.getSuccessCount() + " получателям")
+                .build());
     }
 
     /**
@@ -160,6 +184,14 @@ public class CommandProcessorService implements MessageProcessor {
     public int broadcastMessage(String message) {
         return notificationService.broadcastNotification(message);
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public BroadcastResult broadcast(String message) {
+        return notificationService.broadcast(message);
+    }
     
     /**
      * {@inheritDoc}
@@ -0,0 +1,57 @@
+package io.github.cue.clipboardbridge.server.infrastructure.adapter;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import io.github.cue.clipboardbridge.server.infrastructure.service.BotStateStore;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Пользователи, писавшие боту. Общий для всех реализаций
+ * {@link io.github.cue.clipboardbridge.server.infrastructure.port.TelegramBotApi}.
+ * Пользователи сохраняются в {@link BotStateStore} и переживают перезапуск сервера.
+ */
+@Component
+@Slf4j
+public class BotUserRegistry {
+
+    private final BotStateStore stateStore;
+
+    /**
+     * @param stateStore постоянное состояние бота
+     * @param mainUserId ID основного пользователя или null
+     */
+    public BotUserRegistry(BotStateStore stateStore, @Value("${telegram.main.user.id}") Long mainUserId) {
+        this.stateStore = stateStore;
+        if (mainUserId != null) {
+            stateStore.addUser(mainUserId);
+        }
+    }
+
+    /**
+     * Запоминает автора сообщения или нажатия на кнопку.
+     *
+     * @param update обновление Telegram
+     */
+    public void track(Update update) {
+        Long userId = null;
+        if (update.hasMessage() && update.getMessage().getFrom() != null) {
+            userId = update.getMessage().getFrom().getId();
+        } else if (update.hasCallbackQuery() && update.getCallbackQuery().getFrom() != null) {
+            userId = update.getCallbackQuery().getFrom().getId();
+        }
+        if (userId != null && stateStore.addUser(userId)) {
+            log.info("Добавлен новый пользователь бота: {}", userId);
+        }
+    }
+
+    /**
+     * @return копия списка пользователей
+     */
+    public List<Long> getUsers() {
+        return stateStore.getUsers();
+    }
+}
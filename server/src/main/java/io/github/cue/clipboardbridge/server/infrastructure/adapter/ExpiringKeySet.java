@@ -0,0 +1,101 @@
+package io.github.cue.clipboardbridge.server.infrastructure.adapter;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * Конкурентное множество ключей с ограниченным временем жизни.
+ * Ключи хранятся в двух поколениях: новые попадают в текущее, а по истечении
+ * времени жизни текущее поколение становится предыдущим, а предыдущее
+ * отбрасывается целиком. Проверка и вставка выполняются за O(1) без общих
+ * блокировок, очистка сводится к одной CAS-замене ссылки. Если поколения сменились
+ * между проверкой и вставкой, вставка отменяется и повторяется на новых поколениях,
+ * поэтому из одновременных {@link #add} одного ключа успешен ровно один.
+ * Ключ хранится не меньше {@code ttlMillis} и не больше удвоенного значения.
+ */
+public class ExpiringKeySet {
+
+    private record Generations(Set<String> current, Set<String> previous, long rotatedAt) {
+    }
+
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final AtomicReference<Generations> generations;
+
+    /**
+     * @param ttlMillis минимальное время хранения ключа в миллисекундах
+     */
+    public ExpiringKeySet(long ttlMillis) {
+        this(ttlMillis, System::currentTimeMillis);
+    }
+
+    ExpiringKeySet(long ttlMillis, LongSupplier clock) {
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+        this.generations = new AtomicReference<>(
+                new Generations(ConcurrentHashMap.newKeySet(), Collections.emptySet(), clock.getAsLong()));
+    }
+
+    /**
+     * Атомарно добавляет ключ.
+     *
+     * @param key ключ
+     * @return true если ключа не было в множестве
+     */
+    public boolean add(String key) {
+        while (true) {
+            Generations current = rotateIfExpired();
+            if (current.previous().contains(key) || !current.current().add(key)) {
+                return false;
+            }
+            if (generations.get() == current) {
+                return true;
+            }
+            // Вставка могла попасть в поколение, которое другой поток уже проверил
+            // после смены: отменяем её и проверяем ключ заново
+            current.current().remove(key);
+        }
+    }
+
+    /**
+     * @param key ключ
+     * @return true если ключ присутствует в множестве
+     */
+    public boolean contains(String key) {
+        Generations current = rotateIfExpired();
+        return current.current().contains(key) || current.previous().contains(key);
+    }
+
+    /**
+     * Удаляет ключ из обоих поколений.
+     *
+     * @param key ключ
+     */
+    public void remove(String key) {
+        Generations current = generations.get();
+        current.current().remove(key);
+        current.previous().remove(key);
+    }
+
+    /**
+     * @return приблизительное количество ключей
+     */
+    public int size() {
+        Generations current = generations.get();
+        return current.current().size() + current.previous().size();
+    }
+
+    private Generations rotateIfExpired() {
+        Generations current = generations.get();
+        long now = clock.getAsLong();
+        if (now - current.rotatedAt() < ttlMillis) {
+            return current;
+        }
+        Set<String> previous = now - current.rotatedAt() < 2 * ttlMillis ? current.current() : Collections.emptySet();
+        Generations rotated = new Generations(ConcurrentHashMap.newKeySet(), previous, now);
+        return generations.compareAndSet(current, rotated) ? rotated : generations.get();
+    }
+}
@@ -0,0 +1,469 @@
+package io.github.cue.clipboardbridge.server.infrastructure.adapter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
+import org.telegram.telegrambots.meta.api.methods.send.SendDocument;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.methods.updates.GetUpdates;
+import org.telegram.telegrambots.meta.api.objects.InputFile;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.github.cue.clipboardbridge.server.infrastructure.config.TelegramWebhookSettings;
+import io.github.cue.clipboardbridge.server.infrastructure.config.ThreadFactories;
+import io.github.cue.clipboardbridge.server.infrastructure.port.TelegramBotApi;
+import io.github.cue.clipboardbridge.server.infrastructure.port.TelegramUpdateListener;
+import io.github.cue.clipboardbridge.server.infrastructure.service.BotStateStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Адаптер Telegram Bot API на {@link HttpClient} без блокирующего {@code execute} библиотеки telegrambots.
+ * Все запросы идут через один HTTP/2 клиент с переиспользованием соединения: отправка
+ * сообщений не занимает поток на время ответа, поэтому очередь исходящих сообщений
+ * держит в полёте по одному запросу на каждый чат. Обновления читаются long polling
+ * запросом {@code getUpdates}, ответ разбирается потоково и каждое обновление передаётся
+ * слушателю сразу после разбора. В режиме webhook опрос не запускается, адаптер только
+ * регистрирует webhook, а обновления приходят через {@link #onUpdateReceived(Update)}.
+ * Включается свойством {@code telegram.client=http}; {@code telegram.api.base-url}
+ * позволяет направить запросы на локальную заглушку Bot API.
+ */
+@Component
+@ConditionalOnProperty(name = "telegram.client", havingValue = "http")
+@Slf4j
+public class HttpTelegramBotAdapter implements TelegramBotApi {
+
+    private static final int UPDATES_LIMIT = 100;
+    private static final long MIN_POLL_BACKOFF_MS = 500;
+    private static final long MAX_POLL_BACKOFF_MS = 30_000;
+
+    private final String botUsername;
+    private final String methodBaseUrl;
+    private final int pollTimeoutSeconds;
+    private final Duration requestTimeout;
+    private final Duration uploadTimeout;
+    private final boolean virtualThreads;
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final ExecutorService httpExecutor;
+    private final HttpClient httpClient;
+    private final BotUserRegistry botUsers;
+    private final BotStateStore stateStore;
+    private final TelegramOutboundQueue outboundQueue;
+    private final TelegramUpdateDispatcher updateDispatcher;
+    private final TelegramWebhookSettings webhook;
+    private volatile TelegramUpdateListener updateListener;
+    private volatile boolean running = true;
+    private volatile Thread poller;
+
+    // Используются только потоком опроса; опрос продолжается с обновления, следующего за сохранённым
+    private int offset;
+
+    public HttpTelegramBotAdapter(
+            @Value("${telegram.bot.token}") String botToken,
+            @Value("${telegram.bot.username}") String botUsername,
+            @Value("${telegram.api.base-url:https://api.telegram.org}") String baseUrl,
+            @Value("${telegram.http.connect-timeout-ms:10000}") long connectTimeoutMs,
+            @Value("${telegram.http.request-timeout-ms:15000}") long requestTimeoutMs,
+            @Value("${telegram.http.upload-timeout-ms:120000}") long uploadTimeoutMs,
+            @Value("${telegram.http.poll-timeout-seconds:50}") int pollTimeoutSeconds,
+            @Value("${telegram.send.queue-capacity:1000}") int queueCapacity,
+            @Value("${telegram.send.global-rate:30}") double globalRate,
+            @Value("${telegram.send.per-chat-rate:1}") double perChatRate,
+            @Value("${telegram.send.per-chat-burst:3}") int perChatBurst,
+            @Value("${telegram.send.max-attempts:5}") int maxAttempts,
+            @Value("${telegram.send.max-deferral-ms:300000}") long maxDeferralMs,
+            @Value("${telegram.updates.workers:4}") int updateWorkers,
+            @Value("${telegram.updates.queue-capacity:1000}") int updateQueueCapacity,
+            @Value("${telegram.virtual-threads:false}") boolean virtualThreads,
+            TelegramWebhookSettings webhook,
+            BotUserRegistry botUsers,
+            BotStateStore stateStore,
+            MeterRegistry meterRegistry,
+            @Lazy TelegramUpdateListener listener) {
+        this.botUsername = botUsername;
+        this.methodBaseUrl = stripTrailingSlash(baseUrl) + "/bot" + botToken + "/";
+        this.pollTimeoutSeconds = pollTimeoutSeconds;
+        this.requestTimeout = Duration.ofMillis(requestTimeoutMs);
+        this.uploadTimeout = Duration.ofMillis(uploadTimeoutMs);
+        this.virtualThreads = virtualThreads;
+        this.updateListener = listener;
+        this.webhook = webhook;
+        this.httpExecutor = virtualThreads
+                ? Executors.newThreadPerTaskExecutor(ThreadFactories.named("telegram-http-", true))
+                : Executors.newCachedThreadPool(ThreadFactories.named("telegram-http-", false));
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .executor(httpExecutor)
+                .build();
+        this.botUsers = botUsers;
+        this.stateStore = stateStore;
+        this.offset = (int) stateStore.getLastUpdateId() + 1;
+        this.outboundQueue = new TelegramOutboundQueue(this::execute, queueCapacity,
+                globalRate, perChatRate, perChatBurst, maxAttempts, maxDeferralMs);
+        this.outboundQueue.bindTo(meterRegistry);
+        this.updateDispatcher = new TelegramUpdateDispatcher(updateWorkers, updateQueueCapacity,
+                ThreadFactories.named("telegram-updates-", virtualThreads));
+        this.updateDispatcher.bindTo(meterRegistry);
+        log.info("Инициализация HTTP адаптера Telegram для @{} ({})", botUsername, stripTrailingSlash(baseUrl));
+    }
+
+    @Override
+    public synchronized void register() throws TelegramApiException {
+        if (poller != null) {
+            return;
+        }
+        try {
+            if (webhook.isEnabled()) {
+                call("setWebhook", Map.of("url", webhook.getWebhookUrl(), "secret_token", webhook.getSecretToken()));
+                log.info("HTTP адаптер Telegram @{} принимает обновления через webhook {}.", botUsername, webhook.getPath());
+                return;
+            }
+            // getUpdates не работает, пока у бота установлен webhook
+            call("deleteWebhook", Map.of());
+        } catch (IOException e) {
+            throw new TelegramApiException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TelegramApiException(e);
+        }
+        poller = ThreadFactories.named("telegram-poller-", virtualThreads).newThread(this::pollLoop);
+        poller.start();
+        log.info("HTTP адаптер Telegram @{} запущен.", botUsername);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        Thread pollerThread = poller;
+        if (pollerThread != null) {
+            pollerThread.interrupt();
+        }
+        updateDispatcher.shutdown();
+        outboundQueue.shutdown();
+        httpClient.shutdownNow();
+        httpExecutor.shutdownNow();
+    }
+
+    @Override
+    public String getBotUsername() {
+        return botUsername;
+    }
+
+    @Override
+    public boolean sendMessage(Long userId, String text) {
+        try {
+            return sendMessageAsync(userId, text).join();
+        } catch (CompletionException e) {
+            log.error("Ошибка отправки сообщения пользователю {} через HTTP адаптер: {}", userId, e.getCause().getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public boolean sendMessageWithMarkup(Long userId, String text, InlineKeyboardMarkup markup) {
+        try {
+            return sendMessageWithMarkupAsync(userId, text, markup).join();
+        } catch (CompletionException e) {
+            log.error("Ошибка отправки сообщения с разметкой пользователю {} через HTTP адаптер: {}", userId, e.getCause().getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public CompletableFuture<Boolean> sendMessageAsync(Long userId, String text) {
+        SendMessage message = SendMessage.builder()
+                .chatId(userId.toString())
+                .text(text)
+                .build();
+        return outboundQueue.submit(message).thenApply(Objects::nonNull);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> sendMessageWithMarkupAsync(Long userId, String text, InlineKeyboardMarkup markup) {
+        SendMessage message = SendMessage.builder()
+                .chatId(userId.toString())
+                .text(text)
+                .replyMarkup(markup)
+                .build();
+        return outboundQueue.submit(message).thenApply(Objects::nonNull);
+    }
+
+    @Override
+    public CompletableFuture<Integer> sendTrackedMessageAsync(Long userId, String text, InlineKeyboardMarkup markup) {
+        SendMessage message = SendMessage.builder()
+                .chatId(userId.toString())
+                .text(text)
+                .replyMarkup(markup)
+                .build();
+        return outboundQueue.submit(message).thenApply(sent -> sent != null ? sent.getMessageId() : null);
+    }
+
+    /**
+     * {@inheritDoc}
+     * Тело запроса multipart/form-data собирается из заголовков частей и файла,
+     * который читается при передаче.
+     */
+    @Override
+    public CompletableFuture<Integer> sendDocumentAsync(Long userId, Path file, String fileName, String caption,
+                                                        InlineKeyboardMarkup markup) {
+        SendDocument document = SendDocument.builder()
+                .chatId(userId.toString())
+                .document(new InputFile(file.toFile(), fileName))
+                .caption(caption)
+                .replyMarkup(markup)
+                .build();
+        HttpRequest request;
+        try {
+            document.validate();
+            String boundary = "clipboard-bridge-" + UUID.randomUUID();
+            StringBuilder head = new StringBuilder();
+            appendFormField(head, boundary, "chat_id", document.getChatId());
+            if (caption != null) {
+                appendFormField(head, boundary, "caption", caption);
+            }
+            if (markup != null) {
+                appendFormField(head, boundary, "reply_markup", objectMapper.writeValueAsString(markup));
+            }
+            head.append("--").append(boundary).append("\r\n")
+                    .append("Content-Disposition: form-data; name=\"document\"; filename=\"")
+                    .append(fileName.replace("\"", "")).append("\"\r\n")
+                    .append("Content-Type: text/plain; charset=utf-8\r\n\r\n");
+            request = HttpRequest.newBuilder(URI.create(methodBaseUrl + document.getMethod()))
+                    .timeout(uploadTimeout)
+                    .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                    .POST(HttpRequest.BodyPublishers.concat(
+                            HttpRequest.BodyPublishers.ofByteArray(head.toString().getBytes(StandardCharsets.UTF_8)),
+                            HttpRequest.BodyPublishers.ofFile(file),
+                            HttpRequest.BodyPublishers.ofByteArray(
+                                    ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII))))
+                    .build();
+        } catch (TelegramApiException | IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8))
+                .thenApply(response -> {
+                    try {
+                        Message sent = document.deserializeResponse(response.body());
+                        return sent != null ? sent.getMessageId() : null;
+                    } catch (TelegramApiRequestException e) {
+                        throw new CompletionException(e);
+                    }
+                });
+    }
+
+    private static void appendFormField(StringBuilder body, String boundary, String name, String value) {
+        body.append("--").append(boundary).append("\r\n")
+                .append("Content-Disposition: form-data; name=\"").append(name).append("\"\r\n\r\n")
+                .append(value).append("\r\n");
+    }
+
+    @Override
+    public void setUpdateListener(TelegramUpdateListener listener) {
+        log.info("Установлен слушатель обновлений: {}", listener.getClass().getSimpleName());
+        this.updateListener = listener;
+    }
+
+    @Override
+    public List<Long> getBotUsers() {
+        return botUsers.getUsers();
+    }
+
+    /**
+     * Выполняет метод Bot API без блокировки вызывающего потока.
+     * Ошибки Telegram возвращаются как {@link TelegramApiRequestException} с кодом
+     * и {@code retry_after}, как и у библиотеки telegrambots.
+     *
+     * @param method метод Bot API
+     * @param <T> тип результата метода
+     * @return future с результатом метода
+     */
+    private <T extends Serializable> CompletableFuture<T> execute(BotApiMethod<T> method) {
+        HttpRequest request;
+        try {
+            method.validate();
+            request = post(method.getMethod(), objectMapper.writeValueAsBytes(method), requestTimeout);
+        } catch (TelegramApiException | JsonProcessingException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8))
+                .thenApply(response -> {
+                    try {
+                        return method.deserializeResponse(response.body());
+                    } catch (TelegramApiRequestException e) {
+                        throw new CompletionException(e);
+                    }
+                });
+    }
+
+    private HttpRequest post(String method, byte[] body, Duration timeout) {
+        return HttpRequest.newBuilder(URI.create(methodBaseUrl + method))
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+    }
+
+    /**
+     * Синхронно вызывает служебный метод Bot API, результат которого не нужен.
+     *
+     * @param method имя метода
+     * @param parameters параметры метода
+     */
+    private void call(String method, Map<String, Object> parameters)
+            throws IOException, InterruptedException, TelegramApiException {
+        HttpRequest request = post(method, objectMapper.writeValueAsBytes(parameters), requestTimeout);
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        JsonNode body = objectMapper.readTree(response.body());
+        if (!body.path("ok").asBoolean()) {
+            throw new TelegramApiException(method + ": [" + body.path("error_code").asInt() + "] "
+                    + body.path("description").asText());
+        }
+    }
+
+    private void pollLoop() {
+        long backoffMs = 0;
+        while (running) {
+            try {
+                if (backoffMs > 0) {
+                    Thread.sleep(backoffMs);
+                }
+                pollUpdates();
+                backoffMs = 0;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                if (!running) {
+                    break;
+                }
+                backoffMs = Math.min(MAX_POLL_BACKOFF_MS, Math.max(MIN_POLL_BACKOFF_MS, backoffMs * 2));
+                log.warn("Ошибка получения обновлений Telegram, повтор через {} мс: {}", backoffMs, e.getMessage());
+            }
+        }
+        log.info("Опрос обновлений Telegram остановлен");
+    }
+
+    /**
+     * Выполняет один long polling запрос {@code getUpdates}. Ответ читается потоково:
+     * обновления передаются диспетчеру по мере разбора, не дожидаясь конца массива.
+     */
+    private void pollUpdates() throws IOException, InterruptedException, TelegramApiException {
+        GetUpdates getUpdates = GetUpdates.builder()
+                .offset(offset)
+                .limit(UPDATES_LIMIT)
+                .timeout(pollTimeoutSeconds)
+                .build();
+        HttpRequest request = post(getUpdates.getMethod(), objectMapper.writeValueAsBytes(getUpdates),
+                requestTimeout.plusSeconds(pollTimeoutSeconds));
+        HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+
+        try (InputStream body = response.body(); JsonParser parser = objectMapper.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new TelegramApiException("Некорректный ответ getUpdates, HTTP " + response.statusCode());
+            }
+            boolean ok = false;
+            Integer errorCode = null;
+            String description = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "ok" -> ok = value == JsonToken.VALUE_TRUE;
+                    case "error_code" -> errorCode = parser.getIntValue();
+                    case "description" -> description = parser.getText();
+                    case "result" -> readUpdates(parser);
+                    default -> parser.skipChildren();
+                }
+            }
+            if (!ok) {
+                throw new TelegramApiException("getUpdates: [" + errorCode + "] " + description);
+            }
+        }
+    }
+
+    private void readUpdates(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            Update update = parser.readValueAs(Update.class);
+            if (update.getUpdateId() != null) {
+                offset = Math.max(offset, update.getUpdateId() + 1);
+            }
+            onUpdateReceived(update);
+        }
+    }
+
+    @Override
+    public void onUpdateReceived(Update update) {
+        TelegramUpdateListener listener = updateListener;
+        if (listener == null) {
+            log.warn("Получено обновление, но слушатель не зарегистрирован.");
+            return;
+        }
+        if (update.getUpdateId() != null && !stateStore.acceptUpdate(update.getUpdateId())) {
+            log.debug("Пропущено обновление {}, обработанное до перезапуска", update.getUpdateId());
+            return;
+        }
+        Runnable processed = completion(update);
+        try {
+            botUsers.track(update);
+            updateDispatcher.dispatch(update, listener, processed);
+        } catch (RejectedExecutionException e) {
+            // Обновление остаётся незавершённым и будет получено снова после перезапуска
+            log.warn("Обновление {} не передано слушателю: {}", update.getUpdateId(), e.getMessage());
+        } catch (Exception e) {
+            log.error("Ошибка при передаче обновления слушателю {}: {}", listener.getClass().getSimpleName(), e.getMessage(), e);
+            processed.run();
+        }
+    }
+
+    /**
+     * @return действие, отмечающее обновление обработанным в хранилище состояния
+     */
+    private Runnable completion(Update update) {
+        Integer updateId = update.getUpdateId();
+        return updateId != null ? () -> stateStore.completeUpdate(updateId) : () -> { };
+    }
+
+    private static String stripTrailingSlash(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+}
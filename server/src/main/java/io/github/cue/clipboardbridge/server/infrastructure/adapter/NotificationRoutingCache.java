@@ -0,0 +1,58 @@
+package io.github.cue.clipboardbridge.server.infrastructure.adapter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Ограниченный LRU-кэш соответствия уведомлений Telegram клиентам WebSocket.
+ * Ключ - пара (ID чата, message_id уведомления), поэтому ответ пользователя
+ * на любое уведомление направляется клиенту, от которого оно пришло.
+ */
+public class NotificationRoutingCache {
+
+    private record NotificationKey(long chatId, int messageId) {
+    }
+
+    private final Map<NotificationKey, String> routes;
+
+    /**
+     * @param capacity максимальное число запоминаемых уведомлений
+     */
+    public NotificationRoutingCache(int capacity) {
+        this.routes = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<NotificationKey, String> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Запоминает клиента, о сообщении которого отправлено уведомление.
+     *
+     * @param chatId ID чата Telegram
+     * @param messageId message_id уведомления
+     * @param clientId ID клиента WebSocket
+     */
+    public synchronized void record(long chatId, int messageId, String clientId) {
+        routes.put(new NotificationKey(chatId, messageId), clientId);
+    }
+
+    /**
+     * Находит клиента по уведомлению, на которое ответил пользователь.
+     *
+     * @param chatId ID чата Telegram
+     * @param messageId message_id уведомления
+     * @return ID клиента или null, если уведомление неизвестно или вытеснено
+     */
+    public synchronized String lookup(long chatId, int messageId) {
+        return routes.get(new NotificationKey(chatId, messageId));
+    }
+
+    /**
+     * @return количество запомненных уведомлений
+     */
+    public synchronized int size() {
+        return routes.size();
+    }
+}
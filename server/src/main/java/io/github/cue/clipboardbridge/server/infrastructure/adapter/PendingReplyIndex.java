@@ -0,0 +1,90 @@
+package io.github.cue.clipboardbridge.server.infrastructure.adapter;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Двунаправленный индекс ожидаемых ответов: пользователь Telegram → клиент,
+ * которому он отвечает, и клиент → ожидающий пользователь.
+ * Все переходы атомарны и выполняются за O(1). Незавершённые запросы /reply
+ * истекают по TTL: владелец индекса вызывает {@link #expireUser(Long)}, когда
+ * наступает срок ожидания. Отключение клиента ожидание не отменяет: ответ
+ * отключённому клиенту сохраняется в его почтовом ящике.
+ */
+public class PendingReplyIndex {
+
+    private record PendingReply(String clientId, long expiresAt) {
+    }
+
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final Map<Long, PendingReply> byUser = new HashMap<>();
+    private final Map<String, Long> byClient = new HashMap<>();
+
+    /**
+     * @param ttlMillis время ожидания ответа в миллисекундах
+     */
+    public PendingReplyIndex(long ttlMillis) {
+        this(ttlMillis, System::currentTimeMillis);
+    }
+
+    PendingReplyIndex(long ttlMillis, LongSupplier clock) {
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * Отмечает, что пользователь вводит ответ клиенту.
+     * Предыдущие ожидания пользователя и клиента заменяются.
+     *
+     * @param userId ID пользователя Telegram
+     * @param clientId ID клиента WebSocket
+     */
+    public synchronized void awaitReply(Long userId, String clientId) {
+        long now = clock.getAsLong();
+        PendingReply previous = byUser.put(userId, new PendingReply(clientId, now + ttlMillis));
+        if (previous != null) {
+            byClient.remove(previous.clientId(), userId);
+        }
+        Long previousUser = byClient.put(clientId, userId);
+        if (previousUser != null && !previousUser.equals(userId)) {
+            byUser.remove(previousUser);
+        }
+    }
+
+    /**
+     * Извлекает клиента, которому пользователь вводит ответ, и завершает ожидание.
+     *
+     * @param userId ID пользователя Telegram
+     * @return ID клиента или null, если ожидания нет или оно истекло
+     */
+    public synchronized String takePendingClient(Long userId) {
+        PendingReply pending = byUser.remove(userId);
+        if (pending == null) {
+            return null;
+        }
+        byClient.remove(pending.clientId(), userId);
+        return pending.expiresAt() > clock.getAsLong() ? pending.clientId() : null;
+    }
+
+    /**
+     * Завершает ожидание пользователя, если его срок истёк.
+     *
+     * @param userId ID пользователя Telegram
+     */
+    public synchronized void expireUser(Long userId) {
+        PendingReply pending = byUser.get(userId);
+        if (pending != null && pending.expiresAt() <= clock.getAsLong()) {
+            byUser.remove(userId);
+            byClient.remove(pending.clientId(), userId);
+        }
+    }
+
+    /**
+     * @return количество незавершённых ожиданий
+     */
+    public synchronized int size() {
+        return byUser.size();
+    }
+}
@@ -1,61 +1,116 @@
 package io.github.cue.clipboardbridge.server.infrastructure.adapter;
 
-import java.util.ArrayList;
+import java.nio.file.Path;
 import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Component;
 import org.telegram.telegrambots.bots.TelegramLongPollingBot;
 import org.telegram.telegrambots.meta.TelegramBotsApi;
+import org.telegram.telegrambots.meta.api.methods.send.SendDocument;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.methods.updates.SetWebhook;
+import org.telegram.telegrambots.meta.api.objects.InputFile;
 import org.telegram.telegrambots.meta.api.objects.Update;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.generics.BotSession;
 import org.telegram.telegrambots.updatesreceivers.DefaultBotSession;
 
+import io.github.cue.clipboardbridge.server.infrastructure.config.TelegramWebhookSettings;
+import io.github.cue.clipboardbridge.server.infrastructure.config.ThreadFactories;
 import io.github.cue.clipboardbridge.server.infrastructure.port.TelegramBotApi;
 import io.github.cue.clipboardbridge.server.infrastructure.port.TelegramUpdateListener;
-import jakarta.annotation.PostConstruct;
+import io.github.cue.clipboardbridge.server.infrastructure.service.BotStateStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 
 /**
  * Адаптер для взаимодействия с Telegram Bot API.
  * Скрывает детали реализации TelegramLongPollingBot.
+ * Используется по умолчанию ({@code telegram.client=telegrambots}),
+ * альтернатива без блокирующих вызовов - {@link HttpTelegramBotAdapter}.
+ * В режиме webhook long polling не запускается, обновления приходят
+ * через {@link #onUpdateReceived(Update)} из контроллера webhook.
  */
 @Component
+@ConditionalOnProperty(name = "telegram.client", havingValue = "telegrambots", matchIfMissing = true)
 @Slf4j
 public class TelegramBotAdapter extends TelegramLongPollingBot implements TelegramBotApi {
 
     private final String botUsername;
-    private final CopyOnWriteArrayList<Long> botUsers = new CopyOnWriteArrayList<>();
+    private final BotUserRegistry botUsers;
+    private final BotStateStore stateStore;
+    private final TelegramOutboundQueue outboundQueue;
+    private final TelegramUpdateDispatcher updateDispatcher;
+    private final TelegramWebhookSettings webhook;
     private TelegramUpdateListener updateListener; 
+    private volatile BotSession botSession;
 
     public TelegramBotAdapter(
             @Value("${telegram.bot.token}") String botToken,
             @Value("${telegram.bot.username}") String botUsername,
-            @Value("${telegram.main.user.id}") Long mainUserId,
+            @Value("${telegram.send.queue-capacity:1000}") int queueCapacity,
+            @Value("${telegram.send.global-rate:30}") double globalRate,
+            @Value("${telegram.send.per-chat-rate:1}") double perChatRate,
+            @Value("${telegram.send.per-chat-burst:3}") int perChatBurst,
+            @Value("${telegram.send.max-attempts:5}") int maxAttempts,
+            @Value("${telegram.send.max-deferral-ms:300000}") long maxDeferralMs,
+            @Value("${telegram.send.workers:4}") int sendWorkers,
+            @Value("${telegram.updates.workers:4}") int updateWorkers,
+            @Value("${telegram.updates.queue-capacity:1000}") int updateQueueCapacity,
+            @Value("${telegram.virtual-threads:false}") boolean virtualThreads,
+            TelegramWebhookSettings webhook,
+            BotUserRegistry botUsers,
+            BotStateStore stateStore,
+            MeterRegistry meterRegistry,
             @Lazy TelegramUpdateListener listener) {
         super(botToken);
         this.botUsername = botUsername;
         this.updateListener = listener;
+        this.webhook = webhook;
+        this.outboundQueue = new TelegramOutboundQueue(message -> execute(message), queueCapacity,
+                globalRate, perChatRate, perChatBurst, maxAttempts, maxDeferralMs, sendWorkers,
+                ThreadFactories.named("telegram-outbound-", virtualThreads));
+        this.outboundQueue.bindTo(meterRegistry);
+        this.updateDispatcher = new TelegramUpdateDispatcher(updateWorkers, updateQueueCapacity,
+                ThreadFactories.named("telegram-updates-", virtualThreads));
+        this.updateDispatcher.bindTo(meterRegistry);
+        this.botUsers = botUsers;
+        this.stateStore = stateStore;
+        log.info("Инициализация Telegram Bot Adapter для @{}", botUsername);
+    }
 
-        if (mainUserId != null) {
-            botUsers.add(mainUserId);
+    @Override
+    public void register() throws TelegramApiException {
+        if (webhook.isEnabled()) {
+            execute(SetWebhook.builder()
+                    .url(webhook.getWebhookUrl())
+                    .secretToken(webhook.getSecretToken())
+                    .build());
+            log.info("Telegram Bot Adapter @{} принимает обновления через webhook {}.", botUsername, webhook.getPath());
+            return;
         }
-        log.info("Инициализация Telegram Bot Adapter для @{}", botUsername);
+        TelegramBotsApi botsApi = new TelegramBotsApi(DefaultBotSession.class);
+        botSession = botsApi.registerBot(this);
+        log.info("Telegram Bot Adapter @{} успешно зарегистрирован.", botUsername);
     }
 
-    @PostConstruct
-    public void registerBot() {
-        try {
-            TelegramBotsApi botsApi = new TelegramBotsApi(DefaultBotSession.class);
-            botsApi.registerBot(this);
-            log.info("Telegram Bot Adapter @{} успешно зарегистрирован.", botUsername);
-        } catch (TelegramApiException e) {
-            log.error("Ошибка регистрации Telegram Bot Adapter @{}: {}", botUsername, e.getMessage(), e);
+    @PreDestroy
+    public void shutdownQueues() {
+        BotSession session = botSession;
+        if (session != null && session.isRunning()) {
+            session.stop();
         }
+        updateDispatcher.shutdown();
+        outboundQueue.shutdown();
     }
 
     @Override
@@ -65,62 +120,95 @@ public class TelegramBotAdapter extends TelegramLongPollingBot implements Telegr
 
     @Override
     public void onUpdateReceived(Update update) {
+        if (update.getUpdateId() != null && !stateStore.acceptUpdate(update.getUpdateId())) {
+            log.debug("Пропущено обновление {}, обработанное до перезапуска", update.getUpdateId());
+            return;
+        }
+        Runnable processed = completion(update);
         if (updateListener != null) {
             try {
-                if (update.hasMessage() && update.getMessage().getFrom() != null) {
-                    Long userId = update.getMessage().getFrom().getId();
-                    if (!botUsers.contains(userId)) {
-                        botUsers.addIfAbsent(userId);
-                        log.info("Добавлен новый пользователь бота через адаптер: {}", userId);
-                    }
-                } else if (update.hasCallbackQuery() && update.getCallbackQuery().getFrom() != null) {
-                     Long userId = update.getCallbackQuery().getFrom().getId();
-                    if (!botUsers.contains(userId)) {
-                        botUsers.addIfAbsent(userId);
-                        log.info("Добавлен новый пользователь бота (callback) через адаптер: {}", userId);
-                    }
-                }
-                
-                updateListener.onUpdateReceived(update);
+                botUsers.track(update);
+                updateDispatcher.dispatch(update, updateListener, processed);
+            } catch (RejectedExecutionException e) {
+                // Обновление остаётся незавершённым и будет получено снова после перезапуска
+                log.warn("Обновление {} не передано слушателю: {}", update.getUpdateId(), e.getMessage());
             } catch (Exception e) {
                 log.error("Ошибка при передаче обновления слушателю {}: {}", updateListener.getClass().getSimpleName(), e.getMessage(), e);
+                processed.run();
             }
         } else {
             log.warn("Получено обновление, но слушатель не зарегистрирован.");
+            processed.run();
         }
     }
 
+    /**
+     * @return действие, отмечающее обновление обработанным в хранилище состояния
+     */
+    private Runnable completion(Update update) {
+        Integer updateId = update.getUpdateId();
+        return updateId != null ? () -> stateStore.completeUpdate(updateId) : () -> { };
+    }
+
     @Override
     public boolean sendMessage(Long userId, String text) {
-        SendMessage message = SendMessage.builder()
-                .chatId(userId.toString())
-                .text(text)
-                .build();
         try {
-            execute(message);
-            log.debug("Сообщение успешно отправлено пользователю {} через адаптер", userId);
-            return true;
-        } catch (TelegramApiException e) {
-            log.error("Ошибка отправки сообщения пользователю {} через адаптер: {}", userId, e.getMessage());
+            return sendMessageAsync(userId, text).join();
+        } catch (CompletionException e) {
+            log.error("Ошибка отправки сообщения пользователю {} через адаптер: {}", userId, e.getCause().getMessage());
             return false;
         }
     }
 
     @Override
     public boolean sendMessageWithMarkup(Long userId, String text, InlineKeyboardMarkup markup) {
+        try {
+            return sendMessageWithMarkupAsync(userId, text, markup).join();
+        } catch (CompletionException e) {
+            log.error("Ошибка отправки сообщения с разметкой пользователю {} через адаптер: {}", userId, e.getCause().getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public CompletableFuture<Boolean> sendMessageAsync(Long userId, String text) {
+        SendMessage message = SendMessage.builder()
+                .chatId(userId.toString())
+                .text(text)
+                .build();
+        return outboundQueue.submit(message).thenApply(Objects::nonNull);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> sendMessageWithMarkupAsync(Long userId, String text, InlineKeyboardMarkup markup) {
         SendMessage message = SendMessage.builder()
                 .chatId(userId.toString())
                 .text(text)
                 .replyMarkup(markup)
                 .build();
-        try {
-            execute(message);
-            log.debug("Сообщение с разметкой успешно отправлено пользователю {} через адаптер", userId);
-            return true;
-        } catch (TelegramApiException e) {
-            log.error("Ошибка отправки сообщения с разметкой пользователю {} через адаптер: {}", userId, e.getMessage());
-            return false;
-        }
+        return outboundQueue.submit(message).thenApply(Objects::nonNull);
+    }
+
+    @Override
+    public CompletableFuture<Integer> sendTrackedMessageAsync(Long userId, String text, InlineKeyboardMarkup markup) {
+        SendMessage message = SendMessage.builder()
+                .chatId(userId.toString())
+                .text(text)
+                .replyMarkup(markup)
+                .build();
+        return outboundQueue.submit(message).thenApply(sent -> sent != null ? sent.getMessageId() : null);
+    }
+
+    @Override
+    public CompletableFuture<Integer> sendDocumentAsync(Long userId, Path file, String fileName, String caption,
+                                                        InlineKeyboardMarkup markup) {
+        SendDocument document = SendDocument.builder()
+                .chatId(userId.toString())
+                .document(new InputFile(file.toFile(), fileName))
+                .caption(caption)
+                .replyMarkup(markup)
+                .build();
+        return executeAsync(document).thenApply(sent -> sent != null ? sent.getMessageId() : null);
     }
 
     @Override
@@ -131,6 +219,6 @@ public class TelegramBotAdapter extends TelegramLongPollingBot implements Telegr
 
     @Override
     public List<Long> getBotUsers() {
-        return new ArrayList<>(botUsers);
+        return botUsers.getUsers();
     }
 } 
\ No newline at end of file
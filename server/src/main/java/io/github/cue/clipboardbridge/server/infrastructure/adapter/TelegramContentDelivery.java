@@ -0,0 +1,212 @@
+package io.github.cue.clipboardbridge.server.infrastructure.adapter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
+
+import io.github.cue.clipboardbridge.server.infrastructure.port.TelegramBotApi;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Выбирает способ доставки содержимого клиента в Telegram по его размеру.
+ * Telegram принимает сообщения не длиннее {@value #MAX_MESSAGE_CHARS} символов UTF-16:
+ * <ul>
+ *   <li>короткое содержимое отправляется одним сообщением;</li>
+ *   <li>содержимое до {@code telegram.delivery.document-threshold-chars} делится на части
+ *       по границам строк, не разрывая суррогатные пары. Все части сразу ставятся в очередь
+ *       отправки, которая сохраняет их порядок внутри чата;</li>
+ *   <li>более длинное содержимое потоково записывается во временный файл
+ *       и отправляется документом.</li>
+ * </ul>
+ * Время доставки каждым способом публикуется в метрике {@code telegram.delivery}.
+ */
+@Component
+@Slf4j
+public class TelegramContentDelivery {
+
+    private static final int MAX_MESSAGE_CHARS = 4096;
+    private static final int MAX_CAPTION_CHARS = 1024;
+    private static final int PART_LABEL_RESERVE = 16;
+    private static final String DOCUMENT_NAME = "clipboard.txt";
+
+    private enum DeliveryPath {
+        SINGLE,
+        SPLIT,
+        DOCUMENT
+    }
+
+    private final TelegramBotApi telegramBotApi;
+    private final int documentThresholdChars;
+    private final long maxDocumentBytes;
+    private final Timer[] timers = new Timer[DeliveryPath.values().length];
+
+    public TelegramContentDelivery(
+            @Lazy TelegramBotApi telegramBotApi,
+            MeterRegistry meterRegistry,
+            @Value("${telegram.delivery.document-threshold-chars:16384}") int documentThresholdChars,
+            @Value("${telegram.delivery.max-document-bytes:52428800}") long maxDocumentBytes) {
+        this.telegramBotApi = telegramBotApi;
+        this.documentThresholdChars = Math.max(MAX_MESSAGE_CHARS, documentThresholdChars);
+        this.maxDocumentBytes = maxDocumentBytes;
+        for (DeliveryPath path : DeliveryPath.values()) {
+            timers[path.ordinal()] = Timer.builder("telegram.delivery")
+                    .tag("path", path.name().toLowerCase(Locale.ROOT))
+                    .description("Время доставки содержимого клиента в Telegram")
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Доставляет содержимое пользователю.
+     *
+     * @param userId ID пользователя Telegram
+     * @param header текст перед содержимым
+     * @param content содержимое клиента
+     * @param footer текст после содержимого
+     * @param markup инлайн-клавиатура для последнего сообщения или null
+     * @return future с message_id отправленных сообщений; null на месте сообщения, которое не доставлено
+     */
+    public CompletableFuture<List<Integer>> deliver(Long userId, String header, String content, String footer,
+                                                    InlineKeyboardMarkup markup) {
+        long startedAt = System.nanoTime();
+        int length = header.length() + content.length() + footer.length();
+        DeliveryPath path = length <= MAX_MESSAGE_CHARS ? DeliveryPath.SINGLE
+                : length <= documentThresholdChars ? DeliveryPath.SPLIT
+                : DeliveryPath.DOCUMENT;
+
+        CompletableFuture<List<Integer>> delivery = switch (path) {
+            case SINGLE -> trackedMessage(userId, header + content + footer, markup)
+                    .thenApply(Collections::singletonList);
+            case SPLIT -> sendParts(userId, header + content + footer, markup);
+            case DOCUMENT -> sendDocument(userId, header, content, footer, markup);
+        };
+        return delivery.whenComplete((messageIds, error) -> {
+            long elapsed = System.nanoTime() - startedAt;
+            timers[path.ordinal()].record(elapsed, TimeUnit.NANOSECONDS);
+            log.debug("Содержимое {} символов доставлено пользователю {} способом {} за {} мс",
+                    content.length(), userId, path, TimeUnit.NANOSECONDS.toMillis(elapsed));
+        });
+    }
+
+    private CompletableFuture<Integer> trackedMessage(Long userId, String text, InlineKeyboardMarkup markup) {
+        return telegramBotApi.sendTrackedMessageAsync(userId, text, markup)
+                .exceptionally(error -> {
+                    log.error("Не удалось поставить сообщение пользователю {} в очередь: {}", userId, error.getMessage());
+                    return null;
+                });
+    }
+
+    private CompletableFuture<List<Integer>> sendParts(Long userId, String text, InlineKeyboardMarkup markup) {
+        List<String> parts = split(text, MAX_MESSAGE_CHARS - PART_LABEL_RESERVE);
+        @SuppressWarnings("unchecked")
+        CompletableFuture<Integer>[] sending = new CompletableFuture[parts.size()];
+        for (int i = 0; i < parts.size(); i++) {
+            boolean last = i == parts.size() - 1;
+            String label = "[" + (i + 1) + "/" + parts.size() + "]\n";
+            sending[i] = trackedMessage(userId, label + parts.get(i), last ? markup : null);
+        }
+        return CompletableFuture.allOf(sending)
+                .thenApply(ignored -> Arrays.stream(sending).map(CompletableFuture::join).toList());
+    }
+
+    private CompletableFuture<List<Integer>> sendDocument(Long userId, String header, String content, String footer,
+                                                          InlineKeyboardMarkup markup) {
+        Path file;
+        long size;
+        try {
+            file = Files.createTempFile("clipboard-", ".txt");
+            try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                writer.write(content);
+            }
+            size = Files.size(file);
+        } catch (IOException e) {
+            log.error("Не удалось записать содержимое для пользователя {} во временный файл: {}", userId, e.getMessage());
+            return CompletableFuture.completedFuture(Collections.singletonList(null));
+        }
+
+        if (size > maxDocumentBytes) {
+            deleteQuietly(file);
+            log.warn("Содержимое {} байт больше лимита документа {} байт", size, maxDocumentBytes);
+            return trackedMessage(userId, truncate(header + "Содержимое слишком большое для Telegram: "
+                    + size + " байт." + footer, MAX_MESSAGE_CHARS), markup)
+                    .thenApply(Collections::singletonList);
+        }
+
+        String caption = truncate(header + content.length() + " символов во вложении." + footer, MAX_CAPTION_CHARS);
+        CompletableFuture<Integer> sending;
+        try {
+            sending = telegramBotApi.sendDocumentAsync(userId, file, DOCUMENT_NAME, caption, markup);
+        } catch (RuntimeException e) {
+            sending = CompletableFuture.failedFuture(e);
+        }
+        return sending
+                .exceptionally(error -> {
+                    log.error("Не удалось отправить документ пользователю {}: {}", userId, error.getMessage());
+                    return null;
+                })
+                .whenComplete((messageId, error) -> deleteQuietly(file))
+                .thenApply(Collections::singletonList);
+    }
+
+    /**
+     * Делит текст на части не длиннее {@code maxChars} символов UTF-16.
+     * Часть по возможности заканчивается переводом строки в последней четверти
+     * допустимой длины и никогда не разрывает суррогатную пару.
+     *
+     * @param text текст
+     * @param maxChars максимальная длина части
+     * @return части текста по порядку
+     */
+    static List<String> split(String text, int maxChars) {
+        List<String> parts = new ArrayList<>(text.length() / maxChars + 1);
+        int start = 0;
+        while (text.length() - start > maxChars) {
+            int end = start + maxChars;
+            int newline = text.lastIndexOf('\n', end - 1);
+            if (newline >= start + maxChars * 3 / 4) {
+                end = newline + 1;
+            } else if (Character.isHighSurrogate(text.charAt(end - 1))) {
+                end--;
+            }
+            parts.add(text.substring(start, end));
+            start = end;
+        }
+        parts.add(text.substring(start));
+        return parts;
+    }
+
+    private static String truncate(String text, int maxChars) {
+        if (text.length() <= maxChars) {
+            return text;
+        }
+        int end = maxChars - 1;
+        if (Character.isHighSurrogate(text.charAt(end - 1))) {
+            end--;
+        }
+        return text.substring(0, end) + "…";
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Не удалось удалить временный файл {}: {}", file, e.getMessage());
+        }
+    }
+}
@@ -1,26 +1,37 @@
 package io.github.cue.clipboardbridge.server.infrastructure.adapter;
 
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.context.annotation.Primary;
 import org.springframework.stereotype.Service;
+import org.telegram.telegrambots.meta.api.objects.Message;
 import org.telegram.telegrambots.meta.api.objects.Update;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardButton;
 
+import io.github.cue.clipboardbridge.server.domain.model.BroadcastResult;
 import io.github.cue.clipboardbridge.server.domain.model.ReplyMessage;
 import io.github.cue.clipboardbridge.server.domain.port.NotificationService;
+import io.github.cue.clipboardbridge.server.infrastructure.config.ThreadFactories;
 import io.github.cue.clipboardbridge.server.infrastructure.port.TelegramBotApi;
 import io.github.cue.clipboardbridge.server.infrastructure.port.TelegramUpdateListener;
 import io.github.cue.clipboardbridge.server.infrastructure.service.ClientSessionService;
+import io.github.cue.clipboardbridge.server.infrastructure.service.ReplyDeliveryStatus;
+import io.github.cue.clipboardbridge.server.infrastructure.service.SessionExpiryService;
 import io.github.cue.clipboardbridge.server.infrastructure.service.WebSocketSessionMessageService;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -32,47 +43,68 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class TelegramNotificationService implements NotificationService, TelegramUpdateListener {
 
-    private final Map<String, String> pendingReplies = new ConcurrentHashMap<>();
+    private static final int UPDATE_DEDUPE_WINDOW = 1024;
+
+    private final PendingReplyIndex pendingReplies;
     private final Map<String, String> lastClientMessages = new ConcurrentHashMap<>();
+    private final NotificationRoutingCache notificationRoutes;
+    private final SessionExpiryService.ExpiryRegion<Long> pendingRepliesExpiry;
+    private final SessionExpiryService.ExpiryRegion<String> lastClientMessagesExpiry;
     
-    private final Set<String> processedMessageIds = new CopyOnWriteArraySet<>();
+    private final UpdateIdDeduplicator processedUpdates = new UpdateIdDeduplicator(UPDATE_DEDUPE_WINDOW);
     
     private final TelegramBotApi telegramBotApi;
+    private final TelegramContentDelivery contentDelivery;
     private final ClientSessionService sessionService;
     private final WebSocketSessionMessageService webSocketService;
     
+    private final int broadcastConcurrency;
+    private final long broadcastTimeoutMs;
+    private final ThreadPoolExecutor broadcastExecutor;
+    
     public TelegramNotificationService(
             @Lazy TelegramBotApi telegramBotApi,
+            TelegramContentDelivery contentDelivery,
             ClientSessionService sessionService,
-            WebSocketSessionMessageService webSocketService) {
+            WebSocketSessionMessageService webSocketService,
+            SessionExpiryService expiryService,
+            @Value("${telegram.broadcast.concurrency:16}") int broadcastConcurrency,
+            @Value("${telegram.broadcast.timeout-ms:30000}") long broadcastTimeoutMs,
+            @Value("${telegram.broadcast.max-running:2}") int maxRunningBroadcasts,
+            @Value("${telegram.broadcast.max-queued:16}") int maxQueuedBroadcasts,
+            @Value("${telegram.reply.prompt-ttl-ms:600000}") long replyPromptTtlMs,
+            @Value("${telegram.reply.routing-capacity:10000}") int replyRoutingCapacity,
+            @Value("${telegram.reply.last-client-ttl-ms:86400000}") long lastClientTtlMs,
+            @Value("${telegram.virtual-threads:false}") boolean virtualThreads) {
         this.telegramBotApi = telegramBotApi;
+        this.contentDelivery = contentDelivery;
         this.sessionService = sessionService;
         this.webSocketService = webSocketService;
+        this.broadcastConcurrency = Math.max(1, broadcastConcurrency);
+        this.broadcastTimeoutMs = broadcastTimeoutMs;
+        // Каждая рассылка занимает один поток на время выдачи сообщений в очередь отправки
+        this.broadcastExecutor = new ThreadPoolExecutor(Math.max(1, maxRunningBroadcasts), Math.max(1, maxRunningBroadcasts),
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, maxQueuedBroadcasts)),
+                ThreadFactories.named("telegram-broadcast-", virtualThreads),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.pendingReplies = new PendingReplyIndex(replyPromptTtlMs);
+        this.notificationRoutes = new NotificationRoutingCache(replyRoutingCapacity);
+        this.pendingRepliesExpiry = expiryService.register("pending-replies", replyPromptTtlMs,
+                pendingReplies::expireUser, pendingReplies::size);
+        this.lastClientMessagesExpiry = expiryService.register("last-client-messages", lastClientTtlMs,
+                this::expireLastClientMessage, lastClientMessages::size);
+        expiryService.monitor("notification-routes", notificationRoutes::size);
         this.telegramBotApi.setUpdateListener(this);
         log.info("Инициализирован TelegramNotificationService.");
     }
     
     @Override
     public void onUpdateReceived(Update update) {
-        String messageId = getUpdateIdentifier(update);
-        if (messageId != null) {
-            if (processedMessageIds.contains(messageId)) {
-                log.debug("Пропуск дублирующегося сообщения с ID: {}", messageId);
-                return;
-            }
-            
-            processedMessageIds.add(messageId);
-            
-            if (processedMessageIds.size() > 1000) {
-                log.debug("Очистка старых идентификаторов обработанных сообщений");
-                List<String> tempList = new ArrayList<>(processedMessageIds);
-                tempList.sort(Comparator.naturalOrder());
-                int removeCount = tempList.size() - 500;
-                if (removeCount > 0) {
-                    List<String> toRemove = tempList.subList(0, removeCount);
-                    processedMessageIds.removeAll(toRemove);
-                }
-            }
+        Integer updateId = update.getUpdateId();
+        if (updateId != null && !processedUpdates.markProcessed(updateId)) {
+            log.debug("Пропуск дублирующегося обновления с ID: {}", updateId);
+            return;
         }
         
         if (update.hasMessage() && update.getMessage().hasText()) {
@@ -82,56 +114,45 @@ public class TelegramNotificationService implements NotificationService, Telegra
             log.debug("Получено сообщение от пользователя {}: {}", userId, messageText);
             
             String userIdStr = userId.toString();
-            if (pendingReplies.containsValue(userIdStr)) {
-                String clientId = null;
-                for (Map.Entry<String, String> entry : pendingReplies.entrySet()) {
-                    if (entry.getValue().equals(userIdStr)) {
-                        clientId = entry.getKey();
-                        break;
-                    }
-                }
-                
-                if (clientId != null) {
-                    if ("unknown".equals(clientId)) {
-                        String savedClientId = lastClientMessages.get(userIdStr);
-                        if (savedClientId != null && !savedClientId.equals("unknown")) {
-                            clientId = savedClientId;
-                        } else {
-                            telegramBotApi.sendMessage(userId, "⚠️ Невозможно отправить ответ клиенту: неизвестный получатель");
-                            pendingReplies.remove(clientId);
-                            return;
-                        }
-                    }
-                    
-                    if (sendReplyToClient(clientId, messageText)) {
-                        telegramBotApi.sendMessage(userId, "✅ Ваш ответ отправлен клиенту!");
+            String routedClientId = findRoutedClient(update.getMessage());
+            if (routedClientId != null) {
+                replyAndConfirm(userId, routedClientId, messageText);
+                return;
+            }
+            
+            String pendingClientId = pendingReplies.takePendingClient(userId);
+            if (pendingClientId != null) {
+                String clientId = pendingClientId;
+                if ("unknown".equals(clientId)) {
+                    String savedClientId = lastClientMessages.get(userIdStr);
+                    if (savedClientId != null && !savedClientId.equals("unknown")) {
+                        clientId = savedClientId;
                     } else {
-                        telegramBotApi.sendMessage(userId, "❌ Не удалось отправить ответ клиенту. Попробуйте позже.");
+                        sendAsync(userId, "⚠️ Невозможно отправить ответ клиенту: неизвестный получатель");
+                        return;
                     }
-                    
-                    pendingReplies.remove(clientId);
                 }
+                
+                replyAndConfirm(userId, clientId, messageText);
             } else if (messageText.startsWith("/reply")) {
                 String clientId = lastClientMessages.get(userIdStr);
                 if (clientId != null) {
                     if ("unknown".equals(clientId)) {
-                        telegramBotApi.sendMessage(userId, "⚠️ Невозможно ответить: неизвестный получатель");
+                        sendAsync(userId, "⚠️ Невозможно ответить: неизвестный получатель");
                         return;
                     }
                     
                     if (sessionService.isSessionDisconnected(clientId)) {
-                        telegramBotApi.sendMessage(userId, "⚠️ Невозможно ответить: клиент отключился");
-                        return;
-                    }
-                    
-                    if (!sessionService.isSessionActive(clientId)) {
-                        telegramBotApi.sendMessage(userId, "⚠️ Предупреждение: клиент может быть неактивен, ответ может не дойти");
+                        sendAsync(userId, "⚠️ Клиент отключился, ответ будет доставлен при переподключении");
+                    } else if (!sessionService.isSessionActive(clientId)) {
+                        sendAsync(userId, "⚠️ Предупреждение: клиент может быть неактивен, ответ может не дойти");
                     }
                     
-                    pendingReplies.put(clientId, userIdStr);
-                    telegramBotApi.sendMessage(userId, "🔄 Введите ваш ответ для клиента:");
+                    pendingReplies.awaitReply(userId, clientId);
+                    pendingRepliesExpiry.touch(userId);
+                    sendAsync(userId, "🔄 Введите ваш ответ для клиента:");
                 } else {
-                    telegramBotApi.sendMessage(userId, "⚠️ Нет сохраненных сообщений от клиентов");
+                    sendAsync(userId, "⚠️ Нет сохраненных сообщений от клиентов");
                 }
             } else if (messageText.startsWith("/")) {
                 processCommand(userId, messageText);
@@ -145,68 +166,77 @@ public class TelegramNotificationService implements NotificationService, Telegra
                 String clientId = callbackData.substring(6); 
                 
                 if ("unknown".equals(clientId)) {
-                    telegramBotApi.sendMessage(userId, "⚠️ Невозможно ответить: неизвестный получатель");
+                    sendAsync(userId, "⚠️ Невозможно ответить: неизвестный получатель");
                     return;
                 }
                 
                 if (sessionService.isSessionDisconnected(clientId)) {
-                    telegramBotApi.sendMessage(userId, "⚠️ Невозможно ответить: клиент отключился");
-                    return;
+                    sendAsync(userId, "⚠️ Клиент отключился, ответ будет доставлен при переподключении");
+                } else if (!sessionService.isSessionActive(clientId)) {
+                    sendAsync(userId, "⚠️ Предупреждение: клиент может быть неактивен, ответ может не дойти");
                 }
                 
-                if (!sessionService.isSessionActive(clientId)) {
-                    telegramBotApi.sendMessage(userId, "⚠️ Предупреждение: клиент может быть неактивен, ответ может не дойти");
-                }
+                pendingReplies.awaitReply(userId, clientId);
+                pendingRepliesExpiry.touch(userId);
                 
-                pendingReplies.put(clientId, userId.toString());
-                
-                try {
-                    sendNotification(userId, "🔄 Введите ваш ответ для клиента:");
-                } catch (Exception e) {
-                    log.error("Ошибка при обработке callback query: {}", e.getMessage());
-                }
+                sendAsync(userId, "🔄 Введите ваш ответ для клиента:");
             }
         }
     }
     
     /**
-     * Генерирует уникальный идентификатор для Update объекта, помогающий определить дубликаты.
+     * Определяет клиента по уведомлению, на которое пользователь ответил средствами Telegram.
      *
-     * @param update Объект Telegram Update
-     * @return Уникальный идентификатор или null, если невозможно создать
+     * @param message входящее сообщение пользователя
+     * @return ID клиента или null, если сообщение не является ответом на известное уведомление
+     */
+    private String findRoutedClient(Message message) {
+        Message replyTo = message.getReplyToMessage();
+        if (replyTo == null || replyTo.getMessageId() == null) {
+            return null;
+        }
+        return notificationRoutes.lookup(message.getChatId(), replyTo.getMessageId());
+    }
+    
+    /**
+     * Отправляет ответ клиенту и сообщает пользователю Telegram о результате.
+     * 
+     * @param userId ID пользователя Telegram
+     * @param clientId ID клиента в WebSocket
+     * @param message текст ответа
      */
-    private String getUpdateIdentifier(Update update) {
-        if (update.hasMessage() && update.getMessage().getMessageId() != null) {
-            return "msg_" + update.getMessage().getMessageId();
-        } else if (update.hasCallbackQuery() && update.getCallbackQuery().getId() != null) {
-            return "cbq_" + update.getCallbackQuery().getId();
+    private void replyAndConfirm(Long userId, String clientId, String message) {
+        switch (sendReplyToClient(clientId, message)) {
+            case SENT -> sendAsync(userId, "✅ Ваш ответ отправлен клиенту!");
+            case QUEUED -> sendAsync(userId, "📬 Клиент не в сети, ответ будет доставлен при переподключении.");
+            default -> sendAsync(userId, "❌ Не удалось отправить ответ клиенту. Попробуйте позже.");
         }
-        return null;
     }
     
     /**
-     * Отправляет ответ клиенту через WebSocket
+     * Отправляет ответ клиенту через WebSocket. Если клиент не в сети,
+     * ответ сохраняется в его почтовом ящике.
      * 
      * @param clientId ID клиента в WebSocket
      * @param message текст сообщения
-     * @return true если сообщение успешно отправлено, false в противном случае
+     * @return результат доставки
      */
-    private boolean sendReplyToClient(String clientId, String message) {
+    private ReplyDeliveryStatus sendReplyToClient(String clientId, String message) {
         try {
             if (clientId == null || clientId.isEmpty() || "unknown".equals(clientId)) {
                 log.error("Невозможно отправить ответ: недопустимый ID клиента: {}", clientId);
-                return false;
+                return ReplyDeliveryStatus.FAILED;
             }
             
             ReplyMessage reply = ReplyMessage.builder()
                     .response(message)
                     .build();
-            webSocketService.sendToUser(clientId, "/queue/reply", reply);
-            log.info("Ответ отправлен клиенту {} через WebSocket.", clientId);
-            return true;
+            ReplyDeliveryStatus status = webSocketService.deliverReply(clientId, reply);
+            log.info("Ответ клиенту {}: {}", clientId, status);
+            return status;
         } catch (Exception e) {
             log.error("Ошибка при отправке ответа клиенту {}: {}", clientId, e.getMessage(), e);
-            return false;
+            return ReplyDeliveryStatus.FAILED;
         }
     }
     
@@ -219,9 +249,9 @@ public class TelegramNotificationService implements NotificationService, Telegra
     private void processCommand(Long userId, String command) {
         String commandLower = command.toLowerCase();
         if (commandLower.startsWith("/start")) {
-            sendNotification(userId, "Приветствую! Я бот для синхронизации буфера обмена между устройствами.");
+            sendAsync(userId, "Приветствую! Я бот для синхронизации буфера обмена между устройствами.");
         } else if (commandLower.startsWith("/help")) {
-            sendNotification(userId, "Доступные команды:\n" +
+            sendAsync(userId, "Доступные команды:\n" +
                     "/start - информация о боте\n" +
                     "/help - справка по командам\n" +
                     "/reply - ответить на последнее сообщение от клиента\n" +
@@ -231,43 +261,48 @@ public class TelegramNotificationService implements NotificationService, Telegra
             String statsMessage = String.format(
                     "📊 Статистика клиентских соединений:\n\n" +
                     "Активных соединений: %d\n" +
+                    "Неактивных соединений: %d\n" +
                     "Отключенных соединений: %d\n" +
                     "Всего соединений: %d\n" +
                     "Всего разрывов соединений: %d\n",
                     stats.get("activeCount"),
+                    stats.get("idleCount"),
                     stats.get("disconnectedCount"),
                     stats.get("totalCount"),
                     stats.get("disconnectionCount")
             );
-            sendNotification(userId, statsMessage);
-            
-            int cleanedCount = sessionService.cleanupDisconnectedSessions();
-            if (cleanedCount > 0) {
-                sendNotification(userId, "🧹 Очищены данные о " + cleanedCount + " отключенных сессиях");
-            }
+            sendAsync(userId, statsMessage);
         } else {
-            sendNotification(userId, "Неизвестная команда. Используйте /help для получения списка команд.");
+            sendAsync(userId, "Неизвестная команда. Используйте /help для получения списка команд.");
         }
     }
     
     /**
      * Уведомляет пользователя Telegram о сообщении от клиента.
      * Добавляет кнопку "Ответить", если клиент активен.
+     * Длинное содержимое отправляется частями или документом, см. {@link TelegramContentDelivery};
+     * ответ на любую из частей направляется клиенту.
+     * Сообщения ставятся в очередь отправки, метод не ждёт ответа Telegram.
      *
      * @param userId ID пользователя Telegram.
      * @param clientId ID клиента WebSocket.
      * @param message Текст сообщения от клиента.
+     * @return future, завершающийся true, если уведомление доставлено целиком
      */
-    public void notifyAboutClientMessage(Long userId, String clientId, String message) {
+    public CompletableFuture<Boolean> notifyAboutClientMessage(Long userId, String clientId, String message) {
         String clientIdForLog = (clientId == null || clientId.isEmpty()) ? "unknown" : clientId;
         log.info("Подготовка уведомления для пользователя {} о сообщении от клиента {}", userId, clientIdForLog);
 
-        lastClientMessages.put(userId.toString(), clientIdForLog);
+        lastClientMessages.compute(userId.toString(), (key, previous) -> {
+            lastClientMessagesExpiry.touch(key);
+            return clientIdForLog;
+        });
 
         boolean isClientDisconnected = "unknown".equals(clientIdForLog) || sessionService.isSessionDisconnected(clientIdForLog);
         boolean isClientActive = !isClientDisconnected && sessionService.isSessionActive(clientIdForLog);
 
-        String textToSend;
+        String header;
+        String footer;
         if (isClientDisconnected) {
             Long disconnectTime = sessionService.getLastDisconnectTime(clientIdForLog);
             String disconnectTimeInfo = "";
@@ -277,11 +312,14 @@ public class TelegramNotificationService implements NotificationService, Telegra
                 else if (timeSinceDisconnect < 3600000) { disconnectTimeInfo = String.format(" %d мин. назад", timeSinceDisconnect / 60000); }
                 else { disconnectTimeInfo = String.format(" %.1f ч. назад", timeSinceDisconnect / 3600000.0); }
             }
-             textToSend = "Сообщение от клиента (ОТКЛЮЧИЛСЯ" + disconnectTimeInfo + "):\n---\n" + message + "\n\n⚠️ Клиент отключился, ответ невозможен.";
+             header = "Сообщение от клиента (ОТКЛЮЧИЛСЯ" + disconnectTimeInfo + "):\n---\n";
+             footer = "\n\n⚠️ Клиент отключился, ответ будет доставлен при переподключении.";
         } else if (!isClientActive) {
-             textToSend = "Сообщение от клиента (НЕАКТИВЕН):\n---\n" + message + "\n\n⚠️ Клиент неактивен, ответ может не дойти.";
+             header = "Сообщение от клиента (НЕАКТИВЕН):\n---\n";
+             footer = "\n\n⚠️ Клиент неактивен, ответ может не дойти.";
         } else {
-             textToSend = "Сообщение от клиента (" + clientIdForLog + "):\n---\n" + message;
+             header = "Сообщение от клиента (" + clientIdForLog + "):\n---\n";
+             footer = "\n\n↩️ Ответьте на это сообщение, чтобы отправить ответ клиенту.";
         }
 
         InlineKeyboardMarkup replyMarkup = null;
@@ -295,18 +333,59 @@ public class TelegramNotificationService implements NotificationService, Telegra
             replyMarkup = InlineKeyboardMarkup.builder().keyboardRow(buttonRow).build();
         }
 
-        boolean sent;
-        if (replyMarkup != null) {
-            sent = telegramBotApi.sendMessageWithMarkup(userId, textToSend, replyMarkup);
-        } else {
-            sent = telegramBotApi.sendMessage(userId, textToSend);
-        }
+        boolean routable = !"unknown".equals(clientIdForLog);
+        CompletableFuture<Boolean> sent = contentDelivery.deliver(userId, header, message, footer, replyMarkup)
+                .thenApply(messageIds -> {
+                    boolean delivered = !messageIds.isEmpty();
+                    for (Integer messageId : messageIds) {
+                        if (messageId == null) {
+                            delivered = false;
+                        } else if (routable) {
+                            notificationRoutes.record(userId, messageId, clientIdForLog);
+                        }
+                    }
+                    return delivered;
+                });
 
-        if (!sent) {
-            log.error("Не удалось отправить уведомление пользователю {} о сообщении от клиента {} через адаптер.", userId, clientIdForLog);
-        } else {
-            log.info("Уведомление для пользователя {} о сообщении от клиента {} отправлено.", userId, clientIdForLog);
-        }
+        return sent.whenComplete((delivered, error) -> {
+            if (error != null || !Boolean.TRUE.equals(delivered)) {
+                log.error("Не удалось отправить уведомление пользователю {} о сообщении от клиента {} через адаптер.", userId, clientIdForLog);
+            } else {
+                log.info("Уведомление для пользователя {} о сообщении от клиента {} отправлено.", userId, clientIdForLog);
+            }
+        });
+    }
+    
+    /**
+     * Ставит сообщение пользователю в очередь отправки, не дожидаясь ответа Telegram.
+     * Обработчики обновлений выполняются на полосах диспетчера: ожидание отправки
+     * в чат, который Telegram ограничивает по частоте, задержало бы обработку
+     * остальных чатов той же полосы.
+     *
+     * @param userId ID пользователя Telegram
+     * @param message текст сообщения
+     */
+    /**
+     * Удаляет истёкшую запись о последнем клиенте. Обработчик истечения
+     * вызывается вне блокировки колеса таймеров, поэтому к этому моменту запись
+     * может быть уже обновлена и срок назначен заново: такая запись сохраняется.
+     * Запись и назначение срока выполняются под блокировкой той же ячейки карты.
+     *
+     * @param userId ID пользователя Telegram
+     */
+    private void expireLastClientMessage(String userId) {
+        lastClientMessages.computeIfPresent(userId,
+                (key, clientId) -> lastClientMessagesExpiry.isScheduled(key) ? clientId : null);
+    }
+
+    private void sendAsync(Long userId, String message) {
+        telegramBotApi.sendMessageAsync(userId, message).whenComplete((sent, error) -> {
+            if (error != null) {
+                log.warn("Не удалось отправить сообщение пользователю {}: {}", userId, error.getMessage());
+            } else if (!Boolean.TRUE.equals(sent)) {
+                log.warn("Не удалось отправить сообщение пользователю {} через адаптер", userId);
+            }
+        });
     }
     
     /**
@@ -333,16 +412,92 @@ public class TelegramNotificationService implements NotificationService, Telegra
      */
     @Override
     public int broadcastNotification(String message) {
+        return broadcast(message).getSuccessCount();
+    }
+    
+    /**
+     * {@inheritDoc}
+     * Ждёт итог {@link #broadcastAsync} не дольше {@code telegram.broadcast.timeout-ms}.
+     */
+    @Override
+    public BroadcastResult broadcast(String message) {
+        return broadcastAsync(message).join();
+    }
+    
+    /**
+     * {@inheritDoc}
+     * Рассылка выполняется в фоне: одновременно в очереди отправки находится не более
+     * {@code telegram.broadcast.concurrency} её сообщений, поэтому она не вытесняет
+     * личные уведомления. Итог завершается, когда все отправки закончены, но не позже
+     * {@code telegram.broadcast.timeout-ms}: отправки, не завершившиеся к этому моменту,
+     * учитываются как ожидающие.
+     * Одновременно выполняется не более {@code telegram.broadcast.max-running} рассылок,
+     * ещё {@code telegram.broadcast.max-queued} ждут очереди, остальные отклоняются.
+     */
+    @Override
+    public CompletableFuture<BroadcastResult> broadcastAsync(String message) {
         List<Long> users = telegramBotApi.getBotUsers();
-        int successCount = 0;
+        Semaphore permits = new Semaphore(broadcastConcurrency);
+        AtomicInteger successCount = new AtomicInteger();
+        AtomicInteger failedCount = new AtomicInteger();
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        if (users.isEmpty()) {
+            done.complete(null);
+        }
+        
+        try {
+            broadcastExecutor.execute(() -> fanOut(users, message, permits, done, successCount, failedCount));
+        } catch (RejectedExecutionException e) {
+            log.warn("Слишком много одновременных рассылок, рассылка на {} пользователей отклонена", users.size());
+            return CompletableFuture.completedFuture(BroadcastResult.builder()
+                    .totalCount(users.size())
+                    .failedCount(users.size())
+                    .build());
+        }
+        
+        return done.completeOnTimeout(null, broadcastTimeoutMs, TimeUnit.MILLISECONDS)
+                .thenApply(ignored -> {
+                    int success = successCount.get();
+                    int failed = failedCount.get();
+                    BroadcastResult result = BroadcastResult.builder()
+                            .totalCount(users.size())
+                            .successCount(success)
+                            .failedCount(failed)
+                            .pendingCount(Math.max(0, users.size() - success - failed))
+                            .build();
+                    log.info("Широковещательное уведомление отправлено {}/{} пользователям (ошибок: {}, в очереди: {}).",
+                            result.getSuccessCount(), result.getTotalCount(), result.getFailedCount(), result.getPendingCount());
+                    return result;
+                });
+    }
+    
+    private void fanOut(List<Long> users, String message, Semaphore permits, CompletableFuture<Void> done,
+                        AtomicInteger successCount, AtomicInteger failedCount) {
+        AtomicInteger remaining = new AtomicInteger(users.size());
         for (Long userId : users) {
-            if (telegramBotApi.sendMessage(userId, message)) {
-                successCount++;
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
             }
+            telegramBotApi.sendMessageAsync(userId, message).whenComplete((sent, error) -> {
+                if (error == null && Boolean.TRUE.equals(sent)) {
+                    successCount.incrementAndGet();
+                } else {
+                    failedCount.incrementAndGet();
+                }
+                permits.release();
+                if (remaining.decrementAndGet() == 0) {
+                    done.complete(null);
+                }
+            });
         }
-        
-        log.info("Широковещательное уведомление отправлено {}/{} пользователям.", successCount, users.size());
-        return successCount;
+    }
+    
+    @PreDestroy
+    public void shutdownBroadcastExecutor() {
+        broadcastExecutor.shutdownNow();
     }
     
     /**
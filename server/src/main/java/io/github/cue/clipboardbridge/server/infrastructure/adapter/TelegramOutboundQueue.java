@@ -0,0 +1,518 @@
+package io.github.cue.clipboardbridge.server.infrastructure.adapter;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Ограниченная очередь исходящих сообщений Telegram.
+ * Поток-диспетчер выдаёт сообщения с учётом глобального token bucket и token bucket
+ * на каждый чат, а сам вызов Bot API выполняется в пуле отправителей, поэтому
+ * вызывающий поток не ждёт ответа Telegram. Асинхронный отправитель
+ * ({@link AsyncSender}) позволяет держать несколько запросов в полёте без пула потоков.
+ * Блокирующему отправителю диспетчер передаёт не больше запросов, чем пул может
+ * принять: при занятом пуле сообщения ждут в очереди, а не выполняются в потоке
+ * диспетчера.
+ * <p>
+ * Ответ 429 приостанавливает чат на {@code retry_after} секунд и снижает глобальную
+ * скорость, сетевые ошибки повторяются с экспоненциальной задержкой. Сообщение
+ * теряется при ошибке запроса (4xx), исчерпании попыток или истечении срока
+ * доставки. Ответы 429 попытки не расходуют, поэтому общее время откладывания
+ * ограничено сроком, отсчитываемым от постановки сообщения в очередь: повтор,
+ * который пришёлся бы позже срока, не выполняется.
+ */
+@Slf4j
+public class TelegramOutboundQueue implements MeterBinder {
+
+    /**
+     * Фактическая отправка сообщения в Bot API.
+     */
+    @FunctionalInterface
+    public interface Sender {
+        Message send(SendMessage message) throws TelegramApiException;
+    }
+
+    /**
+     * Неблокирующая отправка сообщения в Bot API.
+     */
+    @FunctionalInterface
+    public interface AsyncSender {
+        CompletableFuture<Message> send(SendMessage message);
+    }
+
+    private static final class OutboundMessage {
+        private final Long chatId;
+        private final SendMessage message;
+        private final CompletableFuture<Message> result;
+        private final long deadline;
+        private int attempts;
+
+        private OutboundMessage(Long chatId, SendMessage message, CompletableFuture<Message> result, long deadline) {
+            this.chatId = chatId;
+            this.message = message;
+            this.result = result;
+            this.deadline = deadline;
+        }
+    }
+
+    private record Completion(OutboundMessage outbound, Message sent, Exception error) {
+    }
+
+    /**
+     * Token bucket. Используется только потоком-диспетчером.
+     */
+    private static final class TokenBucket {
+        private final double capacity;
+        private double tokensPerNano;
+        private double tokens;
+        private long lastRefill;
+
+        private TokenBucket(double capacity, double tokensPerSecond, long now) {
+            this.capacity = capacity;
+            this.tokens = capacity;
+            this.lastRefill = now;
+            setRate(tokensPerSecond);
+        }
+
+        private void setRate(double tokensPerSecond) {
+            this.tokensPerNano = tokensPerSecond / TimeUnit.SECONDS.toNanos(1);
+        }
+
+        private long nanosUntilToken(long now) {
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+            lastRefill = now;
+            return tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / tokensPerNano);
+        }
+
+        private void take() {
+            tokens -= 1;
+        }
+
+        private boolean isFull(long now) {
+            nanosUntilToken(now);
+            return tokens >= capacity;
+        }
+    }
+
+    private static final OutboundMessage WAKE_UP = new OutboundMessage(null, null, null, 0);
+    private static final int CHAT_STATE_PRUNE_THRESHOLD = 10_000;
+    private static final double MIN_RATE_FACTOR = 0.1;
+    private static final double RATE_RECOVERY_STEP = 0.02;
+    private static final long MAX_BACKOFF_MS = 30_000;
+
+    private final AsyncSender sender;
+    private final int capacity;
+    private final int maxAttempts;
+    private final long maxDeferralNanos;
+    private final double globalRate;
+    private final double perChatRate;
+    private final double perChatBurst;
+    private final BlockingQueue<OutboundMessage> incoming = new LinkedBlockingQueue<>();
+    private final Queue<Completion> completions = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final ThreadPoolExecutor workers;
+    private final int maxInFlight;
+    private final Thread dispatcher;
+    private volatile boolean running = true;
+
+    private final LongAdder sentCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+    private final LongAdder retriedCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+    private final LongAdder throttledCount = new LongAdder();
+    private volatile int throttledChats;
+    private volatile int inFlight;
+    private volatile double rateFactor = 1.0;
+
+    // Состояние ниже принадлежит только потоку-диспетчеру
+    private final LinkedHashMap<Long, ArrayDeque<OutboundMessage>> pendingByChat = new LinkedHashMap<>();
+    private final Map<Long, TokenBucket> chatBuckets = new HashMap<>();
+    private final Map<Long, Long> chatPausedUntil = new HashMap<>();
+    private final Set<Long> inFlightChats = new HashSet<>();
+    private final TokenBucket globalBucket;
+
+    /**
+     * @param sender блокирующая функция отправки в Bot API
+     * @param capacity максимальное число сообщений, ожидающих доставки
+     * @param globalRate глобальный лимит сообщений в секунду
+     * @param perChatRate лимит сообщений в секунду для одного чата
+     * @param perChatBurst допустимая пачка сообщений в один чат
+     * @param maxAttempts максимальное число попыток отправки одного сообщения
+     * @param maxDeferralMs срок доставки сообщения с момента постановки в очередь
+     * @param workerCount число потоков, выполняющих запросы к Bot API; запросов
+     *                    в полёте не больше, чем потоков и мест в очереди пула
+     * @param workerThreads фабрика потоков, выполняющих запросы к Bot API
+     */
+    public TelegramOutboundQueue(Sender sender, int capacity, double globalRate, double perChatRate,
+                                 int perChatBurst, int maxAttempts, long maxDeferralMs,
+                                 int workerCount, ThreadFactory workerThreads) {
+        this(new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS,
+                        new ArrayBlockingQueue<>(workerCount * 4),
+                        workerThreads,
+                        new ThreadPoolExecutor.AbortPolicy()),
+                sender, capacity, globalRate, perChatRate, perChatBurst, maxAttempts, maxDeferralMs);
+    }
+
+    /**
+     * @param sender неблокирующая функция отправки в Bot API
+     * @param capacity максимальное число сообщений, ожидающих доставки
+     * @param globalRate глобальный лимит сообщений в секунду
+     * @param perChatRate лимит сообщений в секунду для одного чата
+     * @param perChatBurst допустимая пачка сообщений в один чат
+     * @param maxAttempts максимальное число попыток отправки одного сообщения
+     * @param maxDeferralMs срок доставки сообщения с момента постановки в очередь
+     */
+    public TelegramOutboundQueue(AsyncSender sender, int capacity, double globalRate, double perChatRate,
+                                 int perChatBurst, int maxAttempts, long maxDeferralMs) {
+        this(null, sender, capacity, globalRate, perChatRate, perChatBurst, maxAttempts, maxDeferralMs);
+    }
+
+    private TelegramOutboundQueue(ThreadPoolExecutor workers, Sender sender, int capacity, double globalRate,
+                                  double perChatRate, int perChatBurst, int maxAttempts, long maxDeferralMs) {
+        this(workers, (AsyncSender) message -> CompletableFuture.supplyAsync(() -> {
+            try {
+                return sender.send(message);
+            } catch (TelegramApiException e) {
+                throw new CompletionException(e);
+            }
+        }, workers), capacity, globalRate, perChatRate, perChatBurst, maxAttempts, maxDeferralMs);
+    }
+
+    private TelegramOutboundQueue(ThreadPoolExecutor workers, AsyncSender sender, int capacity, double globalRate,
+                                  double perChatRate, int perChatBurst, int maxAttempts, long maxDeferralMs) {
+        this.workers = workers;
+        this.maxInFlight = workers != null
+                ? workers.getMaximumPoolSize() + workers.getQueue().remainingCapacity()
+                : Integer.MAX_VALUE;
+        this.sender = sender;
+        this.capacity = capacity;
+        this.maxAttempts = maxAttempts;
+        this.maxDeferralNanos = TimeUnit.MILLISECONDS.toNanos(maxDeferralMs);
+        this.globalRate = globalRate;
+        this.perChatRate = perChatRate;
+        this.perChatBurst = Math.max(1, perChatBurst);
+        this.globalBucket = new TokenBucket(Math.max(1, globalRate), globalRate, System.nanoTime());
+
+        this.dispatcher = new Thread(this::dispatchLoop, "telegram-outbound-dispatcher");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    /**
+     * Ставит сообщение в очередь на отправку.
+     *
+     * @param message сообщение
+     * @return future с отправленным сообщением или null, если отправка не удалась;
+     *         при переполнении очереди завершается {@link RejectedExecutionException}
+     */
+    public CompletableFuture<Message> submit(SendMessage message) {
+        OutboundMessage outbound = new OutboundMessage(Long.valueOf(message.getChatId()), message,
+                new CompletableFuture<>(), System.nanoTime() + maxDeferralNanos);
+        if (!running || outstanding.incrementAndGet() > capacity) {
+            if (running) {
+                outstanding.decrementAndGet();
+            }
+            rejectedCount.increment();
+            log.warn("Очередь исходящих сообщений Telegram переполнена, сообщение для {} отклонено", outbound.chatId);
+            outbound.result.completeExceptionally(
+                    new RejectedExecutionException("Очередь исходящих сообщений Telegram переполнена"));
+            return outbound.result;
+        }
+        incoming.add(outbound);
+        return outbound.result;
+    }
+
+    /**
+     * @return количество сообщений, ожидающих доставки
+     */
+    public int getQueueSize() {
+        return outstanding.get();
+    }
+
+    /**
+     * @return количество чатов, приостановленных после ответа 429
+     */
+    public int getThrottledChatCount() {
+        return throttledChats;
+    }
+
+    /**
+     * @return текущий множитель глобальной скорости (1.0 - без ограничения)
+     */
+    public double getRateFactor() {
+        return rateFactor;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("telegram.outbound.queued", outstanding, AtomicInteger::get)
+                .description("Сообщения, ожидающие доставки в Telegram")
+                .register(registry);
+        Gauge.builder("telegram.outbound.in.flight", this, queue -> queue.inFlight)
+                .register(registry);
+        Gauge.builder("telegram.outbound.throttled.chats", this, TelegramOutboundQueue::getThrottledChatCount)
+                .description("Чаты, приостановленные по retry_after")
+                .register(registry);
+        Gauge.builder("telegram.outbound.rate.factor", this, TelegramOutboundQueue::getRateFactor)
+                .description("Множитель глобальной скорости после адаптивного снижения")
+                .register(registry);
+        FunctionCounter.builder("telegram.outbound.sent", sentCount, LongAdder::sum).register(registry);
+        FunctionCounter.builder("telegram.outbound.failed", failedCount, LongAdder::sum).register(registry);
+        FunctionCounter.builder("telegram.outbound.retried", retriedCount, LongAdder::sum).register(registry);
+        FunctionCounter.builder("telegram.outbound.rejected", rejectedCount, LongAdder::sum).register(registry);
+        FunctionCounter.builder("telegram.outbound.throttled", throttledCount, LongAdder::sum)
+                .description("Ответы 429 от Telegram")
+                .register(registry);
+    }
+
+    /**
+     * Останавливает диспетчер. Неотправленные сообщения завершаются неудачей.
+     */
+    public void shutdown() {
+        running = false;
+        dispatcher.interrupt();
+        if (workers != null) {
+            workers.shutdown();
+        }
+        OutboundMessage rest;
+        while ((rest = incoming.poll()) != null) {
+            if (rest != WAKE_UP) {
+                rest.result.complete(null);
+            }
+        }
+    }
+
+    private void dispatchLoop() {
+        while (running) {
+            try {
+                OutboundMessage next;
+                if (pendingByChat.isEmpty() && completions.isEmpty()) {
+                    next = incoming.take();
+                } else {
+                    long waitNanos = dispatchReady(System.nanoTime());
+                    next = waitNanos > 0 ? incoming.poll(waitNanos, TimeUnit.NANOSECONDS) : incoming.poll();
+                }
+                while (next != null) {
+                    if (next != WAKE_UP) {
+                        pendingByChat.computeIfAbsent(next.chatId, id -> new ArrayDeque<>()).addLast(next);
+                    }
+                    next = incoming.poll();
+                }
+                drainCompletions(System.nanoTime());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.error("Ошибка в диспетчере исходящих сообщений Telegram: {}", e.getMessage(), e);
+            }
+        }
+        pendingByChat.values().forEach(deque -> deque.forEach(m -> m.result.complete(null)));
+        pendingByChat.clear();
+    }
+
+    /**
+     * Передаёт в пул первое сообщение, для которого не действует ограничение.
+     * Чаты обходятся по кругу, в каждом чате одновременно выполняется не более
+     * одного запроса, что сохраняет порядок сообщений. Пока пул отправителей
+     * заполнен, новые запросы не выдаются до завершения одного из текущих.
+     *
+     * @param now текущее время в наносекундах
+     * @return 0 если сообщение отправлено, иначе время ожидания в наносекундах
+     */
+    private long dispatchReady(long now) {
+        if (inFlightChats.size() >= maxInFlight) {
+            return Long.MAX_VALUE;
+        }
+        long globalWait = globalBucket.nanosUntilToken(now);
+        if (globalWait > 0) {
+            return globalWait;
+        }
+
+        long earliest = Long.MAX_VALUE;
+        Iterator<Map.Entry<Long, ArrayDeque<OutboundMessage>>> iterator = pendingByChat.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, ArrayDeque<OutboundMessage>> entry = iterator.next();
+            Long chatId = entry.getKey();
+            if (inFlightChats.contains(chatId)) {
+                continue;
+            }
+
+            Long pausedUntil = chatPausedUntil.get(chatId);
+            if (pausedUntil != null) {
+                if (now - pausedUntil < 0) {
+                    earliest = Math.min(earliest, pausedUntil - now);
+                    continue;
+                }
+                chatPausedUntil.remove(chatId);
+                throttledChats = chatPausedUntil.size();
+            }
+
+            TokenBucket chatBucket = chatBuckets.computeIfAbsent(chatId, id -> new TokenBucket(perChatBurst, perChatRate, now));
+            long chatWait = chatBucket.nanosUntilToken(now);
+            if (chatWait > 0) {
+                earliest = Math.min(earliest, chatWait);
+                continue;
+            }
+
+            ArrayDeque<OutboundMessage> deque = entry.getValue();
+            OutboundMessage next = deque.poll();
+            iterator.remove();
+            if (!deque.isEmpty()) {
+                pendingByChat.put(chatId, deque);
+            }
+
+            chatBucket.take();
+            globalBucket.take();
+            inFlightChats.add(chatId);
+            inFlight = inFlightChats.size();
+            next.attempts++;
+            deliver(next);
+            return 0;
+        }
+        return earliest;
+    }
+
+    private void deliver(OutboundMessage outbound) {
+        CompletableFuture<Message> sending;
+        try {
+            sending = sender.send(outbound.message);
+        } catch (Exception e) {
+            sending = CompletableFuture.failedFuture(e);
+        }
+        sending.whenComplete((sent, error) -> {
+            completions.add(new Completion(outbound, error == null ? sent : null, unwrap(error)));
+            incoming.add(WAKE_UP);
+        });
+    }
+
+    private static Exception unwrap(Throwable error) {
+        if (error == null) {
+            return null;
+        }
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof Exception exception ? exception : new TelegramApiException(cause);
+    }
+
+    /**
+     * Обрабатывает результаты отправки: завершает future, либо возвращает
+     * сообщение в начало очереди его чата для повторной попытки.
+     *
+     * @param now текущее время в наносекундах
+     */
+    private void drainCompletions(long now) {
+        Completion completion;
+        while ((completion = completions.poll()) != null) {
+            OutboundMessage outbound = completion.outbound();
+            inFlightChats.remove(outbound.chatId);
+            inFlight = inFlightChats.size();
+
+            if (completion.error() == null) {
+                recoverRate();
+                sentCount.increment();
+                outstanding.decrementAndGet();
+                outbound.result.complete(completion.sent());
+                continue;
+            }
+
+            if (isRateLimited(completion.error())) {
+                // Отложенная по retry_after отправка не считается неудачной попыткой
+                outbound.attempts--;
+            }
+            long retryDelay = retryDelayNanos(completion.error(), outbound.attempts);
+            if (retryDelay < 0 || outbound.attempts >= maxAttempts || now + retryDelay - outbound.deadline > 0) {
+                log.error("Ошибка отправки сообщения пользователю {} (попытка {}): {}",
+                        outbound.chatId, outbound.attempts, completion.error().getMessage());
+                failedCount.increment();
+                outstanding.decrementAndGet();
+                outbound.result.complete(null);
+                continue;
+            }
+
+            log.warn("Повторная отправка сообщения пользователю {} через {} мс: {}", outbound.chatId,
+                    TimeUnit.NANOSECONDS.toMillis(retryDelay), completion.error().getMessage());
+            retriedCount.increment();
+            chatPausedUntil.put(outbound.chatId, now + retryDelay);
+            throttledChats = chatPausedUntil.size();
+            pendingByChat.computeIfAbsent(outbound.chatId, id -> new ArrayDeque<>()).addFirst(outbound);
+        }
+
+        if (chatBuckets.size() > CHAT_STATE_PRUNE_THRESHOLD) {
+            chatBuckets.entrySet().removeIf(entry -> !pendingByChat.containsKey(entry.getKey())
+                    && !inFlightChats.contains(entry.getKey())
+                    && entry.getValue().isFull(now));
+        }
+    }
+
+    /**
+     * Определяет задержку перед повторной отправкой.
+     *
+     * @param error ошибка отправки
+     * @param attempts число выполненных попыток
+     * @return задержка в наносекундах или -1, если повтор бессмыслен
+     */
+    private long retryDelayNanos(Exception error, int attempts) {
+        if (isRateLimited(error)) {
+            TelegramApiRequestException requestException = (TelegramApiRequestException) error;
+            throttledCount.increment();
+            reduceRate();
+            Integer retryAfter = requestException.getParameters() != null
+                    ? requestException.getParameters().getRetryAfter() : null;
+            return TimeUnit.SECONDS.toNanos(retryAfter != null ? retryAfter : 1);
+        }
+        if (error instanceof TelegramApiRequestException requestException) {
+            Integer errorCode = requestException.getErrorCode();
+            if (errorCode != null && errorCode >= 400 && errorCode < 500) {
+                return -1;
+            }
+        }
+        long backoffMs = Math.min(MAX_BACKOFF_MS, 500L << Math.min(attempts - 1, 6));
+        return TimeUnit.MILLISECONDS.toNanos(backoffMs);
+    }
+
+    private static boolean isRateLimited(Exception error) {
+        return error instanceof TelegramApiRequestException requestException
+                && requestException.getErrorCode() != null
+                && requestException.getErrorCode() == 429;
+    }
+
+    private void reduceRate() {
+        rateFactor = Math.max(MIN_RATE_FACTOR, rateFactor / 2);
+        globalBucket.setRate(globalRate * rateFactor);
+        log.warn("Telegram ограничил частоту запросов, глобальная скорость снижена до {} сообщ./с", globalRate * rateFactor);
+    }
+
+    private void recoverRate() {
+        if (rateFactor < 1.0) {
+            rateFactor = Math.min(1.0, rateFactor + RATE_RECOVERY_STEP);
+            globalBucket.setRate(globalRate * rateFactor);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package io.github.cue.clipboardbridge.server.infrastructure.adapter;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import io.github.cue.clipboardbridge.server.infrastructure.port.TelegramUpdateListener;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Этап диспетчеризации обновлений Telegram между потоком long polling и слушателем.
+ * Обновления распределяются по однопоточным полосам по ID чата: обновления одного
+ * чата обрабатываются строго по порядку, разные чаты - параллельно.
+ * Если очередь полосы заполнена, вызывающий поток ждёт освобождения места в ней:
+ * получение новых обновлений притормаживается, но обновления не теряются и не
+ * обгоняют уже поставленные в очередь обновления того же чата.
+ */
+@Slf4j
+public class TelegramUpdateDispatcher implements MeterBinder {
+
+    /**
+     * Ставит задачу в очередь полосы, ожидая свободного места. Единственный поток
+     * полосы создаётся при первой задаче, поэтому очередь всегда кто-то разбирает.
+     */
+    private static final RejectedExecutionHandler BLOCK_UNTIL_QUEUED = (task, executor) -> {
+        if (executor.isShutdown()) {
+            throw new RejectedExecutionException("Диспетчер обновлений Telegram остановлен");
+        }
+        try {
+            executor.getQueue().put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Прервано ожидание места в очереди обновлений", e);
+        }
+    };
+
+    private final ThreadPoolExecutor[] stripes;
+    private Timer lagTimer;
+    private Timer processingTimer;
+
+    /**
+     * @param stripeCount число полос (потоков обработки)
+     * @param queueCapacity ёмкость очереди одной полосы
+     * @param threadFactory фабрика потоков полос
+     */
+    public TelegramUpdateDispatcher(int stripeCount, int queueCapacity, ThreadFactory threadFactory) {
+        this.stripes = new ThreadPoolExecutor[Math.max(1, stripeCount)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(queueCapacity),
+                    threadFactory,
+                    BLOCK_UNTIL_QUEUED);
+        }
+    }
+
+    /**
+     * Передаёт обновление слушателю в полосе, соответствующей чату.
+     *
+     * @param update обновление Telegram
+     * @param listener слушатель обновлений
+     */
+    public void dispatch(Update update, TelegramUpdateListener listener) {
+        dispatch(update, listener, () -> { });
+    }
+
+    /**
+     * Передаёт обновление слушателю в полосе, соответствующей чату, и сообщает
+     * о завершении обработки, в том числе если слушатель выбросил исключение.
+     *
+     * @param update обновление Telegram
+     * @param listener слушатель обновлений
+     * @param onProcessed вызывается в потоке полосы после обработки обновления
+     */
+    public void dispatch(Update update, TelegramUpdateListener listener, Runnable onProcessed) {
+        long receivedAt = System.nanoTime();
+        stripes[stripeIndex(partitionKey(update))].execute(() -> {
+            long startedAt = System.nanoTime();
+            if (lagTimer != null) {
+                lagTimer.record(startedAt - receivedAt, TimeUnit.NANOSECONDS);
+            }
+            try {
+                listener.onUpdateReceived(update);
+            } catch (Exception e) {
+                log.error("Ошибка при передаче обновления слушателю {}: {}", listener.getClass().getSimpleName(), e.getMessage(), e);
+            } finally {
+                if (processingTimer != null) {
+                    processingTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                }
+                onProcessed.run();
+            }
+        });
+    }
+
+    /**
+     * @return суммарное число обновлений, ожидающих обработки
+     */
+    public int getQueueDepth() {
+        int depth = 0;
+        for (ThreadPoolExecutor stripe : stripes) {
+            depth += stripe.getQueue().size();
+        }
+        return depth;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("telegram.updates.queued", this, TelegramUpdateDispatcher::getQueueDepth)
+                .description("Обновления Telegram, ожидающие обработки")
+                .register(registry);
+        lagTimer = Timer.builder("telegram.updates.lag")
+                .description("Время от получения обновления до начала обработки")
+                .register(registry);
+        processingTimer = Timer.builder("telegram.updates.processing")
+                .description("Время обработки обновления слушателем")
+                .register(registry);
+    }
+
+    /**
+     * Останавливает полосы, дожидаясь обработки уже полученных обновлений.
+     */
+    public void shutdown() {
+        for (ThreadPoolExecutor stripe : stripes) {
+            stripe.shutdown();
+        }
+    }
+
+    private int stripeIndex(long key) {
+        return Math.floorMod(Long.hashCode(key), stripes.length);
+    }
+
+    /**
+     * Определяет ключ разбиения: ID чата для сообщений, ID пользователя для callback-запросов
+     * (в личном чате они совпадают, поэтому порядок сохраняется и между ними).
+     */
+    private static long partitionKey(Update update) {
+        if (update.hasMessage() && update.getMessage().getChatId() != null) {
+            return update.getMessage().getChatId();
+        }
+        if (update.hasCallbackQuery() && update.getCallbackQuery().getFrom() != null) {
+            return update.getCallbackQuery().getFrom().getId();
+        }
+        return 0L;
+    }
+}
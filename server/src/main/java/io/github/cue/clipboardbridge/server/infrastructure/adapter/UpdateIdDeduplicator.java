@@ -0,0 +1,70 @@
+package io.github.cue.clipboardbridge.server.infrastructure.adapter;
+
+import java.util.Arrays;
+
+/**
+ * Окно дедупликации обновлений Telegram по числовому {@code update_id}.
+ * Хранит наибольший полученный ID и битовую карту последних {@code windowSize} ID,
+ * поэтому проверка выполняется за O(1) без выделения памяти. Telegram выдаёт
+ * update_id по возрастанию, окно нужно лишь для обновлений, пришедших не по порядку;
+ * обновления старше окна считаются уже обработанными.
+ */
+public class UpdateIdDeduplicator {
+
+    private final int windowSize;
+    private final int mask;
+    private final long[] seen;
+    private long highestId = Long.MIN_VALUE;
+
+    /**
+     * @param windowSize размер окна, округляется вверх до степени двойки (не меньше 64)
+     */
+    public UpdateIdDeduplicator(int windowSize) {
+        int size = Math.max(64, Integer.highestOneBit(Math.max(1, windowSize - 1)) << 1);
+        this.windowSize = size;
+        this.mask = size - 1;
+        this.seen = new long[size >>> 6];
+    }
+
+    /**
+     * Отмечает обновление как обработанное.
+     *
+     * @param updateId ID обновления
+     * @return true, если обновление встречается впервые
+     */
+    public synchronized boolean markProcessed(long updateId) {
+        if (highestId == Long.MIN_VALUE || updateId > highestId) {
+            if (highestId == Long.MIN_VALUE || updateId - highestId >= windowSize) {
+                Arrays.fill(seen, 0L);
+            } else {
+                for (long id = highestId + 1; id < updateId; id++) {
+                    clear(id);
+                }
+            }
+            highestId = updateId;
+            set(updateId);
+            return true;
+        }
+
+        if (highestId - updateId >= windowSize || isSet(updateId)) {
+            return false;
+        }
+        set(updateId);
+        return true;
+    }
+
+    private boolean isSet(long id) {
+        int slot = (int) (id & mask);
+        return (seen[slot >>> 6] & (1L << slot)) != 0;
+    }
+
+    private void set(long id) {
+        int slot = (int) (id & mask);
+        seen[slot >>> 6] |= 1L << slot;
+    }
+
+    private void clear(long id) {
+        int slot = (int) (id & mask);
+        seen[slot >>> 6] &= ~(1L << slot);
+    }
+}
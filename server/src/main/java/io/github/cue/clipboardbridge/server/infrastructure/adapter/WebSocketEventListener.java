@@ -2,19 +2,19 @@ package io.github.cue.clipboardbridge.server.infrastructure.adapter;
 
 import java.security.Principal;
 import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArraySet;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.event.EventListener;
 import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
 import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.messaging.SessionConnectedEvent;
 import org.springframework.web.socket.messaging.SessionDisconnectEvent;
 import org.springframework.web.socket.messaging.SessionSubscribeEvent;
 
 import io.github.cue.clipboardbridge.server.infrastructure.service.ClientSessionService;
+import io.github.cue.clipboardbridge.server.infrastructure.service.SessionExpiryService;
+import io.github.cue.clipboardbridge.server.infrastructure.service.WebSocketSessionRegistry;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -27,15 +27,21 @@ public class WebSocketEventListener {
 
     private final ClientSessionService sessionService;
     
-    private final Map<String, Long> processedDisconnects = new ConcurrentHashMap<>();
-    
-    private final Set<String> processedClientIds = new CopyOnWriteArraySet<>();
+    private final WebSocketSessionRegistry sessionRegistry;
     
     private static final long DISCONNECT_EVENT_TTL = 10000; // 10 секунд
+    
+    private final ExpiringKeySet processedDisconnects = new ExpiringKeySet(DISCONNECT_EVENT_TTL);
+    
+    private final ExpiringKeySet processedClientIds = new ExpiringKeySet(DISCONNECT_EVENT_TTL);
 
     @Autowired
-    public WebSocketEventListener(ClientSessionService sessionService) {
+    public WebSocketEventListener(ClientSessionService sessionService, WebSocketSessionRegistry sessionRegistry,
+                                  SessionExpiryService expiryService) {
         this.sessionService = sessionService;
+        this.sessionRegistry = sessionRegistry;
+        expiryService.monitor("processed-disconnects", processedDisconnects::size);
+        expiryService.monitor("processed-client-ids", processedClientIds::size);
     }
 
     /**
@@ -50,10 +56,16 @@ public class WebSocketEventListener {
         
         if (principal != null) {
             String clientId = principal.getName();
-            log.info("Новое WebSocket соединение: {}", clientId);
-            sessionService.registerSession(clientId);
+            String sessionId = headerAccessor.getSessionId();
+            log.info("Новое WebSocket соединение: {} (сессия: {})", clientId, sessionId);
+            String staleSessionId = sessionService.registerSession(clientId, sessionId);
             
             processedClientIds.remove(clientId);
+            
+            if (staleSessionId != null) {
+                log.info("Закрытие устаревшей сессии {} клиента {}", staleSessionId, clientId);
+                sessionRegistry.closeSession(staleSessionId, CloseStatus.POLICY_VIOLATION.withReason("Session replaced"));
+            }
         } else {
             log.warn("Новое соединение без Principal");
         }
@@ -75,7 +87,7 @@ public class WebSocketEventListener {
             String clientId = principal.getName();
             log.debug("Клиент подписался на топик: {}, ID: {}", 
                     headerAccessor.getDestination(), clientId);
-            sessionService.updateSession(clientId);
+            sessionService.updateSession(clientId, headerAccessor.getSessionId());
         }
         
         if (principal == null && headerAccessor.getSessionAttributes() != null) {
@@ -83,14 +95,15 @@ public class WebSocketEventListener {
             if (sessionIdObj instanceof String) {
                 String clientId = (String) sessionIdObj;
                 log.debug("Клиент подписался (по атрибуту CLIENT_ID): {}", clientId);
-                sessionService.updateSession(clientId);
+                sessionService.updateSession(clientId, headerAccessor.getSessionId());
             }
         }
     }
 
     /**
      * Обрабатывает событие отключения по WebSocket.
-     * Реализует механизм дедупликации для предотвращения повторной обработки.
+     * Реализует механизм дедупликации для предотвращения повторной обработки:
+     * отметки сессий и клиентов ставятся атомарно и истекают без общих блокировок.
      * 
      * @param event событие отключения
      */
@@ -104,10 +117,7 @@ public class WebSocketEventListener {
             return;
         }
         
-        long currentTime = System.currentTimeMillis();
-        cleanupExpiredEvents(currentTime);
-        
-        if (isAlreadyProcessed(sessionId)) {
+        if (!processedDisconnects.add(sessionId)) {
             log.debug("Пропуск дублирующегося события отключения для сессии: {}", sessionId);
             return;
         }
@@ -118,19 +128,20 @@ public class WebSocketEventListener {
             return;
         }
         
-        if (processedClientIds.contains(clientId)) {
+        if (!sessionService.isCurrentSession(clientId, sessionId)) {
+            log.debug("Закрыта устаревшая сессия {} клиента {}, текущая сессия не затронута", sessionId, clientId);
+            return;
+        }
+        
+        if (!processedClientIds.add(clientId)) {
             log.debug("Пропуск дублирующегося события отключения для клиента: {}", clientId);
             return;
         }
         
         log.info("WebSocket соединение закрыто: {} (сессия: {})", clientId, sessionId);
         
-        markSessionAsProcessed(sessionId, currentTime);
-        processedClientIds.add(clientId);
-        
-        if (!sessionService.isSessionDisconnected(clientId)) {
-            sessionService.disconnectSession(clientId);
-        }
+        // Клиент мог переподключиться после проверки выше: отключение проверяет сессию атомарно
+        sessionService.disconnectSession(clientId, sessionId);
     }
     
     /**
@@ -155,34 +166,4 @@ public class WebSocketEventListener {
         
         return null;
     }
-    
-    /**
-     * Проверяет, была ли сессия уже обработана.
-     * 
-     * @param sessionId ID сессии
-     * @return true если сессия уже обработана
-     */
-    private synchronized boolean isAlreadyProcessed(String sessionId) {
-        return processedDisconnects.containsKey(sessionId);
-    }
-    
-    /**
-     * Отмечает сессию как обработанную.
-     * 
-     * @param sessionId ID сессии
-     * @param timestamp метка времени обработки
-     */
-    private synchronized void markSessionAsProcessed(String sessionId, long timestamp) {
-        processedDisconnects.put(sessionId, timestamp);
-    }
-    
-    /**
-     * Очищает устаревшие записи об обработанных событиях.
-     * 
-     * @param currentTime текущее время
-     */
-    private synchronized void cleanupExpiredEvents(long currentTime) {
-        processedDisconnects.entrySet().removeIf(
-            entry -> (currentTime - entry.getValue()) > DISCONNECT_EVENT_TTL);
-    }
 } 
\ No newline at end of file
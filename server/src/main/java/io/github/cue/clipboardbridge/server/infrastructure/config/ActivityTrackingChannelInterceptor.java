@@ -0,0 +1,41 @@
+package io.github.cue.clipboardbridge.server.infrastructure.config;
+
+import java.security.Principal;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+
+import io.github.cue.clipboardbridge.server.infrastructure.service.ClientSessionService;
+
+/**
+ * Перехватчик входящего канала, отмечающий активность клиента по любому
+ * входящему кадру, включая heartbeat STOMP.
+ * DISCONNECT не считается активностью: при закрытии сокета Spring сначала
+ * публикует событие отключения, а затем отправляет во входящий канал
+ * синтетический DISCONNECT, который не должен возвращать клиента в активные.
+ * Учитываются только кадры текущей сессии клиента.
+ */
+public class ActivityTrackingChannelInterceptor implements ChannelInterceptor {
+
+    private final ClientSessionService sessionService;
+
+    public ActivityTrackingChannelInterceptor(ClientSessionService sessionService) {
+        this.sessionService = sessionService;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor != null && accessor.getCommand() != StompCommand.DISCONNECT) {
+            Principal principal = accessor.getUser();
+            if (principal != null) {
+                sessionService.recordActivity(principal.getName(), accessor.getSessionId());
+            }
+        }
+        return message;
+    }
+}
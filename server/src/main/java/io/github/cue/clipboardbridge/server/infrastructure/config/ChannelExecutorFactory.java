@@ -0,0 +1,79 @@
+package io.github.cue.clipboardbridge.server.infrastructure.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Создаёт исполнителей для каналов STOMP с метриками Micrometer
+ * ({@code executor.queued}, {@code executor.active}, таймеры {@code executor}
+ * и {@code executor.idle} с тегом {@code name}).
+ * Пул с ограниченной очередью при переполнении выполняет задачу в вызывающем
+ * потоке, притормаживая источник сообщений вместо их потери.
+ */
+@Slf4j
+class ChannelExecutorFactory {
+
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    private final MeterRegistry meterRegistry;
+    private final boolean virtualThreads;
+    private final List<ExecutorService> pools = new ArrayList<>();
+
+    /**
+     * @param meterRegistry реестр метрик
+     * @param virtualThreads выполнять задачи каналов в виртуальных потоках
+     */
+    ChannelExecutorFactory(MeterRegistry meterRegistry, boolean virtualThreads) {
+        this.meterRegistry = meterRegistry;
+        this.virtualThreads = virtualThreads;
+    }
+
+    /**
+     * Создаёт инструментированного исполнителя канала.
+     *
+     * @param name имя исполнителя для потоков и метрик
+     * @param poolSize число потоков пула (0 - удвоенное число процессоров);
+     *                 для виртуальных потоков не используется
+     * @param queueCapacity ёмкость очереди пула
+     * @return исполнитель
+     */
+    Executor create(String name, int poolSize, int queueCapacity) {
+        Tags tags = Tags.of("channel", name);
+        if (virtualThreads) {
+            ExecutorService executor = Executors.newThreadPerTaskExecutor(ThreadFactories.named(name + "-", true));
+            pools.add(executor);
+            log.info("Канал {} выполняется в виртуальных потоках", name);
+            return ExecutorServiceMetrics.monitor(meterRegistry, executor, name, tags);
+        }
+
+        int threads = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors() * 2;
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(Math.max(1, queueCapacity)),
+                ThreadFactories.named(name + "-", false),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        pool.allowCoreThreadTimeOut(true);
+        pools.add(pool);
+        log.info("Канал {}: {} потоков, очередь {}", name, threads, queueCapacity);
+        return ExecutorServiceMetrics.monitor(meterRegistry, pool, name, tags);
+    }
+
+    /**
+     * Останавливает созданные пулы.
+     */
+    void shutdown() {
+        for (ExecutorService pool : pools) {
+            pool.shutdown();
+        }
+    }
+}
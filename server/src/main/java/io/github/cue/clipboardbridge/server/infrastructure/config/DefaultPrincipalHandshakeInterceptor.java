@@ -3,36 +3,99 @@ package io.github.cue.clipboardbridge.server.infrastructure.config;
 import java.security.Principal;
 import java.util.Map;
 import java.util.UUID;
+import java.util.regex.Pattern;
 
 import org.springframework.http.server.ServerHttpRequest;
 import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.util.MultiValueMap;
 import org.springframework.web.socket.WebSocketHandler;
 import org.springframework.web.socket.server.HandshakeInterceptor;
+import org.springframework.web.util.UriComponentsBuilder;
 
+import io.github.cue.clipboardbridge.server.infrastructure.service.ResumeTokenService;
 import lombok.extern.slf4j.Slf4j;
 
 /**
  * Перехватчик рукопожатия WebSocket для установки Principal.
  * Реализует паттерн Interceptor для добавления информации о пользователе.
+ * Клиент может предъявить постоянный ID и токен возобновления
+ * (заголовки {@value #CLIENT_ID_HEADER} и {@value #RESUME_TOKEN_HEADER} или параметры
+ * запроса {@code clientId} и {@code resumeToken}), чтобы после переподключения
+ * сохранить свою сессию и ожидающие ответы. Иначе выдаётся случайный ID.
+ * Токен выдаёт сервер (см. {@link ResumeTokenService}), он сохраняется в атрибуте
+ * сессии {@value #RESUME_TOKEN_ATTRIBUTE} и отправляется клиенту после подписки.
  */
 @Slf4j
 public class DefaultPrincipalHandshakeInterceptor implements HandshakeInterceptor {
 
+    public static final String CLIENT_ID_HEADER = "X-Client-Id";
+    public static final String RESUME_TOKEN_HEADER = "X-Resume-Token";
+    public static final String RESUME_TOKEN_ATTRIBUTE = "RESUME_TOKEN";
+    
+    private static final Pattern CLIENT_ID_PATTERN = Pattern.compile("[A-Za-z0-9_-]{8,64}");
+    private static final Pattern RESUME_TOKEN_PATTERN = Pattern.compile("[A-Za-z0-9_-]{16,128}");
+    
+    private final ResumeTokenService resumeTokens;
+
+    public DefaultPrincipalHandshakeInterceptor(ResumeTokenService resumeTokens) {
+        this.resumeTokens = resumeTokens;
+    }
+
     /**
      * Вызывается перед рукопожатием WebSocket для установки Principal.
      */
     @Override
     public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
                                   WebSocketHandler wsHandler, Map<String, Object> attributes) {
-        final String sessionId = UUID.randomUUID().toString();
+        final String sessionId = resolveClientId(request);
         log.info("Установка Principal для WebSocket соединения: {}", sessionId);
         
         attributes.put("PRINCIPAL", new StompPrincipal(sessionId));
         
         attributes.put("CLIENT_ID", sessionId);
         
+        attributes.put(RESUME_TOKEN_ATTRIBUTE, resumeTokens.issue(sessionId));
+        
         return true;
     }
+    
+    /**
+     * Определяет ID клиента: постоянный, если клиент предъявил корректную пару
+     * ID и токена возобновления, иначе новый случайный. Известный ID с чужим или
+     * устаревшим токеном не принимается, поэтому ID из уведомлений Telegram
+     * нельзя использовать, чтобы перехватить сессию клиента.
+     * 
+     * @param request HTTP запрос рукопожатия
+     * @return ID клиента
+     */
+    private String resolveClientId(ServerHttpRequest request) {
+        MultiValueMap<String, String> queryParams = UriComponentsBuilder.fromUri(request.getURI()).build().getQueryParams();
+        String clientId = firstNonEmpty(request.getHeaders().getFirst(CLIENT_ID_HEADER), queryParams.getFirst("clientId"));
+        String resumeToken = firstNonEmpty(request.getHeaders().getFirst(RESUME_TOKEN_HEADER), queryParams.getFirst("resumeToken"));
+        
+        if (clientId == null || resumeToken == null) {
+            return UUID.randomUUID().toString();
+        }
+        
+        if (!CLIENT_ID_PATTERN.matcher(clientId).matches() || !RESUME_TOKEN_PATTERN.matcher(resumeToken).matches()) {
+            log.warn("Некорректный формат постоянного ID клиента или токена возобновления, выдан новый ID");
+            return UUID.randomUUID().toString();
+        }
+        
+        if (!resumeTokens.verify(clientId, resumeToken)) {
+            log.warn("Неверный токен возобновления для клиента {}, выдан новый ID", clientId);
+            return UUID.randomUUID().toString();
+        }
+        
+        return clientId;
+    }
+    
+    private static String firstNonEmpty(String first, String second) {
+        if (first != null && !first.isEmpty()) {
+            return first;
+        }
+        return second != null && !second.isEmpty() ? second : null;
+    }
 
     /**
      * Вызывается после завершения рукопожатия WebSocket.
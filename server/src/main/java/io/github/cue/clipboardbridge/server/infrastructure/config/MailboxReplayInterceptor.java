@@ -0,0 +1,50 @@
+package io.github.cue.clipboardbridge.server.infrastructure.config;
+
+import java.security.Principal;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.simp.user.UserDestinationMessageHandler;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+
+import io.github.cue.clipboardbridge.server.infrastructure.service.WebSocketSessionMessageService;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Перехватчик входящего канала, воспроизводящий сохранённые ответы клиента.
+ * Срабатывает после того, как обработчик пользовательских адресов зарегистрировал
+ * подписку на очередь ответов, поэтому воспроизведённые сообщения не теряются.
+ */
+@Slf4j
+public class MailboxReplayInterceptor implements ExecutorChannelInterceptor {
+
+    private static final String REPLY_QUEUE = "/user/queue/reply";
+
+    private final WebSocketSessionMessageService messageService;
+
+    public MailboxReplayInterceptor(WebSocketSessionMessageService messageService) {
+        this.messageService = messageService;
+    }
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+        if (ex != null || !(handler instanceof UserDestinationMessageHandler)) {
+            return;
+        }
+
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() != StompCommand.SUBSCRIBE
+                || !REPLY_QUEUE.equals(accessor.getDestination())) {
+            return;
+        }
+
+        Principal principal = accessor.getUser();
+        if (principal != null) {
+            messageService.replayMailbox(principal.getName());
+        }
+    }
+}
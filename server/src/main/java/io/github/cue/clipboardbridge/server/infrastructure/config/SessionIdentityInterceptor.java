@@ -0,0 +1,57 @@
+package io.github.cue.clipboardbridge.server.infrastructure.config;
+
+import java.security.Principal;
+import java.util.Map;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.simp.user.UserDestinationMessageHandler;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+
+import io.github.cue.clipboardbridge.server.domain.model.SessionIdentity;
+import io.github.cue.clipboardbridge.server.infrastructure.service.WebSocketSessionMessageService;
+
+/**
+ * Перехватчик входящего канала, отправляющий клиенту его ID и токен возобновления,
+ * выданные при рукопожатии. Срабатывает после регистрации подписки на очередь
+ * идентичности, как и {@link MailboxReplayInterceptor}.
+ */
+public class SessionIdentityInterceptor implements ExecutorChannelInterceptor {
+
+    private static final String IDENTITY_QUEUE = "/user/queue/identity";
+
+    private final WebSocketSessionMessageService messageService;
+
+    public SessionIdentityInterceptor(WebSocketSessionMessageService messageService) {
+        this.messageService = messageService;
+    }
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+        if (ex != null || !(handler instanceof UserDestinationMessageHandler)) {
+            return;
+        }
+
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() != StompCommand.SUBSCRIBE
+                || !IDENTITY_QUEUE.equals(accessor.getDestination())) {
+            return;
+        }
+
+        Principal principal = accessor.getUser();
+        Map<String, Object> attributes = accessor.getSessionAttributes();
+        Object resumeToken = attributes != null
+                ? attributes.get(DefaultPrincipalHandshakeInterceptor.RESUME_TOKEN_ATTRIBUTE)
+                : null;
+        if (principal != null && resumeToken instanceof String token) {
+            messageService.sendToUser(principal.getName(), "/queue/identity", SessionIdentity.builder()
+                    .clientId(principal.getName())
+                    .resumeToken(token)
+                    .build());
+        }
+    }
+}
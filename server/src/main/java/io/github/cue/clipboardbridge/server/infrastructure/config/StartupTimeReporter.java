@@ -0,0 +1,39 @@
+package io.github.cue.clipboardbridge.server.infrastructure.config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Сообщает время запуска сервера и предупреждает, если запуск не уложился в заданный бюджет.
+ * Подключение к Telegram в запуск не входит и выполняется в фоне.
+ */
+@Component
+@Slf4j
+public class StartupTimeReporter {
+
+    private final long budgetMs;
+
+    public StartupTimeReporter(@Value("${startup.budget-ms:10000}") long budgetMs) {
+        this.budgetMs = budgetMs;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady(ApplicationReadyEvent event) {
+        Duration timeTaken = event.getTimeTaken();
+        if (timeTaken == null) {
+            return;
+        }
+        if (timeTaken.toMillis() > budgetMs) {
+            log.warn("Сервер запущен за {} мс, что превышает бюджет запуска {} мс", timeTaken.toMillis(), budgetMs);
+        } else {
+            log.info("Сервер готов принимать соединения через {} мс после старта (бюджет {} мс)",
+                    timeTaken.toMillis(), budgetMs);
+        }
+    }
+}
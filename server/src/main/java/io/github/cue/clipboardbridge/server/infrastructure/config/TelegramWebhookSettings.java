@@ -0,0 +1,44 @@
+package io.github.cue.clipboardbridge.server.infrastructure.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+
+/**
+ * Настройки приёма обновлений Telegram через webhook.
+ * В режиме webhook Telegram сам отправляет обновления на {@link #getWebhookUrl()},
+ * а запросы без правильного {@code X-Telegram-Bot-Api-Secret-Token} отклоняются.
+ */
+@Component
+@Getter
+public class TelegramWebhookSettings {
+
+    private final boolean enabled;
+    private final String externalUrl;
+    private final String path;
+    private final String secretToken;
+
+    public TelegramWebhookSettings(
+            @Value("${telegram.webhook.enabled:false}") boolean enabled,
+            @Value("${telegram.webhook.external-url:}") String externalUrl,
+            @Value("${telegram.webhook.path:/telegram/webhook}") String path,
+            @Value("${telegram.webhook.secret-token:}") String secretToken) {
+        this.enabled = enabled;
+        this.externalUrl = externalUrl.endsWith("/") ? externalUrl.substring(0, externalUrl.length() - 1) : externalUrl;
+        this.path = path;
+        this.secretToken = secretToken;
+
+        if (enabled && (this.externalUrl.isBlank() || secretToken.isBlank())) {
+            throw new IllegalStateException(
+                    "Для режима webhook необходимо задать telegram.webhook.external-url и telegram.webhook.secret-token");
+        }
+    }
+
+    /**
+     * @return публичный адрес, который регистрируется в Telegram через setWebhook
+     */
+    public String getWebhookUrl() {
+        return externalUrl + path;
+    }
+}
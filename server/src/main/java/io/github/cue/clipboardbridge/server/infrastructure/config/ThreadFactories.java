@@ -0,0 +1,28 @@
+package io.github.cue.clipboardbridge.server.infrastructure.config;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Фабрики потоков для исполнителей сервера. В режиме виртуальных потоков
+ * блокирующие операции (запросы к Bot API, отправка в WebSocket) не занимают
+ * потоки платформы.
+ */
+public final class ThreadFactories {
+
+    private ThreadFactories() {
+    }
+
+    /**
+     * Создаёт фабрику именованных потоков.
+     *
+     * @param prefix префикс имени потока, к нему добавляется порядковый номер
+     * @param virtual создавать виртуальные потоки вместо daemon-потоков платформы
+     * @return фабрика потоков
+     */
+    public static ThreadFactory named(String prefix, boolean virtual) {
+        if (virtual) {
+            return Thread.ofVirtual().name(prefix, 1).factory();
+        }
+        return Thread.ofPlatform().name(prefix, 1).daemon(true).factory();
+    }
+}
@@ -1,11 +1,33 @@
 package io.github.cue.clipboardbridge.server.infrastructure.config;
 
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.http.MediaType;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.converter.MessageConverter;
 import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+
+import io.github.cue.clipboardbridge.server.infrastructure.service.ClientSessionService;
+import io.github.cue.clipboardbridge.server.infrastructure.service.OutboundChannelQueueTracker;
+import io.github.cue.clipboardbridge.server.infrastructure.service.ResumeTokenService;
+import io.github.cue.clipboardbridge.server.infrastructure.service.SessionCodecRegistry;
+import io.github.cue.clipboardbridge.server.infrastructure.service.SessionSendMonitor;
+import io.github.cue.clipboardbridge.server.infrastructure.service.WebSocketSessionMessageService;
+import io.github.cue.clipboardbridge.server.infrastructure.service.WebSocketSessionRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 
 /**
  * Конфигурация WebSocket для обмена сообщениями.
@@ -15,14 +37,103 @@ import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerCo
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final ClientSessionService sessionService;
+    private final ResumeTokenService resumeTokens;
+    private final WebSocketSessionRegistry sessionRegistry;
+    private final SessionCodecRegistry sessionCodecs;
+    private final WebSocketSessionMessageService messageService;
+    private final OutboundChannelQueueTracker outboundQueue;
+    private final SessionSendMonitor sendMonitor;
+    private final long serverHeartbeatMs;
+    private final long clientHeartbeatMs;
+    private final int sendTimeLimitMs;
+    private final int sendBufferSizeLimit;
+    private final int messageSizeLimit;
+    private final ChannelExecutorFactory channelExecutors;
+    private final int inboundPoolSize;
+    private final int inboundQueueCapacity;
+    private final int outboundPoolSize;
+    private final int outboundQueueCapacity;
+    private final int brokerPoolSize;
+    private final int brokerQueueCapacity;
+
+    public WebSocketConfig(ClientSessionService sessionService, ResumeTokenService resumeTokens,
+                           WebSocketSessionRegistry sessionRegistry,
+                           SessionCodecRegistry sessionCodecs,
+                           @Lazy WebSocketSessionMessageService messageService,
+                           OutboundChannelQueueTracker outboundQueue,
+                           SessionSendMonitor sendMonitor,
+                           @Value("${websocket.heartbeat.server-ms:10000}") long serverHeartbeatMs,
+                           @Value("${websocket.heartbeat.client-ms:10000}") long clientHeartbeatMs,
+                           @Value("${websocket.transport.send-time-limit-ms:10000}") int sendTimeLimitMs,
+                           @Value("${websocket.transport.send-buffer-size-limit:524288}") int sendBufferSizeLimit,
+                           @Value("${websocket.transport.message-size-limit:65536}") int messageSizeLimit,
+                           MeterRegistry meterRegistry,
+                           @Value("${websocket.channels.virtual-threads:false}") boolean virtualThreads,
+                           @Value("${websocket.channels.inbound.pool-size:0}") int inboundPoolSize,
+                           @Value("${websocket.channels.inbound.queue-capacity:10000}") int inboundQueueCapacity,
+                           @Value("${websocket.channels.outbound.pool-size:0}") int outboundPoolSize,
+                           @Value("${websocket.channels.outbound.queue-capacity:10000}") int outboundQueueCapacity,
+                           @Value("${websocket.channels.broker.pool-size:0}") int brokerPoolSize,
+                           @Value("${websocket.channels.broker.queue-capacity:10000}") int brokerQueueCapacity) {
+        this.sessionService = sessionService;
+        this.resumeTokens = resumeTokens;
+        this.sessionRegistry = sessionRegistry;
+        this.sessionCodecs = sessionCodecs;
+        this.messageService = messageService;
+        this.outboundQueue = outboundQueue;
+        this.sendMonitor = sendMonitor;
+        this.serverHeartbeatMs = serverHeartbeatMs;
+        this.clientHeartbeatMs = clientHeartbeatMs;
+        this.sendTimeLimitMs = sendTimeLimitMs;
+        this.sendBufferSizeLimit = sendBufferSizeLimit;
+        this.messageSizeLimit = messageSizeLimit;
+        this.channelExecutors = new ChannelExecutorFactory(meterRegistry, virtualThreads);
+        this.inboundPoolSize = inboundPoolSize;
+        this.inboundQueueCapacity = inboundQueueCapacity;
+        this.outboundPoolSize = outboundPoolSize;
+        this.outboundQueueCapacity = outboundQueueCapacity;
+        this.brokerPoolSize = brokerPoolSize;
+        this.brokerQueueCapacity = brokerQueueCapacity;
+    }
+    
+    @PreDestroy
+    public void shutdownChannelExecutors() {
+        channelExecutors.shutdown();
+    }
+
     /**
-     * Настраивает брокер сообщений.
+     * Планировщик для heartbeat STOMP и проверки неактивных сессий.
+     * 
+     * @return планировщик задач
+     */
+    @Bean
+    public ThreadPoolTaskScheduler webSocketHeartbeatScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(1);
+        scheduler.setThreadNamePrefix("ws-heartbeat-");
+        scheduler.setDaemon(true);
+        scheduler.initialize();
+        return scheduler;
+    }
+
+    /**
+     * Настраивает брокер сообщений. Брокер обменивается с клиентами heartbeat STOMP,
+     * чтобы по входящим кадрам можно было обнаруживать зависшие соединения.
      * 
      * @param registry реестр брокера сообщений
      */
     @Override
     public void configureMessageBroker(MessageBrokerRegistry registry) {
-        registry.enableSimpleBroker("/topic", "/queue");
+        registry.enableSimpleBroker("/topic", "/queue")
+                .setHeartbeatValue(new long[] {serverHeartbeatMs, clientHeartbeatMs})
+                .setTaskScheduler(webSocketHeartbeatScheduler());
+        
+        // Без отдельного пула брокер обрабатывает сообщения в потоке отправителя
+        if (brokerPoolSize > 0) {
+            registry.configureBrokerChannel()
+                    .executor(channelExecutors.create("ws-broker", brokerPoolSize, brokerQueueCapacity));
+        }
         
         registry.setUserDestinationPrefix("/user");
         
@@ -30,15 +141,37 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     }
 
     /**
-     * Регистрирует конечные точки STOMP.
+     * Добавляет к стандартным преобразователям CBOR. Он применяется только к
+     * сообщениям с заголовком {@code content-type: application/cbor}, поэтому
+     * сообщения без заголовка по-прежнему передаются в JSON.
+     *
+     * @param messageConverters преобразователи сообщений
+     * @return true, чтобы сохранить стандартные преобразователи
+     */
+    @Override
+    public boolean configureMessageConverters(List<MessageConverter> messageConverters) {
+        MappingJackson2MessageConverter cborConverter =
+                new MappingJackson2MessageConverter(new CBORMapper(), MediaType.APPLICATION_CBOR);
+        cborConverter.setStrictContentTypeMatch(true);
+        messageConverters.add(cborConverter);
+        return true;
+    }
+
+    /**
+     * Регистрирует конечные точки STOMP. Помимо SockJS конечная точка принимает
+     * обычные WebSocket соединения по адресу {@code /ws/websocket}, через которые
+     * возможна передача бинарных кадров.
+     * Входящие сообщения одной сессии обрабатываются в порядке получения.
      * 
      * @param registry реестр конечных точек
      */
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         CustomHandshakeHandler handshakeHandler = new CustomHandshakeHandler();
-        DefaultPrincipalHandshakeInterceptor interceptor = new DefaultPrincipalHandshakeInterceptor();
+        DefaultPrincipalHandshakeInterceptor interceptor = new DefaultPrincipalHandshakeInterceptor(resumeTokens);
         
+        // Части передачи должны обрабатываться в порядке получения
+        registry.setPreserveReceiveOrder(true);
         registry.addEndpoint("/ws")
                 .setAllowedOrigins("*") 
                 .setHandshakeHandler(handshakeHandler)
@@ -47,13 +180,53 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     }
     
     /**
-     * Настраивает входящий канал сообщений для сохранения Principal
-     * между соединением SockJS и получением STOMP сообщений.
+     * Настраивает исполнителя входящего канала и перехватчики для сохранения Principal
+     * между соединением SockJS и получением STOMP сообщений, отметки активности
+     * клиента по входящим кадрам, согласования формата сообщений, а также
+     * для отправки клиенту его идентичности и воспроизведения сохранённых ответов
+     * после подписки клиента.
      *
      * @param registration регистрация канала
      */
     @Override
     public void configureClientInboundChannel(ChannelRegistration registration) {
-        registration.interceptors(new PrincipalPreservingChannelInterceptor());
+        registration.executor(channelExecutors.create("ws-inbound", inboundPoolSize, inboundQueueCapacity));
+        registration.interceptors(new PrincipalPreservingChannelInterceptor(),
+                new ActivityTrackingChannelInterceptor(sessionService),
+                sessionCodecs,
+                new SessionIdentityInterceptor(messageService),
+                new MailboxReplayInterceptor(messageService));
+    }
+    
+    /**
+     * Настраивает исполнителя исходящего канала и подключает учёт
+     * исходящих данных сессий в очереди канала.
+     *
+     * @param registration регистрация канала
+     */
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.executor(channelExecutors.create("ws-outbound", outboundPoolSize, outboundQueueCapacity));
+        registration.interceptors(outboundQueue);
+    }
+    
+    /**
+     * Подключает реестр сессий к транспорту WebSocket, чтобы можно было
+     * закрывать устаревшие соединения клиентов, включает бинарные кадры для
+     * сессий с форматом CBOR, следит за записью кадров в сокет и ограничивает
+     * время отправки, буфер отправки и размер сообщения. Сессия, превысившая
+     * лимит времени или буфера, закрывается транспортом. Монитор записи
+     * подключается последним, чтобы обернуть сессию ближе всех к сокету.
+     *
+     * @param registration настройки транспорта
+     */
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.addDecoratorFactory(sessionRegistry)
+                .addDecoratorFactory(sessionCodecs)
+                .addDecoratorFactory(sendMonitor)
+                .setSendTimeLimit(sendTimeLimitMs)
+                .setSendBufferSizeLimit(sendBufferSizeLimit)
+                .setMessageSizeLimit(messageSizeLimit);
     }
 } 
\ No newline at end of file
@@ -4,6 +4,7 @@ import java.security.Principal;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -11,8 +12,13 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import io.github.cue.clipboardbridge.server.domain.model.BroadcastResult;
+import io.github.cue.clipboardbridge.server.domain.model.CommandEnvelope;
 import io.github.cue.clipboardbridge.server.domain.model.CommandMessage;
+import io.github.cue.clipboardbridge.server.domain.model.CommandType;
 import io.github.cue.clipboardbridge.server.domain.port.MessageProcessor;
+import io.github.cue.clipboardbridge.server.infrastructure.service.ContentDecompressor;
+import io.github.cue.clipboardbridge.server.infrastructure.service.WebSocketSessionMessageService;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -24,19 +30,30 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class MessageController {
 
+    static final String CORRELATION_ID_HEADER = "correlation-id";
+    static final String SENT_AT_HEADER = "sent-at";
+    static final String CONTENT_ENCODING_HEADER = "content-encoding";
+
     private final MessageProcessor messageProcessor;
     private final SimpMessagingTemplate messagingTemplate;
+    private final ContentDecompressor contentDecompressor;
+    private final WebSocketSessionMessageService messageService;
 
     /**
      * Конструктор с внедрением зависимостей.
      * 
      * @param messageProcessor процессор сообщений
      * @param messagingTemplate шаблон для отправки сообщений
+     * @param contentDecompressor распаковщик сжатого содержимого
+     * @param messageService сервис доставки ответов клиентам
      */
     @Autowired
-    public MessageController(MessageProcessor messageProcessor, SimpMessagingTemplate messagingTemplate) {
+    public MessageController(MessageProcessor messageProcessor, SimpMessagingTemplate messagingTemplate,
+                             ContentDecompressor contentDecompressor, WebSocketSessionMessageService messageService) {
         this.messageProcessor = messageProcessor;
         this.messagingTemplate = messagingTemplate;
+        this.contentDecompressor = contentDecompressor;
+        this.messageService = messageService;
     }
 
     /**
@@ -50,10 +67,13 @@ public class MessageController {
         try {
             log.info("Получено сообщение через REST API: {}", message);
             
-            int successCount = messageProcessor.broadcastMessage(message);
+            BroadcastResult result = messageProcessor.broadcast(message);
             
-            if (successCount > 0) {
-                return ResponseEntity.ok("Сообщение успешно отправлено " + successCount + " пользователям");
+            if (result.getSuccessCount() > 0 || result.getPendingCount() > 0) {
+                return ResponseEntity.ok(String.format(
+                        "Сообщение отправлено %d из %d пользователей (ошибок: %d, в очереди: %d)",
+                        result.getSuccessCount(), result.getTotalCount(),
+                        result.getFailedCount(), result.getPendingCount()));
             } else {
                 return ResponseEntity.badRequest().body("Не удалось отправить сообщение ни одному пользователю");
             }
@@ -65,12 +85,22 @@ public class MessageController {
     
     /**
      * Обрабатывает сообщения, полученные через WebSocket/STOMP.
+     * ID клиента берётся из сессии, correlation ID, время отправки и алгоритм
+     * сжатия содержимого - из заголовков STOMP.
+     * Поток входящего канала не ждёт рассылки: итог широковещательной команды
+     * доставляется клиенту в {@code /queue/reply}, когда рассылка завершится.
      * 
      * @param command команда для обработки
      * @param principal объект, представляющий пользователя
+     * @param correlationId ID, которым клиент пометил команду
+     * @param sentAt время отправки по часам клиента в миллисекундах
+     * @param contentEncoding алгоритм сжатия содержимого или null
      */
     @MessageMapping("/sendMessage")
-    public void processStompMessage(CommandMessage command, Principal principal) {
+    public void processStompMessage(CommandMessage command, Principal principal,
+                                    @Header(name = CORRELATION_ID_HEADER, required = false) String correlationId,
+                                    @Header(name = SENT_AT_HEADER, required = false) Long sentAt,
+                                    @Header(name = CONTENT_ENCODING_HEADER, required = false) String contentEncoding) {
         String clientId = "unknown";
         
         if (principal != null) {
@@ -83,14 +113,18 @@ public class MessageController {
         log.info("Получено STOMP сообщение от {}: {}", clientId, command);
         
         try {
-            if (command.getOption() == null || command.getOption().isEmpty()) {
-                command.setOption("client=" + clientId);
-            } else {
-                command.setOption(command.getOption() + "|client=" + clientId);
-            }
+            contentDecompressor.decode(command, contentEncoding);
+            CommandEnvelope envelope = CommandEnvelope.received(command, clientId, correlationId, sentAt);
             
-            messageProcessor.processCommand(command, principal);
-            log.info("Сообщение от клиента {} обработано.", clientId);
+            messageProcessor.processAsync(envelope).whenComplete((reply, error) -> {
+                if (error != null) {
+                    log.error("Ошибка при обработке STOMP сообщения от {}: {}",
+                            envelope.getClientId(), error.getMessage(), error);
+                } else if (envelope.getType() == CommandType.BROADCAST) {
+                    messageService.deliverReply(envelope.getClientId(), reply);
+                }
+            });
+            log.info("Сообщение от клиента {} принято в обработку.", clientId);
         } catch (Exception e) {
             log.error("Ошибка при обработке STOMP сообщения от {}: {}", clientId, e.getMessage(), e);
         }
@@ -0,0 +1,80 @@
+package io.github.cue.clipboardbridge.server.infrastructure.controller;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import io.github.cue.clipboardbridge.server.infrastructure.config.TelegramWebhookSettings;
+import io.github.cue.clipboardbridge.server.infrastructure.port.TelegramBotApi;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Точка приёма обновлений Telegram в режиме webhook.
+ * Тело запроса разбирается потоково прямо из входного потока, без промежуточной строки,
+ * и передаётся адаптеру Bot API, который доставляет обновление слушателю так же,
+ * как при long polling. Повторные доставки одного обновления отсекает слушатель по update_id.
+ */
+@RestController
+@ConditionalOnProperty(name = "telegram.webhook.enabled", havingValue = "true")
+@Slf4j
+public class TelegramWebhookController {
+
+    static final String SECRET_TOKEN_HEADER = "X-Telegram-Bot-Api-Secret-Token";
+
+    private final TelegramBotApi telegramBotApi;
+    private final byte[] secretToken;
+    private final ObjectReader updateReader;
+
+    public TelegramWebhookController(TelegramBotApi telegramBotApi,
+                                     TelegramWebhookSettings webhook,
+                                     ObjectMapper objectMapper) {
+        this.telegramBotApi = telegramBotApi;
+        this.secretToken = webhook.getSecretToken().getBytes(StandardCharsets.UTF_8);
+        this.updateReader = objectMapper.readerFor(Update.class);
+        log.info("Приём обновлений Telegram через webhook на {}", webhook.getPath());
+    }
+
+    /**
+     * Принимает обновление от Telegram.
+     *
+     * @param token секретный токен, заданный при регистрации webhook
+     * @param request HTTP запрос с обновлением в теле
+     * @return 200 если обновление принято, 401 при неверном токене, 400 при некорректном теле
+     */
+    @PostMapping("${telegram.webhook.path:/telegram/webhook}")
+    public ResponseEntity<Void> receiveUpdate(
+            @RequestHeader(value = SECRET_TOKEN_HEADER, required = false) String token,
+            HttpServletRequest request) {
+        if (token == null || !MessageDigest.isEqual(secretToken, token.getBytes(StandardCharsets.UTF_8))) {
+            log.warn("Отклонён запрос webhook с неверным секретным токеном от {}", request.getRemoteAddr());
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        Update update;
+        try (JsonParser parser = updateReader.createParser(request.getInputStream())) {
+            update = updateReader.readValue(parser);
+        } catch (IOException e) {
+            log.warn("Некорректное обновление webhook: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+        if (update == null) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        telegramBotApi.onUpdateReceived(update);
+        return ResponseEntity.ok().build();
+    }
+}
@@ -0,0 +1,120 @@
+package io.github.cue.clipboardbridge.server.infrastructure.controller;
+
+import java.io.IOException;
+import java.security.Principal;
+
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.stereotype.Controller;
+
+import io.github.cue.clipboardbridge.server.domain.model.CommandEnvelope;
+import io.github.cue.clipboardbridge.server.domain.model.CommandMessage;
+import io.github.cue.clipboardbridge.server.domain.model.CommandType;
+import io.github.cue.clipboardbridge.server.domain.model.TransferAck;
+import io.github.cue.clipboardbridge.server.domain.model.TransferBegin;
+import io.github.cue.clipboardbridge.server.domain.model.TransferChunk;
+import io.github.cue.clipboardbridge.server.domain.model.TransferCommit;
+import io.github.cue.clipboardbridge.server.domain.port.MessageProcessor;
+import io.github.cue.clipboardbridge.server.infrastructure.service.ChunkedTransferService;
+import io.github.cue.clipboardbridge.server.infrastructure.service.WebSocketSessionMessageService;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * STOMP контроллер передачи содержимого команд по частям.
+ * Каждый кадр передачи подтверждается сообщением {@link TransferAck} в очередь
+ * {@value #TRANSFER_DESTINATION}, после завершения передачи команда
+ * обрабатывается так же, как полученная одним сообщением.
+ */
+@Controller
+@Slf4j
+public class TransferController {
+
+    static final String TRANSFER_DESTINATION = "/queue/transfer";
+
+    private final ChunkedTransferService transferService;
+    private final MessageProcessor messageProcessor;
+    private final WebSocketSessionMessageService messageService;
+
+    public TransferController(ChunkedTransferService transferService, MessageProcessor messageProcessor,
+                              WebSocketSessionMessageService messageService) {
+        this.transferService = transferService;
+        this.messageProcessor = messageProcessor;
+        this.messageService = messageService;
+    }
+
+    /**
+     * Начинает или продолжает передачу.
+     *
+     * @param begin параметры передачи
+     * @param principal объект, представляющий пользователя
+     */
+    @MessageMapping("/transfer/begin")
+    public void begin(TransferBegin begin, Principal principal) {
+        String clientId = clientId(principal);
+        messageService.sendToUser(clientId, TRANSFER_DESTINATION, transferService.begin(clientId, begin));
+    }
+
+    /**
+     * Принимает часть содержимого.
+     *
+     * @param chunk часть содержимого
+     * @param principal объект, представляющий пользователя
+     */
+    @MessageMapping("/transfer/chunk")
+    public void chunk(TransferChunk chunk, Principal principal) {
+        String clientId = clientId(principal);
+        messageService.sendToUser(clientId, TRANSFER_DESTINATION, transferService.chunk(clientId, chunk));
+    }
+
+    /**
+     * Завершает передачу и обрабатывает команду. Итог широковещательной команды
+     * доставляется клиенту в {@code /queue/reply}, когда рассылка завершится.
+     *
+     * @param commit завершение передачи
+     * @param principal объект, представляющий пользователя
+     * @param correlationId ID, которым клиент пометил команду
+     * @param sentAt время отправки по часам клиента в миллисекундах
+     */
+    @MessageMapping("/transfer/commit")
+    public void commit(TransferCommit commit, Principal principal,
+                       @Header(name = MessageController.CORRELATION_ID_HEADER, required = false) String correlationId,
+                       @Header(name = MessageController.SENT_AT_HEADER, required = false) Long sentAt) {
+        String clientId = clientId(principal);
+        CommandMessage command;
+        try {
+            command = transferService.commit(clientId, commit);
+        } catch (IllegalArgumentException | IOException e) {
+            log.warn("Передача {} от клиента {} не завершена: {}", commit.getTransferId(), clientId, e.getMessage());
+            messageService.sendToUser(clientId, TRANSFER_DESTINATION, TransferAck.builder()
+                    .transferId(commit.getTransferId())
+                    .status(TransferAck.Status.FAILED)
+                    .error(e.getMessage())
+                    .build());
+            return;
+        }
+        messageService.sendToUser(clientId, TRANSFER_DESTINATION, TransferAck.builder()
+                .transferId(commit.getTransferId())
+                .status(TransferAck.Status.COMPLETED)
+                .build());
+
+        try {
+            CommandEnvelope envelope = CommandEnvelope.received(command, clientId, correlationId, sentAt);
+            messageProcessor.processAsync(envelope).whenComplete((reply, error) -> {
+                if (error != null) {
+                    log.error("Ошибка при обработке команды из передачи {} от {}: {}",
+                            commit.getTransferId(), clientId, error.getMessage(), error);
+                } else if (envelope.getType() == CommandType.BROADCAST) {
+                    messageService.deliverReply(clientId, reply);
+                }
+            });
+            log.info("Команда из передачи {} от клиента {} принята в обработку.", commit.getTransferId(), clientId);
+        } catch (Exception e) {
+            log.error("Ошибка при обработке команды из передачи {} от {}: {}",
+                    commit.getTransferId(), clientId, e.getMessage(), e);
+        }
+    }
+
+    private static String clientId(Principal principal) {
+        return principal != null ? principal.getName() : "unknown";
+    }
+}
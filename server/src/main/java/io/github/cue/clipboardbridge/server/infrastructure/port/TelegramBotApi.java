@@ -1,6 +1,7 @@
 package io.github.cue.clipboardbridge.server.infrastructure.port;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Интерфейс для взаимодействия с Telegram Bot API.
@@ -26,6 +27,60 @@ public interface TelegramBotApi {
      */
     boolean sendMessageWithMarkup(Long userId, String text, org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup markup);
 
+    /**
+     * Ставит текстовое сообщение в очередь на отправку, не дожидаясь ответа Telegram.
+     *
+     * @param userId ID пользователя.
+     * @param text Текст сообщения.
+     * @return future, завершающийся true, если отправка прошла успешно;
+     *         завершается {@link java.util.concurrent.RejectedExecutionException}, если очередь отправки переполнена.
+     */
+    CompletableFuture<Boolean> sendMessageAsync(Long userId, String text);
+
+    /**
+     * Ставит сообщение с инлайн-клавиатурой в очередь на отправку, не дожидаясь ответа Telegram.
+     *
+     * @param userId ID пользователя.
+     * @param text Текст сообщения.
+     * @param markup Инлайн-клавиатура.
+     * @return future, завершающийся true, если отправка прошла успешно.
+     */
+    CompletableFuture<Boolean> sendMessageWithMarkupAsync(Long userId, String text, org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup markup);
+
+    /**
+     * Ставит сообщение в очередь на отправку и возвращает его message_id,
+     * чтобы позднее сопоставить с ним ответ пользователя.
+     *
+     * @param userId ID пользователя.
+     * @param text Текст сообщения.
+     * @param markup Инлайн-клавиатура или null.
+     * @return future с message_id отправленного сообщения или null, если отправка не удалась.
+     */
+    CompletableFuture<Integer> sendTrackedMessageAsync(Long userId, String text, org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup markup);
+
+    /**
+     * Отправляет файл документом, не загружая его в память целиком.
+     * Документы отправляются в обход очереди исходящих сообщений.
+     *
+     * @param userId ID пользователя.
+     * @param file Файл документа.
+     * @param fileName Имя файла, которое увидит пользователь.
+     * @param caption Подпись не длиннее 1024 символов.
+     * @param markup Инлайн-клавиатура или null.
+     * @return future с message_id отправленного сообщения или null, если отправка не удалась.
+     */
+    CompletableFuture<Integer> sendDocumentAsync(Long userId, java.nio.file.Path file, String fileName, String caption,
+            org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup markup);
+
+    /**
+     * Подключает бота к Telegram: запускает получение обновлений long polling
+     * или регистрирует webhook. Выполняет сетевые запросы, поэтому вызывается
+     * в фоне после запуска сервера и может повторяться при ошибке.
+     *
+     * @throws org.telegram.telegrambots.meta.exceptions.TelegramApiException если Telegram недоступен или отклонил запрос.
+     */
+    void register() throws org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+
     /**
      * Регистрирует слушателя для получения обновлений от бота.
      *
@@ -33,6 +88,14 @@ public interface TelegramBotApi {
      */
     void setUpdateListener(TelegramUpdateListener listener);
 
+    /**
+     * Принимает обновление, полученное в обход собственного механизма адаптера
+     * (например, через webhook), и передаёт его слушателю.
+     *
+     * @param update Обновление Telegram.
+     */
+    void onUpdateReceived(org.telegram.telegrambots.meta.api.objects.Update update);
+
     /**
      * Возвращает список ID пользователей бота.
      *
@@ -0,0 +1,385 @@
+package io.github.cue.clipboardbridge.server.infrastructure.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Постоянное состояние Telegram бота: пользователи, писавшие боту, и update_id,
+ * до которого включительно все принятые обновления обработаны. Состояние
+ * хранится в памяти (пользователи - в множестве примитивных long) и записывается
+ * в журнал только на добавление, который периодически сворачивается в снимок.
+ * При запуске загружается снимок и поверх него воспроизводится журнал,
+ * оборванная последняя запись отбрасывается.
+ * <p>
+ * update_id сохраняется только после обработки обновления слушателем
+ * ({@link #completeUpdate(long)}), причём без пропусков: пока не обработано
+ * более раннее обновление, сохранённое значение не растёт. Обновление,
+ * принятое, но не обработанное до сбоя, после перезапуска принимается снова.
+ * Снимок пишется на диск вне монитора состояния, поэтому приём обновлений
+ * не ждёт синхронизации файла.
+ * <p>
+ * Если каталог недоступен, состояние хранится только в памяти.
+ */
+@Service
+@Slf4j
+public class BotStateStore {
+
+    private static final int SNAPSHOT_MAGIC = 0x43425354;
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final byte RECORD_USER = 1;
+    private static final byte RECORD_UPDATE = 2;
+    private static final int RECORD_SIZE = Byte.BYTES + Long.BYTES;
+    private static final String SNAPSHOT_FILE = "bot-state.snapshot";
+    private static final String LOG_FILE = "bot-state.log";
+
+    private final Path snapshotFile;
+    private final Path logFile;
+    private final LongHashSet users = new LongHashSet(64);
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+    private final long restoredUpdateId;
+    private final TreeSet<Long> updatesInProgress = new TreeSet<>();
+    private final Object snapshotLock = new Object();
+    private long lastAcceptedUpdateId;
+    private long lastUpdateId;
+    private FileChannel logChannel;
+    private int pendingRecords;
+
+    private final ScheduledExecutorService snapshotter = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "bot-state-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public BotStateStore(
+            @Value("${telegram.state.dir:data}") String directory,
+            @Value("${telegram.state.snapshot-interval-ms:60000}") long snapshotIntervalMs) {
+        Path stateDirectory = Paths.get(directory);
+        this.snapshotFile = stateDirectory.resolve(SNAPSHOT_FILE);
+        this.logFile = stateDirectory.resolve(LOG_FILE);
+
+        long startedAt = System.nanoTime();
+        try {
+            Files.createDirectories(stateDirectory);
+            loadSnapshot();
+            long validLength = replayLog();
+            logChannel = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            logChannel.truncate(validLength);
+            logChannel.position(validLength);
+        } catch (IOException e) {
+            log.error("Не удалось открыть состояние бота в {}, состояние не будет сохраняться: {}",
+                    stateDirectory, e.getMessage(), e);
+            closeLog();
+        }
+        this.restoredUpdateId = lastUpdateId;
+        this.lastAcceptedUpdateId = lastUpdateId;
+        log.info("Состояние бота загружено за {} мс: пользователей {}, последний update_id {}",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt), users.size(), lastUpdateId);
+
+        long interval = Math.max(1000, snapshotIntervalMs);
+        snapshotter.scheduleWithFixedDelay(this::snapshotIfChanged, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Добавляет пользователя бота.
+     *
+     * @param userId ID пользователя
+     * @return true если пользователь добавлен впервые
+     */
+    public synchronized boolean addUser(long userId) {
+        if (!users.add(userId)) {
+            return false;
+        }
+        append(RECORD_USER, userId);
+        return true;
+    }
+
+    /**
+     * @param userId ID пользователя
+     * @return true если пользователь известен боту
+     */
+    public synchronized boolean containsUser(long userId) {
+        return users.contains(userId);
+    }
+
+    /**
+     * @return ID всех пользователей бота
+     */
+    public synchronized List<Long> getUsers() {
+        long[] ids = users.toArray();
+        List<Long> result = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            result.add(id);
+        }
+        return result;
+    }
+
+    /**
+     * Отмечает обновление как принятое к обработке. Обновления, обработанные до
+     * перезапуска сервера, повторно не принимаются: Telegram возвращает
+     * неподтверждённые обновления после перезапуска опроса, а webhook повторяет
+     * недоставленные. Принятое обновление нужно завершить через
+     * {@link #completeUpdate(long)}, иначе сохранённый update_id не продвинется.
+     *
+     * @param updateId update_id обновления
+     * @return false если обновление уже было обработано до перезапуска
+     */
+    public synchronized boolean acceptUpdate(long updateId) {
+        if (updateId <= restoredUpdateId) {
+            return false;
+        }
+        updatesInProgress.add(updateId);
+        lastAcceptedUpdateId = Math.max(lastAcceptedUpdateId, updateId);
+        return true;
+    }
+
+    /**
+     * Отмечает принятое обновление как обработанное и сохраняет наибольший
+     * update_id, до которого обработаны все принятые обновления.
+     *
+     * @param updateId update_id обновления
+     */
+    public synchronized void completeUpdate(long updateId) {
+        if (!updatesInProgress.remove(updateId)) {
+            return;
+        }
+        long processed = updatesInProgress.isEmpty() ? lastAcceptedUpdateId : updatesInProgress.first() - 1;
+        if (processed > lastUpdateId) {
+            lastUpdateId = processed;
+            append(RECORD_UPDATE, processed);
+        }
+    }
+
+    /**
+     * @return update_id, до которого включительно обработаны все принятые обновления, или 0
+     */
+    public synchronized long getLastUpdateId() {
+        return lastUpdateId;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        snapshotter.shutdownNow();
+        synchronized (snapshotLock) {
+            snapshotIfChanged();
+            synchronized (this) {
+                closeLog();
+            }
+        }
+    }
+
+    private void append(byte type, long value) {
+        if (logChannel == null) {
+            return;
+        }
+        record.clear();
+        record.put(type).putLong(value).flip();
+        try {
+            while (record.hasRemaining()) {
+                logChannel.write(record);
+            }
+            pendingRecords++;
+        } catch (IOException e) {
+            log.error("Ошибка записи журнала состояния бота: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Записывает снимок состояния и сокращает журнал, если с прошлого снимка были изменения.
+     * Снимок сначала пишется во временный файл и атомарно заменяет предыдущий,
+     * поэтому сбой во время записи не портит сохранённое состояние. Под монитором
+     * состояния только копируется состояние и сокращается журнал; запись и
+     * синхронизация снимка выполняются без него.
+     */
+    void snapshotIfChanged() {
+        synchronized (snapshotLock) {
+            long[] ids;
+            long updateId;
+            long capturedLength;
+            int capturedRecords;
+            synchronized (this) {
+                if (logChannel == null || pendingRecords == 0) {
+                    return;
+                }
+                ids = users.toArray();
+                updateId = lastUpdateId;
+                capturedRecords = pendingRecords;
+                try {
+                    capturedLength = logChannel.position();
+                } catch (IOException e) {
+                    log.error("Ошибка чтения позиции журнала состояния бота: {}", e.getMessage());
+                    return;
+                }
+            }
+            if (writeSnapshot(ids, updateId)) {
+                synchronized (this) {
+                    compactLog(capturedLength);
+                    pendingRecords -= capturedRecords;
+                }
+                log.debug("Записан снимок состояния бота: пользователей {}, журнал сокращён на {} записей",
+                        ids.length, capturedRecords);
+            }
+        }
+    }
+
+    private boolean writeSnapshot(long[] ids, long updateId) {
+        Path temporary = snapshotFile.resolveSibling(SNAPSHOT_FILE + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)))) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeInt(SNAPSHOT_VERSION);
+                out.writeLong(updateId);
+                out.writeInt(ids.length);
+                for (long id : ids) {
+                    out.writeLong(id);
+                }
+                out.flush();
+                channel.force(true);
+            }
+            Files.move(temporary, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            log.error("Ошибка записи снимка состояния бота: {}", e.getMessage(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Удаляет из журнала записи, вошедшие в снимок. Записи, добавленные во время
+     * записи снимка, копируются во временный файл, который после синхронизации
+     * атомарно заменяет журнал, поэтому сбой во время сокращения оставляет на
+     * диске либо старый, либо новый журнал целиком. Если заменить журнал не
+     * удалось, запись продолжается в старый: его записи идемпотентны и при
+     * загрузке применяются поверх снимка повторно без вреда.
+     *
+     * @param capturedLength длина журнала на момент копирования состояния для снимка
+     */
+    private void compactLog(long capturedLength) {
+        if (logChannel == null) {
+            return;
+        }
+        Path temporary = logFile.resolveSibling(LOG_FILE + ".tmp");
+        long length;
+        try {
+            length = logChannel.position();
+            ByteBuffer tail = ByteBuffer.allocate((int) (length - capturedLength));
+            while (tail.hasRemaining()) {
+                if (logChannel.read(tail, capturedLength + tail.position()) < 0) {
+                    break;
+                }
+            }
+            tail.flip();
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (tail.hasRemaining()) {
+                    channel.write(tail);
+                }
+                channel.force(true);
+            }
+            Files.move(temporary, logFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.error("Ошибка сокращения журнала состояния бота: {}", e.getMessage(), e);
+            return;
+        }
+
+        // Старый канал указывает на заменённый файл, дальнейшие записи идут в новый журнал
+        closeLog();
+        try {
+            logChannel = FileChannel.open(logFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            logChannel.position(length - capturedLength);
+        } catch (IOException e) {
+            log.error("Не удалось открыть сокращённый журнал состояния бота, состояние не будет сохраняться: {}",
+                    e.getMessage(), e);
+            closeLog();
+        }
+    }
+
+    private void loadSnapshot() throws IOException {
+        if (!Files.exists(snapshotFile)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                throw new IOException("неизвестный формат снимка " + snapshotFile);
+            }
+            lastUpdateId = in.readLong();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                users.add(in.readLong());
+            }
+        }
+    }
+
+    /**
+     * Применяет записи журнала к загруженному снимку.
+     *
+     * @return длина журнала без оборванной последней записи
+     */
+    private long replayLog() throws IOException {
+        if (!Files.exists(logFile)) {
+            return 0;
+        }
+        long validLength = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(logFile)))) {
+            while (true) {
+                byte type;
+                long value;
+                try {
+                    type = in.readByte();
+                    value = in.readLong();
+                } catch (EOFException e) {
+                    break;
+                }
+                if (type == RECORD_USER) {
+                    users.add(value);
+                } else if (type == RECORD_UPDATE) {
+                    lastUpdateId = Math.max(lastUpdateId, value);
+                } else {
+                    log.warn("Повреждённая запись журнала состояния бота на позиции {}, остаток журнала пропущен",
+                            validLength);
+                    break;
+                }
+                validLength += RECORD_SIZE;
+                pendingRecords++;
+            }
+        }
+        return validLength;
+    }
+
+    private void closeLog() {
+        if (logChannel != null) {
+            try {
+                logChannel.close();
+            } catch (IOException e) {
+                log.warn("Ошибка закрытия журнала состояния бота: {}", e.getMessage());
+            }
+            logChannel = null;
+        }
+    }
+}
@@ -0,0 +1,374 @@
+package io.github.cue.clipboardbridge.server.infrastructure.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import io.github.cue.clipboardbridge.server.domain.model.CommandMessage;
+import io.github.cue.clipboardbridge.server.domain.model.TransferAck;
+import io.github.cue.clipboardbridge.server.domain.model.TransferBegin;
+import io.github.cue.clipboardbridge.server.domain.model.TransferChunk;
+import io.github.cue.clipboardbridge.server.domain.model.TransferCommit;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Приём содержимого команд по частям. Части записываются во временный файл
+ * по мере поступления, поэтому пока передача не завершена, память сервера не
+ * зависит от размера содержимого. При завершении содержимое читается из файла
+ * в строку команды, размер которой ограничен {@link ContentDecompressor}.
+ * <p>
+ * Части принимаются строго по порядку: на каждую часть клиент получает номер
+ * следующей ожидаемой части, повтор уже принятой части подтверждается повторно,
+ * а часть с пропуском или неверной контрольной суммой не записывается.
+ * Незавершённая передача хранится до истечения срока и продолжается, если клиент
+ * после переподключения начинает её заново с тем же ID.
+ * <p>
+ * Размер части ограничен так, чтобы кадр STOMP с частью в JSON (данные в Base64)
+ * помещался в лимит размера сообщения WebSocket транспорта. Число одновременно
+ * открытых передач одного клиента ограничено, так как каждая держит временный файл.
+ */
+@Service
+@Slf4j
+public class ChunkedTransferService {
+
+    /**
+     * Запас на команду и заголовки кадра STOMP и поля сообщения с частью.
+     */
+    static final int CHUNK_FRAME_OVERHEAD_BYTES = 1024;
+
+    private final Path directory;
+    private final long maxTransferBytes;
+    private final int maxChunkBytes;
+    private final int maxOpenPerClient;
+    private final long ttlMs;
+    private final ContentDecompressor contentDecompressor;
+    private final Map<String, Transfer> transfers = new ConcurrentHashMap<>();
+    private final Map<String, Integer> openByClient = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService cleaner = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "transfer-cleaner");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ChunkedTransferService(
+            ContentDecompressor contentDecompressor,
+            @Value("${websocket.transfer.dir:${java.io.tmpdir}/clipboard-bridge-transfers}") String directory,
+            @Value("${websocket.transfer.max-size-bytes:104857600}") long maxTransferBytes,
+            @Value("${websocket.transfer.max-chunk-bytes:32768}") int maxChunkBytes,
+            @Value("${websocket.transfer.max-open-per-client:4}") int maxOpenPerClient,
+            @Value("${websocket.transfer.ttl-ms:600000}") long ttlMs,
+            @Value("${websocket.transport.message-size-limit:65536}") int messageSizeLimit) {
+        this.contentDecompressor = contentDecompressor;
+        this.directory = Paths.get(directory);
+        this.maxTransferBytes = maxTransferBytes;
+        this.maxChunkBytes = Math.min(maxChunkBytes, maxChunkBytesFor(messageSizeLimit));
+        if (this.maxChunkBytes < maxChunkBytes) {
+            log.warn("websocket.transfer.max-chunk-bytes={} не помещается в сообщение {} байт, используется {}",
+                    maxChunkBytes, messageSizeLimit, this.maxChunkBytes);
+        }
+        this.maxOpenPerClient = Math.max(1, maxOpenPerClient);
+        this.ttlMs = ttlMs;
+
+        long interval = Math.max(1000, ttlMs / 2);
+        cleaner.scheduleWithFixedDelay(this::expire, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Начинает передачу или продолжает незавершённую передачу с тем же ID.
+     *
+     * @param clientId ID клиента
+     * @param begin параметры передачи
+     * @return подтверждение с номером первой ожидаемой части
+     */
+    public TransferAck begin(String clientId, TransferBegin begin) {
+        String transferId = begin.getTransferId();
+        if (transferId == null || transferId.isBlank() || begin.getCommand() == null) {
+            return failed(transferId, 0, "не указан ID передачи или команда");
+        }
+        if (begin.getTotalSize() <= 0 || begin.getTotalSize() > maxTransferBytes) {
+            return failed(transferId, 0, "размер содержимого должен быть от 1 до " + maxTransferBytes + " байт");
+        }
+        if (begin.getChunkSize() <= 0 || begin.getChunkSize() > maxChunkBytes) {
+            return failed(transferId, 0, "размер части должен быть от 1 до " + maxChunkBytes + " байт");
+        }
+
+        String key = key(clientId, transferId);
+        Transfer existing = transfers.get(key);
+        if (existing != null) {
+            synchronized (existing) {
+                if (existing.matches(begin)) {
+                    existing.touch();
+                    log.info("Клиент {} продолжает передачу {} с части {}", clientId, transferId, existing.nextSequence);
+                    return accepted(transferId, existing.nextSequence);
+                }
+            }
+            discard(key, "передача начата заново с другими параметрами");
+        }
+
+        if (!reserveSlot(clientId)) {
+            log.warn("Клиент {} превысил число открытых передач ({}), передача {} отклонена",
+                    clientId, maxOpenPerClient, transferId);
+            return failed(transferId, 0, "открыто слишком много передач, не более " + maxOpenPerClient);
+        }
+        try {
+            Files.createDirectories(directory);
+            Path file = Files.createTempFile(directory, "transfer-", ".part");
+            Transfer previous = transfers.put(key, new Transfer(clientId, begin, file));
+            if (previous != null) {
+                release(previous);
+            }
+            log.info("Клиент {} начал передачу {}: {} байт частями по {}",
+                    clientId, transferId, begin.getTotalSize(), begin.getChunkSize());
+            return accepted(transferId, 0);
+        } catch (IOException e) {
+            releaseSlot(clientId);
+            log.error("Не удалось создать файл для передачи {} от клиента {}: {}", transferId, clientId, e.getMessage());
+            return failed(transferId, 0, "сервер не может принять передачу");
+        }
+    }
+
+    /**
+     * Записывает часть содержимого.
+     *
+     * @param clientId ID клиента
+     * @param chunk часть содержимого
+     * @return подтверждение с номером следующей ожидаемой части
+     */
+    public TransferAck chunk(String clientId, TransferChunk chunk) {
+        String key = key(clientId, chunk.getTransferId());
+        Transfer transfer = transfers.get(key);
+        if (transfer == null) {
+            return failed(chunk.getTransferId(), 0, "передача не найдена");
+        }
+        synchronized (transfer) {
+            transfer.touch();
+            long sequence = chunk.getSequence();
+            if (sequence != transfer.nextSequence) {
+                if (sequence > transfer.nextSequence) {
+                    log.debug("Передача {}: получена часть {} вместо {}", chunk.getTransferId(), sequence,
+                            transfer.nextSequence);
+                }
+                return accepted(chunk.getTransferId(), transfer.nextSequence);
+            }
+
+            byte[] data = chunk.getData();
+            long expectedLength = Math.min(transfer.chunkSize, transfer.totalSize - transfer.received);
+            if (data == null || data.length != expectedLength) {
+                discard(key, "неверный размер части " + sequence);
+                return failed(chunk.getTransferId(), sequence, "неверный размер части " + sequence);
+            }
+            CRC32C checksum = new CRC32C();
+            checksum.update(data);
+            if (checksum.getValue() != chunk.getChecksum()) {
+                log.warn("Передача {}: неверная контрольная сумма части {}, часть будет запрошена повторно",
+                        chunk.getTransferId(), sequence);
+                return accepted(chunk.getTransferId(), transfer.nextSequence);
+            }
+
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(data);
+                while (buffer.hasRemaining()) {
+                    transfer.channel.write(buffer);
+                }
+            } catch (IOException e) {
+                log.error("Ошибка записи передачи {}: {}", chunk.getTransferId(), e.getMessage());
+                discard(key, "ошибка записи");
+                return failed(chunk.getTransferId(), sequence, "ошибка записи на сервере");
+            }
+            transfer.checksum.update(data);
+            transfer.received += data.length;
+            transfer.nextSequence++;
+            return accepted(chunk.getTransferId(), transfer.nextSequence);
+        }
+    }
+
+    /**
+     * Завершает передачу: проверяет размер и контрольную сумму содержимого
+     * и возвращает команду с восстановленным содержимым. Содержимое целиком
+     * читается в память, файл передачи удаляется.
+     *
+     * @param clientId ID клиента
+     * @param commit завершение передачи
+     * @return команда с содержимым
+     * @throws IllegalArgumentException если передача не найдена, не завершена или повреждена
+     * @throws IOException при ошибке чтения содержимого
+     */
+    public CommandMessage commit(String clientId, TransferCommit commit) throws IOException {
+        String key = key(clientId, commit.getTransferId());
+        Transfer transfer = transfers.remove(key);
+        if (transfer == null) {
+            throw new IllegalArgumentException("передача не найдена");
+        }
+        releaseSlot(transfer.clientId);
+        synchronized (transfer) {
+            try {
+                transfer.channel.close();
+                if (transfer.received != transfer.totalSize) {
+                    throw new IllegalArgumentException("получено " + transfer.received + " из "
+                            + transfer.totalSize + " байт");
+                }
+                if (transfer.checksum.getValue() != transfer.expectedChecksum) {
+                    throw new IllegalArgumentException("неверная контрольная сумма содержимого");
+                }
+                CommandMessage command = transfer.command;
+                command.setContent(contentDecompressor.decode(transfer.file, transfer.contentEncoding));
+                command.setCompressedContent(null);
+                log.info("Клиент {} завершил передачу {}: {} байт", clientId, commit.getTransferId(),
+                        transfer.totalSize);
+                return command;
+            } finally {
+                transfer.delete();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        cleaner.shutdownNow();
+        transfers.keySet().forEach(key -> discard(key, "остановка сервера"));
+    }
+
+    private void expire() {
+        long now = System.currentTimeMillis();
+        transfers.forEach((key, transfer) -> {
+            if (now - transfer.lastActivityAt > ttlMs) {
+                discard(key, "истёк срок хранения");
+            }
+        });
+    }
+
+    private void discard(String key, String reason) {
+        Transfer transfer = transfers.remove(key);
+        if (transfer != null) {
+            release(transfer);
+            log.info("Передача {} отменена: {}", key, reason);
+        }
+    }
+
+    /**
+     * Удаляет файл передачи, уже удалённой из списка, и освобождает место клиента.
+     */
+    private void release(Transfer transfer) {
+        synchronized (transfer) {
+            transfer.delete();
+        }
+        releaseSlot(transfer.clientId);
+    }
+
+    /**
+     * Занимает место для новой передачи клиента.
+     *
+     * @return false если у клиента уже открыто максимальное число передач
+     */
+    private boolean reserveSlot(String clientId) {
+        boolean[] reserved = new boolean[1];
+        openByClient.compute(clientId, (id, open) -> {
+            int count = open != null ? open : 0;
+            if (count >= maxOpenPerClient) {
+                return open;
+            }
+            reserved[0] = true;
+            return count + 1;
+        });
+        return reserved[0];
+    }
+
+    private void releaseSlot(String clientId) {
+        openByClient.computeIfPresent(clientId, (id, open) -> open > 1 ? open - 1 : null);
+    }
+
+    /**
+     * Наибольший размер части, при котором кадр с частью в JSON помещается в
+     * сообщение: Base64 увеличивает данные в 4/3 раза, остаток занимает кадр.
+     *
+     * @param messageSizeLimit лимит размера сообщения WebSocket транспорта
+     * @return размер части в байтах, кратный 3
+     */
+    static int maxChunkBytesFor(int messageSizeLimit) {
+        int base64Bytes = Math.max(4, messageSizeLimit - CHUNK_FRAME_OVERHEAD_BYTES);
+        return base64Bytes / 4 * 3;
+    }
+
+    private static String key(String clientId, String transferId) {
+        return clientId + "/" + transferId;
+    }
+
+    private static TransferAck accepted(String transferId, long nextSequence) {
+        return TransferAck.builder()
+                .transferId(transferId)
+                .nextSequence(nextSequence)
+                .status(TransferAck.Status.ACCEPTED)
+                .build();
+    }
+
+    private static TransferAck failed(String transferId, long nextSequence, String error) {
+        return TransferAck.builder()
+                .transferId(transferId)
+                .nextSequence(nextSequence)
+                .status(TransferAck.Status.FAILED)
+                .error(error)
+                .build();
+    }
+
+    /**
+     * Состояние незавершённой передачи. Изменяется под блокировкой самого объекта.
+     */
+    private static final class Transfer {
+        private final String clientId;
+        private final CommandMessage command;
+        private final String contentEncoding;
+        private final long totalSize;
+        private final int chunkSize;
+        private final long expectedChecksum;
+        private final Path file;
+        private final FileChannel channel;
+        private final CRC32C checksum = new CRC32C();
+        private long nextSequence;
+        private long received;
+        private volatile long lastActivityAt = System.currentTimeMillis();
+
+        Transfer(String clientId, TransferBegin begin, Path file) throws IOException {
+            this.clientId = clientId;
+            this.command = begin.getCommand();
+            this.contentEncoding = begin.getContentEncoding();
+            this.totalSize = begin.getTotalSize();
+            this.chunkSize = begin.getChunkSize();
+            this.expectedChecksum = begin.getChecksum();
+            this.file = file;
+            this.channel = FileChannel.open(file, StandardOpenOption.WRITE);
+        }
+
+        boolean matches(TransferBegin begin) {
+            return totalSize == begin.getTotalSize() && chunkSize == begin.getChunkSize()
+                    && expectedChecksum == begin.getChecksum();
+        }
+
+        void touch() {
+            lastActivityAt = System.currentTimeMillis();
+        }
+
+        void delete() {
+            try {
+                channel.close();
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("Не удалось удалить файл передачи {}: {}", file, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,595 @@
+package io.github.cue.clipboardbridge.server.infrastructure.service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.github.cue.clipboardbridge.server.domain.model.ReplyMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Почтовые ящики для ответов, которые не удалось доставить отключённым клиентам.
+ * Ответы хранятся в порядке поступления с ограничением по количеству на клиента,
+ * времени жизни и общему объёму памяти. При превышении общего объёма самые старые
+ * ответы вытесняются, либо, если задан каталог выгрузки, дописываются в файл клиента.
+ * При возобновлении сессии ответы воспроизводятся в исходном порядке.
+ * <p>
+ * Почтовые ящики клиентов, которые не возвращаются, удаляются по истечении
+ * времени жизни через {@link SessionExpiryService}, включая файлы выгрузки.
+ * При запуске индекс выгруженных ответов восстанавливается по каталогу выгрузки,
+ * поэтому ответы, выгруженные до перезапуска, тоже доставляются или истекают.
+ * <p>
+ * Общая блокировка защищает только данные в памяти. Чтение и запись файлов выгрузки
+ * выполняются вне неё под блокировкой полосы клиента, поэтому работа с диском для
+ * одного клиента не задерживает {@code store} и {@code drain} остальных.
+ */
+@Service
+@Slf4j
+public class ClientMailboxService {
+
+    /**
+     * Ответ, ожидающий доставки.
+     */
+    public static final class StoredReply {
+        private final String clientId;
+        private final String destination;
+        private final ReplyMessage reply;
+        private final long storedAt;
+        private final long sizeBytes;
+        private boolean removed;
+
+        private StoredReply(String clientId, String destination, ReplyMessage reply, long storedAt) {
+            this.clientId = clientId;
+            this.destination = destination;
+            this.reply = reply;
+            this.storedAt = storedAt;
+            this.sizeBytes = estimateSize(destination, reply);
+        }
+
+        public String getDestination() {
+            return destination;
+        }
+
+        public ReplyMessage getReply() {
+            return reply;
+        }
+
+        public long getStoredAt() {
+            return storedAt;
+        }
+    }
+
+    record SpilledReply(long storedAt, String destination, String response) {
+    }
+
+    /**
+     * Выгруженные в файл ответы клиента: количество и время сохранения самого нового.
+     */
+    private record SpillIndex(int count, long newestStoredAt) {
+    }
+
+    private static final long ENTRY_OVERHEAD_BYTES = 96;
+    private static final String SPILL_FILE_SUFFIX = ".jsonl";
+    private static final int SPILL_LOCK_STRIPES = 64;
+
+    private final int maxMessagesPerClient;
+    private final long ttlMillis;
+    private final long maxTotalBytes;
+    private final Path spillDirectory;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    // Порядок захвата: полоса клиента, затем lock; под lock полоса берётся только через tryLock
+    private final ReentrantLock[] spillLocks = new ReentrantLock[SPILL_LOCK_STRIPES];
+    private final Map<String, ArrayDeque<StoredReply>> mailboxes = new HashMap<>();
+    private final ArrayDeque<StoredReply> arrivalOrder = new ArrayDeque<>();
+    private final Map<String, SpillIndex> spilled = new HashMap<>();
+    private long totalBytes;
+    private int totalMessages;
+
+    private final Counter storedCounter;
+    private final Counter replayedCounter;
+    private final Counter spilledCounter;
+    private final Counter evictedByCapacity;
+    private final Counter evictedByTtl;
+    private final Counter evictedByMemory;
+    private final SessionExpiryService.ExpiryRegion<String> mailboxExpiry;
+
+    public ClientMailboxService(
+            @Value("${websocket.mailbox.max-messages-per-client:100}") int maxMessagesPerClient,
+            @Value("${websocket.mailbox.ttl-ms:86400000}") long ttlMillis,
+            @Value("${websocket.mailbox.max-total-bytes:67108864}") long maxTotalBytes,
+            @Value("${websocket.mailbox.spill-dir:}") String spillDirectory,
+            SessionExpiryService expiryService,
+            MeterRegistry meterRegistry) {
+        this.maxMessagesPerClient = Math.max(1, maxMessagesPerClient);
+        this.ttlMillis = ttlMillis;
+        this.maxTotalBytes = maxTotalBytes;
+        this.spillDirectory = spillDirectory == null || spillDirectory.isBlank() ? null : Paths.get(spillDirectory);
+        for (int i = 0; i < spillLocks.length; i++) {
+            spillLocks[i] = new ReentrantLock();
+        }
+
+        Gauge.builder("websocket.mailbox.clients", this, service -> service.getMailboxCount())
+                .description("Клиенты с недоставленными ответами")
+                .register(meterRegistry);
+        Gauge.builder("websocket.mailbox.messages", this, service -> service.getMessageCount())
+                .register(meterRegistry);
+        Gauge.builder("websocket.mailbox.bytes", this, service -> service.getTotalBytes())
+                .description("Оценка памяти, занятой недоставленными ответами")
+                .register(meterRegistry);
+        this.storedCounter = Counter.builder("websocket.mailbox.stored").register(meterRegistry);
+        this.replayedCounter = Counter.builder("websocket.mailbox.replayed").register(meterRegistry);
+        this.spilledCounter = Counter.builder("websocket.mailbox.spilled").register(meterRegistry);
+        this.evictedByCapacity = Counter.builder("websocket.mailbox.evicted").tag("reason", "capacity").register(meterRegistry);
+        this.evictedByTtl = Counter.builder("websocket.mailbox.evicted").tag("reason", "ttl").register(meterRegistry);
+        this.evictedByMemory = Counter.builder("websocket.mailbox.evicted").tag("reason", "memory").register(meterRegistry);
+        this.mailboxExpiry = expiryService.register("mailboxes", ttlMillis, this::expireMailbox, this::getMailboxCount);
+        recoverSpilled();
+    }
+
+    /**
+     * Сохраняет ответ для последующей доставки клиенту.
+     *
+     * @param clientId ID клиента
+     * @param destination адрес назначения
+     * @param reply ответ
+     * @return true если ответ сохранён
+     */
+    public boolean store(String clientId, String destination, ReplyMessage reply) {
+        long now = System.currentTimeMillis();
+        StoredReply stored = new StoredReply(clientId, destination, reply, now);
+        if (stored.sizeBytes > maxTotalBytes) {
+            log.warn("Ответ для клиента {} превышает общий лимит почтовых ящиков и не сохранён", clientId);
+            return false;
+        }
+
+        List<StoredReply> evicted = new ArrayList<>();
+        lock.lock();
+        try {
+            expireOldest(now);
+
+            ArrayDeque<StoredReply> mailbox = mailboxes.computeIfAbsent(clientId, id -> new ArrayDeque<>());
+            if (mailbox.size() >= maxMessagesPerClient) {
+                remove(mailbox.peekFirst());
+                evictedByCapacity.increment();
+                log.debug("Почтовый ящик клиента {} переполнен, вытеснен самый старый ответ", clientId);
+            }
+
+            mailbox.addLast(stored);
+            arrivalOrder.addLast(stored);
+            totalBytes += stored.sizeBytes;
+            totalMessages++;
+
+            evictOverMemoryLimit(evicted);
+        } finally {
+            lock.unlock();
+        }
+        spillEvicted(evicted);
+
+        mailboxExpiry.touch(clientId);
+        storedCounter.increment();
+        log.info("Ответ для отключённого клиента {} сохранён в почтовом ящике", clientId);
+        return true;
+    }
+
+    /**
+     * Извлекает все недоставленные ответы клиента в порядке поступления.
+     * Выгруженные в файл ответы старше находящихся в памяти и идут первыми.
+     *
+     * @param clientId ID клиента
+     * @return список ответов, возможно пустой
+     */
+    public List<StoredReply> drain(String clientId) {
+        long now = System.currentTimeMillis();
+        List<StoredReply> inMemory = new ArrayList<>();
+        List<StoredReply> result = new ArrayList<>();
+        ReentrantLock spillLock = spillLock(clientId);
+        spillLock.lock();
+        try {
+            boolean hasSpilled;
+            lock.lock();
+            try {
+                hasSpilled = spilled.remove(clientId) != null;
+                ArrayDeque<StoredReply> mailbox = mailboxes.remove(clientId);
+                if (mailbox != null) {
+                    for (StoredReply stored : mailbox) {
+                        stored.removed = true;
+                        totalBytes -= stored.sizeBytes;
+                        totalMessages--;
+                        if (now - stored.storedAt <= ttlMillis) {
+                            inMemory.add(stored);
+                        } else {
+                            evictedByTtl.increment();
+                        }
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (hasSpilled) {
+                result.addAll(readSpilled(clientId, now));
+            }
+        } finally {
+            spillLock.unlock();
+        }
+        result.addAll(inMemory);
+        mailboxExpiry.cancel(clientId);
+        return result;
+    }
+
+    /**
+     * Возвращает в начало почтового ящика ответы, которые не удалось воспроизвести.
+     * Они старше остальных, поэтому и при вытеснении идут первыми: ограничения
+     * на количество ответов клиента и общий объём применяются так же, как в {@link #store}.
+     *
+     * @param clientId ID клиента
+     * @param undelivered ответы в исходном порядке
+     */
+    public void requeue(String clientId, List<StoredReply> undelivered) {
+        List<StoredReply> evicted = new ArrayList<>();
+        lock.lock();
+        try {
+            ArrayDeque<StoredReply> mailbox = mailboxes.computeIfAbsent(clientId, id -> new ArrayDeque<>());
+            for (int i = undelivered.size() - 1; i >= 0; i--) {
+                StoredReply original = undelivered.get(i);
+                StoredReply stored = new StoredReply(clientId, original.destination, original.reply, original.storedAt);
+                mailbox.addFirst(stored);
+                arrivalOrder.addFirst(stored);
+                totalBytes += stored.sizeBytes;
+                totalMessages++;
+            }
+
+            int overflow = mailbox.size() - maxMessagesPerClient;
+            for (int i = 0; i < overflow; i++) {
+                remove(mailbox.peekFirst());
+                evictedByCapacity.increment();
+            }
+            if (overflow > 0) {
+                log.debug("Почтовый ящик клиента {} переполнен при возврате ответов, вытеснено {}", clientId, overflow);
+            }
+
+            evictOverMemoryLimit(evicted);
+        } finally {
+            lock.unlock();
+        }
+        spillEvicted(evicted);
+        mailboxExpiry.touch(clientId);
+    }
+
+    /**
+     * Учитывает ответы, успешно воспроизведённые клиенту.
+     *
+     * @param count количество ответов
+     */
+    public void recordReplayed(int count) {
+        replayedCounter.increment(count);
+    }
+
+    /**
+     * Проверяет, есть ли у клиента недоставленные ответы.
+     *
+     * @param clientId ID клиента
+     * @return true если почтовый ящик не пуст
+     */
+    public boolean hasPending(String clientId) {
+        lock.lock();
+        try {
+            return mailboxes.containsKey(clientId) || spilled.containsKey(clientId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getMailboxCount() {
+        lock.lock();
+        try {
+            return mailboxes.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getMessageCount() {
+        lock.lock();
+        try {
+            return totalMessages;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getTotalBytes() {
+        lock.lock();
+        try {
+            return totalBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void expireOldest(long now) {
+        StoredReply oldest;
+        while ((oldest = arrivalOrder.peekFirst()) != null) {
+            if (oldest.removed) {
+                arrivalOrder.pollFirst();
+            } else if (now - oldest.storedAt > ttlMillis) {
+                arrivalOrder.pollFirst();
+                remove(oldest);
+                evictedByTtl.increment();
+            } else {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Вытесняет самые старые ответы, пока общий объём превышает лимит.
+     * Вызывается под общей блокировкой; ответы для выгрузки добавляются
+     * в {@code evicted} с захваченной полосой клиента и записываются
+     * в файл после снятия общей блокировки через {@link #spillEvicted}.
+     *
+     * @param evicted ответы, которые нужно выгрузить в файл
+     */
+    private void evictOverMemoryLimit(List<StoredReply> evicted) {
+        while (totalBytes > maxTotalBytes) {
+            StoredReply oldest = peekOldestLive();
+            if (oldest == null) {
+                break;
+            }
+            if (spillDirectory != null) {
+                // Полоса удерживается до записи в файл: drain клиента не увидит
+                // ответ ни в памяти, ни в файле только пока она занята
+                if (!spillLock(oldest.clientId).tryLock()) {
+                    // Файл клиента сейчас читается или дописывается, лимит превышен временно
+                    break;
+                }
+                evicted.add(oldest);
+            } else {
+                evictedByMemory.increment();
+            }
+            arrivalOrder.pollFirst();
+            remove(oldest);
+        }
+    }
+
+    private StoredReply peekOldestLive() {
+        StoredReply oldest;
+        while ((oldest = arrivalOrder.peekFirst()) != null && oldest.removed) {
+            arrivalOrder.pollFirst();
+        }
+        return oldest;
+    }
+
+    private void remove(StoredReply stored) {
+        if (stored == null || stored.removed) {
+            return;
+        }
+        stored.removed = true;
+        totalBytes -= stored.sizeBytes;
+        totalMessages--;
+        ArrayDeque<StoredReply> mailbox = mailboxes.get(stored.clientId);
+        if (mailbox != null) {
+            mailbox.removeFirstOccurrence(stored);
+            if (mailbox.isEmpty()) {
+                mailboxes.remove(stored.clientId);
+            }
+        }
+    }
+
+    /**
+     * Дописывает вытесненные ответы в файлы клиентов. Вызывается без общей блокировки,
+     * полосы клиентов уже захвачены в {@link #evictOverMemoryLimit} и освобождаются здесь.
+     *
+     * @param evicted вытесненные ответы в порядке поступления
+     */
+    private void spillEvicted(List<StoredReply> evicted) {
+        for (StoredReply stored : evicted) {
+            try {
+                if (spill(stored)) {
+                    lock.lock();
+                    try {
+                        spilled.merge(stored.clientId, new SpillIndex(1, stored.storedAt), (current, added) ->
+                                new SpillIndex(current.count() + 1,
+                                        Math.max(current.newestStoredAt(), added.newestStoredAt())));
+                    } finally {
+                        lock.unlock();
+                    }
+                    spilledCounter.increment();
+                } else {
+                    evictedByMemory.increment();
+                }
+            } finally {
+                spillLock(stored.clientId).unlock();
+            }
+        }
+    }
+
+    private boolean spill(StoredReply stored) {
+        Path file = spillFile(stored.clientId);
+        try {
+            Files.createDirectories(spillDirectory);
+            try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                writer.write(objectMapper.writeValueAsString(
+                        new SpilledReply(stored.storedAt, stored.destination, stored.reply.getResponse())));
+                writer.newLine();
+            }
+            return true;
+        } catch (IOException e) {
+            log.error("Не удалось выгрузить ответ клиента {} в файл {}: {}", stored.clientId, file, e.getMessage());
+            return false;
+        }
+    }
+
+    private List<StoredReply> readSpilled(String clientId, long now) {
+        Path file = spillFile(clientId);
+        if (!Files.exists(file)) {
+            return Collections.emptyList();
+        }
+        List<StoredReply> result = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                SpilledReply spilled = objectMapper.readValue(line, SpilledReply.class);
+                if (now - spilled.storedAt() <= ttlMillis) {
+                    ReplyMessage reply = ReplyMessage.builder().response(spilled.response()).build();
+                    result.add(new StoredReply(clientId, spilled.destination(), reply, spilled.storedAt()));
+                } else {
+                    evictedByTtl.increment();
+                }
+            }
+        } catch (IOException e) {
+            log.error("Ошибка чтения выгруженных ответов клиента {} из {}: {}", clientId, file, e.getMessage());
+        }
+        deleteSpillFile(file);
+        return result;
+    }
+
+    /**
+     * Удаляет истёкшие ответы клиента. Вызывается по истечении времени жизни
+     * после последнего сохранения, поэтому обычно удаляет почтовый ящик целиком;
+     * если за это время ящик пополнился, срок переносится.
+     *
+     * @param clientId ID клиента
+     */
+    private void expireMailbox(String clientId) {
+        long now = System.currentTimeMillis();
+        boolean remaining = false;
+        ReentrantLock spillLock = spillLock(clientId);
+        spillLock.lock();
+        try {
+            boolean spillExpired = false;
+            lock.lock();
+            try {
+                ArrayDeque<StoredReply> mailbox = mailboxes.get(clientId);
+                if (mailbox != null) {
+                    StoredReply oldest;
+                    while ((oldest = mailbox.peekFirst()) != null && now - oldest.storedAt > ttlMillis) {
+                        remove(oldest);
+                        evictedByTtl.increment();
+                    }
+                    remaining = mailboxes.containsKey(clientId);
+                }
+
+                SpillIndex index = spilled.get(clientId);
+                if (index != null) {
+                    if (now - index.newestStoredAt() > ttlMillis) {
+                        spilled.remove(clientId);
+                        evictedByTtl.increment(index.count());
+                        spillExpired = true;
+                    } else {
+                        remaining = true;
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (spillExpired) {
+                deleteSpillFile(spillFile(clientId));
+            }
+        } finally {
+            spillLock.unlock();
+        }
+        if (remaining) {
+            mailboxExpiry.touch(clientId);
+        } else {
+            log.debug("Почтовый ящик клиента {} удалён по истечении времени жизни", clientId);
+        }
+    }
+
+    /**
+     * Восстанавливает индекс выгруженных ответов после перезапуска. Файлы, все
+     * ответы в которых истекли, удаляются.
+     */
+    private void recoverSpilled() {
+        if (spillDirectory == null || !Files.isDirectory(spillDirectory)) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(spillDirectory)) {
+            files = listing.filter(file -> file.getFileName().toString().endsWith(SPILL_FILE_SUFFIX)).toList();
+        } catch (IOException e) {
+            log.error("Не удалось прочитать каталог выгрузки {}: {}", spillDirectory, e.getMessage());
+            return;
+        }
+
+        int recovered = 0;
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            String clientId = name.substring(0, name.length() - SPILL_FILE_SUFFIX.length());
+            int count = 0;
+            long newest = 0;
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    newest = Math.max(newest, objectMapper.readValue(line, SpilledReply.class).storedAt());
+                    count++;
+                }
+            } catch (IOException e) {
+                log.warn("Повреждённый файл выгруженных ответов {} удаляется: {}", file, e.getMessage());
+                count = 0;
+            }
+
+            if (count == 0 || now - newest > ttlMillis) {
+                deleteSpillFile(file);
+                continue;
+            }
+            spilled.put(clientId, new SpillIndex(count, newest));
+            mailboxExpiry.touch(clientId);
+            recovered += count;
+        }
+        if (recovered > 0) {
+            log.info("Восстановлено {} выгруженных ответов для {} клиентов", recovered, spilled.size());
+        }
+    }
+
+    private ReentrantLock spillLock(String clientId) {
+        return spillLocks[Math.floorMod(clientId.hashCode(), spillLocks.length)];
+    }
+
+    /**
+     * Имя файла совпадает с ID клиента: рукопожатие допускает только ID
+     * из символов {@code [A-Za-z0-9_-]}, поэтому по имени файла ID восстанавливается.
+     */
+    private Path spillFile(String clientId) {
+        return spillDirectory.resolve(clientId.replaceAll("[^A-Za-z0-9_-]", "_") + SPILL_FILE_SUFFIX);
+    }
+
+    private static void deleteSpillFile(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Не удалось удалить файл выгруженных ответов {}: {}", file, e.getMessage());
+        }
+    }
+
+    private static long estimateSize(String destination, ReplyMessage reply) {
+        String response = reply.getResponse();
+        return ENTRY_OVERHEAD_BYTES
+                + (destination != null ? destination.length() * 2L : 0)
+                + (response != null ? response.length() * 2L : 0);
+    }
+}
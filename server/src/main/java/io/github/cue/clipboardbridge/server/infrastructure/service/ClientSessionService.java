@@ -1,52 +1,250 @@
 package io.github.cue.clipboardbridge.server.infrastructure.service;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.LongAdder;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import lombok.extern.slf4j.Slf4j;
 
 /**
  * Сервис для управления и отслеживания клиентских сессий.
- * Сохраняет информацию о активных WebSocket соединениях.
+ * Хранит по одной компактной записи на клиента; записи неизменяемы и заменяются
+ * через CAS, поэтому методы сервиса не используют блокировки.
+ * Записи отключенных клиентов удаляются по истечении времени жизни
+ * через {@link SessionExpiryService}.
  */
 @Service
 @Slf4j
 public class ClientSessionService {
     
-    private final Map<String, Long> activeSessions = new ConcurrentHashMap<>();
+    private enum SessionState {
+        ACTIVE,
+        IDLE,
+        DISCONNECTED
+    }
+    
+    /**
+     * Сессия, отключенная из-за отсутствия входящих кадров.
+     * 
+     * @param clientId ID клиента
+     * @param sessionId ID WebSocket сессии, которую нужно закрыть
+     */
+    public record ReapedSession(String clientId, String sessionId) {
+    }
+    
+    /**
+     * Минимальный интервал между обновлениями времени активности,
+     * чтобы частые кадры не вызывали запись на каждый кадр.
+     */
+    private static final long ACTIVITY_RESOLUTION_MS = 1000;
+    
+    /**
+     * Состояние клиента. Нулевые отметки времени означают отсутствие значения.
+     */
+    private record SessionRecord(SessionState state, String sessionId, long connectedAt,
+                                 long lastActivity, long lastDisconnect) {
+        
+        boolean isActive() {
+            return state == SessionState.ACTIVE;
+        }
+        
+        boolean isDisconnected() {
+            return state == SessionState.DISCONNECTED;
+        }
+    }
     
-    private final Set<String> disconnectedSessions = new CopyOnWriteArraySet<>();
+    private final ConcurrentHashMap<String, SessionRecord> sessions = new ConcurrentHashMap<>();
     
-    private int totalSessionCount = 0;
-    private int disconnectionCount = 0;
+    private final LongAdder activeCount = new LongAdder();
+    private final LongAdder idleCount = new LongAdder();
+    private final LongAdder disconnectedCount = new LongAdder();
+    private final LongAdder totalSessionCount = new LongAdder();
+    private final LongAdder disconnectionCount = new LongAdder();
     
-    private final Map<String, Long> lastDisconnectTime = new ConcurrentHashMap<>();
+    private final SessionExpiryService.ExpiryRegion<String> disconnectedExpiry;
+    
+    public ClientSessionService(
+            SessionExpiryService expiryService,
+            @Value("${session.expiry.disconnected-ttl-ms:86400000}") long disconnectedTtlMs) {
+        this.disconnectedExpiry = expiryService.register("sessions", disconnectedTtlMs,
+                this::expireDisconnected, sessions::size);
+    }
     
     /**
-     * Регистрирует новую клиентскую сессию.
+     * Регистрирует новую клиентскую сессию. Если у клиента уже есть другая
+     * живая сессия, она становится устаревшей и возвращается для закрытия.
      * 
      * @param clientId ID клиента
+     * @param sessionId ID WebSocket сессии
+     * @return ID предыдущей живой сессии клиента или null
      */
-    public synchronized void registerSession(String clientId) {
-        activeSessions.put(clientId, System.currentTimeMillis());
-        disconnectedSessions.remove(clientId);
-        totalSessionCount++;
-        log.info("Зарегистрирована новая клиентская сессия: {}", clientId);
+    public String registerSession(String clientId, String sessionId) {
+        long now = System.currentTimeMillis();
+        SessionRecord current;
+        SessionRecord next;
+        do {
+            current = sessions.get(clientId);
+            String nextSessionId = sessionId != null || current == null ? sessionId : current.sessionId();
+            long lastDisconnect = current != null ? current.lastDisconnect() : 0L;
+            next = new SessionRecord(SessionState.ACTIVE, nextSessionId, now, now, lastDisconnect);
+        } while (!compareAndSet(clientId, current, next));
+        
+        totalSessionCount.increment();
+        onTransition(current, next);
+        disconnectedExpiry.cancel(clientId);
+        
+        if (current != null) {
+            log.info("Возобновлена клиентская сессия: {} (сессия: {})", clientId, sessionId);
+        } else {
+            log.info("Зарегистрирована новая клиентская сессия: {} (сессия: {})", clientId, sessionId);
+        }
+        
+        if (current != null && !current.isDisconnected() && sessionId != null
+                && current.sessionId() != null && !current.sessionId().equals(sessionId)) {
+            return current.sessionId();
+        }
+        return null;
     }
     
     /**
-     * Обновляет время последней активности сессии.
+     * Проверяет, является ли сессия текущей для клиента.
+     * События устаревших (вытесненных) сессий не должны менять состояние клиента.
      * 
      * @param clientId ID клиента
+     * @param sessionId ID WebSocket сессии
+     * @return true если сессия текущая или клиент не привязан к сессии
      */
-    public void updateSession(String clientId) {
-        activeSessions.put(clientId, System.currentTimeMillis());
-        disconnectedSessions.remove(clientId);
+    public boolean isCurrentSession(String clientId, String sessionId) {
+        SessionRecord record = sessions.get(clientId);
+        return record == null || isSameSession(record, sessionId);
+    }
+    
+    /**
+     * Получает ID текущей WebSocket сессии клиента.
+     * 
+     * @param clientId ID клиента
+     * @return ID сессии или null, если клиент неизвестен
+     */
+    public String getCurrentSessionId(String clientId) {
+        SessionRecord record = sessions.get(clientId);
+        return record != null ? record.sessionId() : null;
+    }
+    
+    /**
+     * Обновляет время последней активности сессии. Неактивная сессия снова
+     * становится активной; отключенного клиента возвращает только
+     * {@link #registerSession}, поэтому запись отключенной сессии не меняется.
+     * 
+     * @param clientId ID клиента
+     * @param sessionId ID WebSocket сессии, от которой пришёл кадр
+     */
+    public void updateSession(String clientId, String sessionId) {
+        touch(clientId, sessionId, true);
+    }
+    
+    /**
+     * Отмечает входящий кадр клиента (включая heartbeat). Время активности
+     * обновляется не чаще раза в {@link #ACTIVITY_RESOLUTION_MS}, неактивная
+     * сессия снова становится активной. Кадры устаревших сессий, отключенных
+     * и неизвестных клиентов не учитываются.
+     * 
+     * @param clientId ID клиента
+     * @param sessionId ID WebSocket сессии, от которой пришёл кадр
+     */
+    public void recordActivity(String clientId, String sessionId) {
+        SessionRecord current = sessions.get(clientId);
+        if (current != null && current.isActive()
+                && System.currentTimeMillis() - current.lastActivity() < ACTIVITY_RESOLUTION_MS) {
+            return;
+        }
+        touch(clientId, sessionId, false);
+    }
+    
+    /**
+     * Обновляет время активности текущей сессии клиента.
+     * 
+     * @param createIfAbsent создать активную запись для неизвестного клиента
+     */
+    private void touch(String clientId, String sessionId, boolean createIfAbsent) {
+        long now = System.currentTimeMillis();
+        SessionRecord current;
+        SessionRecord next;
+        do {
+            current = sessions.get(clientId);
+            if (current == null) {
+                if (!createIfAbsent) {
+                    return;
+                }
+                next = new SessionRecord(SessionState.ACTIVE, sessionId, now, now, 0L);
+            } else if (current.isDisconnected() || !isSameSession(current, sessionId)) {
+                return;
+            } else if (current.isActive() && current.lastActivity() >= now) {
+                return;
+            } else {
+                next = new SessionRecord(SessionState.ACTIVE, current.sessionId(), current.connectedAt(),
+                        now, current.lastDisconnect());
+            }
+        } while (!compareAndSet(clientId, current, next));
+        onTransition(current, next);
+    }
+    
+    /**
+     * Переводит в состояние неактивных сессии без входящих кадров с указанного момента.
+     * 
+     * @param idleSince граница времени последней активности
+     * @return количество сессий, ставших неактивными
+     */
+    public int markIdleSessions(long idleSince) {
+        int count = 0;
+        for (Map.Entry<String, SessionRecord> entry : sessions.entrySet()) {
+            SessionRecord record = entry.getValue();
+            if (record.isActive() && record.lastActivity() < idleSince) {
+                SessionRecord next = new SessionRecord(SessionState.IDLE, record.sessionId(), record.connectedAt(),
+                        record.lastActivity(), record.lastDisconnect());
+                if (sessions.replace(entry.getKey(), record, next)) {
+                    onTransition(record, next);
+                    log.info("Клиентская сессия неактивна: {} (нет кадров {} мс)",
+                            entry.getKey(), System.currentTimeMillis() - record.lastActivity());
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Отключает сессии без входящих кадров с указанного момента, например
+     * полуоткрытые TCP соединения.
+     * 
+     * @param idleSince граница времени последней активности
+     * @return отключенные сессии, WebSocket соединения которых нужно закрыть
+     */
+    public List<ReapedSession> disconnectIdleSessions(long idleSince) {
+        List<ReapedSession> reaped = new ArrayList<>();
+        for (Map.Entry<String, SessionRecord> entry : sessions.entrySet()) {
+            SessionRecord record = entry.getValue();
+            if (!record.isDisconnected() && record.lastActivity() < idleSince) {
+                String clientId = entry.getKey();
+                long now = System.currentTimeMillis();
+                SessionRecord next = new SessionRecord(SessionState.DISCONNECTED, record.sessionId(),
+                        record.connectedAt(), record.lastActivity(), now);
+                if (sessions.replace(clientId, record, next)) {
+                    disconnectionCount.increment();
+                    onTransition(record, next);
+                    disconnectedExpiry.touch(clientId);
+                    log.info("Клиентская сессия отключена по неактивности: {} (нет кадров {} мс)",
+                            clientId, now - record.lastActivity());
+                    reaped.add(new ReapedSession(clientId, record.sessionId()));
+                }
+            }
+        }
+        return reaped;
     }
     
     /**
@@ -55,35 +253,51 @@ public class ClientSessionService {
      * @param clientId ID клиента
      * @return true если сессия была активна и теперь отключена, false если она уже была отключена
      */
-    public synchronized boolean disconnectSession(String clientId) {
+    public boolean disconnectSession(String clientId) {
+        return disconnectSession(clientId, null);
+    }
+    
+    /**
+     * Отмечает сессию как отключившуюся, только если указанная WebSocket сессия
+     * всё ещё текущая для клиента. Проверка и замена записи выполняются одним CAS,
+     * поэтому закрытие старой сессии не отключает клиента, успевшего переподключиться.
+     * 
+     * @param clientId ID клиента
+     * @param sessionId ID закрытой WebSocket сессии или null для любой сессии
+     * @return true если сессия была активна и теперь отключена
+     */
+    public boolean disconnectSession(String clientId, String sessionId) {
         if (clientId == null) {
             log.warn("Попытка отключить сессию с null clientId");
             return false;
         }
         
-        if (disconnectedSessions.contains(clientId)) {
-            log.debug("Клиентская сессия уже отмечена как отключенная: {}", clientId);
-            return false;
-        }
-        
-        Long activeTime = activeSessions.get(clientId);
+        long now = System.currentTimeMillis();
+        SessionRecord current;
+        SessionRecord next;
+        do {
+            current = sessions.get(clientId);
+            if (current != null && current.isDisconnected()) {
+                log.debug("Клиентская сессия уже отмечена как отключенная: {}", clientId);
+                return false;
+            }
+            if (sessionId != null && current != null && current.sessionId() != null
+                    && !current.sessionId().equals(sessionId)) {
+                log.debug("Сессия {} клиента {} уже заменена сессией {}", sessionId, clientId, current.sessionId());
+                return false;
+            }
+            next = current != null
+                    ? new SessionRecord(SessionState.DISCONNECTED, current.sessionId(), current.connectedAt(),
+                            current.lastActivity(), now)
+                    : new SessionRecord(SessionState.DISCONNECTED, sessionId, 0L, 0L, now);
+        } while (!compareAndSet(clientId, current, next));
         
-        activeSessions.remove(clientId);
-        boolean added = disconnectedSessions.add(clientId);
-        
-        if (!added) {
-            log.warn("Обнаружена гонка данных при отключении сессии: {}", clientId);
-            return false;
-        }
+        disconnectionCount.increment();
+        onTransition(current, next);
+        disconnectedExpiry.touch(clientId);
         
-        disconnectionCount++;
-        
-        long currentTime = System.currentTimeMillis();
-        lastDisconnectTime.put(clientId, currentTime);
-        
-        if (activeTime != null) {
-            long sessionDuration = currentTime - activeTime;
-            log.info("Клиентская сессия отключена: {} (продолжительность: {} мс)", clientId, sessionDuration);
+        if (current != null) {
+            log.info("Клиентская сессия отключена: {} (продолжительность: {} мс)", clientId, now - current.connectedAt());
         } else {
             log.info("Клиентская сессия отключена: {}", clientId);
         }
@@ -98,7 +312,8 @@ public class ClientSessionService {
      * @return true если сессия активна, false в противном случае
      */
     public boolean isSessionActive(String clientId) {
-        return activeSessions.containsKey(clientId) && !disconnectedSessions.contains(clientId);
+        SessionRecord record = sessions.get(clientId);
+        return record != null && record.isActive();
     }
     
     /**
@@ -108,7 +323,8 @@ public class ClientSessionService {
      * @return true если сессия была отключена, false в противном случае
      */
     public boolean isSessionDisconnected(String clientId) {
-        return disconnectedSessions.contains(clientId);
+        SessionRecord record = sessions.get(clientId);
+        return record != null && record.isDisconnected();
     }
     
     /**
@@ -118,7 +334,8 @@ public class ClientSessionService {
      * @return время последней активности в миллисекундах или null, если сессия не найдена
      */
     public Long getLastActivityTime(String clientId) {
-        return activeSessions.get(clientId);
+        SessionRecord record = sessions.get(clientId);
+        return record != null && !record.isDisconnected() ? record.lastActivity() : null;
     }
     
     /**
@@ -127,8 +344,11 @@ public class ClientSessionService {
      * @param clientId ID клиента
      */
     public void removeSession(String clientId) {
-        activeSessions.remove(clientId);
-        disconnectedSessions.remove(clientId);
+        SessionRecord removed = sessions.remove(clientId);
+        if (removed != null) {
+            onTransition(removed, null);
+        }
+        disconnectedExpiry.cancel(clientId);
         log.info("Информация о клиентской сессии удалена: {}", clientId);
     }
     
@@ -138,7 +358,16 @@ public class ClientSessionService {
      * @return количество активных сессий
      */
     public int getActiveSessionCount() {
-        return activeSessions.size();
+        return (int) activeCount.sum();
+    }
+    
+    /**
+     * Получает количество сессий, от которых давно не было входящих кадров.
+     * 
+     * @return количество неактивных сессий
+     */
+    public int getIdleSessionCount() {
+        return (int) idleCount.sum();
     }
     
     /**
@@ -147,7 +376,7 @@ public class ClientSessionService {
      * @return количество отключенных сессий
      */
     public int getDisconnectedSessionCount() {
-        return disconnectedSessions.size();
+        return (int) disconnectedCount.sum();
     }
     
     /**
@@ -158,9 +387,10 @@ public class ClientSessionService {
     public Map<String, Object> getSessionStats() {
         Map<String, Object> stats = new HashMap<>();
         stats.put("activeCount", getActiveSessionCount());
+        stats.put("idleCount", getIdleSessionCount());
         stats.put("disconnectedCount", getDisconnectedSessionCount());
-        stats.put("totalCount", totalSessionCount);
-        stats.put("disconnectionCount", disconnectionCount);
+        stats.put("totalCount", totalSessionCount.sum());
+        stats.put("disconnectionCount", disconnectionCount.sum());
         return stats;
     }
     
@@ -171,8 +401,15 @@ public class ClientSessionService {
      * @return количество удаленных сессий
      */
     public int cleanupDisconnectedSessions() {
-        int count = disconnectedSessions.size();
-        disconnectedSessions.clear();
+        int count = 0;
+        for (Map.Entry<String, SessionRecord> entry : sessions.entrySet()) {
+            SessionRecord record = entry.getValue();
+            if (record.isDisconnected() && sessions.remove(entry.getKey(), record)) {
+                onTransition(record, null);
+                disconnectedExpiry.cancel(entry.getKey());
+                count++;
+            }
+        }
         log.info("Очищены данные о {} отключенных сессиях", count);
         return count;
     }
@@ -184,7 +421,8 @@ public class ClientSessionService {
      * @return время последнего отключения в миллисекундах или null, если информация не найдена
      */
     public Long getLastDisconnectTime(String clientId) {
-        return lastDisconnectTime.get(clientId);
+        SessionRecord record = sessions.get(clientId);
+        return record != null && record.lastDisconnect() > 0 ? record.lastDisconnect() : null;
     }
     
     /**
@@ -194,13 +432,57 @@ public class ClientSessionService {
      * @return продолжительность сессии в миллисекундах или null, если информация не доступна
      */
     public Long getLastSessionDuration(String clientId) {
-        Long disconnectTime = lastDisconnectTime.get(clientId);
-        Long connectTime = activeSessions.get(clientId);
-        
-        if (disconnectTime != null && connectTime != null) {
-            return disconnectTime - connectTime;
+        SessionRecord record = sessions.get(clientId);
+        if (record != null && record.isDisconnected() && record.connectedAt() > 0) {
+            return record.lastDisconnect() - record.connectedAt();
         }
-        
         return null;
     }
-} 
\ No newline at end of file
+    
+    /**
+     * Удаляет запись клиента, который не переподключился за время жизни отключенной сессии.
+     * 
+     * @param clientId ID клиента
+     */
+    private void expireDisconnected(String clientId) {
+        SessionRecord record = sessions.get(clientId);
+        if (record != null && record.isDisconnected() && sessions.remove(clientId, record)) {
+            onTransition(record, null);
+            log.debug("Удалена устаревшая запись отключенного клиента: {}", clientId);
+        }
+    }
+    
+    private static boolean isSameSession(SessionRecord record, String sessionId) {
+        return record.sessionId() == null || record.sessionId().equals(sessionId);
+    }
+    
+    /**
+     * Атомарно заменяет запись клиента, если она не изменилась с момента чтения.
+     */
+    private boolean compareAndSet(String clientId, SessionRecord expected, SessionRecord next) {
+        if (expected == null) {
+            return sessions.putIfAbsent(clientId, next) == null;
+        }
+        return sessions.replace(clientId, expected, next);
+    }
+    
+    /**
+     * Поддерживает счётчики сессий по состояниям после успешной замены записи.
+     */
+    private void onTransition(SessionRecord previous, SessionRecord next) {
+        if (previous != null) {
+            counterFor(previous.state()).decrement();
+        }
+        if (next != null) {
+            counterFor(next.state()).increment();
+        }
+    }
+    
+    private LongAdder counterFor(SessionState state) {
+        return switch (state) {
+            case ACTIVE -> activeCount;
+            case IDLE -> idleCount;
+            case DISCONNECTED -> disconnectedCount;
+        };
+    }
+}
@@ -0,0 +1,186 @@
+package io.github.cue.clipboardbridge.server.infrastructure.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import io.github.cue.clipboardbridge.server.domain.model.CommandMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Распаковывает содержимое команд, сжатое клиентом. Алгоритм указывается клиентом
+ * в заголовке STOMP {@code content-encoding} так же, как в HTTP: сообщения без
+ * заголовка принимаются как есть, команды с неизвестным алгоритмом отклоняются.
+ * Поддерживается {@code deflate} (zlib). Размер распакованного содержимого
+ * ограничен, чтобы небольшое сообщение не могло занять всю память сервера.
+ */
+@Service
+@Slf4j
+public class ContentDecompressor {
+
+    private static final String DEFLATE = "deflate";
+    private static final String IDENTITY = "identity";
+    private static final Set<String> SUPPORTED_ENCODINGS = Set.of(DEFLATE);
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final int maxInflatedBytes;
+    private final Counter bytesSavedCounter;
+    private final Timer inflateTimer;
+
+    public ContentDecompressor(MeterRegistry meterRegistry,
+                               @Value("${compression.max-inflated-bytes:67108864}") int maxInflatedBytes) {
+        this.maxInflatedBytes = maxInflatedBytes;
+        this.bytesSavedCounter = Counter.builder("compression.inflate.bytes.saved")
+                .baseUnit("bytes")
+                .description("Разница между распакованным и полученным размером содержимого")
+                .register(meterRegistry);
+        this.inflateTimer = Timer.builder("compression.inflate.cpu")
+                .description("Процессорное время распаковки содержимого")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Распаковывает содержимое команды на месте: {@code content} заполняется
+     * распакованным текстом, {@code compressedContent} очищается.
+     *
+     * @param command команда
+     * @param contentEncoding значение заголовка {@code content-encoding} или null
+     * @throws IllegalArgumentException если алгоритм не поддерживается или данные повреждены
+     */
+    public void decode(CommandMessage command, String contentEncoding) {
+        String encoding = normalize(contentEncoding);
+        if (encoding == null) {
+            return;
+        }
+        byte[] compressed = command.getCompressedContent();
+        if (compressed == null) {
+            throw new IllegalArgumentException("нет сжатого содержимого для content-encoding " + encoding);
+        }
+
+        long cpuStart = THREADS.getCurrentThreadCpuTime();
+        long wallStart = System.nanoTime();
+        byte[] inflated = inflate(compressed);
+        long cpuEnd = THREADS.getCurrentThreadCpuTime();
+        // Для виртуальных потоков процессорное время недоступно, учитывается общее время
+        long elapsed = cpuStart >= 0 && cpuEnd >= 0 ? cpuEnd - cpuStart : System.nanoTime() - wallStart;
+        inflateTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        bytesSavedCounter.increment(Math.max(0, inflated.length - compressed.length));
+
+        command.setContent(new String(inflated, StandardCharsets.UTF_8));
+        command.setCompressedContent(null);
+        log.debug("Распаковано содержимое {}: {} -> {} байт за {} мкс",
+                encoding, compressed.length, inflated.length, TimeUnit.NANOSECONDS.toMicros(elapsed));
+    }
+
+    /**
+     * Читает содержимое из файла, распаковывая его при необходимости.
+     * Текст декодируется потоково, без промежуточной копии всех байтов в памяти.
+     *
+     * @param file файл с содержимым
+     * @param contentEncoding алгоритм сжатия или null
+     * @return содержимое
+     * @throws IOException при ошибке чтения или повреждённых данных
+     * @throws IllegalArgumentException если алгоритм не поддерживается или содержимое слишком велико
+     */
+    public String decode(Path file, String contentEncoding) throws IOException {
+        String encoding = normalize(contentEncoding);
+        if (encoding == null) {
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                return readLimited(reader);
+            }
+        }
+
+        long cpuStart = THREADS.getCurrentThreadCpuTime();
+        long wallStart = System.nanoTime();
+        Inflater inflater = new Inflater();
+        try (Reader reader = new InputStreamReader(
+                new InflaterInputStream(Files.newInputStream(file), inflater, BUFFER_SIZE), StandardCharsets.UTF_8)) {
+            String content = readLimited(reader);
+            long cpuEnd = THREADS.getCurrentThreadCpuTime();
+            long elapsed = cpuStart >= 0 && cpuEnd >= 0 ? cpuEnd - cpuStart : System.nanoTime() - wallStart;
+            inflateTimer.record(elapsed, TimeUnit.NANOSECONDS);
+            bytesSavedCounter.increment(Math.max(0, inflater.getBytesWritten() - inflater.getBytesRead()));
+            log.debug("Распаковано содержимое {} из файла: {} -> {} байт за {} мкс", encoding,
+                    inflater.getBytesRead(), inflater.getBytesWritten(), TimeUnit.NANOSECONDS.toMicros(elapsed));
+            return content;
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * @return алгоритм в нижнем регистре или null, если содержимое не сжато
+     */
+    private static String normalize(String contentEncoding) {
+        if (contentEncoding == null || contentEncoding.isBlank()
+                || IDENTITY.equalsIgnoreCase(contentEncoding.trim())) {
+            return null;
+        }
+        String encoding = contentEncoding.trim().toLowerCase(Locale.ROOT);
+        if (!SUPPORTED_ENCODINGS.contains(encoding)) {
+            throw new IllegalArgumentException("неподдерживаемое сжатие содержимого: " + contentEncoding
+                    + ", поддерживаются: " + SUPPORTED_ENCODINGS);
+        }
+        return encoding;
+    }
+
+    /**
+     * Читает текст, ограничивая его длину в символах тем же лимитом,
+     * что и размер распакованного содержимого в байтах.
+     */
+    private String readLimited(Reader reader) throws IOException {
+        StringBuilder content = new StringBuilder();
+        char[] buffer = new char[BUFFER_SIZE / 2];
+        int count;
+        while ((count = reader.read(buffer)) != -1) {
+            if (content.length() + count > maxInflatedBytes) {
+                throw new IllegalArgumentException("распакованное содержимое больше " + maxInflatedBytes + " байт");
+            }
+            content.append(buffer, 0, count);
+        }
+        return content.toString();
+    }
+
+    private byte[] inflate(byte[] compressed) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.min(maxInflatedBytes, compressed.length * 4));
+            byte[] buffer = new byte[Math.min(BUFFER_SIZE, maxInflatedBytes + 1)];
+            while (!inflater.finished()) {
+                int count = inflater.inflate(buffer);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalArgumentException("сжатое содержимое оборвано");
+                }
+                if (out.size() + count > maxInflatedBytes) {
+                    throw new IllegalArgumentException("распакованное содержимое больше " + maxInflatedBytes + " байт");
+                }
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("повреждённое сжатое содержимое: " + e.getMessage(), e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package io.github.cue.clipboardbridge.server.infrastructure.service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Фоновая проверка клиентских сессий по времени последнего входящего кадра.
+ * Клиенты отправляют heartbeat STOMP, поэтому отсутствие кадров означает
+ * зависшее или полуоткрытое соединение: такие сессии сначала помечаются
+ * неактивными, а затем отключаются с закрытием WebSocket соединения.
+ */
+@Component
+@Slf4j
+public class IdleSessionReaper {
+
+    private final ClientSessionService sessionService;
+    private final WebSocketSessionRegistry sessionRegistry;
+    private final long idleThresholdMs;
+    private final long disconnectThresholdMs;
+    private final ScheduledFuture<?> task;
+
+    private final Counter idleCounter;
+    private final Counter reapedCounter;
+
+    public IdleSessionReaper(
+            ClientSessionService sessionService,
+            WebSocketSessionRegistry sessionRegistry,
+            @Qualifier("webSocketHeartbeatScheduler") TaskScheduler scheduler,
+            MeterRegistry meterRegistry,
+            @Value("${websocket.idle.idle-threshold-ms:30000}") long idleThresholdMs,
+            @Value("${websocket.idle.disconnect-threshold-ms:90000}") long disconnectThresholdMs,
+            @Value("${websocket.idle.check-interval-ms:10000}") long checkIntervalMs) {
+        this.sessionService = sessionService;
+        this.sessionRegistry = sessionRegistry;
+        this.idleThresholdMs = idleThresholdMs;
+        this.disconnectThresholdMs = Math.max(idleThresholdMs, disconnectThresholdMs);
+
+        Gauge.builder("websocket.sessions", sessionService, ClientSessionService::getActiveSessionCount)
+                .tag("state", "active")
+                .register(meterRegistry);
+        Gauge.builder("websocket.sessions", sessionService, ClientSessionService::getIdleSessionCount)
+                .tag("state", "idle")
+                .register(meterRegistry);
+        Gauge.builder("websocket.sessions", sessionService, ClientSessionService::getDisconnectedSessionCount)
+                .tag("state", "disconnected")
+                .register(meterRegistry);
+        Gauge.builder("websocket.sessions.open", sessionRegistry, WebSocketSessionRegistry::getOpenSessionCount)
+                .description("Открытые WebSocket соединения")
+                .register(meterRegistry);
+        this.idleCounter = Counter.builder("websocket.sessions.reaped").tag("action", "idle").register(meterRegistry);
+        this.reapedCounter = Counter.builder("websocket.sessions.reaped").tag("action", "disconnect").register(meterRegistry);
+
+        this.task = scheduler.scheduleWithFixedDelay(this::reap, Duration.ofMillis(Math.max(1000, checkIntervalMs)));
+        log.info("Проверка неактивных сессий: неактивна через {} мс, отключение через {} мс",
+                this.idleThresholdMs, this.disconnectThresholdMs);
+    }
+
+    /**
+     * Помечает неактивные сессии и отключает зависшие.
+     */
+    void reap() {
+        try {
+            long now = System.currentTimeMillis();
+            List<ClientSessionService.ReapedSession> reaped = sessionService.disconnectIdleSessions(now - disconnectThresholdMs);
+            for (ClientSessionService.ReapedSession session : reaped) {
+                if (session.sessionId() != null) {
+                    sessionRegistry.closeSession(session.sessionId(), CloseStatus.SESSION_NOT_RELIABLE);
+                }
+            }
+            reapedCounter.increment(reaped.size());
+
+            int idle = sessionService.markIdleSessions(now - idleThresholdMs);
+            idleCounter.increment(idle);
+
+            if (!reaped.isEmpty() || idle > 0) {
+                log.info("Проверка сессий: {} отключено, {} помечено неактивными", reaped.size(), idle);
+            }
+        } catch (Exception e) {
+            log.error("Ошибка при проверке неактивных сессий: {}", e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        task.cancel(false);
+    }
+}
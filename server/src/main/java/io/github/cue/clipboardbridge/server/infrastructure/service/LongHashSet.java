@@ -0,0 +1,110 @@
+package io.github.cue.clipboardbridge.server.infrastructure.service;
+
+/**
+ * Множество примитивных long с открытой адресацией и линейным пробированием.
+ * Не упаковывает значения в {@link Long}, поэтому занимает 8-16 байт на элемент.
+ * Не потокобезопасно.
+ */
+final class LongHashSet {
+
+    private static final long EMPTY = 0L;
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] table;
+    private int size;
+    private boolean containsEmpty;
+
+    LongHashSet(int expectedSize) {
+        this.table = new long[tableSizeFor(expectedSize)];
+    }
+
+    /**
+     * @param value значение
+     * @return true если значения не было в множестве
+     */
+    boolean add(long value) {
+        if (value == EMPTY) {
+            if (containsEmpty) {
+                return false;
+            }
+            containsEmpty = true;
+            size++;
+            return true;
+        }
+        int mask = table.length - 1;
+        int index = hash(value) & mask;
+        while (table[index] != EMPTY) {
+            if (table[index] == value) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        table[index] = value;
+        size++;
+        if (size * 2 > table.length) {
+            resize(table.length * 2);
+        }
+        return true;
+    }
+
+    boolean contains(long value) {
+        if (value == EMPTY) {
+            return containsEmpty;
+        }
+        int mask = table.length - 1;
+        int index = hash(value) & mask;
+        while (table[index] != EMPTY) {
+            if (table[index] == value) {
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long[] toArray() {
+        long[] result = new long[size];
+        int position = 0;
+        if (containsEmpty) {
+            result[position++] = EMPTY;
+        }
+        for (long value : table) {
+            if (value != EMPTY) {
+                result[position++] = value;
+            }
+        }
+        return result;
+    }
+
+    private void resize(int capacity) {
+        long[] old = table;
+        table = new long[capacity];
+        int mask = capacity - 1;
+        for (long value : old) {
+            if (value != EMPTY) {
+                int index = hash(value) & mask;
+                while (table[index] != EMPTY) {
+                    index = (index + 1) & mask;
+                }
+                table[index] = value;
+            }
+        }
+    }
+
+    private static int hash(long value) {
+        long h = value * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
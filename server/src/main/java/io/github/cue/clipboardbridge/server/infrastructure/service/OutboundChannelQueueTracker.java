@@ -0,0 +1,105 @@
+package io.github.cue.clipboardbridge.server.infrastructure.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Учитывает объём исходящих сообщений, стоящих в очереди исполнителя канала
+ * клиента. Подключается к исходящему каналу: объём увеличивается при постановке
+ * сообщения в канал и уменьшается, когда обработчик канала передал кадр сессии.
+ * <p>
+ * Это косвенный признак медленного получателя: рост очереди канала показывает,
+ * что потоки канала не успевают, но не показывает данные, уже переданные в
+ * буфер отправки сессии WebSocket. Клиент, переставший читать сокет при
+ * свободном пуле канала, здесь не виден - его обнаруживает {@link SessionSendMonitor}.
+ */
+@Service
+public class OutboundChannelQueueTracker implements ExecutorChannelInterceptor {
+
+    private final Map<String, Long> bufferedBytes = new ConcurrentHashMap<>();
+
+    public OutboundChannelQueueTracker(MeterRegistry meterRegistry) {
+        Gauge.builder("websocket.outbound.channel.queued.bytes", this, OutboundChannelQueueTracker::getTotalBufferedBytes)
+                .description("Исходящие данные в очереди канала клиента")
+                .register(meterRegistry);
+        Gauge.builder("websocket.outbound.channel.queued.max", this, OutboundChannelQueueTracker::getMaxBufferedBytes)
+                .description("Наибольший объём исходящих данных одной сессии в очереди канала")
+                .register(meterRegistry);
+        Gauge.builder("websocket.outbound.channel.queued.sessions", bufferedBytes, Map::size)
+                .description("Сессии с исходящими данными в очереди канала")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        adjust(message, 1);
+        return message;
+    }
+
+    @Override
+    public void afterSendCompletion(Message<?> message, MessageChannel channel, boolean sent, Exception ex) {
+        if (!sent || ex != null) {
+            adjust(message, -1);
+        }
+    }
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+        adjust(message, -1);
+    }
+
+    /**
+     * @param sessionId ID WebSocket сессии
+     * @return объём исходящих данных сессии в очереди канала в байтах
+     */
+    public long getBufferedBytes(String sessionId) {
+        if (sessionId == null) {
+            return 0L;
+        }
+        return bufferedBytes.getOrDefault(sessionId, 0L);
+    }
+
+    /**
+     * @return суммарный объём исходящих данных в очереди канала в байтах
+     */
+    public long getTotalBufferedBytes() {
+        long total = 0;
+        for (Long bytes : bufferedBytes.values()) {
+            total += bytes;
+        }
+        return total;
+    }
+
+    /**
+     * @return наибольший объём данных одной сессии в очереди канала в байтах
+     */
+    public long getMaxBufferedBytes() {
+        long max = 0;
+        for (Long bytes : bufferedBytes.values()) {
+            max = Math.max(max, bytes);
+        }
+        return max;
+    }
+
+    private void adjust(Message<?> message, int sign) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        if (sessionId == null || !(message.getPayload() instanceof byte[] payload) || payload.length == 0) {
+            return;
+        }
+        long delta = sign * (long) payload.length;
+        bufferedBytes.compute(sessionId, (key, current) -> {
+            long updated = (current != null ? current : 0L) + delta;
+            return updated > 0 ? updated : null;
+        });
+    }
+}
@@ -0,0 +1,13 @@
+package io.github.cue.clipboardbridge.server.infrastructure.service;
+
+/**
+ * Результат доставки ответа клиенту.
+ */
+public enum ReplyDeliveryStatus {
+    /** Ответ отправлен в активную сессию клиента. */
+    SENT,
+    /** Клиент не в сети, ответ сохранён в почтовом ящике до переподключения. */
+    QUEUED,
+    /** Ответ не доставлен и не сохранён. */
+    FAILED
+}
@@ -0,0 +1,123 @@
+package io.github.cue.clipboardbridge.server.infrastructure.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Выдаёт и проверяет токены возобновления клиентских сессий.
+ * Токен - HMAC-SHA256 от ID клиента на секрете сервера, поэтому его может выдать
+ * только сервер, а проверка не требует хранить токены и переживает перезапуск.
+ * Секрет задаётся свойством {@code session.resume.secret} или генерируется при первом
+ * запуске и сохраняется в каталоге состояния бота {@code telegram.state.dir}.
+ */
+@Service
+@Slf4j
+public class ResumeTokenService {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final String SECRET_FILE = "resume-secret";
+    private static final int SECRET_BYTES = 32;
+
+    private final SecretKeySpec key;
+
+    public ResumeTokenService(
+            @Value("${session.resume.secret:}") String secret,
+            @Value("${telegram.state.dir:data}") String stateDirectory) {
+        byte[] keyBytes = secret.isBlank()
+                ? loadOrCreateSecret(Paths.get(stateDirectory).resolve(SECRET_FILE))
+                : secret.getBytes(StandardCharsets.UTF_8);
+        this.key = new SecretKeySpec(keyBytes, ALGORITHM);
+    }
+
+    /**
+     * Выдаёт токен возобновления для ID клиента.
+     *
+     * @param clientId ID клиента
+     * @return токен в base64url без дополнения
+     */
+    public String issue(String clientId) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(sign(clientId));
+    }
+
+    /**
+     * Проверяет, что токен выдан сервером для этого ID клиента.
+     *
+     * @param clientId ID клиента
+     * @param resumeToken предъявленный токен
+     * @return true если токен действителен
+     */
+    public boolean verify(String clientId, String resumeToken) {
+        byte[] presented;
+        try {
+            presented = Base64.getUrlDecoder().decode(resumeToken);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        return MessageDigest.isEqual(sign(clientId), presented);
+    }
+
+    private byte[] sign(String clientId) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(clientId.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC недоступен", e);
+        }
+    }
+
+    /**
+     * Читает секрет из файла или создаёт новый. Если файл недоступен, секрет
+     * действует до перезапуска, и клиенты после него получат новые ID.
+     */
+    private static byte[] loadOrCreateSecret(Path file) {
+        try {
+            if (Files.exists(file)) {
+                byte[] secret = Base64.getDecoder().decode(Files.readString(file, StandardCharsets.US_ASCII).trim());
+                if (secret.length >= SECRET_BYTES) {
+                    return secret;
+                }
+                log.warn("Секрет токенов возобновления в {} слишком короткий, создаётся новый", file);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn("Не удалось прочитать секрет токенов возобновления {}: {}", file, e.getMessage());
+        }
+
+        byte[] secret = new byte[SECRET_BYTES];
+        new SecureRandom().nextBytes(secret);
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            Path temporary = file.resolveSibling(SECRET_FILE + ".tmp");
+            Files.writeString(temporary, Base64.getEncoder().encodeToString(secret), StandardCharsets.US_ASCII);
+            try {
+                Files.setPosixFilePermissions(temporary, PosixFilePermissions.fromString("rw-------"));
+            } catch (UnsupportedOperationException e) {
+                log.debug("Файловая система не поддерживает права POSIX: {}", temporary);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            log.info("Создан секрет токенов возобновления: {}", file);
+        } catch (IOException e) {
+            log.error("Не удалось сохранить секрет токенов возобновления в {}: {}. "
+                    + "После перезапуска клиенты получат новые ID", file, e.getMessage());
+        }
+        return secret;
+    }
+}
@@ -0,0 +1,175 @@
+package io.github.cue.clipboardbridge.server.infrastructure.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.http.MediaType;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Service;
+import org.springframework.util.InvalidMimeTypeException;
+import org.springframework.util.MimeType;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+import org.springframework.web.socket.sockjs.transport.SockJsSession;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Формат полезной нагрузки, согласованный с каждой STOMP сессией.
+ * <p>
+ * Клиент объявляет поддерживаемый формат заголовком {@value #ACCEPT_CONTENT_TYPE_HEADER}
+ * кадра CONNECT. CBOR выбирается только для сессий без SockJS: SockJS передаёт
+ * лишь текстовые кадры, а кадры STOMP с CBOR телом отправляются в сессию как
+ * бинарные WebSocket сообщения. Остальные сессии получают JSON.
+ */
+@Service
+@Slf4j
+public class SessionCodecRegistry implements WebSocketHandlerDecoratorFactory, ChannelInterceptor {
+
+    /**
+     * Заголовок CONNECT со списком форматов, которые клиент умеет разбирать.
+     */
+    public static final String ACCEPT_CONTENT_TYPE_HEADER = "accept-content-type";
+
+    private static final byte[] CBOR_CONTENT_TYPE_HEADER =
+            ("\ncontent-type:" + MediaType.APPLICATION_CBOR_VALUE).getBytes(StandardCharsets.US_ASCII);
+
+    private final Set<String> binarySessions = ConcurrentHashMap.newKeySet();
+    private final Map<String, MimeType> sessionCodecs = new ConcurrentHashMap<>();
+
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                if (WebSocketSessionDecorator.unwrap(session) instanceof SockJsSession) {
+                    super.afterConnectionEstablished(session);
+                    return;
+                }
+                binarySessions.add(session.getId());
+                super.afterConnectionEstablished(new BinaryFrameSession(session));
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                binarySessions.remove(session.getId());
+                sessionCodecs.remove(session.getId());
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    /**
+     * Запоминает формат, объявленный клиентом в кадре CONNECT.
+     * Сессия с некорректным значением заголовка получает JSON.
+     */
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(message);
+        if (accessor.getCommand() != StompCommand.CONNECT || accessor.getSessionId() == null) {
+            return message;
+        }
+        String accepted = accessor.getFirstNativeHeader(ACCEPT_CONTENT_TYPE_HEADER);
+        if (accepted == null) {
+            return message;
+        }
+        String sessionId = accessor.getSessionId();
+        boolean cbor;
+        try {
+            cbor = MimeType.valueOf(accepted).isCompatibleWith(MediaType.APPLICATION_CBOR);
+        } catch (InvalidMimeTypeException e) {
+            log.debug("Сессия {} объявила некорректный формат '{}', используется JSON", sessionId, accepted);
+            return message;
+        }
+        if (cbor && binarySessions.contains(sessionId)) {
+            sessionCodecs.put(sessionId, MediaType.APPLICATION_CBOR);
+            log.debug("Сессия {} получает сообщения в формате CBOR", sessionId);
+        } else if (cbor) {
+            log.debug("Сессия {} подключена через SockJS, вместо CBOR используется JSON", sessionId);
+        }
+        return message;
+    }
+
+    /**
+     * Возвращает заголовки для отправки сообщения в сессию в согласованном формате.
+     *
+     * @param sessionId ID сессии или null
+     * @return заголовки сообщения или null, если сессия получает JSON
+     */
+    public Map<String, Object> headersFor(String sessionId) {
+        MimeType codec = sessionId != null ? sessionCodecs.get(sessionId) : null;
+        return codec != null ? Map.of(MessageHeaders.CONTENT_TYPE, codec) : null;
+    }
+
+    /**
+     * Проверяет, что кадр STOMP содержит тело в формате CBOR.
+     * Просматриваются только заголовки кадра до пустой строки; тип должен совпадать
+     * целиком, допускаются только параметры после {@code ;}.
+     * Правило совпадает с правилом клиента ({@code BinaryFrameWebSocketClient}) и описано в server/README.md.
+     */
+    static boolean isCborFrame(byte[] frame) {
+        int limit = frame.length - CBOR_CONTENT_TYPE_HEADER.length;
+        for (int i = 0; i <= limit; i++) {
+            if (frame[i] != '\n') {
+                continue;
+            }
+            if (frame[i + 1] == '\n') {
+                return false;
+            }
+            int j = 1;
+            while (j < CBOR_CONTENT_TYPE_HEADER.length && frame[i + j] == CBOR_CONTENT_TYPE_HEADER[j]) {
+                j++;
+            }
+            if (j == CBOR_CONTENT_TYPE_HEADER.length && isHeaderValueEnd(frame, i + j)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true, если значение заголовка кончается на позиции {@code index}
+     */
+    private static boolean isHeaderValueEnd(byte[] frame, int index) {
+        return index == frame.length || frame[index] == '\n' || frame[index] == '\r' || frame[index] == ';';
+    }
+
+    /**
+     * Сессия, отправляющая кадры STOMP с CBOR телом бинарными сообщениями.
+     * STOMP кодирует кадры в текстовые сообщения, которые при передаче
+     * перекодировали бы тело как UTF-8 и повредили бы его.
+     */
+    private static final class BinaryFrameSession extends WebSocketSessionDecorator {
+
+        BinaryFrameSession(WebSocketSession delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) throws IOException {
+            if (message instanceof TextMessage text) {
+                byte[] frame = text.asBytes();
+                if (isCborFrame(frame)) {
+                    super.sendMessage(new BinaryMessage(frame));
+                    return;
+                }
+            }
+            super.sendMessage(message);
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package io.github.cue.clipboardbridge.server.infrastructure.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Единый механизм истечения записей для всех карт сервера, хранящих данные по клиентам.
+ * Построен на иерархическом колесе таймеров: постановка, перенос и отмена срока
+ * выполняются за O(1), а каждый тик обрабатывает только наступившую ячейку колеса
+ * вместо полного обхода карт.
+ * Владелец карты регистрирует область со своим временем жизни и обработчиком
+ * истечения, который удаляет запись из карты.
+ */
+@Service
+@Slf4j
+public class SessionExpiryService {
+
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_SPAN_TICKS = 1L << (WHEEL_BITS * LEVELS);
+
+    /**
+     * Область истечения одной карты.
+     *
+     * @param <K> тип ключа карты
+     */
+    public final class ExpiryRegion<K> {
+        private final String name;
+        private final long ttlTicks;
+        private final Consumer<K> evictor;
+        private final Map<K, Timeout<K>> timeouts = new HashMap<>();
+        private final Counter expiredCounter;
+
+        private ExpiryRegion(String name, long ttlMillis, Consumer<K> evictor, Counter expiredCounter) {
+            this.name = name;
+            this.ttlTicks = Math.max(1, (ttlMillis + tickMillis - 1) / tickMillis);
+            this.evictor = evictor;
+            this.expiredCounter = expiredCounter;
+        }
+
+        /**
+         * Назначает (или переносит) истечение ключа через время жизни области.
+         *
+         * @param key ключ карты
+         */
+        public void touch(K key) {
+            synchronized (lock) {
+                Timeout<K> timeout = timeouts.get(key);
+                if (timeout == null) {
+                    timeout = new Timeout<>(this, key);
+                    timeouts.put(key, timeout);
+                    scheduledCount++;
+                } else {
+                    timeout.unlink();
+                }
+                // Текущий тик уже частично прошёл, поэтому срок отсчитывается от следующего
+                timeout.deadlineTick = currentTick + 1 + ttlTicks;
+                schedule(timeout);
+            }
+        }
+
+        /**
+         * Отменяет истечение ключа, например когда запись снова стала активной или удалена.
+         *
+         * @param key ключ карты
+         */
+        public void cancel(K key) {
+            synchronized (lock) {
+                Timeout<K> timeout = timeouts.remove(key);
+                if (timeout != null) {
+                    timeout.unlink();
+                    scheduledCount--;
+                }
+            }
+        }
+
+        /**
+         * @param key ключ карты
+         * @return true если для ключа назначено истечение
+         */
+        public boolean isScheduled(K key) {
+            synchronized (lock) {
+                return timeouts.containsKey(key);
+            }
+        }
+
+        private void expire(K key) {
+            try {
+                evictor.accept(key);
+                expiredCounter.increment();
+            } catch (Exception e) {
+                log.error("Ошибка при удалении истёкшей записи {} из {}: {}", key, name, e.getMessage(), e);
+            }
+        }
+    }
+
+    private static final class Timeout<K> {
+        private final ExpiryRegion<K> region;
+        private final K key;
+        private long deadlineTick;
+        private Timeout<?> prev;
+        private Timeout<?> next;
+
+        private Timeout(ExpiryRegion<K> region, K key) {
+            this.region = region;
+            this.key = key;
+        }
+
+        private void unlink() {
+            if (prev != null) {
+                prev.next = next;
+                next.prev = prev;
+                prev = null;
+                next = null;
+            }
+        }
+
+        private void linkBefore(Timeout<?> sentinel) {
+            prev = sentinel.prev;
+            next = sentinel;
+            sentinel.prev.next = this;
+            sentinel.prev = this;
+        }
+
+        private void expire() {
+            region.expire(key);
+        }
+    }
+
+    private final long tickMillis;
+    private final LongSupplier clock;
+    private final long startedAt;
+    private final Object lock = new Object();
+    private final Timeout<?>[][] wheel = new Timeout<?>[LEVELS][WHEEL_SIZE];
+    private long currentTick;
+    private int scheduledCount;
+
+    private final MeterRegistry meterRegistry;
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "session-expiry");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public SessionExpiryService(
+            @Value("${session.expiry.tick-ms:1000}") long tickMillis,
+            MeterRegistry meterRegistry) {
+        this(tickMillis, meterRegistry, System::currentTimeMillis);
+        ticker.scheduleAtFixedRate(this::advance, this.tickMillis, this.tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Колесо без собственного тика: время берётся из {@code clock}, а колесо
+     * продвигается вызовами {@link #advance()}.
+     */
+    SessionExpiryService(long tickMillis, MeterRegistry meterRegistry, LongSupplier clock) {
+        this.tickMillis = Math.max(1, tickMillis);
+        this.clock = clock;
+        this.startedAt = clock.getAsLong();
+        this.meterRegistry = meterRegistry;
+        for (Timeout<?>[] level : wheel) {
+            for (int slot = 0; slot < WHEEL_SIZE; slot++) {
+                Timeout<?> sentinel = new Timeout<>(null, null);
+                sentinel.prev = sentinel;
+                sentinel.next = sentinel;
+                level[slot] = sentinel;
+            }
+        }
+        Gauge.builder("session.expiry.scheduled", this, SessionExpiryService::getScheduledCount)
+                .description("Записи с назначенным сроком истечения")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Регистрирует карту, записи которой истекают через заданное время.
+     *
+     * @param name имя карты для метрик и журнала
+     * @param ttlMillis время жизни записи в миллисекундах
+     * @param evictor удаляет истёкший ключ из карты
+     * @param sizeSupplier текущий размер карты
+     * @param <K> тип ключа карты
+     * @return область истечения карты
+     */
+    public <K> ExpiryRegion<K> register(String name, long ttlMillis, Consumer<K> evictor, IntSupplier sizeSupplier) {
+        monitor(name, sizeSupplier);
+        Counter expiredCounter = Counter.builder("session.expiry.expired")
+                .tag("map", name)
+                .register(meterRegistry);
+        log.info("Зарегистрирована карта {} со временем жизни записей {} мс", name, ttlMillis);
+        return new ExpiryRegion<>(name, ttlMillis, evictor, expiredCounter);
+    }
+
+    /**
+     * Публикует размер карты, ограниченной иначе (например, по ёмкости).
+     *
+     * @param name имя карты
+     * @param sizeSupplier текущий размер карты
+     */
+    public void monitor(String name, IntSupplier sizeSupplier) {
+        Gauge.builder("session.maps.size", sizeSupplier, IntSupplier::getAsInt)
+                .tag("map", name)
+                .description("Размер карты с данными клиентов")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return количество записей с назначенным сроком истечения
+     */
+    public int getScheduledCount() {
+        synchronized (lock) {
+            return scheduledCount;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ticker.shutdownNow();
+    }
+
+    /**
+     * Продвигает колесо до текущего времени и удаляет истёкшие записи.
+     */
+    void advance() {
+        List<Timeout<?>> expired = new ArrayList<>();
+        synchronized (lock) {
+            long targetTick = (clock.getAsLong() - startedAt) / tickMillis;
+            while (currentTick < targetTick) {
+                currentTick++;
+                cascade();
+                collectExpired(wheel[0][(int) (currentTick & WHEEL_MASK)], expired);
+            }
+        }
+        for (Timeout<?> timeout : expired) {
+            timeout.expire();
+        }
+    }
+
+    /**
+     * Переносит записи верхних уровней на нижние, когда нижний уровень завершает оборот.
+     */
+    private void cascade() {
+        for (int level = 1; level < LEVELS; level++) {
+            if (((currentTick >>> (WHEEL_BITS * (level - 1))) & WHEEL_MASK) != 0) {
+                return;
+            }
+            Timeout<?> sentinel = wheel[level][(int) ((currentTick >>> (WHEEL_BITS * level)) & WHEEL_MASK)];
+            while (sentinel.next != sentinel) {
+                Timeout<?> timeout = sentinel.next;
+                timeout.unlink();
+                schedule(timeout);
+            }
+        }
+    }
+
+    private void collectExpired(Timeout<?> sentinel, List<Timeout<?>> expired) {
+        while (sentinel.next != sentinel) {
+            Timeout<?> timeout = sentinel.next;
+            timeout.unlink();
+            if (timeout.deadlineTick > currentTick) {
+                schedule(timeout);
+                continue;
+            }
+            timeout.region.timeouts.remove(timeout.key);
+            scheduledCount--;
+            expired.add(timeout);
+        }
+    }
+
+    private void schedule(Timeout<?> timeout) {
+        long deadline = Math.max(timeout.deadlineTick, currentTick);
+        long delta = deadline - currentTick;
+        if (delta >= MAX_SPAN_TICKS) {
+            deadline = currentTick + MAX_SPAN_TICKS - 1;
+            delta = MAX_SPAN_TICKS - 1;
+        }
+        if (delta == 0) {
+            deadline = currentTick + 1;
+            delta = 1;
+        }
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (WHEEL_BITS * (level + 1))) {
+            level++;
+        }
+        int slot = (int) ((deadline >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+        timeout.linkBefore(wheel[level][slot]);
+    }
+}
@@ -0,0 +1,128 @@
+package io.github.cue.clipboardbridge.server.infrastructure.service;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Следит за записью кадров в сокет каждой WebSocket сессии.
+ * <p>
+ * Сессия оборачивается до того, как транспорт STOMP добавит к ней свой буфер
+ * отправки, поэтому обёртка видит запись кадра в сокет, а не постановку кадра
+ * в буфер. Пока клиент не читает сокет, запись не завершается, а следующие
+ * кадры копятся в буфере отправки сессии. Запись, длящаяся дольше порога,
+ * означает медленного получателя, даже если потоки исходящего канала свободны.
+ */
+@Service
+public class SessionSendMonitor implements WebSocketHandlerDecoratorFactory {
+
+    private final Map<String, SendState> sessions = new ConcurrentHashMap<>();
+    private final long maxSendStallNanos;
+
+    public SessionSendMonitor(MeterRegistry meterRegistry,
+                              @Value("${websocket.slow-consumer.max-send-stall-ms:5000}") long maxSendStallMs) {
+        this.maxSendStallNanos = TimeUnit.MILLISECONDS.toNanos(maxSendStallMs);
+        Gauge.builder("websocket.outbound.stalled.sessions", this, SessionSendMonitor::getStalledSessionCount)
+                .description("Сессии, запись в сокет которых не завершается дольше порога")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                SendState state = new SendState();
+                sessions.put(session.getId(), state);
+                super.afterConnectionEstablished(new MonitoredSession(session, state));
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                sessions.remove(session.getId());
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    /**
+     * @param sessionId ID WebSocket сессии
+     * @return сколько миллисекунд длится текущая запись в сокет, 0 если записи нет
+     */
+    public long getSendStallMillis(String sessionId) {
+        SendState state = sessionId != null ? sessions.get(sessionId) : null;
+        return state != null ? TimeUnit.NANOSECONDS.toMillis(state.stallNanos(System.nanoTime())) : 0L;
+    }
+
+    /**
+     * @param sessionId ID WebSocket сессии
+     * @return true если запись в сокет сессии длится дольше порога
+     */
+    public boolean isStalled(String sessionId) {
+        SendState state = sessionId != null ? sessions.get(sessionId) : null;
+        return state != null && state.stallNanos(System.nanoTime()) > maxSendStallNanos;
+    }
+
+    /**
+     * @return число сессий, запись в сокет которых длится дольше порога
+     */
+    public int getStalledSessionCount() {
+        long now = System.nanoTime();
+        int stalled = 0;
+        for (SendState state : sessions.values()) {
+            if (state.stallNanos(now) > maxSendStallNanos) {
+                stalled++;
+            }
+        }
+        return stalled;
+    }
+
+    /**
+     * Время начала текущей записи. Записи в одну сессию выполняются по очереди
+     * буфером отправки транспорта, поэтому писатель у состояния один.
+     */
+    private static final class SendState {
+
+        private volatile long sendStartedAt;
+        private volatile boolean sending;
+
+        long stallNanos(long now) {
+            return sending ? Math.max(0L, now - sendStartedAt) : 0L;
+        }
+    }
+
+    private static final class MonitoredSession extends WebSocketSessionDecorator {
+
+        private final SendState state;
+
+        MonitoredSession(WebSocketSession delegate, SendState state) {
+            super(delegate);
+            this.state = state;
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) throws IOException {
+            state.sendStartedAt = System.nanoTime();
+            state.sending = true;
+            try {
+                super.sendMessage(message);
+            } finally {
+                state.sending = false;
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package io.github.cue.clipboardbridge.server.infrastructure.service;
+
+/**
+ * Действие при обнаружении клиента, не успевающего принимать исходящие сообщения.
+ */
+public enum SlowConsumerPolicy {
+    /**
+     * Новые сообщения не отправляются в сессию, ответы сохраняются в почтовом ящике.
+     */
+    DROP,
+    /**
+     * Сессия закрывается, ответы сохраняются в почтовом ящике до переподключения.
+     */
+    CLOSE
+}
@@ -0,0 +1,104 @@
+package io.github.cue.clipboardbridge.server.infrastructure.service;
+
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import io.github.cue.clipboardbridge.server.infrastructure.port.TelegramBotApi;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Подключает бота к Telegram в фоне после запуска сервера, чтобы сетевые запросы
+ * к Telegram не задерживали старт и приём WebSocket соединений. При ошибке
+ * подключение повторяется с экспоненциальной задержкой.
+ * Состояние публикуется как индикатор здоровья {@code telegramRegistration}
+ * (имя индикатора берётся из имени бина):
+ * UNKNOWN - подключение ещё не выполнено, UP - бот подключён, DOWN - последняя попытка неудачна.
+ */
+@Service("telegramRegistration")
+@Slf4j
+public class TelegramRegistrationService implements HealthIndicator {
+
+    private enum RegistrationState {
+        PENDING,
+        REGISTERED,
+        FAILED
+    }
+
+    private final TelegramBotApi telegramBotApi;
+    private final long initialBackoffMs;
+    private final long maxBackoffMs;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "telegram-registration");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile RegistrationState state = RegistrationState.PENDING;
+    private volatile int attempts;
+    private volatile String lastError;
+    private volatile Instant registeredAt;
+
+    public TelegramRegistrationService(
+            TelegramBotApi telegramBotApi,
+            @Value("${telegram.registration.initial-backoff-ms:1000}") long initialBackoffMs,
+            @Value("${telegram.registration.max-backoff-ms:60000}") long maxBackoffMs) {
+        this.telegramBotApi = telegramBotApi;
+        this.initialBackoffMs = Math.max(1, initialBackoffMs);
+        this.maxBackoffMs = Math.max(this.initialBackoffMs, maxBackoffMs);
+    }
+
+    /**
+     * Запускает подключение, когда сервер уже принимает соединения.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startRegistration() {
+        executor.execute(this::attempt);
+    }
+
+    @Override
+    public Health health() {
+        Health.Builder builder = switch (state) {
+            case PENDING -> Health.unknown();
+            case REGISTERED -> Health.up().withDetail("registeredAt", registeredAt.toString());
+            case FAILED -> Health.down().withDetail("error", String.valueOf(lastError));
+        };
+        return builder
+                .withDetail("bot", telegramBotApi.getBotUsername())
+                .withDetail("attempts", attempts)
+                .build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void attempt() {
+        attempts++;
+        try {
+            telegramBotApi.register();
+            registeredAt = Instant.now();
+            state = RegistrationState.REGISTERED;
+            log.info("Бот @{} подключён к Telegram (попытка {})", telegramBotApi.getBotUsername(), attempts);
+        } catch (Exception e) {
+            lastError = e.getMessage();
+            state = RegistrationState.FAILED;
+            long delayMs = Math.min(maxBackoffMs, initialBackoffMs << Math.min(attempts - 1, 16));
+            log.error("Не удалось подключить бота @{} к Telegram (попытка {}), повтор через {} мс: {}",
+                    telegramBotApi.getBotUsername(), attempts, delayMs, e.getMessage());
+            if (!executor.isShutdown()) {
+                executor.schedule(this::attempt, delayMs, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+}
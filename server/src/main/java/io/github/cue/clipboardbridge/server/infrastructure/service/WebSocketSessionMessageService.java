@@ -1,27 +1,72 @@
 package io.github.cue.clipboardbridge.server.infrastructure.service;
 
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
 import io.github.cue.clipboardbridge.server.domain.model.ReplyMessage;
+import io.github.cue.clipboardbridge.server.infrastructure.service.ClientMailboxService.StoredReply;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.user.SimpUser;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
 import org.springframework.stereotype.Service;
+import org.springframework.web.socket.CloseStatus;
 
 /**
  * Сервис для обработки сообщений WebSocket.
- * Обрабатывает отправку сообщений с проверкой активности сессии.
+ * Обрабатывает отправку сообщений с проверкой активности сессии и защитой
+ * от медленных получателей: если у сессии накопилось слишком много данных
+ * в очереди исходящего канала или запись в её сокет не завершается дольше
+ * порога, новые сообщения в неё не отправляются, а сессия при необходимости
+ * закрывается.
  */
 @Service
 @Slf4j
 public class WebSocketSessionMessageService {
 
     private final SimpMessagingTemplate messagingTemplate;
+    private final SimpUserRegistry userRegistry;
     private final ClientSessionService sessionService;
+    private final ClientMailboxService mailboxService;
+    private final OutboundChannelQueueTracker outboundQueue;
+    private final SessionSendMonitor sendMonitor;
+    private final WebSocketSessionRegistry sessionRegistry;
+    private final SessionCodecRegistry sessionCodecs;
+    private final long maxBufferedBytes;
+    private final SlowConsumerPolicy slowConsumerPolicy;
+    private final Counter slowConsumerCounter;
 
     @Autowired
     public WebSocketSessionMessageService(SimpMessagingTemplate messagingTemplate, 
-                                         ClientSessionService sessionService) {
+                                         SimpUserRegistry userRegistry,
+                                         ClientSessionService sessionService,
+                                         ClientMailboxService mailboxService,
+                                         OutboundChannelQueueTracker outboundQueue,
+                                         SessionSendMonitor sendMonitor,
+                                         WebSocketSessionRegistry sessionRegistry,
+                                         SessionCodecRegistry sessionCodecs,
+                                         MeterRegistry meterRegistry,
+                                         @Value("${websocket.slow-consumer.max-buffered-bytes:262144}") long maxBufferedBytes,
+                                         @Value("${websocket.slow-consumer.policy:drop}") String slowConsumerPolicy) {
         this.messagingTemplate = messagingTemplate;
+        this.userRegistry = userRegistry;
         this.sessionService = sessionService;
+        this.mailboxService = mailboxService;
+        this.outboundQueue = outboundQueue;
+        this.sendMonitor = sendMonitor;
+        this.sessionRegistry = sessionRegistry;
+        this.sessionCodecs = sessionCodecs;
+        this.maxBufferedBytes = maxBufferedBytes;
+        this.slowConsumerPolicy = SlowConsumerPolicy.valueOf(slowConsumerPolicy.trim().toUpperCase(Locale.ROOT));
+        this.slowConsumerCounter = Counter.builder("websocket.slow.consumers")
+                .tag("policy", this.slowConsumerPolicy.name().toLowerCase(Locale.ROOT))
+                .description("Сообщения, не отправленные медленным получателям")
+                .register(meterRegistry);
     }
 
     /**
@@ -48,10 +93,15 @@ public class WebSocketSessionMessageService {
                 }
             }
             
+            if (isSlowConsumer(clientId)) {
+                return false;
+            }
+            
             messagingTemplate.convertAndSendToUser(
                     clientId,
                     destination,
-                    payload
+                    payload,
+                    codecHeaders(clientId)
             );
             
             log.debug("Отправлено сообщение клиенту {} на {}: {}", clientId, destination, payload);
@@ -70,6 +120,47 @@ public class WebSocketSessionMessageService {
         }
     }
     
+    /**
+     * Проверяет, не превышен ли объём данных текущей сессии клиента в очереди
+     * исходящего канала и не зависла ли запись в её сокет, и применяет политику
+     * для медленных получателей.
+     * 
+     * @param clientId ID клиента
+     * @return true если сообщение не следует отправлять
+     */
+    private boolean isSlowConsumer(String clientId) {
+        String sessionId = sessionService.getCurrentSessionId(clientId);
+        long buffered = outboundQueue.getBufferedBytes(sessionId);
+        if (buffered <= maxBufferedBytes && !sendMonitor.isStalled(sessionId)) {
+            return false;
+        }
+        
+        long stalledMs = sendMonitor.getSendStallMillis(sessionId);
+        slowConsumerCounter.increment();
+        if (slowConsumerPolicy == SlowConsumerPolicy.CLOSE) {
+            log.warn("Клиент {} не успевает принимать сообщения ({} байт в очереди, запись длится {} мс), сессия {} закрывается",
+                    clientId, buffered, stalledMs, sessionId);
+            sessionService.disconnectSession(clientId, sessionId);
+            if (sessionId != null) {
+                sessionRegistry.closeSession(sessionId, CloseStatus.SESSION_NOT_RELIABLE);
+            }
+        } else {
+            log.warn("Клиент {} не успевает принимать сообщения ({} байт в очереди, запись длится {} мс), сообщение не отправлено",
+                    clientId, buffered, stalledMs);
+        }
+        return true;
+    }
+    
+    /**
+     * Возвращает заголовки формата, согласованного с текущей сессией клиента.
+     * 
+     * @param clientId ID клиента
+     * @return заголовки сообщения или null для JSON
+     */
+    private Map<String, Object> codecHeaders(String clientId) {
+        return sessionCodecs.headersFor(sessionService.getCurrentSessionId(clientId));
+    }
+    
     /**
      * Проверяет, является ли исключение ошибкой обрыва соединения.
      * 
@@ -112,6 +203,77 @@ public class WebSocketSessionMessageService {
         return sendToUser(clientId, "/queue/reply", reply);
     }
 
+    /**
+     * Доставляет ответ клиенту. Если клиент не в сети или отправка не удалась,
+     * ответ сохраняется в почтовом ящике и будет воспроизведён при переподключении.
+     * Отправка пользователю без живой STOMP сессии молча отбрасывается брокером,
+     * поэтому кроме состояния клиента проверяется, что его текущая сессия
+     * зарегистрирована в {@link SimpUserRegistry}.
+     * 
+     * @param clientId ID клиента
+     * @param reply ответ
+     * @return результат доставки
+     */
+    public ReplyDeliveryStatus deliverReply(String clientId, ReplyMessage reply) {
+        if (clientId == null || clientId.isEmpty() || "unknown".equals(clientId)) {
+            log.error("Невозможно доставить ответ: недопустимый ID клиента: {}", clientId);
+            return ReplyDeliveryStatus.FAILED;
+        }
+        
+        if (!sessionService.isSessionDisconnected(clientId) && hasLiveStompSession(clientId)
+                && !mailboxService.hasPending(clientId) && sendToUser(clientId, "/queue/reply", reply)) {
+            return ReplyDeliveryStatus.SENT;
+        }
+        
+        return mailboxService.store(clientId, "/queue/reply", reply)
+                ? ReplyDeliveryStatus.QUEUED
+                : ReplyDeliveryStatus.FAILED;
+    }
+    
+    /**
+     * Проверяет, что у клиента есть STOMP сессия, в которую брокер доставит сообщение.
+     * 
+     * @param clientId ID клиента
+     * @return true если текущая сессия клиента (или любая, если текущая неизвестна) зарегистрирована
+     */
+    private boolean hasLiveStompSession(String clientId) {
+        SimpUser user = userRegistry.getUser(clientId);
+        if (user == null) {
+            log.debug("У клиента {} нет STOMP сессий, ответ будет сохранён", clientId);
+            return false;
+        }
+        String sessionId = sessionService.getCurrentSessionId(clientId);
+        return sessionId != null ? user.getSession(sessionId) != null : user.hasSessions();
+    }
+    
+    /**
+     * Воспроизводит клиенту ответы из его почтового ящика в исходном порядке.
+     * Вызывается после того, как клиент подписался на очередь ответов.
+     * 
+     * @param clientId ID клиента
+     */
+    public void replayMailbox(String clientId) {
+        List<StoredReply> pending = mailboxService.drain(clientId);
+        if (pending.isEmpty()) {
+            return;
+        }
+        
+        for (int i = 0; i < pending.size(); i++) {
+            StoredReply stored = pending.get(i);
+            try {
+                messagingTemplate.convertAndSendToUser(clientId, stored.getDestination(), stored.getReply(),
+                        codecHeaders(clientId));
+            } catch (Exception e) {
+                log.error("Ошибка при воспроизведении ответов клиенту {}: {}", clientId, e.getMessage());
+                mailboxService.requeue(clientId, pending.subList(i, pending.size()));
+                mailboxService.recordReplayed(i);
+                return;
+            }
+        }
+        mailboxService.recordReplayed(pending.size());
+        log.info("Клиенту {} доставлено {} сохранённых ответов", clientId, pending.size());
+    }
+
     /**
      * Отправляет широковещательное сообщение всем подписчикам указанного адреса.
      * 
@@ -0,0 +1,70 @@
+package io.github.cue.clipboardbridge.server.infrastructure.service;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Реестр открытых WebSocket сессий по ID сессии.
+ * Подключается к транспорту как декоратор обработчика и позволяет
+ * принудительно закрыть сессию, например устаревшее соединение клиента.
+ */
+@Service
+@Slf4j
+public class WebSocketSessionRegistry implements WebSocketHandlerDecoratorFactory {
+
+    private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                sessions.put(session.getId(), session);
+                super.afterConnectionEstablished(session);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                sessions.remove(session.getId());
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    /**
+     * Закрывает сессию с указанным статусом.
+     *
+     * @param sessionId ID сессии
+     * @param status статус закрытия
+     * @return true если сессия была найдена
+     */
+    public boolean closeSession(String sessionId, CloseStatus status) {
+        WebSocketSession session = sessions.remove(sessionId);
+        if (session == null) {
+            return false;
+        }
+        try {
+            session.close(status);
+        } catch (IOException e) {
+            log.warn("Ошибка при закрытии WebSocket сессии {}: {}", sessionId, e.getMessage());
+        }
+        return true;
+    }
+
+    /**
+     * @return количество открытых сессий
+     */
+    public int getOpenSessionCount() {
+        return sessions.size();
+    }
+}
@@ -0,0 +1,114 @@
+package io.github.cue.clipboardbridge.server.domain.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.github.cue.clipboardbridge.server.domain.model.BroadcastResult;
+import io.github.cue.clipboardbridge.server.domain.model.CommandEnvelope;
+import io.github.cue.clipboardbridge.server.domain.model.CommandMessage;
+import io.github.cue.clipboardbridge.server.domain.model.CommandType;
+import io.github.cue.clipboardbridge.server.domain.model.ReplyMessage;
+import io.github.cue.clipboardbridge.server.domain.port.NotificationService;
+import io.github.cue.clipboardbridge.server.infrastructure.adapter.TelegramNotificationService;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Обработка команд клиента: выбор обработчика по типу из конверта, отказ для
+ * неизвестных команд, задержка доставки от клиента и неблокирующая рассылка.
+ */
+class CommandProcessorServiceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private TelegramNotificationService notificationService;
+    private CommandProcessorService processor;
+
+    @BeforeEach
+    void setUp() {
+        notificationService = mock(TelegramNotificationService.class);
+        processor = new CommandProcessorService(notificationService, meterRegistry);
+    }
+
+    @Test
+    void dispatchesDmToTargetUser() {
+        ReplyMessage reply = processor.process(envelope(CommandType.DM, "dm", "привет"));
+
+        assertThat(reply.getResponse()).isEqualTo("Сообщение поставлено в очередь на отправку пользователю Telegram");
+        verify(notificationService).notifyAboutClientMessage(42L, "client-1", "привет");
+        verify(notificationService, never()).broadcastAsync(anyString());
+    }
+
+    @Test
+    void rejectsUnknownCommandWithoutNotifying() {
+        ReplyMessage reply = processor.process(envelope(null, "paste", "текст"));
+
+        assertThat(reply.getResponse()).isEqualTo("Ошибка: неизвестная команда paste");
+        verifyNoInteractions(notificationService);
+    }
+
+    @Test
+    void rejectsCommandWithoutTargetUser() {
+        CommandEnvelope envelope = CommandEnvelope.builder()
+                .type(CommandType.DM)
+                .clientId("client-1")
+                .message(CommandMessage.builder().command("dm").content("привет").build())
+                .build();
+
+        assertThat(processor.process(envelope).getResponse())
+                .isEqualTo("Ошибка: Не указан ID целевого пользователя Telegram в команде.");
+        verifyNoInteractions(notificationService);
+    }
+
+    @Test
+    void recordsClientLatencyOnlyForPlausibleSendTime() {
+        CommandMessage command = CommandMessage.builder().command("dm").content("привет").targetUserId(42L).build();
+        long now = System.currentTimeMillis();
+
+        processor.process(CommandEnvelope.builder().type(CommandType.DM).clientId("client-1")
+                .sentAt(now - 250).receivedAt(now).message(command).build());
+        processor.process(CommandEnvelope.builder().type(CommandType.DM).clientId("client-1")
+                .receivedAt(now).message(command).build());
+        processor.process(CommandEnvelope.builder().type(CommandType.DM).clientId("client-1")
+                .sentAt(now + 5_000).receivedAt(now).message(command).build());
+
+        Timer latency = meterRegistry.get("command.client.latency").timer();
+        assertThat(latency.count()).isEqualTo(1);
+        assertThat(latency.totalTime(TimeUnit.MILLISECONDS)).isEqualTo(250);
+    }
+
+    @Test
+    void broadcastRepliesWhenFanOutCompletes() {
+        CompletableFuture<BroadcastResult> fanOut = new CompletableFuture<>();
+        when(notificationService.broadcastAsync("всем")).thenReturn(fanOut);
+
+        CompletableFuture<ReplyMessage> reply = processor.processAsync(envelope(CommandType.BROADCAST, "broadcast", "всем"));
+
+        assertThat(reply).isNotDone();
+        fanOut.complete(BroadcastResult.builder().totalCount(3).successCount(2).failedCount(1).build());
+        assertThat(reply).isCompletedWithValueMatching(
+                message -> message.getResponse().equals("Бродкаст сообщение отправлено 2 получателям"));
+    }
+
+    private static CommandEnvelope envelope(CommandType type, String command, String content) {
+        return CommandEnvelope.builder()
+                .type(type)
+                .clientId("client-1")
+                .message(CommandMessage.builder()
+                        .command(command)
+                        .content(content)
+                        .targetUserId(42L)
+                        .build())
+                .build();
+    }
+}
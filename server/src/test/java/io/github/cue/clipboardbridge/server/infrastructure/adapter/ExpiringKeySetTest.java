@@ -0,0 +1,125 @@
+package io.github.cue.clipboardbridge.server.infrastructure.adapter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Дедупликация событий отключения: ровно одно успешное добавление на ключ,
+ * в том числе при массовом отключении и одновременной смене поколений.
+ */
+class ExpiringKeySetTest {
+
+    private static final int SESSIONS = 50_000;
+    private static final int DUPLICATES = 4;
+
+    @Test
+    void keysLiveBetweenOneAndTwoTtls() {
+        AtomicLong now = new AtomicLong();
+        ExpiringKeySet keys = new ExpiringKeySet(100, now::get);
+
+        assertThat(keys.add("s1")).isTrue();
+        now.set(150);
+        assertThat(keys.add("s1")).isFalse();
+        assertThat(keys.contains("s1")).isTrue();
+        now.set(300);
+        assertThat(keys.contains("s1")).isFalse();
+        assertThat(keys.add("s1")).isTrue();
+    }
+
+    @Test
+    void removedKeyCanBeAddedAgain() {
+        ExpiringKeySet keys = new ExpiringKeySet(60_000);
+
+        assertThat(keys.add("s1")).isTrue();
+        keys.remove("s1");
+        assertThat(keys.contains("s1")).isFalse();
+        assertThat(keys.add("s1")).isTrue();
+    }
+
+    @Test
+    void massDisconnectPassesEachSessionOnce() throws Exception {
+        ExpiringKeySet keys = new ExpiringKeySet(60_000);
+        AtomicIntegerArray accepted = new AtomicIntegerArray(SESSIONS);
+
+        ExecutorService executor = Executors.newFixedThreadPool(DUPLICATES);
+        CyclicBarrier start = new CyclicBarrier(DUPLICATES);
+        Future<?>[] tasks = new Future<?>[DUPLICATES];
+        for (int t = 0; t < DUPLICATES; t++) {
+            tasks[t] = executor.submit(() -> {
+                start.await();
+                for (int s = 0; s < SESSIONS; s++) {
+                    if (keys.add("session-" + s)) {
+                        accepted.incrementAndGet(s);
+                    }
+                }
+                return null;
+            });
+        }
+        for (Future<?> task : tasks) {
+            task.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertAcceptedOnce(accepted, SESSIONS);
+        assertThat(keys.size()).isEqualTo(SESSIONS);
+    }
+
+    @Test
+    void concurrentRotationDoesNotLetDuplicatesThrough() throws Exception {
+        int rounds = 5_000;
+        int perRound = SESSIONS / rounds;
+        AtomicLong now = new AtomicLong();
+        ExpiringKeySet keys = new ExpiringKeySet(1_000, now::get);
+        AtomicIntegerArray accepted = new AtomicIntegerArray(SESSIONS);
+
+        // Участники раунда: потоки с дубликатами событий и поток, сдвигающий часы
+        // ровно на одно время жизни посреди раунда. Ключи раунда остаются в
+        // текущем или предыдущем поколении, поэтому каждый должен пройти один раз.
+        ExecutorService executor = Executors.newFixedThreadPool(DUPLICATES + 1);
+        CyclicBarrier roundStart = new CyclicBarrier(DUPLICATES + 1);
+        Future<?>[] tasks = new Future<?>[DUPLICATES + 1];
+        for (int t = 0; t < DUPLICATES; t++) {
+            tasks[t] = executor.submit(() -> {
+                for (int round = 0; round < rounds; round++) {
+                    roundStart.await();
+                    for (int s = round * perRound; s < (round + 1) * perRound; s++) {
+                        if (keys.add("session-" + s)) {
+                            accepted.incrementAndGet(s);
+                        }
+                    }
+                }
+                return null;
+            });
+        }
+        tasks[DUPLICATES] = executor.submit(() -> {
+            for (int round = 0; round < rounds; round++) {
+                roundStart.await();
+                Thread.onSpinWait();
+                now.addAndGet(1_000);
+                keys.contains("rotate");
+            }
+            return null;
+        });
+        for (Future<?> task : tasks) {
+            task.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertAcceptedOnce(accepted, SESSIONS);
+    }
+
+    private static void assertAcceptedOnce(AtomicIntegerArray accepted, int sessions) {
+        for (int s = 0; s < sessions; s++) {
+            assertThat(accepted.get(s)).as("session-%d", s).isEqualTo(1);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package io.github.cue.clipboardbridge.server.infrastructure.adapter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Кэш маршрутов уведомлений: вытеснение давно не использованных записей
+ * и различение одинаковых message_id в разных чатах.
+ */
+class NotificationRoutingCacheTest {
+
+    @Test
+    void evictsLeastRecentlyUsedRoute() {
+        NotificationRoutingCache routes = new NotificationRoutingCache(2);
+        routes.record(1, 10, "client-a");
+        routes.record(1, 11, "client-b");
+
+        // Обращение к первому маршруту делает вытесняемым второй
+        assertThat(routes.lookup(1, 10)).isEqualTo("client-a");
+        routes.record(1, 12, "client-c");
+
+        assertThat(routes.size()).isEqualTo(2);
+        assertThat(routes.lookup(1, 11)).isNull();
+        assertThat(routes.lookup(1, 10)).isEqualTo("client-a");
+        assertThat(routes.lookup(1, 12)).isEqualTo("client-c");
+    }
+
+    @Test
+    void sameMessageIdInDifferentChatsRoutesSeparately() {
+        NotificationRoutingCache routes = new NotificationRoutingCache(10);
+        routes.record(1, 10, "client-a");
+        routes.record(2, 10, "client-b");
+
+        assertThat(routes.lookup(1, 10)).isEqualTo("client-a");
+        assertThat(routes.lookup(2, 10)).isEqualTo("client-b");
+        assertThat(routes.lookup(3, 10)).isNull();
+    }
+}
@@ -0,0 +1,84 @@
+package io.github.cue.clipboardbridge.server.infrastructure.adapter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Переходы индекса ожидаемых ответов: замена ожиданий пользователя и клиента,
+ * однократное извлечение и истечение по TTL.
+ */
+class PendingReplyIndexTest {
+
+    private final AtomicLong now = new AtomicLong(1_000);
+    private final PendingReplyIndex index = new PendingReplyIndex(100, now::get);
+
+    @Test
+    void takeCompletesWaitOnce() {
+        index.awaitReply(1L, "client-a");
+
+        assertThat(index.takePendingClient(1L)).isEqualTo("client-a");
+        assertThat(index.takePendingClient(1L)).isNull();
+        assertThat(index.size()).isZero();
+    }
+
+    @Test
+    void newWaitOfUserReplacesPreviousClient() {
+        index.awaitReply(1L, "client-a");
+        index.awaitReply(1L, "client-b");
+        assertThat(index.size()).isEqualTo(1);
+
+        // Клиент a больше не привязан к пользователю: новое ожидание его не затрагивает
+        index.awaitReply(2L, "client-a");
+        assertThat(index.takePendingClient(1L)).isEqualTo("client-b");
+        assertThat(index.takePendingClient(2L)).isEqualTo("client-a");
+    }
+
+    @Test
+    void newUserWaitingForClientReplacesPreviousUser() {
+        index.awaitReply(1L, "client-a");
+        index.awaitReply(2L, "client-a");
+
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.takePendingClient(1L)).isNull();
+        assertThat(index.takePendingClient(2L)).isEqualTo("client-a");
+    }
+
+    @Test
+    void expiredWaitIsNotReturned() {
+        index.awaitReply(1L, "client-a");
+        now.addAndGet(100);
+
+        assertThat(index.takePendingClient(1L)).isNull();
+        assertThat(index.size()).isZero();
+    }
+
+    @Test
+    void expireUserRemovesOnlyOverdueWait() {
+        index.awaitReply(1L, "client-a");
+        now.addAndGet(99);
+        index.expireUser(1L);
+        assertThat(index.size()).isEqualTo(1);
+
+        now.addAndGet(1);
+        index.expireUser(1L);
+        assertThat(index.size()).isZero();
+
+        // Истечение освободило клиента для нового ожидания
+        index.awaitReply(2L, "client-a");
+        assertThat(index.takePendingClient(2L)).isEqualTo("client-a");
+    }
+
+    @Test
+    void expireUserKeepsRenewedWait() {
+        index.awaitReply(1L, "client-a");
+        now.addAndGet(80);
+        index.awaitReply(1L, "client-b");
+        now.addAndGet(30);
+
+        index.expireUser(1L);
+        assertThat(index.takePendingClient(1L)).isEqualTo("client-b");
+    }
+}
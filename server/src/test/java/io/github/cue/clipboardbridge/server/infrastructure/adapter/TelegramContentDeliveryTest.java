@@ -0,0 +1,122 @@
+package io.github.cue.clipboardbridge.server.infrastructure.adapter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.github.cue.clipboardbridge.server.infrastructure.port.TelegramBotApi;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Деление длинного содержимого на сообщения Telegram и выбор способа доставки по размеру.
+ */
+class TelegramContentDeliveryTest {
+
+    private static final int MAX_MESSAGE_CHARS = 4096;
+    private static final int DOCUMENT_THRESHOLD = 16384;
+    private static final String EMOJI = "😀";
+
+    private TelegramBotApi telegramBotApi;
+    private TelegramContentDelivery delivery;
+    private final List<String> sentTexts = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        telegramBotApi = mock(TelegramBotApi.class);
+        AtomicInteger messageIds = new AtomicInteger();
+        when(telegramBotApi.sendTrackedMessageAsync(anyLong(), anyString(), any())).thenAnswer(invocation -> {
+            sentTexts.add(invocation.getArgument(1));
+            return CompletableFuture.completedFuture(messageIds.incrementAndGet());
+        });
+        when(telegramBotApi.sendDocumentAsync(anyLong(), any(), anyString(), anyString(), any()))
+                .thenReturn(CompletableFuture.completedFuture(1000));
+        delivery = new TelegramContentDelivery(telegramBotApi, new SimpleMeterRegistry(), DOCUMENT_THRESHOLD, 1 << 20);
+    }
+
+    @Test
+    void splitDoesNotBreakSurrogatePairAtCut() {
+        String text = "a".repeat(99) + EMOJI + "b".repeat(50);
+
+        List<String> parts = TelegramContentDelivery.split(text, 100);
+
+        assertThat(parts.get(0)).isEqualTo("a".repeat(99));
+        assertThat(parts.get(1)).startsWith(EMOJI);
+        assertThat(String.join("", parts)).isEqualTo(text);
+        parts.forEach(part -> assertThat(part.length()).isLessThanOrEqualTo(100));
+    }
+
+    @Test
+    void splitPrefersNewlineInLastQuarter() {
+        String nearEnd = "a".repeat(80) + "\n" + "b".repeat(100);
+        assertThat(TelegramContentDelivery.split(nearEnd, 100).get(0)).isEqualTo("a".repeat(80) + "\n");
+
+        String tooEarly = "a".repeat(50) + "\n" + "b".repeat(100);
+        assertThat(TelegramContentDelivery.split(tooEarly, 100).get(0)).hasSize(100);
+    }
+
+    @Test
+    void labelledPartsStayWithinMessageLimit() throws Exception {
+        StringBuilder content = new StringBuilder();
+        while (content.length() < 15_000) {
+            content.append("строка буфера обмена ").append(EMOJI).append(' ');
+            if (content.length() % 7 == 0) {
+                content.append('\n');
+            }
+        }
+        String header = "Клиент pc-1:\n";
+        String footer = "\n— конец";
+
+        List<Integer> messageIds = delivery.deliver(1L, header, content.toString(), footer, null)
+                .get(5, TimeUnit.SECONDS);
+
+        assertThat(sentTexts).hasSizeGreaterThan(1).hasSize(messageIds.size());
+        StringBuilder restored = new StringBuilder();
+        for (int i = 0; i < sentTexts.size(); i++) {
+            String text = sentTexts.get(i);
+            String label = "[" + (i + 1) + "/" + sentTexts.size() + "]\n";
+            assertThat(text.length()).isLessThanOrEqualTo(MAX_MESSAGE_CHARS);
+            assertThat(text).startsWith(label);
+            assertThat(Character.isHighSurrogate(text.charAt(text.length() - 1))).isFalse();
+            restored.append(text.substring(label.length()));
+        }
+        assertThat(restored.toString()).isEqualTo(header + content + footer);
+    }
+
+    @Test
+    void choosesDeliveryPathByLength() throws Exception {
+        delivery.deliver(1L, "h", "x".repeat(MAX_MESSAGE_CHARS - 2), "f", null).get(5, TimeUnit.SECONDS);
+        assertThat(sentTexts).hasSize(1);
+        assertThat(sentTexts.get(0)).hasSize(MAX_MESSAGE_CHARS).doesNotStartWith("[1/");
+
+        sentTexts.clear();
+        delivery.deliver(1L, "h", "x".repeat(MAX_MESSAGE_CHARS - 1), "f", null).get(5, TimeUnit.SECONDS);
+        assertThat(sentTexts).hasSize(2);
+        assertThat(sentTexts.get(0)).startsWith("[1/2]\n");
+
+        sentTexts.clear();
+        delivery.deliver(1L, "h", "x".repeat(DOCUMENT_THRESHOLD - 2), "f", null).get(5, TimeUnit.SECONDS);
+        assertThat(sentTexts).hasSize(5);
+        verify(telegramBotApi, never()).sendDocumentAsync(anyLong(), any(), anyString(), anyString(), any());
+
+        sentTexts.clear();
+        List<Integer> document = delivery.deliver(1L, "h", "x".repeat(DOCUMENT_THRESHOLD - 1), "f", null)
+                .get(5, TimeUnit.SECONDS);
+        assertThat(sentTexts).isEmpty();
+        assertThat(document).containsExactly(1000);
+        verify(telegramBotApi).sendDocumentAsync(anyLong(), any(), anyString(), anyString(), any());
+    }
+}
@@ -0,0 +1,178 @@
+package io.github.cue.clipboardbridge.server.infrastructure.adapter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.github.cue.clipboardbridge.server.infrastructure.port.TelegramBotApi;
+import io.github.cue.clipboardbridge.server.infrastructure.service.ClientSessionService;
+import io.github.cue.clipboardbridge.server.infrastructure.service.ReplyDeliveryStatus;
+import io.github.cue.clipboardbridge.server.infrastructure.service.SessionExpiryService;
+import io.github.cue.clipboardbridge.server.infrastructure.service.WebSocketSessionMessageService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Обработчики обновлений Telegram: ответы пользователю ставятся в очередь
+ * отправки без ожидания, поэтому ограниченный по частоте чат не занимает полосу диспетчера;
+ * ответ на уведомление направляется клиенту, от которого оно пришло.
+ */
+class TelegramNotificationServiceTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private static final long USER = 7L;
+
+    private SessionExpiryService expiryService;
+    private ClientSessionService sessionService;
+    private TelegramBotApi telegramBotApi;
+    private TelegramContentDelivery contentDelivery;
+    private WebSocketSessionMessageService webSocketService;
+    private TelegramNotificationService service;
+    private final List<String> queuedTexts = new CopyOnWriteArrayList<>();
+    private int nextUpdateId = 1;
+
+    @BeforeEach
+    void setUp() {
+        expiryService = new SessionExpiryService(1000, new SimpleMeterRegistry());
+        sessionService = new ClientSessionService(expiryService, 60_000);
+        telegramBotApi = mock(TelegramBotApi.class);
+        // Telegram ограничивает чат: отправки не завершаются
+        when(telegramBotApi.sendMessageAsync(anyLong(), anyString())).thenAnswer(invocation -> {
+            queuedTexts.add(invocation.getArgument(1));
+            return new CompletableFuture<Boolean>();
+        });
+        webSocketService = mock(WebSocketSessionMessageService.class);
+        when(webSocketService.deliverReply(anyString(), any())).thenReturn(ReplyDeliveryStatus.SENT);
+        contentDelivery = mock(TelegramContentDelivery.class);
+        service = new TelegramNotificationService(telegramBotApi, contentDelivery, sessionService,
+                webSocketService, expiryService, 4, 1000, 1, 1, 600_000, 100, 600_000, false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdownBroadcastExecutor();
+        expiryService.shutdown();
+    }
+
+    @Test
+    void handlersDoNotWaitForThrottledChat() {
+        sessionService.registerSession("client-1", "s1");
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            service.onUpdateReceived(text("/help"));
+            service.onUpdateReceived(text("/reply"));
+            service.onUpdateReceived(callback("reply:client-1"));
+            service.onUpdateReceived(text("ответ клиенту"));
+        });
+
+        verify(telegramBotApi, never()).sendMessage(anyLong(), anyString());
+        verify(webSocketService).deliverReply(eq("client-1"), any());
+        assertThat(queuedTexts).hasSize(4)
+                .anyMatch(text -> text.startsWith("Доступные команды"))
+                .contains("⚠️ Нет сохраненных сообщений от клиентов",
+                        "🔄 Введите ваш ответ для клиента:",
+                        "✅ Ваш ответ отправлен клиенту!");
+    }
+
+    @Test
+    void replyIsRoutedToClientOfQuotedNotification() throws Exception {
+        sessionService.registerSession("client-a", "sa");
+        sessionService.registerSession("client-b", "sb");
+        CompletableFuture<List<Integer>> deliveryA = new CompletableFuture<>();
+        CompletableFuture<List<Integer>> deliveryB = new CompletableFuture<>();
+        when(contentDelivery.deliver(eq(USER), anyString(), eq("от a"), anyString(), any())).thenReturn(deliveryA);
+        when(contentDelivery.deliver(eq(USER), anyString(), eq("от b"), anyString(), any())).thenReturn(deliveryB);
+
+        // Оба клиента пишут одному пользователю одновременно
+        CyclicBarrier start = new CyclicBarrier(2);
+        CompletableFuture<CompletableFuture<Boolean>> notifyA = CompletableFuture.supplyAsync(() -> {
+            await(start);
+            return service.notifyAboutClientMessage(USER, "client-a", "от a");
+        });
+        CompletableFuture<CompletableFuture<Boolean>> notifyB = CompletableFuture.supplyAsync(() -> {
+            await(start);
+            return service.notifyAboutClientMessage(USER, "client-b", "от b");
+        });
+        CompletableFuture<Boolean> notifiedA = notifyA.get(5, TimeUnit.SECONDS);
+        CompletableFuture<Boolean> notifiedB = notifyB.get(5, TimeUnit.SECONDS);
+
+        // Доставка завершается в обратном порядке, содержимое b разбито на две части
+        deliveryB.complete(List.of(201, 202));
+        deliveryA.complete(List.of(101));
+        assertThat(notifiedA.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(notifiedB.get(5, TimeUnit.SECONDS)).isTrue();
+
+        service.onUpdateReceived(replyTo(201, "ответ b"));
+        service.onUpdateReceived(replyTo(101, "ответ a"));
+
+        verify(webSocketService).deliverReply(eq("client-b"), argThat(reply -> reply.getResponse().equals("ответ b")));
+        verify(webSocketService).deliverReply(eq("client-a"), argThat(reply -> reply.getResponse().equals("ответ a")));
+    }
+
+    private static void await(CyclicBarrier barrier) {
+        try {
+            barrier.await(5, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Update replyTo(int messageId, String text) {
+        return parse("""
+                {"update_id": %d,
+                 "message": {"message_id": %d, "date": 1700000000, "text": "%s",
+                             "chat": {"id": %d, "type": "private"},
+                             "from": {"id": %d, "is_bot": false, "first_name": "u"},
+                             "reply_to_message": {"message_id": %d, "date": 1700000000,
+                                                  "chat": {"id": %d, "type": "private"}}}}
+                """.formatted(nextUpdateId, nextUpdateId++, text, USER, USER, messageId, USER));
+    }
+
+    private Update text(String text) {
+        return parse("""
+                {"update_id": %d,
+                 "message": {"message_id": %d, "date": 1700000000, "text": "%s",
+                             "chat": {"id": %d, "type": "private"},
+                             "from": {"id": %d, "is_bot": false, "first_name": "u"}}}
+                """.formatted(nextUpdateId, nextUpdateId++, text, USER, USER));
+    }
+
+    private Update callback(String data) {
+        return parse("""
+                {"update_id": %d,
+                 "callback_query": {"id": "cb%d", "data": "%s", "chat_instance": "ci",
+                                    "from": {"id": %d, "is_bot": false, "first_name": "u"}}}
+                """.formatted(nextUpdateId, nextUpdateId++, data, USER));
+    }
+
+    private static Update parse(String json) {
+        try {
+            return MAPPER.readValue(json, Update.class);
+        } catch (Exception e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+}
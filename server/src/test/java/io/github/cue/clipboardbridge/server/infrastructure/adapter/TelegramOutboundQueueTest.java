@@ -0,0 +1,241 @@
+package io.github.cue.clipboardbridge.server.infrastructure.adapter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import io.github.cue.clipboardbridge.server.infrastructure.config.ThreadFactories;
+
+/**
+ * Ограничение скорости, повторы и порядок отправки исходящих сообщений Telegram,
+ * а также отправка через блокирующий Bot API при заполненном пуле отправителей.
+ */
+class TelegramOutboundQueueTest {
+
+    private static final double UNLIMITED = 1_000_000;
+
+    private TelegramOutboundQueue queue;
+    private final List<Sent> sent = new CopyOnWriteArrayList<>();
+
+    private record Sent(String chatId, String text, long at) {
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (queue != null) {
+            queue.shutdown();
+        }
+    }
+
+    @Test
+    void saturatedPoolDoesNotSendOnDispatcherThread() throws Exception {
+        Set<String> senderThreads = ConcurrentHashMap.newKeySet();
+        AtomicInteger concurrent = new AtomicInteger();
+        AtomicInteger maxConcurrent = new AtomicInteger();
+        queue = new TelegramOutboundQueue(message -> {
+            senderThreads.add(Thread.currentThread().getName());
+            maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                concurrent.decrementAndGet();
+            }
+            return new Message();
+        }, 1_000, 1_000_000, 1_000, 1_000, 1, 60_000, 2, ThreadFactories.named("test-outbound-", false));
+
+        CompletableFuture<?>[] results = new CompletableFuture<?>[100];
+        for (int i = 0; i < results.length; i++) {
+            results[i] = queue.submit(message(i, "m" + i));
+        }
+        CompletableFuture.allOf(results).get(30, TimeUnit.SECONDS);
+
+        for (CompletableFuture<?> future : results) {
+            assertThat(future.get()).isNotNull();
+        }
+        assertThat(senderThreads).allMatch(name -> name.startsWith("test-outbound-"));
+        assertThat(maxConcurrent.get()).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void retryAfterParksOnlyThrottledChatWithoutSpendingAttempts() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        queue = asyncQueue(UNLIMITED, UNLIMITED, 1_000, 1, 60_000, message -> {
+            if (message.getChatId().equals("1") && calls.getAndIncrement() == 0) {
+                return CompletableFuture.failedFuture(apiError(429, 1));
+            }
+            return CompletableFuture.completedFuture(new Message());
+        });
+
+        long start = System.nanoTime();
+        CompletableFuture<Message> throttled = queue.submit(message(1, "a"));
+        awaitSent(1);
+        Message other = queue.submit(message(2, "b")).get(5, TimeUnit.SECONDS);
+
+        assertThat(other).isNotNull();
+        assertThat(queue.getThrottledChatCount()).isEqualTo(1);
+        assertThat(queue.getRateFactor()).isLessThan(1.0);
+        assertThat(elapsedMs(start)).isLessThan(1_000);
+
+        assertThat(throttled.get(5, TimeUnit.SECONDS)).isNotNull();
+        assertThat(elapsedMs(start)).isGreaterThanOrEqualTo(1_000);
+        assertThat(sent).extracting(Sent::chatId).containsExactly("1", "2", "1");
+    }
+
+    @Test
+    void retryAfterBeyondDeadlineGivesUp() throws Exception {
+        queue = asyncQueue(UNLIMITED, UNLIMITED, 1_000, 5, 500,
+                message -> CompletableFuture.failedFuture(apiError(429, 1)));
+
+        long start = System.nanoTime();
+        assertThat(queue.submit(message(1, "a")).get(5, TimeUnit.SECONDS)).isNull();
+
+        assertThat(elapsedMs(start)).isLessThan(1_000);
+        assertThat(sent).hasSize(1);
+        assertThat(queue.getQueueSize()).isZero();
+    }
+
+    @Test
+    void clientErrorIsNotRetried() throws Exception {
+        queue = asyncQueue(UNLIMITED, UNLIMITED, 1_000, 5, 60_000,
+                message -> CompletableFuture.failedFuture(apiError(400, null)));
+
+        assertThat(queue.submit(message(1, "a")).get(5, TimeUnit.SECONDS)).isNull();
+
+        assertThat(sent).hasSize(1);
+        assertThat(queue.getQueueSize()).isZero();
+    }
+
+    @Test
+    void perChatBucketSpacesMessagesOfOneChat() throws Exception {
+        queue = asyncQueue(UNLIMITED, 10, 1, 1, 60_000, message -> CompletableFuture.completedFuture(new Message()));
+
+        List<CompletableFuture<Message>> results = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            results.add(queue.submit(message(1, "m" + i)));
+        }
+        results.add(queue.submit(message(2, "other")));
+        CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+
+        List<Sent> chat = sent.stream().filter(s -> s.chatId().equals("1")).toList();
+        for (int i = 1; i < chat.size(); i++) {
+            assertThat(chat.get(i).at() - chat.get(i - 1).at()).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(80));
+        }
+        // Другой чат не ждёт, пока освободится лимит первого
+        assertThat(sent.indexOf(sent.stream().filter(s -> s.chatId().equals("2")).findFirst().orElseThrow()))
+                .isLessThan(3);
+    }
+
+    @Test
+    void globalBucketLimitsRateAcrossChats() throws Exception {
+        queue = asyncQueue(20, UNLIMITED, 1_000, 1, 60_000, message -> CompletableFuture.completedFuture(new Message()));
+
+        long start = System.nanoTime();
+        List<CompletableFuture<Message>> results = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            results.add(queue.submit(message(i, "m" + i)));
+        }
+        CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+
+        // 20 сообщений уходят пачкой, оставшиеся 10 - со скоростью 20 в секунду
+        assertThat(elapsedMs(start)).isGreaterThanOrEqualTo(400);
+    }
+
+    @Test
+    void keepsPerChatOrderAcrossRetries() throws Exception {
+        AtomicInteger failures = new AtomicInteger();
+        queue = asyncQueue(UNLIMITED, UNLIMITED, 1_000, 3, 60_000, message -> {
+            if (message.getText().equals("m2") && failures.getAndIncrement() == 0) {
+                return CompletableFuture.failedFuture(new TelegramApiException("connection reset"));
+            }
+            return CompletableFuture.supplyAsync(Message::new,
+                    CompletableFuture.delayedExecutor((long) (Math.random() * 5), TimeUnit.MILLISECONDS));
+        });
+
+        List<CompletableFuture<Message>> results = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            results.add(queue.submit(message(1, "m" + i)));
+        }
+        CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+
+        assertThat(results).allMatch(result -> result.join() != null);
+        assertThat(sent).extracting(Sent::text)
+                .containsExactly("m0", "m1", "m2", "m2", "m3", "m4", "m5", "m6", "m7", "m8", "m9");
+    }
+
+    @Test
+    void alternatesBetweenBusyChats() throws Exception {
+        CompletableFuture<Void> released = new CompletableFuture<>();
+        queue = asyncQueue(UNLIMITED, UNLIMITED, 1_000, 1, 60_000,
+                message -> released.thenApply(ignored -> new Message()));
+
+        List<CompletableFuture<Message>> results = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            results.add(queue.submit(message(1, "a" + i)));
+        }
+        for (int i = 0; i < 10; i++) {
+            results.add(queue.submit(message(2, "b" + i)));
+        }
+        released.complete(null);
+        CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+
+        List<String> firstHalf = sent.subList(0, 10).stream().map(Sent::chatId).toList();
+        assertThat(Collections.frequency(firstHalf, "1")).isBetween(4, 6);
+        assertThat(Collections.frequency(firstHalf, "2")).isBetween(4, 6);
+    }
+
+    private TelegramOutboundQueue asyncQueue(double globalRate, double perChatRate, int perChatBurst,
+                                             int maxAttempts, long maxDeferralMs,
+                                             TelegramOutboundQueue.AsyncSender sender) {
+        return new TelegramOutboundQueue(message -> {
+            sent.add(new Sent(message.getChatId(), message.getText(), System.nanoTime()));
+            return sender.send(message);
+        }, 1_000, globalRate, perChatRate, perChatBurst, maxAttempts, maxDeferralMs);
+    }
+
+    private void awaitSent(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (sent.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(sent).hasSizeGreaterThanOrEqualTo(count);
+    }
+
+    private static SendMessage message(int chatId, String text) {
+        return SendMessage.builder().chatId(Integer.toString(chatId)).text(text).build();
+    }
+
+    private static long elapsedMs(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    /**
+     * Ошибка Bot API в том виде, в каком её разбирает telegrambots.
+     */
+    private static TelegramApiRequestException apiError(int code, Integer retryAfter) {
+        String parameters = retryAfter != null ? ",\"parameters\":{\"retry_after\":" + retryAfter + "}" : "";
+        try {
+            new SendMessage().deserializeResponse(
+                    "{\"ok\":false,\"error_code\":" + code + ",\"description\":\"error\"" + parameters + "}");
+        } catch (TelegramApiRequestException e) {
+            return e;
+        }
+        throw new AssertionError("Ответ Bot API должен быть разобран как ошибка");
+    }
+}
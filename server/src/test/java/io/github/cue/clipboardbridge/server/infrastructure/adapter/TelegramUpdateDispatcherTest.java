@@ -0,0 +1,98 @@
+package io.github.cue.clipboardbridge.server.infrastructure.adapter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.github.cue.clipboardbridge.server.infrastructure.config.ThreadFactories;
+
+/**
+ * Порядок обработки обновлений одного чата при заполненных очередях полос.
+ */
+class TelegramUpdateDispatcherTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private TelegramUpdateDispatcher dispatcher;
+
+    @AfterEach
+    void tearDown() {
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+        }
+    }
+
+    @Test
+    void keepsPerChatOrderWhenStripeQueueIsFull() throws Exception {
+        dispatcher = new TelegramUpdateDispatcher(2, 1, ThreadFactories.named("test-updates-", false));
+        int updatesPerChat = 50;
+        Map<Long, List<Integer>> processed = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(updatesPerChat * 3);
+
+        for (int i = 0; i < updatesPerChat; i++) {
+            for (long chatId = 1; chatId <= 3; chatId++) {
+                dispatcher.dispatch(update(i * 3 + (int) chatId, chatId), update -> {
+                    sleepBriefly();
+                    processed.computeIfAbsent(update.getMessage().getChatId(), id -> new ArrayList<>())
+                            .add(update.getUpdateId());
+                    done.countDown();
+                });
+            }
+        }
+
+        assertThat(done.await(30, TimeUnit.SECONDS)).isTrue();
+        assertThat(processed).hasSize(3);
+        processed.values().forEach(ids -> assertThat(ids).hasSize(updatesPerChat).isSorted());
+    }
+
+    @Test
+    void blocksIntakeInsteadOfRunningOnCallerThread() throws Exception {
+        dispatcher = new TelegramUpdateDispatcher(1, 1, ThreadFactories.named("test-updates-", false));
+        Thread caller = Thread.currentThread();
+        List<Thread> listenerThreads = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(10);
+
+        for (int i = 1; i <= 10; i++) {
+            dispatcher.dispatch(update(i, 1L), update -> {
+                sleepBriefly();
+                synchronized (listenerThreads) {
+                    listenerThreads.add(Thread.currentThread());
+                }
+                done.countDown();
+            });
+        }
+
+        assertThat(done.await(30, TimeUnit.SECONDS)).isTrue();
+        assertThat(listenerThreads).hasSize(10).doesNotContain(caller);
+    }
+
+    static Update update(int updateId, long chatId) throws Exception {
+        return MAPPER.readValue("""
+                {"update_id": %d,
+                 "message": {"message_id": %d, "date": 0, "text": "m%d",
+                             "chat": {"id": %d, "type": "private"},
+                             "from": {"id": %d, "is_bot": false, "first_name": "u"}}}
+                """.formatted(updateId, updateId, updateId, chatId, chatId), Update.class);
+    }
+
+    private static void sleepBriefly() {
+        try {
+            Thread.sleep(2);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
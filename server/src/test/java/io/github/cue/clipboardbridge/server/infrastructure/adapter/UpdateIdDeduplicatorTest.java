@@ -0,0 +1,105 @@
+package io.github.cue.clipboardbridge.server.infrastructure.adapter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Окно дедупликации обновлений по update_id.
+ */
+class UpdateIdDeduplicatorTest {
+
+    @Test
+    void acceptsEachIdOnce() {
+        UpdateIdDeduplicator deduplicator = new UpdateIdDeduplicator(64);
+
+        assertThat(deduplicator.markProcessed(100)).isTrue();
+        assertThat(deduplicator.markProcessed(100)).isFalse();
+        assertThat(deduplicator.markProcessed(101)).isTrue();
+        assertThat(deduplicator.markProcessed(101)).isFalse();
+    }
+
+    @Test
+    void acceptsOutOfOrderIdsInsideWindow() {
+        UpdateIdDeduplicator deduplicator = new UpdateIdDeduplicator(64);
+
+        assertThat(deduplicator.markProcessed(110)).isTrue();
+        assertThat(deduplicator.markProcessed(105)).isTrue();
+        assertThat(deduplicator.markProcessed(105)).isFalse();
+        assertThat(deduplicator.markProcessed(109)).isTrue();
+    }
+
+    @Test
+    void treatsIdsOlderThanWindowAsProcessed() {
+        UpdateIdDeduplicator deduplicator = new UpdateIdDeduplicator(64);
+
+        assertThat(deduplicator.markProcessed(1000)).isTrue();
+        assertThat(deduplicator.markProcessed(1000 - 63)).isTrue();
+        assertThat(deduplicator.markProcessed(1000 - 64)).isFalse();
+        assertThat(deduplicator.markProcessed(1)).isFalse();
+    }
+
+    @Test
+    void clearsSlotsReusedAfterWindowAdvances() {
+        UpdateIdDeduplicator deduplicator = new UpdateIdDeduplicator(64);
+
+        assertThat(deduplicator.markProcessed(10)).isTrue();
+        // 74 попадает в тот же слот битовой карты, что и 10
+        assertThat(deduplicator.markProcessed(74)).isTrue();
+        assertThat(deduplicator.markProcessed(73)).isTrue();
+        // Скачок дальше окна сбрасывает карту целиком
+        assertThat(deduplicator.markProcessed(10_000)).isTrue();
+        assertThat(deduplicator.markProcessed(10_000 - 10)).isTrue();
+    }
+
+    @Test
+    void numericOrderSurvivesDigitBoundaries() {
+        UpdateIdDeduplicator deduplicator = new UpdateIdDeduplicator(1024);
+
+        for (long id = 990; id < 1010; id++) {
+            assertThat(deduplicator.markProcessed(id)).isTrue();
+        }
+        for (long id = 990; id < 1010; id++) {
+            assertThat(deduplicator.markProcessed(id)).isFalse();
+        }
+    }
+
+    @Test
+    void concurrentDuplicatesAreAcceptedExactlyOnce() throws InterruptedException {
+        int threads = 8;
+        int ids = 50_000;
+        UpdateIdDeduplicator deduplicator = new UpdateIdDeduplicator(ids);
+        AtomicInteger accepted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int t = 0; t < threads; t++) {
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    for (long id = 0; id < ids; id++) {
+                        if (deduplicator.markProcessed(id)) {
+                            accepted.incrementAndGet();
+                        }
+                    }
+                });
+            }
+            start.countDown();
+        } finally {
+            executor.shutdown();
+            assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+        }
+
+        assertThat(accepted.get()).isEqualTo(ids);
+    }
+}
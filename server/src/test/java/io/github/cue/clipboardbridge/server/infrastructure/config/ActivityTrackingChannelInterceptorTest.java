@@ -0,0 +1,106 @@
+package io.github.cue.clipboardbridge.server.infrastructure.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.security.Principal;
+import java.util.HashMap;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import io.github.cue.clipboardbridge.server.infrastructure.adapter.WebSocketEventListener;
+import io.github.cue.clipboardbridge.server.infrastructure.service.ClientSessionService;
+import io.github.cue.clipboardbridge.server.infrastructure.service.SessionExpiryService;
+import io.github.cue.clipboardbridge.server.infrastructure.service.WebSocketSessionRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Учёт входящих кадров как активности клиента: только текущая сессия,
+ * без DISCONNECT, который Spring отправляет после закрытия сокета.
+ */
+class ActivityTrackingChannelInterceptorTest {
+
+    private static final Principal CLIENT = () -> "client-1";
+
+    private SessionExpiryService expiryService;
+    private ClientSessionService sessionService;
+    private ActivityTrackingChannelInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        expiryService = new SessionExpiryService(1000, new SimpleMeterRegistry());
+        sessionService = new ClientSessionService(expiryService, 60_000);
+        interceptor = new ActivityTrackingChannelInterceptor(sessionService);
+    }
+
+    @AfterEach
+    void tearDown() {
+        expiryService.shutdown();
+    }
+
+    @Test
+    void heartbeatOfCurrentSessionReactivatesIdleClient() {
+        sessionService.registerSession("client-1", "s1");
+        sessionService.markIdleSessions(System.currentTimeMillis() + 1_000);
+
+        interceptor.preSend(frame(null, "s1"), null);
+
+        assertThat(sessionService.isSessionActive("client-1")).isTrue();
+    }
+
+    @Test
+    void framesOfReplacedSessionAreIgnored() {
+        sessionService.registerSession("client-1", "s1");
+        sessionService.registerSession("client-1", "s2");
+        sessionService.markIdleSessions(System.currentTimeMillis() + 1_000);
+
+        interceptor.preSend(frame(StompCommand.SEND, "s1"), null);
+
+        assertThat(sessionService.isSessionActive("client-1")).isFalse();
+        assertThat(sessionService.getIdleSessionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void disconnectFrameIsNotActivity() {
+        sessionService.registerSession("client-1", "s1");
+        sessionService.markIdleSessions(System.currentTimeMillis() + 1_000);
+
+        interceptor.preSend(frame(StompCommand.DISCONNECT, "s1"), null);
+
+        assertThat(sessionService.getIdleSessionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void closedSocketStaysDisconnectedAfterSyntheticDisconnectFrame() {
+        WebSocketEventListener listener = new WebSocketEventListener(sessionService,
+                mock(WebSocketSessionRegistry.class), expiryService);
+        sessionService.registerSession("client-1", "s1");
+
+        // Порядок StompSubProtocolHandler.afterSessionEnded: событие, затем DISCONNECT во входящий канал
+        Message<byte[]> disconnect = frame(StompCommand.DISCONNECT, "s1");
+        listener.handleWebSocketDisconnectListener(
+                new SessionDisconnectEvent(this, disconnect, "s1", CloseStatus.SESSION_NOT_RELIABLE, CLIENT));
+        interceptor.preSend(disconnect, null);
+
+        assertThat(sessionService.isSessionDisconnected("client-1")).isTrue();
+        assertThat(sessionService.getActiveSessionCount()).isZero();
+    }
+
+    private static Message<byte[]> frame(StompCommand command, String sessionId) {
+        StompHeaderAccessor accessor = command != null
+                ? StompHeaderAccessor.create(command)
+                : StompHeaderAccessor.createForHeartbeat();
+        accessor.setSessionId(sessionId);
+        accessor.setSessionAttributes(new HashMap<>());
+        accessor.setUser(CLIENT);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}
@@ -0,0 +1,40 @@
+package io.github.cue.clipboardbridge.server.infrastructure.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+
+import io.github.cue.clipboardbridge.server.domain.model.ReplyMessage;
+
+/**
+ * Размер ответа клиенту в JSON и CBOR на тексте из {@code PayloadCodecBenchmark}:
+ * CBOR не экранирует кавычки и переводы строк и поэтому короче.
+ */
+class PayloadCodecSizeTest {
+
+    private static final String SAMPLE = "Буфер обмена: \"clipboard\" line\n\tif (a < b) { return 'x'; }\n";
+
+    private final ObjectMapper json = new ObjectMapper();
+    private final CBORMapper cbor = new CBORMapper();
+
+    @ParameterizedTest
+    @ValueSource(ints = {1024, 102400})
+    void cborReplyIsSmallerThanJson(int size) throws Exception {
+        StringBuilder text = new StringBuilder(size);
+        while (text.length() < size) {
+            text.append(SAMPLE, 0, Math.min(SAMPLE.length(), size - text.length()));
+        }
+        ReplyMessage reply = ReplyMessage.builder().response(text.toString()).build();
+
+        byte[] jsonBytes = json.writeValueAsBytes(reply);
+        byte[] cborBytes = cbor.writeValueAsBytes(reply);
+
+        assertThat(cborBytes.length).isLessThan(jsonBytes.length);
+        assertThat(cbor.readValue(cborBytes, ReplyMessage.class)).isEqualTo(reply);
+        assertThat(json.readValue(jsonBytes, ReplyMessage.class)).isEqualTo(reply);
+    }
+}
@@ -0,0 +1,100 @@
+package io.github.cue.clipboardbridge.server.infrastructure.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.security.Principal;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import io.github.cue.clipboardbridge.server.domain.model.CommandEnvelope;
+import io.github.cue.clipboardbridge.server.domain.model.CommandMessage;
+import io.github.cue.clipboardbridge.server.domain.model.CommandType;
+import io.github.cue.clipboardbridge.server.domain.model.ReplyMessage;
+import io.github.cue.clipboardbridge.server.domain.port.MessageProcessor;
+import io.github.cue.clipboardbridge.server.infrastructure.service.ContentDecompressor;
+import io.github.cue.clipboardbridge.server.infrastructure.service.WebSocketSessionMessageService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Перенос заголовков STOMP и ID клиента в конверт команды и доставка итога рассылки.
+ */
+class MessageControllerTest {
+
+    private static final Principal CLIENT = () -> "client-1";
+
+    private MessageProcessor messageProcessor;
+    private WebSocketSessionMessageService messageService;
+    private MessageController controller;
+
+    @BeforeEach
+    void setUp() {
+        messageProcessor = mock(MessageProcessor.class);
+        messageService = mock(WebSocketSessionMessageService.class);
+        controller = new MessageController(messageProcessor, mock(SimpMessagingTemplate.class),
+                new ContentDecompressor(new SimpleMeterRegistry(), 1 << 20), messageService);
+    }
+
+    @Test
+    void mapsHeadersIntoEnvelope() {
+        ReplyMessage reply = ReplyMessage.builder().response("ok").build();
+        when(messageProcessor.processAsync(any())).thenReturn(CompletableFuture.completedFuture(reply));
+        long before = System.currentTimeMillis();
+
+        controller.processStompMessage(command("dm"), CLIENT, "corr-7", 1_234L, null);
+
+        CommandEnvelope envelope = captureEnvelope();
+        assertThat(envelope.getType()).isEqualTo(CommandType.DM);
+        assertThat(envelope.getClientId()).isEqualTo("client-1");
+        assertThat(envelope.getCorrelationId()).isEqualTo("corr-7");
+        assertThat(envelope.getSentAt()).isEqualTo(1_234L);
+        assertThat(envelope.getReceivedAt()).isBetween(before, System.currentTimeMillis());
+        verify(messageService, never()).deliverReply(anyString(), any());
+    }
+
+    @Test
+    void mapsMissingHeadersAndUnknownCommand() {
+        when(messageProcessor.processAsync(any())).thenReturn(
+                CompletableFuture.completedFuture(ReplyMessage.builder().response("Ошибка").build()));
+
+        controller.processStompMessage(command("paste"), null, null, null, null);
+
+        CommandEnvelope envelope = captureEnvelope();
+        assertThat(envelope.getType()).isNull();
+        assertThat(envelope.getClientId()).isEqualTo("unknown");
+        assertThat(envelope.getCorrelationId()).isNull();
+        assertThat(envelope.getSentAt()).isZero();
+    }
+
+    @Test
+    void deliversBroadcastReplyWhenProcessingCompletes() {
+        CompletableFuture<ReplyMessage> processing = new CompletableFuture<>();
+        when(messageProcessor.processAsync(any())).thenReturn(processing);
+
+        controller.processStompMessage(command("broadcast"), CLIENT, null, null, null);
+        verify(messageService, never()).deliverReply(anyString(), any());
+
+        ReplyMessage reply = ReplyMessage.builder().response("Бродкаст сообщение отправлено 2 получателям").build();
+        processing.complete(reply);
+        verify(messageService).deliverReply("client-1", reply);
+    }
+
+    private CommandEnvelope captureEnvelope() {
+        ArgumentCaptor<CommandEnvelope> envelope = ArgumentCaptor.forClass(CommandEnvelope.class);
+        verify(messageProcessor).processAsync(envelope.capture());
+        return envelope.getValue();
+    }
+
+    private static CommandMessage command(String name) {
+        return CommandMessage.builder().command(name).content("текст").targetUserId(42L).build();
+    }
+}
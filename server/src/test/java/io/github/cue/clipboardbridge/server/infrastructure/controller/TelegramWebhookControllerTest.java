@@ -0,0 +1,144 @@
+package io.github.cue.clipboardbridge.server.infrastructure.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.github.cue.clipboardbridge.server.infrastructure.adapter.TelegramUpdateDispatcher;
+import io.github.cue.clipboardbridge.server.infrastructure.config.TelegramWebhookSettings;
+import io.github.cue.clipboardbridge.server.infrastructure.config.ThreadFactories;
+import io.github.cue.clipboardbridge.server.infrastructure.port.TelegramBotApi;
+
+/**
+ * Приём обновлений через webhook: проверка секретного токена, разбор тела
+ * и порядок обновлений одного чата при доставке пачкой.
+ */
+class TelegramWebhookControllerTest {
+
+    private static final String PATH = "/telegram/webhook";
+    private static final String SECRET = "s3cret-token";
+
+    private TelegramBotApi telegramBotApi;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        telegramBotApi = mock(TelegramBotApi.class);
+        TelegramWebhookSettings webhook = new TelegramWebhookSettings(true, "https://bridge.example.com", PATH, SECRET);
+        ObjectMapper objectMapper = new ObjectMapper()
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        mockMvc = MockMvcBuilders
+                .standaloneSetup(new TelegramWebhookController(telegramBotApi, webhook, objectMapper))
+                .addPlaceholderValue("telegram.webhook.path", PATH)
+                .build();
+    }
+
+    @Test
+    void validSecretTokenDispatchesUpdate() throws Exception {
+        mockMvc.perform(webhookRequest(SECRET, updateJson(42, 7L)))
+                .andExpect(status().isOk());
+
+        verify(telegramBotApi).onUpdateReceived(argThat(update ->
+                update.getUpdateId() == 42 && update.getMessage().getChatId() == 7L));
+    }
+
+    @Test
+    void wrongSecretTokenIsRejected() throws Exception {
+        mockMvc.perform(webhookRequest("wrong-token", updateJson(42, 7L)))
+                .andExpect(status().isUnauthorized());
+
+        verifyNoInteractions(telegramBotApi);
+    }
+
+    @Test
+    void missingSecretTokenIsRejected() throws Exception {
+        mockMvc.perform(post(PATH).contentType(MediaType.APPLICATION_JSON).content(updateJson(42, 7L)))
+                .andExpect(status().isUnauthorized());
+
+        verifyNoInteractions(telegramBotApi);
+    }
+
+    @Test
+    void malformedBodyIsBadRequest() throws Exception {
+        mockMvc.perform(webhookRequest(SECRET, "{\"update_id\": 42, \"message\": {"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(webhookRequest(SECRET, ""))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(telegramBotApi);
+    }
+
+    @Test
+    void recordedBatchKeepsPerChatOrder() throws Exception {
+        int updatesPerChat = 30;
+        long[] chats = {101L, 202L, 303L};
+        TelegramUpdateDispatcher dispatcher =
+                new TelegramUpdateDispatcher(2, 4, ThreadFactories.named("test-webhook-", false));
+        Map<Long, List<Integer>> processed = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(updatesPerChat * chats.length);
+        doAnswer(invocation -> {
+            dispatcher.dispatch(invocation.getArgument(0), update -> {
+                processed.computeIfAbsent(update.getMessage().getChatId(), id -> new ArrayList<>())
+                        .add(update.getUpdateId());
+                done.countDown();
+            });
+            return null;
+        }).when(telegramBotApi).onUpdateReceived(any(Update.class));
+
+        try {
+            int updateId = 1000;
+            for (int i = 0; i < updatesPerChat; i++) {
+                for (long chatId : chats) {
+                    mockMvc.perform(webhookRequest(SECRET, updateJson(updateId++, chatId)))
+                            .andExpect(status().isOk());
+                }
+            }
+
+            assertThat(done.await(30, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            dispatcher.shutdown();
+        }
+        assertThat(processed).containsOnlyKeys(101L, 202L, 303L);
+        processed.values().forEach(ids -> assertThat(ids).hasSize(updatesPerChat).isSorted());
+    }
+
+    private static RequestBuilder webhookRequest(String token, String body) {
+        return post(PATH)
+                .header(TelegramWebhookController.SECRET_TOKEN_HEADER, token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body);
+    }
+
+    private static String updateJson(int updateId, long chatId) {
+        return """
+                {"update_id": %d,
+                 "message": {"message_id": %d, "date": 1700000000, "text": "m%d",
+                             "chat": {"id": %d, "type": "private"},
+                             "from": {"id": %d, "is_bot": false, "first_name": "u"}}}
+                """.formatted(updateId, updateId, updateId, chatId, chatId);
+    }
+}
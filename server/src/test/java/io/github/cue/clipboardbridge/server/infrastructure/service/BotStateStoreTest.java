@@ -0,0 +1,120 @@
+package io.github.cue.clipboardbridge.server.infrastructure.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Журнал и снимок состояния бота: воспроизведение после сбоя, отбрасывание
+ * оборванной записи, сокращение журнала снимком и сохранение update_id
+ * только после обработки обновлений.
+ */
+class BotStateStoreTest {
+
+    private static final int RECORD_SIZE = Byte.BYTES + Long.BYTES;
+
+    @TempDir
+    Path directory;
+
+    private final List<BotStateStore> stores = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        stores.forEach(BotStateStore::shutdown);
+    }
+
+    @Test
+    void replaysLogOverSnapshotAfterCrash() {
+        BotStateStore first = open();
+        first.addUser(1);
+        first.addUser(2);
+        complete(first, 5);
+        first.snapshotIfChanged();
+        first.addUser(3);
+        complete(first, 6);
+
+        // Без shutdown: последние изменения есть только в журнале
+        BotStateStore restored = open();
+
+        assertThat(restored.getUsers()).containsExactlyInAnyOrder(1L, 2L, 3L);
+        assertThat(restored.getLastUpdateId()).isEqualTo(6);
+        assertThat(restored.acceptUpdate(6)).isFalse();
+        assertThat(restored.acceptUpdate(7)).isTrue();
+    }
+
+    @Test
+    void dropsTornLastRecord() throws Exception {
+        BotStateStore first = open();
+        first.addUser(1);
+        first.addUser(2);
+        Files.write(logFile(), new byte[] {1, 0, 0, 0, 7}, StandardOpenOption.APPEND);
+
+        BotStateStore restored = open();
+        assertThat(restored.getUsers()).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(Files.size(logFile())).isEqualTo(2L * RECORD_SIZE);
+
+        restored.addUser(3);
+        assertThat(open().getUsers()).containsExactlyInAnyOrder(1L, 2L, 3L);
+    }
+
+    @Test
+    void snapshotCompactsLog() throws Exception {
+        BotStateStore store = open();
+        for (long userId = 1; userId <= 100; userId++) {
+            store.addUser(userId);
+        }
+        assertThat(Files.size(logFile())).isEqualTo(100L * RECORD_SIZE);
+
+        store.snapshotIfChanged();
+        assertThat(Files.size(logFile())).isZero();
+        assertThat(Files.exists(directory.resolve("bot-state.snapshot"))).isTrue();
+        assertThat(Files.exists(directory.resolve("bot-state.log.tmp"))).isFalse();
+
+        store.addUser(101);
+        assertThat(Files.size(logFile())).isEqualTo(RECORD_SIZE);
+        assertThat(open().getUsers()).hasSize(101).contains(1L, 100L, 101L);
+    }
+
+    @Test
+    void persistsUpdateIdOnlyUpToFirstUnprocessedUpdate() {
+        BotStateStore first = open();
+        first.acceptUpdate(10);
+        first.acceptUpdate(11);
+        first.acceptUpdate(12);
+        first.completeUpdate(11);
+        first.completeUpdate(12);
+        assertThat(first.getLastUpdateId()).isEqualTo(9);
+
+        BotStateStore restarted = open();
+        assertThat(restarted.acceptUpdate(9)).isFalse();
+        assertThat(restarted.acceptUpdate(10)).isTrue();
+        assertThat(restarted.acceptUpdate(11)).isTrue();
+
+        first.completeUpdate(10);
+        assertThat(first.getLastUpdateId()).isEqualTo(12);
+        assertThat(open().acceptUpdate(12)).isFalse();
+    }
+
+    private BotStateStore open() {
+        BotStateStore store = new BotStateStore(directory.toString(), 60_000);
+        stores.add(store);
+        return store;
+    }
+
+    private Path logFile() {
+        return directory.resolve("bot-state.log");
+    }
+
+    private static void complete(BotStateStore store, long updateId) {
+        assertThat(store.acceptUpdate(updateId)).isTrue();
+        store.completeUpdate(updateId);
+    }
+}
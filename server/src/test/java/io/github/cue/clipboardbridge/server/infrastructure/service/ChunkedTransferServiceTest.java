@@ -0,0 +1,112 @@
+package io.github.cue.clipboardbridge.server.infrastructure.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.zip.CRC32C;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.github.cue.clipboardbridge.server.domain.model.CommandMessage;
+import io.github.cue.clipboardbridge.server.domain.model.TransferAck;
+import io.github.cue.clipboardbridge.server.domain.model.TransferBegin;
+import io.github.cue.clipboardbridge.server.domain.model.TransferChunk;
+import io.github.cue.clipboardbridge.server.domain.model.TransferCommit;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Ограничения приёма по частям: размер части относительно лимита сообщения
+ * и число одновременно открытых передач одного клиента.
+ */
+class ChunkedTransferServiceTest {
+
+    private static final int MESSAGE_SIZE_LIMIT = 65536;
+
+    @TempDir
+    Path directory;
+
+    private ChunkedTransferService transfers;
+
+    @AfterEach
+    void tearDown() {
+        if (transfers != null) {
+            transfers.shutdown();
+        }
+    }
+
+    @Test
+    void maxChunkFitsMessageSizeLimitAsBase64() {
+        int maxChunk = ChunkedTransferService.maxChunkBytesFor(MESSAGE_SIZE_LIMIT);
+        int encoded = Base64.getEncoder().encode(new byte[maxChunk]).length;
+
+        assertThat(encoded + ChunkedTransferService.CHUNK_FRAME_OVERHEAD_BYTES).isLessThanOrEqualTo(MESSAGE_SIZE_LIMIT);
+        assertThat(maxChunk).isGreaterThanOrEqualTo(32768);
+    }
+
+    @Test
+    void configuredChunkSizeIsCappedByMessageSizeLimit() {
+        transfers = open(49152, 4);
+        int maxChunk = ChunkedTransferService.maxChunkBytesFor(MESSAGE_SIZE_LIMIT);
+
+        assertThat(transfers.begin("c1", begin("t1", maxChunk)).getStatus()).isEqualTo(TransferAck.Status.ACCEPTED);
+        assertThat(transfers.begin("c1", begin("t2", maxChunk + 1)).getStatus()).isEqualTo(TransferAck.Status.FAILED);
+    }
+
+    @Test
+    void rejectsBeginBeyondOpenTransfersPerClient() throws Exception {
+        transfers = open(32768, 2);
+
+        assertThat(transfers.begin("c1", begin("t1", 1024)).getStatus()).isEqualTo(TransferAck.Status.ACCEPTED);
+        assertThat(transfers.begin("c1", begin("t2", 1024)).getStatus()).isEqualTo(TransferAck.Status.ACCEPTED);
+        assertThat(transfers.begin("c1", begin("t3", 1024)).getStatus()).isEqualTo(TransferAck.Status.FAILED);
+        assertThat(transfers.begin("c2", begin("t3", 1024)).getStatus()).isEqualTo(TransferAck.Status.ACCEPTED);
+
+        // Продолжение уже открытой передачи не занимает новое место
+        assertThat(transfers.begin("c1", begin("t1", 1024)).getStatus()).isEqualTo(TransferAck.Status.ACCEPTED);
+
+        sendAndCommit("c1", "t1");
+        assertThat(transfers.begin("c1", begin("t3", 1024)).getStatus()).isEqualTo(TransferAck.Status.ACCEPTED);
+    }
+
+    private ChunkedTransferService open(int maxChunkBytes, int maxOpenPerClient) {
+        ContentDecompressor decompressor = new ContentDecompressor(new SimpleMeterRegistry(), 1 << 20);
+        return new ChunkedTransferService(decompressor, directory.toString(), 1 << 20, maxChunkBytes,
+                maxOpenPerClient, 600_000, MESSAGE_SIZE_LIMIT);
+    }
+
+    private void sendAndCommit(String clientId, String transferId) throws Exception {
+        TransferAck ack = transfers.chunk(clientId, TransferChunk.builder()
+                .transferId(transferId)
+                .sequence(0)
+                .data(content())
+                .checksum(checksum(content()))
+                .build());
+        assertThat(ack.getStatus()).isEqualTo(TransferAck.Status.ACCEPTED);
+        CommandMessage command = transfers.commit(clientId, TransferCommit.builder().transferId(transferId).build());
+        assertThat(command.getContent()).isEqualTo("clipboard");
+    }
+
+    private static TransferBegin begin(String transferId, int chunkSize) {
+        return TransferBegin.builder()
+                .transferId(transferId)
+                .command(CommandMessage.builder().command("send").build())
+                .totalSize(content().length)
+                .chunkSize(chunkSize)
+                .checksum(checksum(content()))
+                .build();
+    }
+
+    private static byte[] content() {
+        return "clipboard".getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static long checksum(byte[] data) {
+        CRC32C crc = new CRC32C();
+        crc.update(data);
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,288 @@
+package io.github.cue.clipboardbridge.server.infrastructure.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.github.cue.clipboardbridge.server.domain.model.ReplyMessage;
+import io.github.cue.clipboardbridge.server.infrastructure.service.ClientMailboxService.StoredReply;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Почтовые ящики: порядок воспроизведения, вытеснение, выгрузка и истечение.
+ */
+class ClientMailboxServiceTest {
+
+    private static final String CLIENT = "client-aaaaaaaa";
+    private static final String QUEUE = "/queue/reply";
+    /**
+     * Оценка размера ответа "rN" на {@link #QUEUE}: 96 + 12 * 2 + 2 * 2.
+     */
+    private static final long REPLY_BYTES = 124;
+
+    @TempDir
+    Path spillDirectory;
+
+    private SimpleMeterRegistry meterRegistry;
+    private SessionExpiryService expiryService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        expiryService = new SessionExpiryService(10, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        expiryService.shutdown();
+    }
+
+    @Test
+    void drainsRepliesInArrivalOrder() {
+        ClientMailboxService mailbox = mailbox(10, 60_000, 1 << 20, null);
+        for (int i = 0; i < 5; i++) {
+            mailbox.store(CLIENT, QUEUE, reply("r" + i));
+        }
+
+        assertThat(mailbox.hasPending(CLIENT)).isTrue();
+        assertThat(responses(mailbox.drain(CLIENT))).containsExactly("r0", "r1", "r2", "r3", "r4");
+        assertThat(mailbox.hasPending(CLIENT)).isFalse();
+        assertThat(mailbox.getMessageCount()).isZero();
+        assertThat(mailbox.getTotalBytes()).isZero();
+    }
+
+    @Test
+    void evictsOldestWhenClientMailboxIsFull() {
+        ClientMailboxService mailbox = mailbox(3, 60_000, 1 << 20, null);
+        for (int i = 0; i < 5; i++) {
+            mailbox.store(CLIENT, QUEUE, reply("r" + i));
+        }
+
+        assertThat(responses(mailbox.drain(CLIENT))).containsExactly("r2", "r3", "r4");
+        assertThat(meterRegistry.get("websocket.mailbox.evicted").tag("reason", "capacity").counter().count())
+                .isEqualTo(2.0);
+    }
+
+    @Test
+    void evictsOldestAcrossClientsWhenMemoryIsExceeded() {
+        ClientMailboxService mailbox = mailbox(10, 60_000, REPLY_BYTES * 2, null);
+        mailbox.store("client-1111aaaa", QUEUE, reply("r0"));
+        mailbox.store("client-2222aaaa", QUEUE, reply("r1"));
+        mailbox.store("client-1111aaaa", QUEUE, reply("r2"));
+
+        assertThat(mailbox.getTotalBytes()).isLessThanOrEqualTo(REPLY_BYTES * 2);
+        assertThat(responses(mailbox.drain("client-1111aaaa"))).containsExactly("r2");
+        assertThat(responses(mailbox.drain("client-2222aaaa"))).containsExactly("r1");
+        assertThat(meterRegistry.get("websocket.mailbox.evicted").tag("reason", "memory").counter().count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    void spilledRepliesAreReplayedBeforeMemoryOnes() {
+        ClientMailboxService mailbox = mailbox(10, 60_000, REPLY_BYTES * 2, spillDirectory);
+        for (int i = 0; i < 5; i++) {
+            mailbox.store(CLIENT, QUEUE, reply("r" + i));
+        }
+
+        assertThat(mailbox.getMessageCount()).isEqualTo(2);
+        assertThat(responses(mailbox.drain(CLIENT))).containsExactly("r0", "r1", "r2", "r3", "r4");
+        assertThat(spillDirectory.resolve(CLIENT + ".jsonl")).doesNotExist();
+    }
+
+    @Test
+    void spilledRepliesSurviveRestart() {
+        ClientMailboxService before = mailbox(10, 60_000, REPLY_BYTES, spillDirectory);
+        for (int i = 0; i < 3; i++) {
+            before.store(CLIENT, QUEUE, reply("r" + i));
+        }
+
+        ClientMailboxService after = mailbox(10, 60_000, REPLY_BYTES, spillDirectory);
+
+        assertThat(after.hasPending(CLIENT)).isTrue();
+        assertThat(responses(after.drain(CLIENT))).containsExactly("r0", "r1");
+    }
+
+    @Test
+    void requeuedRepliesKeepTheirPlaceAtTheFront() {
+        ClientMailboxService mailbox = mailbox(10, 60_000, 1 << 20, null);
+        for (int i = 0; i < 3; i++) {
+            mailbox.store(CLIENT, QUEUE, reply("r" + i));
+        }
+        List<StoredReply> drained = mailbox.drain(CLIENT);
+        mailbox.store(CLIENT, QUEUE, reply("r3"));
+
+        mailbox.requeue(CLIENT, drained.subList(1, drained.size()));
+
+        assertThat(responses(mailbox.drain(CLIENT))).containsExactly("r1", "r2", "r3");
+    }
+
+    @Test
+    void requeuedRepliesAreEvictedFirstUnderMemoryPressure() {
+        ClientMailboxService mailbox = mailbox(10, 60_000, REPLY_BYTES * 3, null);
+        for (int i = 0; i < 3; i++) {
+            mailbox.store(CLIENT, QUEUE, reply("r" + i));
+        }
+        List<StoredReply> drained = mailbox.drain(CLIENT);
+        mailbox.store(CLIENT, QUEUE, reply("r3"));
+        mailbox.requeue(CLIENT, drained.subList(1, drained.size()));
+
+        mailbox.store(CLIENT, QUEUE, reply("r4"));
+
+        assertThat(responses(mailbox.drain(CLIENT))).containsExactly("r2", "r3", "r4");
+    }
+
+    @Test
+    void requeuedRepliesAreSpilledBeforeNewerOnes() {
+        ClientMailboxService mailbox = mailbox(10, 60_000, REPLY_BYTES * 2, spillDirectory);
+        mailbox.store(CLIENT, QUEUE, reply("r0"));
+        mailbox.store(CLIENT, QUEUE, reply("r1"));
+        List<StoredReply> drained = mailbox.drain(CLIENT);
+        mailbox.store(CLIENT, QUEUE, reply("r2"));
+        mailbox.requeue(CLIENT, drained);
+
+        assertThat(mailbox.getMessageCount()).isEqualTo(2);
+        assertThat(mailbox.getTotalBytes()).isLessThanOrEqualTo(REPLY_BYTES * 2);
+        mailbox.store(CLIENT, QUEUE, reply("r3"));
+
+        assertThat(responses(mailbox.drain(CLIENT))).containsExactly("r0", "r1", "r2", "r3");
+    }
+
+    @Test
+    void requeueEnforcesClientCapacity() {
+        ClientMailboxService mailbox = mailbox(3, 60_000, 1 << 20, null);
+        for (int i = 0; i < 3; i++) {
+            mailbox.store(CLIENT, QUEUE, reply("r" + i));
+        }
+        List<StoredReply> drained = mailbox.drain(CLIENT);
+        mailbox.store(CLIENT, QUEUE, reply("r3"));
+        mailbox.store(CLIENT, QUEUE, reply("r4"));
+
+        mailbox.requeue(CLIENT, drained);
+
+        assertThat(mailbox.getMessageCount()).isEqualTo(3);
+        assertThat(responses(mailbox.drain(CLIENT))).containsExactly("r2", "r3", "r4");
+        assertThat(meterRegistry.get("websocket.mailbox.evicted").tag("reason", "capacity").counter().count())
+                .isEqualTo(2.0);
+    }
+
+    @Test
+    void requeueEnforcesMemoryLimit() {
+        ClientMailboxService mailbox = mailbox(10, 60_000, REPLY_BYTES * 2, null);
+        mailbox.store(CLIENT, QUEUE, reply("r0"));
+        mailbox.store(CLIENT, QUEUE, reply("r1"));
+        List<StoredReply> drained = mailbox.drain(CLIENT);
+        mailbox.store(CLIENT, QUEUE, reply("r2"));
+
+        mailbox.requeue(CLIENT, drained);
+
+        assertThat(mailbox.getTotalBytes()).isLessThanOrEqualTo(REPLY_BYTES * 2);
+        assertThat(responses(mailbox.drain(CLIENT))).containsExactly("r1", "r2");
+        assertThat(meterRegistry.get("websocket.mailbox.evicted").tag("reason", "memory").counter().count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    void expiredMailboxesAndSpillFilesAreSweptWithoutAccess() throws InterruptedException {
+        ClientMailboxService mailbox = mailbox(10, 50, REPLY_BYTES, spillDirectory);
+        mailbox.store(CLIENT, QUEUE, reply("r0"));
+        mailbox.store(CLIENT, QUEUE, reply("r1"));
+        Path spillFile = spillDirectory.resolve(CLIENT + ".jsonl");
+        assertThat(spillFile).exists();
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while ((mailbox.getMessageCount() > 0 || Files.exists(spillFile)) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertThat(mailbox.getMessageCount()).isZero();
+        assertThat(spillFile).doesNotExist();
+        assertThat(mailbox.hasPending(CLIENT)).isFalse();
+    }
+
+    @Test
+    void expiredSpillFilesAreRemovedAtStartup() throws InterruptedException {
+        ClientMailboxService before = mailbox(10, 50, REPLY_BYTES, spillDirectory);
+        before.store(CLIENT, QUEUE, reply("r0"));
+        before.store(CLIENT, QUEUE, reply("r1"));
+        expiryService.shutdown();
+        Thread.sleep(100);
+        assertThat(spillDirectory.resolve(CLIENT + ".jsonl")).exists();
+
+        expiryService = new SessionExpiryService(10, meterRegistry);
+        ClientMailboxService after = mailbox(10, 50, REPLY_BYTES, spillDirectory);
+
+        assertThat(after.hasPending(CLIENT)).isFalse();
+        assertThat(spillDirectory.resolve(CLIENT + ".jsonl")).doesNotExist();
+    }
+
+    @Test
+    void concurrentStoreAndDrainLoseNothingAndKeepProducerOrder() throws InterruptedException {
+        int producers = 4;
+        int perProducer = 5_000;
+        ClientMailboxService mailbox = mailbox(producers * perProducer, 60_000, Long.MAX_VALUE, null);
+        List<StoredReply> delivered = new ArrayList<>();
+        AtomicBoolean producing = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < perProducer; i++) {
+                    mailbox.store(CLIENT, QUEUE, reply(producer + ":" + i));
+                }
+            });
+        }
+        executor.shutdown();
+
+        start.countDown();
+        while (producing.get()) {
+            delivered.addAll(mailbox.drain(CLIENT));
+            if (executor.isTerminated()) {
+                producing.set(false);
+            }
+        }
+        assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+        delivered.addAll(mailbox.drain(CLIENT));
+
+        assertThat(delivered).hasSize(producers * perProducer);
+        int[] next = new int[producers];
+        for (String response : responses(delivered)) {
+            String[] parts = response.split(":");
+            int producer = Integer.parseInt(parts[0]);
+            assertThat(Integer.parseInt(parts[1])).isEqualTo(next[producer]);
+            next[producer]++;
+        }
+    }
+
+    private ClientMailboxService mailbox(int maxPerClient, long ttlMillis, long maxTotalBytes, Path spillDir) {
+        return new ClientMailboxService(maxPerClient, ttlMillis, maxTotalBytes,
+                spillDir != null ? spillDir.toString() : "", expiryService, meterRegistry);
+    }
+
+    private static ReplyMessage reply(String response) {
+        return ReplyMessage.builder().response(response).build();
+    }
+
+    private static List<String> responses(List<StoredReply> replies) {
+        return replies.stream().map(stored -> stored.getReply().getResponse()).toList();
+    }
+}
@@ -0,0 +1,183 @@
+package io.github.cue.clipboardbridge.server.infrastructure.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Переходы состояний клиентских сессий и согласованность счётчиков при конкурентных CAS.
+ */
+class ClientSessionServiceTest {
+
+    private SessionExpiryService expiryService;
+    private ClientSessionService sessionService;
+
+    @BeforeEach
+    void setUp() {
+        expiryService = new SessionExpiryService(1000, new SimpleMeterRegistry());
+        sessionService = new ClientSessionService(expiryService, 60_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        expiryService.shutdown();
+    }
+
+    @Test
+    void registerAndDisconnectTransitions() {
+        assertThat(sessionService.registerSession("client-1", "s1")).isNull();
+        assertThat(sessionService.isSessionActive("client-1")).isTrue();
+        assertThat(sessionService.getCurrentSessionId("client-1")).isEqualTo("s1");
+
+        assertThat(sessionService.disconnectSession("client-1")).isTrue();
+        assertThat(sessionService.disconnectSession("client-1")).isFalse();
+        assertThat(sessionService.isSessionDisconnected("client-1")).isTrue();
+        assertThat(sessionService.getLastDisconnectTime("client-1")).isNotNull();
+
+        assertThat(sessionService.registerSession("client-1", "s2")).isNull();
+        assertThat(sessionService.isSessionActive("client-1")).isTrue();
+        assertThat(counts()).containsEntry("activeCount", 1).containsEntry("disconnectedCount", 0)
+                .containsEntry("totalCount", 2L).containsEntry("disconnectionCount", 1L);
+    }
+
+    @Test
+    void registeringNewSessionReturnsLiveStaleSession() {
+        sessionService.registerSession("client-1", "s1");
+
+        assertThat(sessionService.registerSession("client-1", "s2")).isEqualTo("s1");
+        assertThat(sessionService.isCurrentSession("client-1", "s1")).isFalse();
+        assertThat(sessionService.isCurrentSession("client-1", "s2")).isTrue();
+    }
+
+    @Test
+    void closingStaleSessionDoesNotDisconnectResumedClient() {
+        sessionService.registerSession("client-1", "s1");
+        sessionService.registerSession("client-1", "s2");
+
+        assertThat(sessionService.disconnectSession("client-1", "s1")).isFalse();
+        assertThat(sessionService.isSessionActive("client-1")).isTrue();
+
+        assertThat(sessionService.disconnectSession("client-1", "s2")).isTrue();
+        assertThat(sessionService.isSessionDisconnected("client-1")).isTrue();
+    }
+
+    @Test
+    void idleAndReapedSessions() {
+        sessionService.registerSession("client-1", "s1");
+        long future = System.currentTimeMillis() + 1_000;
+
+        assertThat(sessionService.markIdleSessions(future)).isEqualTo(1);
+        assertThat(sessionService.getIdleSessionCount()).isEqualTo(1);
+        assertThat(sessionService.markIdleSessions(future)).isZero();
+
+        assertThat(sessionService.disconnectIdleSessions(future))
+                .containsExactly(new ClientSessionService.ReapedSession("client-1", "s1"));
+        assertThat(sessionService.getIdleSessionCount()).isZero();
+        assertThat(sessionService.getDisconnectedSessionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void activityReactivatesOnlyIdleCurrentSession() {
+        sessionService.registerSession("client-1", "s1");
+        sessionService.markIdleSessions(System.currentTimeMillis() + 1_000);
+
+        sessionService.recordActivity("client-1", "s0");
+        assertThat(sessionService.getIdleSessionCount()).isEqualTo(1);
+
+        sessionService.recordActivity("client-1", "s1");
+        assertThat(sessionService.isSessionActive("client-1")).isTrue();
+        assertThat(sessionService.getIdleSessionCount()).isZero();
+    }
+
+    @Test
+    void activityDoesNotReconnectDisconnectedClient() {
+        sessionService.registerSession("client-1", "s1");
+        sessionService.disconnectSession("client-1", "s1");
+
+        sessionService.recordActivity("client-1", "s1");
+        sessionService.updateSession("client-1", "s1");
+        assertThat(sessionService.isSessionDisconnected("client-1")).isTrue();
+
+        sessionService.recordActivity("client-2", "s2");
+        assertThat(sessionService.getCurrentSessionId("client-2")).isNull();
+
+        assertThat(counts()).containsEntry("activeCount", 0).containsEntry("disconnectedCount", 1);
+    }
+
+    @Test
+    void countersStayConsistentUnderConcurrentTransitionsOfOneClient() throws InterruptedException {
+        int threads = 8;
+        int iterations = 2_000;
+        runConcurrently(threads, thread -> {
+            for (int i = 0; i < iterations; i++) {
+                String sessionId = thread + "-" + i;
+                sessionService.registerSession("client-1", sessionId);
+                sessionService.recordActivity("client-1", sessionId);
+                sessionService.disconnectSession("client-1", sessionId);
+            }
+        });
+
+        int states = sessionService.getActiveSessionCount() + sessionService.getIdleSessionCount()
+                + sessionService.getDisconnectedSessionCount();
+        assertThat(states).isEqualTo(1);
+        assertThat(counts()).containsEntry("totalCount", (long) threads * iterations);
+    }
+
+    @Test
+    void countersMatchRecordsAcrossManyClients() throws InterruptedException {
+        int threads = 8;
+        int clientsPerThread = 2_000;
+        runConcurrently(threads, thread -> {
+            for (int c = 0; c < clientsPerThread; c++) {
+                String clientId = "client-" + thread + "-" + c;
+                sessionService.registerSession(clientId, clientId + "-s");
+                if (c % 2 == 0) {
+                    sessionService.disconnectSession(clientId);
+                }
+            }
+        });
+
+        assertThat(sessionService.getActiveSessionCount()).isEqualTo(threads * clientsPerThread / 2);
+        assertThat(sessionService.getDisconnectedSessionCount()).isEqualTo(threads * clientsPerThread / 2);
+        assertThat(sessionService.cleanupDisconnectedSessions()).isEqualTo(threads * clientsPerThread / 2);
+        assertThat(sessionService.getDisconnectedSessionCount()).isZero();
+    }
+
+    private Map<String, Object> counts() {
+        return sessionService.getSessionStats();
+    }
+
+    private interface ThreadBody {
+        void run(int thread);
+    }
+
+    private static void runConcurrently(int threads, ThreadBody body) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                body.run(thread);
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(60, TimeUnit.SECONDS)).isTrue();
+    }
+}
@@ -0,0 +1,120 @@
+package io.github.cue.clipboardbridge.server.infrastructure.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.github.cue.clipboardbridge.server.domain.model.CommandMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Распаковка содержимого команд: лимит распакованного размера, оборванные
+ * и повреждённые данные, неизвестный content-encoding.
+ */
+class ContentDecompressorTest {
+
+    private static final int MAX_INFLATED_BYTES = 4096;
+
+    @TempDir
+    Path directory;
+
+    private final ContentDecompressor decompressor =
+            new ContentDecompressor(new SimpleMeterRegistry(), MAX_INFLATED_BYTES);
+
+    @Test
+    void inflatesCommandContent() {
+        String text = "буфер обмена ".repeat(100);
+        CommandMessage command = compressed(deflate(text));
+
+        decompressor.decode(command, "Deflate");
+
+        assertThat(command.getContent()).isEqualTo(text);
+        assertThat(command.getCompressedContent()).isNull();
+    }
+
+    @Test
+    void rejectsContentInflatingBeyondLimit() throws IOException {
+        byte[] bomb = deflate("a".repeat(MAX_INFLATED_BYTES + 1));
+        assertThat(bomb.length).isLessThan(100);
+
+        assertThatThrownBy(() -> decompressor.decode(compressed(bomb), "deflate"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("больше " + MAX_INFLATED_BYTES);
+        assertThatThrownBy(() -> decompressor.decode(file(bomb), "deflate"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("больше " + MAX_INFLATED_BYTES);
+
+        byte[] atLimit = deflate("a".repeat(MAX_INFLATED_BYTES));
+        assertThat(decompressor.decode(file(atLimit), "deflate")).hasSize(MAX_INFLATED_BYTES);
+    }
+
+    @Test
+    void rejectsTruncatedInput() throws IOException {
+        byte[] full = deflate("буфер обмена ".repeat(100));
+        byte[] truncated = Arrays.copyOf(full, full.length / 2);
+
+        assertThatThrownBy(() -> decompressor.decode(compressed(truncated), "deflate"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("оборвано");
+        assertThatThrownBy(() -> decompressor.decode(file(truncated), "deflate"))
+                .isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void rejectsCorruptInput() throws IOException {
+        byte[] garbage = "это не deflate".getBytes(StandardCharsets.UTF_8);
+
+        assertThatThrownBy(() -> decompressor.decode(compressed(garbage), "deflate"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("повреждённое");
+        assertThatThrownBy(() -> decompressor.decode(file(garbage), "deflate"))
+                .isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void rejectsUnknownEncodingAndPassesIdentity() throws IOException {
+        CommandMessage command = compressed(deflate("текст"));
+
+        assertThatThrownBy(() -> decompressor.decode(command, "br"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("неподдерживаемое сжатие");
+        assertThatThrownBy(() -> decompressor.decode(file(new byte[] {1}), "gzip"))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        CommandMessage plain = CommandMessage.builder().content("текст").build();
+        decompressor.decode(plain, null);
+        decompressor.decode(plain, "identity");
+        assertThat(plain.getContent()).isEqualTo("текст");
+        assertThat(decompressor.decode(file("текст".getBytes(StandardCharsets.UTF_8)), null)).isEqualTo("текст");
+    }
+
+    private Path file(byte[] data) throws IOException {
+        return Files.write(Files.createTempFile(directory, "content-", ".bin"), data);
+    }
+
+    private static CommandMessage compressed(byte[] data) {
+        return CommandMessage.builder().command("dm").compressedContent(data).build();
+    }
+
+    private static byte[] deflate(String text) {
+        Deflater deflater = new Deflater();
+        try {
+            deflater.setInput(text.getBytes(StandardCharsets.UTF_8));
+            deflater.finish();
+            byte[] buffer = new byte[64 * 1024];
+            int length = deflater.deflate(buffer);
+            return Arrays.copyOf(buffer, length);
+        } finally {
+            deflater.end();
+        }
+    }
+}
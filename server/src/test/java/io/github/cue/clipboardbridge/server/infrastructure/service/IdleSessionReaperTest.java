@@ -0,0 +1,91 @@
+package io.github.cue.clipboardbridge.server.infrastructure.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.web.socket.CloseStatus;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Проверка сессий по времени последнего кадра: пометка неактивными,
+ * отключение с закрытием соединения и повторная регистрация клиента.
+ */
+class IdleSessionReaperTest {
+
+    private static final long IDLE_MS = 20;
+    private static final long DISCONNECT_MS = 200;
+
+    private SessionExpiryService expiryService;
+    private ClientSessionService sessionService;
+    private WebSocketSessionRegistry sessionRegistry;
+    private SimpleMeterRegistry meterRegistry;
+    private IdleSessionReaper reaper;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        expiryService = new SessionExpiryService(1000, meterRegistry);
+        sessionService = new ClientSessionService(expiryService, 60_000);
+        sessionRegistry = mock(WebSocketSessionRegistry.class);
+        reaper = new IdleSessionReaper(sessionService, sessionRegistry, mock(TaskScheduler.class), meterRegistry,
+                IDLE_MS, DISCONNECT_MS, 10_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        expiryService.shutdown();
+    }
+
+    @Test
+    void marksIdleThenClosesSilentSession() throws InterruptedException {
+        sessionService.registerSession("client-1", "s1");
+        sessionService.registerSession("client-2", "s2");
+
+        Thread.sleep(IDLE_MS * 3);
+        sessionService.updateSession("client-2", "s2");
+        reaper.reap();
+        assertThat(sessionService.getIdleSessionCount()).isEqualTo(1);
+        assertThat(sessionService.isSessionActive("client-2")).isTrue();
+        verify(sessionRegistry, never()).closeSession(anyString(), any());
+
+        Thread.sleep(DISCONNECT_MS);
+        sessionService.updateSession("client-2", "s2");
+        reaper.reap();
+        verify(sessionRegistry).closeSession("s1", CloseStatus.SESSION_NOT_RELIABLE);
+        assertThat(sessionService.isSessionDisconnected("client-1")).isTrue();
+        assertThat(sessionService.isSessionActive("client-2")).isTrue();
+        assertThat(reapedCount("disconnect")).isEqualTo(1);
+        assertThat(reapedCount("idle")).isEqualTo(1);
+    }
+
+    @Test
+    void reapedClientReturnsOnlyByRegistering() throws InterruptedException {
+        sessionService.registerSession("client-1", "s1");
+        Thread.sleep(DISCONNECT_MS + IDLE_MS);
+        reaper.reap();
+        verify(sessionRegistry).closeSession("s1", CloseStatus.SESSION_NOT_RELIABLE);
+
+        // Кадры закрываемого соединения не отменяют отключение
+        sessionService.recordActivity("client-1", "s1");
+        reaper.reap();
+        assertThat(sessionService.isSessionDisconnected("client-1")).isTrue();
+        verify(sessionRegistry, times(1)).closeSession(anyString(), any());
+
+        sessionService.registerSession("client-1", "s3");
+        assertThat(sessionService.isSessionActive("client-1")).isTrue();
+    }
+
+    private double reapedCount(String action) {
+        return meterRegistry.get("websocket.sessions.reaped").tag("action", action).counter().count();
+    }
+}
@@ -0,0 +1,79 @@
+package io.github.cue.clipboardbridge.server.infrastructure.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Множество long с открытой адресацией: нулевое значение, пробирование
+ * и сохранение элементов при росте таблицы.
+ */
+class LongHashSetTest {
+
+    @Test
+    void storesZeroSeparatelyFromEmptySlots() {
+        LongHashSet set = new LongHashSet(4);
+
+        assertThat(set.contains(0L)).isFalse();
+        assertThat(set.add(0L)).isTrue();
+        assertThat(set.add(0L)).isFalse();
+        assertThat(set.contains(0L)).isTrue();
+        assertThat(set.size()).isEqualTo(1);
+        assertThat(set.toArray()).containsExactly(0L);
+    }
+
+    @Test
+    void rejectsDuplicatesAndHandlesExtremeValues() {
+        LongHashSet set = new LongHashSet(4);
+        long[] values = {1L, -1L, Long.MIN_VALUE, Long.MAX_VALUE, 7_000_000_000L};
+
+        for (long value : values) {
+            assertThat(set.add(value)).isTrue();
+        }
+        for (long value : values) {
+            assertThat(set.add(value)).isFalse();
+            assertThat(set.contains(value)).isTrue();
+        }
+        assertThat(set.size()).isEqualTo(values.length);
+        assertThat(set.contains(2L)).isFalse();
+    }
+
+    @Test
+    void keepsAllValuesAcrossResizes() {
+        LongHashSet set = new LongHashSet(1);
+        // Значения, отличающиеся только старшими битами, проверяют перемешивание хеша
+        // и цепочки пробирования, переносимые при каждом росте таблицы
+        for (long i = 1; i <= 10_000; i++) {
+            assertThat(set.add(i << 32)).isTrue();
+        }
+
+        assertThat(set.size()).isEqualTo(10_000);
+        for (long i = 1; i <= 10_000; i++) {
+            assertThat(set.contains(i << 32)).isTrue();
+            assertThat(set.contains((i << 32) + 1)).isFalse();
+        }
+        long[] values = set.toArray();
+        Arrays.sort(values);
+        assertThat(values).hasSize(10_000).startsWith(1L << 32).endsWith(10_000L << 32);
+    }
+
+    @Test
+    void matchesHashSetOnRandomValues() {
+        LongHashSet set = new LongHashSet(16);
+        Set<Long> expected = new HashSet<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 50_000; i++) {
+            long value = random.nextInt(20_000) - 10_000L;
+            assertThat(set.add(value)).isEqualTo(expected.add(value));
+        }
+
+        assertThat(set.size()).isEqualTo(expected.size());
+        assertThat(set.toArray()).containsExactlyInAnyOrderElementsOf(expected);
+    }
+}
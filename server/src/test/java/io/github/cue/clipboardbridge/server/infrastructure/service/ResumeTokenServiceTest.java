@@ -0,0 +1,49 @@
+package io.github.cue.clipboardbridge.server.infrastructure.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Выдача и проверка токенов возобновления.
+ */
+class ResumeTokenServiceTest {
+
+    @TempDir
+    Path stateDirectory;
+
+    @Test
+    void acceptsOnlyTokenIssuedForSameClient() {
+        ResumeTokenService service = new ResumeTokenService("", stateDirectory.toString());
+        String token = service.issue("client-aaaaaaaa");
+
+        assertThat(service.verify("client-aaaaaaaa", token)).isTrue();
+        assertThat(service.verify("client-bbbbbbbb", token)).isFalse();
+        assertThat(service.verify("client-aaaaaaaa", "AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA")).isFalse();
+        assertThat(service.verify("client-aaaaaaaa", "not base64!")).isFalse();
+    }
+
+    @Test
+    void tokensSurviveRestartWithGeneratedSecret() {
+        String token = new ResumeTokenService("", stateDirectory.toString()).issue("client-aaaaaaaa");
+
+        ResumeTokenService restarted = new ResumeTokenService("", stateDirectory.toString());
+
+        assertThat(restarted.verify("client-aaaaaaaa", token)).isTrue();
+        assertThat(stateDirectory.resolve("resume-secret")).exists();
+    }
+
+    @Test
+    void configuredSecretTakesPrecedence() {
+        String token = new ResumeTokenService("secret-one", stateDirectory.toString()).issue("client-aaaaaaaa");
+
+        assertThat(new ResumeTokenService("secret-one", stateDirectory.toString())
+                .verify("client-aaaaaaaa", token)).isTrue();
+        assertThat(new ResumeTokenService("secret-two", stateDirectory.toString())
+                .verify("client-aaaaaaaa", token)).isFalse();
+        assertThat(stateDirectory.resolve("resume-secret")).doesNotExist();
+    }
+}
@@ -0,0 +1,107 @@
+package io.github.cue.clipboardbridge.server.infrastructure.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.MediaType;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+/**
+ * Согласование формата с сессией и выбор типа WebSocket сообщения для исходящих кадров.
+ */
+class SessionCodecRegistryTest {
+
+    private final SessionCodecRegistry registry = new SessionCodecRegistry();
+
+    @Test
+    void recognisesCborContentTypeOnlyAmongHeaders() {
+        assertThat(SessionCodecRegistry.isCborFrame(frame("MESSAGE\ncontent-type:application/cbor\n\nbody\0")))
+                .isTrue();
+        assertThat(SessionCodecRegistry.isCborFrame(frame("MESSAGE\ncontent-type:application/cbor;v=1\n\n\0")))
+                .isTrue();
+        assertThat(SessionCodecRegistry.isCborFrame(frame("MESSAGE\ndestination:/q\ncontent-type:application/cbor")))
+                .isTrue();
+
+        assertThat(SessionCodecRegistry.isCborFrame(frame("MESSAGE\ncontent-type:application/cbor-seq\n\n\0")))
+                .isFalse();
+        assertThat(SessionCodecRegistry.isCborFrame(frame("MESSAGE\ncontent-type:application/json\n\n\0")))
+                .isFalse();
+        assertThat(SessionCodecRegistry.isCborFrame(frame("MESSAGE\n\ncontent-type:application/cbor\n\0")))
+                .isFalse();
+        assertThat(SessionCodecRegistry.isCborFrame(frame("\n"))).isFalse();
+    }
+
+    @Test
+    void sendsCborFramesAsBinaryMessages() throws Exception {
+        WebSocketSession delegate = mock(WebSocketSession.class);
+        WebSocketSession session = connect(delegate);
+
+        session.sendMessage(new TextMessage("MESSAGE\ncontent-type:application/cbor\n\n\0"));
+        session.sendMessage(new TextMessage("MESSAGE\ncontent-type:application/cbor-seq\n\n\0"));
+
+        ArgumentCaptor<WebSocketMessage<?>> sent = ArgumentCaptor.forClass(WebSocketMessage.class);
+        verify(delegate, times(2)).sendMessage(sent.capture());
+        assertThat(sent.getAllValues().get(0)).isInstanceOf(BinaryMessage.class);
+        assertThat(sent.getAllValues().get(1)).isInstanceOf(TextMessage.class);
+    }
+
+    @Test
+    void negotiatesCborForWebSocketSession() throws Exception {
+        connect(mock(WebSocketSession.class));
+
+        registry.preSend(connectFrame("s1", MediaType.APPLICATION_CBOR_VALUE), null);
+
+        assertThat(registry.headersFor("s1")).containsEntry(MessageHeaders.CONTENT_TYPE, MediaType.APPLICATION_CBOR);
+        assertThat(registry.headersFor("s2")).isNull();
+        assertThat(registry.headersFor(null)).isNull();
+    }
+
+    @Test
+    void fallsBackToJsonForUnparsableOrOtherFormats() throws Exception {
+        connect(mock(WebSocketSession.class));
+
+        Message<byte[]> connect = connectFrame("s1", "cbor");
+        assertThat(registry.preSend(connect, null)).isSameAs(connect);
+        assertThat(registry.headersFor("s1")).isNull();
+
+        registry.preSend(connectFrame("s1", "application/cbor-seq"), null);
+        assertThat(registry.headersFor("s1")).isNull();
+    }
+
+    private WebSocketSession connect(WebSocketSession delegate) throws Exception {
+        when(delegate.getId()).thenReturn("s1");
+        WebSocketHandler handler = mock(WebSocketHandler.class);
+        registry.decorate(handler).afterConnectionEstablished(delegate);
+
+        ArgumentCaptor<WebSocketSession> session = ArgumentCaptor.forClass(WebSocketSession.class);
+        verify(handler).afterConnectionEstablished(session.capture());
+        return session.getValue();
+    }
+
+    private static Message<byte[]> connectFrame(String sessionId, String accepted) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
+        accessor.setSessionId(sessionId);
+        accessor.setNativeHeader(SessionCodecRegistry.ACCEPT_CONTENT_TYPE_HEADER, accepted);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    private static byte[] frame(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
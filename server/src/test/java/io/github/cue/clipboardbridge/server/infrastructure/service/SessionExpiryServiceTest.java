@@ -0,0 +1,129 @@
+package io.github.cue.clipboardbridge.server.infrastructure.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Колесо таймеров на управляемых часах: перенос записей между уровнями,
+ * перенос срока при обращении, отмена и срабатывание при запоздавшем тике.
+ */
+class SessionExpiryServiceTest {
+
+    private static final long TICK_MS = 1000;
+
+    private final AtomicLong clock = new AtomicLong();
+    private final Map<String, Long> expiredAt = new LinkedHashMap<>();
+    private SessionExpiryService expiryService;
+
+    @BeforeEach
+    void setUp() {
+        expiryService = new SessionExpiryService(TICK_MS, new SimpleMeterRegistry(), clock::get);
+    }
+
+    @AfterEach
+    void tearDown() {
+        expiryService.shutdown();
+    }
+
+    @Test
+    void expiresExactlyAtDeadlineAcrossLevelBoundaries() {
+        long[] ttlTicks = {1, 62, 63, 64, 65, 4095, 4096, 4097, 262_144, 300_000};
+        Map<String, SessionExpiryService.ExpiryRegion<String>> regions = new LinkedHashMap<>();
+        for (long ttl : ttlTicks) {
+            regions.put("ttl-" + ttl, region(ttl * TICK_MS));
+        }
+
+        // Не кратный размеру колеса тик, чтобы сроки пересекали границы уровней
+        tickTo(37);
+        regions.forEach((key, keyRegion) -> keyRegion.touch(key));
+        for (long tick = 38; tick <= 37 + 1 + 300_000; tick++) {
+            tickTo(tick);
+        }
+
+        for (long ttl : ttlTicks) {
+            assertThat(expiredAt).containsEntry("ttl-" + ttl, 37 + 1 + ttl);
+        }
+        assertThat(expiryService.getScheduledCount()).isZero();
+    }
+
+    @Test
+    void touchPostponesExpiry() {
+        SessionExpiryService.ExpiryRegion<String> region = region(10 * TICK_MS);
+        region.touch("a");
+
+        tickTo(8);
+        region.touch("a");
+        tickTo(11);
+        assertThat(expiredAt).isEmpty();
+
+        tickTo(18);
+        assertThat(expiredAt).isEmpty();
+        tickTo(19);
+        assertThat(expiredAt).containsExactly(Map.entry("a", 19L));
+        assertThat(region.isScheduled("a")).isFalse();
+    }
+
+    @Test
+    void cancelPreventsExpiry() {
+        SessionExpiryService.ExpiryRegion<String> region = region(5 * TICK_MS);
+        region.touch("a");
+        region.touch("b");
+        assertThat(expiryService.getScheduledCount()).isEqualTo(2);
+
+        region.cancel("a");
+        region.cancel("a");
+        assertThat(region.isScheduled("a")).isFalse();
+        assertThat(expiryService.getScheduledCount()).isEqualTo(1);
+
+        tickTo(100);
+        assertThat(expiredAt).containsOnlyKeys("b");
+        assertThat(expiryService.getScheduledCount()).isZero();
+    }
+
+    @Test
+    void lateTickFiresOverdueEntriesOnce() {
+        SessionExpiryService.ExpiryRegion<String> region = region(3 * TICK_MS);
+        region.touch("a");
+
+        // Тик запоздал: часы ушли на полтора тика дальше срока
+        clock.set(5 * TICK_MS + TICK_MS / 2);
+        expiryService.advance();
+        assertThat(expiredAt).containsExactly(Map.entry("a", 5L));
+
+        tickTo(200);
+        assertThat(expiredAt).hasSize(1);
+    }
+
+    @Test
+    void entryTouchedMidTickLivesAtLeastTtl() {
+        SessionExpiryService.ExpiryRegion<String> region = region(2 * TICK_MS);
+        clock.set(TICK_MS / 2);
+        region.touch("a");
+
+        clock.set(TICK_MS / 2 + 2 * TICK_MS - 1);
+        expiryService.advance();
+        assertThat(expiredAt).isEmpty();
+
+        tickTo(3);
+        assertThat(expiredAt).containsOnlyKeys("a");
+    }
+
+    private SessionExpiryService.ExpiryRegion<String> region(long ttlMillis) {
+        return expiryService.register("test-" + ttlMillis, ttlMillis,
+                key -> expiredAt.put(key, clock.get() / TICK_MS), expiredAt::size);
+    }
+
+    private void tickTo(long tick) {
+        clock.set(tick * TICK_MS);
+        expiryService.advance();
+    }
+}
@@ -0,0 +1,76 @@
+package io.github.cue.clipboardbridge.server.infrastructure.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Обнаружение зависшей записи в сокет при свободных потоках исходящего канала.
+ */
+class SessionSendMonitorTest {
+
+    @Test
+    void blockedSocketWriteMarksSessionStalled() throws Exception {
+        SessionSendMonitor monitor = new SessionSendMonitor(new SimpleMeterRegistry(), 50);
+        CountDownLatch clientReads = new CountDownLatch(1);
+        WebSocketSession socket = mock(WebSocketSession.class);
+        when(socket.getId()).thenReturn("s1");
+        doAnswer(invocation -> clientReads.await(10, TimeUnit.SECONDS)).when(socket).sendMessage(any());
+
+        AtomicReference<WebSocketSession> downstream = new AtomicReference<>();
+        WebSocketHandler handler = monitor.decorate(new AbstractWebSocketHandler() {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) {
+                downstream.set(session);
+            }
+        });
+        handler.afterConnectionEstablished(socket);
+        assertThat(monitor.isStalled("s1")).isFalse();
+
+        Thread writer = new Thread(() -> {
+            try {
+                downstream.get().sendMessage(new TextMessage("frame"));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        writer.start();
+        Thread.sleep(150);
+
+        assertThat(monitor.isStalled("s1")).isTrue();
+        assertThat(monitor.getSendStallMillis("s1")).isGreaterThanOrEqualTo(50);
+        assertThat(monitor.getStalledSessionCount()).isEqualTo(1);
+
+        clientReads.countDown();
+        writer.join(10_000);
+        assertThat(monitor.isStalled("s1")).isFalse();
+        assertThat(monitor.getSendStallMillis("s1")).isZero();
+
+        handler.afterConnectionClosed(socket, CloseStatus.NORMAL);
+        assertThat(monitor.getStalledSessionCount()).isZero();
+    }
+
+    @Test
+    void unknownSessionIsNotStalled() {
+        SessionSendMonitor monitor = new SessionSendMonitor(new SimpleMeterRegistry(), 50);
+
+        assertThat(monitor.isStalled(null)).isFalse();
+        assertThat(monitor.isStalled("missing")).isFalse();
+        assertThat(monitor.getSendStallMillis("missing")).isZero();
+    }
+}
@@ -0,0 +1,103 @@
+package io.github.cue.clipboardbridge.server.infrastructure.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.user.SimpSession;
+import org.springframework.messaging.simp.user.SimpUser;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+
+import io.github.cue.clipboardbridge.server.domain.model.ReplyMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Доставка ответа: отправка только при живой STOMP сессии клиента,
+ * иначе сохранение в почтовом ящике.
+ */
+class WebSocketSessionMessageServiceTest {
+
+    private static final String CLIENT = "client-1";
+
+    private SessionExpiryService expiryService;
+    private ClientSessionService sessionService;
+    private ClientMailboxService mailboxService;
+    private SimpMessagingTemplate messagingTemplate;
+    private SimpUserRegistry userRegistry;
+    private WebSocketSessionMessageService messageService;
+
+    @BeforeEach
+    void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        expiryService = new SessionExpiryService(1000, meterRegistry);
+        sessionService = new ClientSessionService(expiryService, 60_000);
+        mailboxService = new ClientMailboxService(10, 60_000, 1 << 20, "", expiryService, meterRegistry);
+        messagingTemplate = mock(SimpMessagingTemplate.class);
+        userRegistry = mock(SimpUserRegistry.class);
+        messageService = new WebSocketSessionMessageService(messagingTemplate, userRegistry, sessionService,
+                mailboxService, mock(OutboundChannelQueueTracker.class), mock(SessionSendMonitor.class),
+                mock(WebSocketSessionRegistry.class), mock(SessionCodecRegistry.class), meterRegistry,
+                262144, "drop");
+    }
+
+    @AfterEach
+    void tearDown() {
+        expiryService.shutdown();
+    }
+
+    @Test
+    void sendsWhenCurrentStompSessionIsLive() {
+        sessionService.registerSession(CLIENT, "s1");
+        registerStompSessions("s1");
+
+        assertThat(messageService.deliverReply(CLIENT, reply("ok"))).isEqualTo(ReplyDeliveryStatus.SENT);
+        verify(messagingTemplate).convertAndSendToUser(eq(CLIENT), eq("/queue/reply"), any(Object.class),
+                ArgumentMatchers.<Map<String, Object>>any());
+        assertThat(mailboxService.hasPending(CLIENT)).isFalse();
+    }
+
+    @Test
+    void queuesWhenClientHasNoStompSession() {
+        sessionService.registerSession(CLIENT, "s1");
+
+        assertThat(messageService.deliverReply(CLIENT, reply("lost?"))).isEqualTo(ReplyDeliveryStatus.QUEUED);
+        assertThat(mailboxService.hasPending(CLIENT)).isTrue();
+        verify(messagingTemplate, never()).convertAndSendToUser(anyString(), anyString(), any(Object.class),
+                ArgumentMatchers.<Map<String, Object>>any());
+    }
+
+    @Test
+    void queuesWhenOnlyReplacedStompSessionRemains() {
+        sessionService.registerSession(CLIENT, "s1");
+        sessionService.registerSession(CLIENT, "s2");
+        registerStompSessions("s1");
+
+        assertThat(messageService.deliverReply(CLIENT, reply("r"))).isEqualTo(ReplyDeliveryStatus.QUEUED);
+        assertThat(mailboxService.drain(CLIENT)).hasSize(1);
+    }
+
+    private void registerStompSessions(String... sessionIds) {
+        SimpUser user = mock(SimpUser.class);
+        when(user.hasSessions()).thenReturn(sessionIds.length > 0);
+        for (String sessionId : sessionIds) {
+            when(user.getSession(sessionId)).thenReturn(mock(SimpSession.class));
+        }
+        when(userRegistry.getUser(CLIENT)).thenReturn(user);
+    }
+
+    private static ReplyMessage reply(String response) {
+        return ReplyMessage.builder().response(response).build();
+    }
+}